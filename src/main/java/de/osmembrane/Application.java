@@ -47,6 +47,8 @@ import de.osmembrane.view.dialogs.ExecutionStateDialog;
 import de.osmembrane.view.dialogs.FunctionPresetDialog;
 import de.osmembrane.view.dialogs.ListDialog;
 import de.osmembrane.view.dialogs.PipelineSettingsDialog;
+import de.osmembrane.view.dialogs.RunHistoryDialog;
+import de.osmembrane.view.dialogs.RunQueueDialog;
 import de.osmembrane.view.dialogs.SettingsDialog;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.frames.TutorialFrame;
@@ -113,14 +115,27 @@ public class Application {
      * Initializes the model.
      */
     public void createModels() {
+        createModels(true);
+    }
+
+    /**
+     * Initializes the model.
+     * 
+     * @param presets
+     *            false if the function presets are not needed, what saves a
+     *            noticeable part of the startup time
+     */
+    public void createModels(boolean presets) {
         try {
             ModelProxy.getInstance().getSettings().initiate();
 
             ModelProxy.getInstance().getFunctions()
                     .initiate(Resource.OSMEMBRANE_XML.getURL());
 
-            ModelProxy.getInstance().getPreset()
-                    .initiate(Resource.PRESET_XML.getURL());
+            if (presets) {
+                ModelProxy.getInstance().getPreset()
+                        .initiate(Resource.PRESET_XML.getURL());
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -347,6 +362,8 @@ public class Application {
         vr.register(new AboutDialog(mf));
         vr.register(new BoundingBoxDialog(mf));
         vr.register(new CommandLineDialog(mf));
+        vr.register(new RunQueueDialog(mf));
+        vr.register(new RunHistoryDialog(mf));
         vr.register(new ExceptionDialog(mf));
         vr.register(new ExecutionStateDialog(mf));
         vr.register(new FunctionPresetDialog(mf));
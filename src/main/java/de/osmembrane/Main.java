@@ -11,8 +11,24 @@
 
 package de.osmembrane;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.SwingUtilities;
 
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.tools.BatchConverter;
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.PipelineRunner;
+import de.osmembrane.tools.ReplicationScheduler;
+import de.osmembrane.tools.RunQueue;
+
 /**
  * the Main class for java to contain the static main() method
  * 
@@ -30,6 +46,16 @@ public class Main {
      *            command-line arguments
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args));
+        }
+        if (args.length > 0 && args[0].equals("--run")) {
+            System.exit(runPipeline(args));
+        }
+        if (args.length > 0 && args[0].equals("--schedule")) {
+            System.exit(runScheduler(args));
+        }
+
         application = new Application();
 
         // configure UI defaults (default input maps and such)
@@ -56,6 +82,9 @@ public class Main {
         // setup backup thread
         application.initializeBackup();
 
+        // restart the executions which were queued before the last exit
+        RunQueue.getInstance().load();
+
         // standard method to start Swing GUI
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -67,6 +96,261 @@ public class Main {
 
     }
 
+    /**
+     * Converts a directory of pipelines without any view. Arguments are:<br/>
+     * --batch &lt;directory&gt; [--to osmembrane|bash|cmd] [--out
+     * &lt;directory&gt;] [--threads &lt;count&gt;] [--recursive]
+     * 
+     * @param args
+     *            command-line arguments
+     * @return exit code, 0 if all files have been converted
+     */
+    private static int runBatch(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        application = new Application();
+        application.createHomeDirectory();
+        application.createModels();
+        application.setLocale();
+
+        File directory = null;
+        FileType targetType = FileType.OSMEMBRANE;
+        File outputDirectory = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean recursive = false;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--to")) {
+                    targetType = FileType.valueOf(args[++i].toUpperCase());
+                } else if (args[i].equals("--out")) {
+                    outputDirectory = new File(args[++i]);
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--recursive")) {
+                    recursive = true;
+                } else if (directory == null) {
+                    directory = new File(args[i]);
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            /* missing values, unknown types and unknown arguments */
+            directory = null;
+        }
+
+        if (directory == null || !directory.isDirectory()
+                || targetType.getPersistenceClass() == null
+                || targetType == FileType.ALLTYPES) {
+            System.err.println(I18N.getInstance().getString(
+                    "Tools.BatchConverter.Usage"));
+            return 2;
+        }
+
+        BatchConverter converter = new BatchConverter(directory, targetType,
+                outputDirectory, threads, recursive);
+        long start = System.currentTimeMillis();
+        List<BatchConverter.Result> results = converter.convert();
+        converter.printReport(results, System.currentTimeMillis() - start,
+                System.out);
+
+        for (BatchConverter.Result result : results) {
+            if (!result.isSuccessful()) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Executes a single pipeline without any view. Arguments are:<br/>
+     * --run &lt;file&gt; [--set
+     * &lt;task&gt;[#&lt;n&gt;].&lt;parameter&gt;=&lt;value&gt;]... [--osmosis
+     * &lt;path&gt;] [--workdir &lt;directory&gt;] [--log &lt;file&gt;] [--watch
+     * [--interval &lt;seconds&gt;]] [--in-process &lt;directory&gt;]<br/>
+     * With --watch the pipeline is executed every time its inputs have
+     * changed, until the process is killed. With --in-process osmosis is
+     * loaded from the jars in the directory and executed in this JVM.
+     * 
+     * @param args
+     *            command-line arguments
+     * @return exit code of osmosis, or one of the exit codes of
+     *         {@link PipelineRunner}
+     */
+    private static int runPipeline(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        application = new Application();
+        application.createHomeDirectory();
+        application.createModels(false);
+        application.setLocale();
+
+        File file = null;
+        String osmosisPath = (String) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+        File logFile = null;
+        List<String> overrides = new ArrayList<String>();
+        boolean watch = false;
+        int interval = (Integer) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.WATCH_INTERVAL);
+        File libraryDirectory = null;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--set")) {
+                    overrides.add(args[++i]);
+                } else if (args[i].equals("--osmosis")) {
+                    osmosisPath = args[++i];
+                } else if (args[i].equals("--workdir")) {
+                    workingDirectory = args[++i];
+                } else if (args[i].equals("--log")) {
+                    logFile = new File(args[++i]);
+                } else if (args[i].equals("--watch")) {
+                    watch = true;
+                } else if (args[i].equals("--interval")) {
+                    interval = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--in-process")) {
+                    libraryDirectory = new File(args[++i]);
+                } else if (file == null) {
+                    file = new File(args[i]);
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            /* missing values and unknown arguments */
+            file = null;
+        }
+
+        if (file == null || !file.isFile()) {
+            System.err.println(I18N.getInstance().getString(
+                    "Tools.PipelineRunner.Usage"));
+            return PipelineRunner.EXIT_INVALID;
+        }
+
+        PrintStream log = System.out;
+        if (logFile != null) {
+            try {
+                log = new PrintStream(new FileOutputStream(logFile, true),
+                        true);
+            } catch (FileNotFoundException e) {
+                System.err.println(I18N.getInstance().getString(
+                        "Tools.PipelineRunner.LogFailed", logFile));
+                return PipelineRunner.EXIT_INVALID;
+            }
+        }
+
+        PipelineRunner runner = new PipelineRunner(file, osmosisPath,
+                (workingDirectory == null ? null : new File(workingDirectory)));
+        for (String override : overrides) {
+            runner.addOverride(override);
+        }
+        runner.setInProcess(libraryDirectory);
+
+        try {
+            if (watch) {
+                return runner.watch(log, interval * 1000L);
+            }
+            return runner.run(log);
+        } finally {
+            if (log != System.out) {
+                log.close();
+            }
+        }
+    }
+
+    /**
+     * Executes replication pipelines periodically without any view, until
+     * the process is killed. Arguments are:<br/>
+     * --schedule &lt;file&gt;... [--period &lt;seconds&gt;] [--osmosis
+     * &lt;path&gt;] [--workdir &lt;directory&gt;] [--log &lt;file&gt;]
+     * [--in-process &lt;directory&gt;]<br/>
+     * The class loader of an in-process osmosis stays warm between the runs.
+     * 
+     * @param args
+     *            command-line arguments
+     * @return {@link PipelineRunner#EXIT_INVALID} if a pipeline could not be
+     *         scheduled
+     */
+    private static int runScheduler(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        application = new Application();
+        application.createHomeDirectory();
+        application.createModels(false);
+        application.setLocale();
+
+        List<File> files = new ArrayList<File>();
+        String osmosisPath = (String) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+        File logFile = null;
+        int period = 0;
+        File libraryDirectory = null;
+
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--period")) {
+                    period = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--osmosis")) {
+                    osmosisPath = args[++i];
+                } else if (args[i].equals("--workdir")) {
+                    workingDirectory = args[++i];
+                } else if (args[i].equals("--log")) {
+                    logFile = new File(args[++i]);
+                } else if (args[i].equals("--in-process")) {
+                    libraryDirectory = new File(args[++i]);
+                } else {
+                    files.add(new File(args[i]));
+                }
+            }
+        } catch (RuntimeException e) {
+            /* missing values */
+            files.clear();
+        }
+
+        if (files.isEmpty()) {
+            System.err.println(I18N.getInstance().getString(
+                    "Tools.ReplicationScheduler.Usage"));
+            return PipelineRunner.EXIT_INVALID;
+        }
+
+        PrintStream log = System.out;
+        if (logFile != null) {
+            try {
+                log = new PrintStream(new FileOutputStream(logFile, true),
+                        true);
+            } catch (FileNotFoundException e) {
+                System.err.println(I18N.getInstance().getString(
+                        "Tools.PipelineRunner.LogFailed", logFile));
+                return PipelineRunner.EXIT_INVALID;
+            }
+        }
+
+        try {
+            ReplicationScheduler scheduler = new ReplicationScheduler(log);
+            for (File file : files) {
+                PipelineRunner runner = new PipelineRunner(file, osmosisPath,
+                        (workingDirectory == null ? null : new File(
+                                workingDirectory)));
+                runner.setInProcess(libraryDirectory);
+                if (scheduler.add(runner, period * 1000L) == null) {
+                    return PipelineRunner.EXIT_INVALID;
+                }
+            }
+            scheduler.run();
+            return 0;
+        } finally {
+            if (log != System.out) {
+                log.close();
+            }
+        }
+    }
+
     /**
      * @return the currently running application
      */
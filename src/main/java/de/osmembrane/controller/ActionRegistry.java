@@ -23,6 +23,7 @@ import javax.swing.Action;
 import de.osmembrane.controller.actions.AddConnectionAction;
 import de.osmembrane.controller.actions.AddFunctionAction;
 import de.osmembrane.controller.actions.ArrangePipelineAction;
+import de.osmembrane.controller.actions.DeduplicateReadersAction;
 import de.osmembrane.controller.actions.ChangePipelineSettingsAction;
 import de.osmembrane.controller.actions.ChangeSettingsAction;
 import de.osmembrane.controller.actions.DeleteSelectionAction;
@@ -32,6 +33,8 @@ import de.osmembrane.controller.actions.EditDirectoryPropertyAction;
 import de.osmembrane.controller.actions.EditFilePropertyAction;
 import de.osmembrane.controller.actions.EditListPropertyAction;
 import de.osmembrane.controller.actions.EditPropertyAction;
+import de.osmembrane.controller.actions.ExecuteCachedPipelineAction;
+import de.osmembrane.controller.actions.ExecutePartitionedPipelineAction;
 import de.osmembrane.controller.actions.ExecutePipelineAction;
 import de.osmembrane.controller.actions.ExitAction;
 import de.osmembrane.controller.actions.ExportPipelineAction;
@@ -42,16 +45,21 @@ import de.osmembrane.controller.actions.LoadPipelineAction;
 import de.osmembrane.controller.actions.MoveFunctionAction;
 import de.osmembrane.controller.actions.NewPipelineAction;
 import de.osmembrane.controller.actions.PreviewPipelineAction;
+import de.osmembrane.controller.actions.QueuePipelineAction;
 import de.osmembrane.controller.actions.RedoAction;
 import de.osmembrane.controller.actions.ResetViewAction;
+import de.osmembrane.controller.actions.SampleRunPipelineAction;
 import de.osmembrane.controller.actions.SaveAsPipelineAction;
 import de.osmembrane.controller.actions.SaveFunctionPresetAction;
 import de.osmembrane.controller.actions.SavePipelineAction;
 import de.osmembrane.controller.actions.ShowAboutAction;
 import de.osmembrane.controller.actions.ShowHelpAction;
 import de.osmembrane.controller.actions.ShowQuickstartAction;
+import de.osmembrane.controller.actions.ShowRunHistoryAction;
+import de.osmembrane.controller.actions.ShowRunQueueAction;
 import de.osmembrane.controller.actions.UndoAction;
 import de.osmembrane.controller.actions.ViewAllAction;
+import de.osmembrane.controller.actions.WatchPipelineAction;
 import de.osmembrane.controller.actions.ZoomInAction;
 import de.osmembrane.controller.actions.ZoomOutAction;
 import de.osmembrane.model.ModelProxy;
@@ -100,8 +108,16 @@ public class ActionRegistry implements Observer {
         register(new ImportPipelineAction());
         register(new GeneratePipelineAction());
         register(new ExecutePipelineAction());
+        register(new ExecutePartitionedPipelineAction());
+        register(new ExecuteCachedPipelineAction());
+        register(new SampleRunPipelineAction());
+        register(new QueuePipelineAction());
+        register(new WatchPipelineAction());
+        register(new ShowRunQueueAction());
+        register(new ShowRunHistoryAction());
         register(new PreviewPipelineAction());
         register(new ArrangePipelineAction());
+        register(new DeduplicateReadersAction());
         register(new ChangePipelineSettingsAction());
 
         // function actions
@@ -198,7 +214,17 @@ public class ActionRegistry implements Observer {
         get(SaveAsPipelineAction.class).setEnabled(pipelineFull);
         get(SavePipelineAction.class).setEnabled(!isSaved && pipelineFull);
         get(ArrangePipelineAction.class).setEnabled(pipelineFull);
+        get(DeduplicateReadersAction.class).setEnabled(pipelineFull);
         get(ExecutePipelineAction.class).setEnabled(pipelineFull);
+        get(ExecutePartitionedPipelineAction.class).setEnabled(pipelineFull);
+        get(ExecuteCachedPipelineAction.class).setEnabled(pipelineFull);
+        get(SampleRunPipelineAction.class).setEnabled(pipelineFull);
+        get(QueuePipelineAction.class).setEnabled(pipelineFull);
+        /* a running watch mode can always be stopped */
+        get(WatchPipelineAction.class).setEnabled(
+                pipelineFull
+                        || ((WatchPipelineAction) get(WatchPipelineAction.class))
+                                .isWatching());
         get(ExportPipelineAction.class).setEnabled(pipelineFull);
         get(PreviewPipelineAction.class).setEnabled(pipelineFull);
         get(GeneratePipelineAction.class).setEnabled(pipelineFull);
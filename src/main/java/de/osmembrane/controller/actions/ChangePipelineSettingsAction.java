@@ -69,6 +69,9 @@ public class ChangePipelineSettingsAction extends AbstractAction {
 
         dialog.setVerbose(settings.getVerbose());
         dialog.setDebug(settings.getDebug());
+        dialog.setJavaHeap(settings.getJavaHeap());
+        dialog.setJavaOptions(settings.getJavaOptions());
+        dialog.setTempDirectory(settings.getTempDirectory());
         dialog.setComment(settings.getComment());
         dialog.setName(settings.getName());
 
@@ -79,6 +82,9 @@ public class ChangePipelineSettingsAction extends AbstractAction {
 
             settings.setVerbose(dialog.getVerbose());
             settings.setDebug(dialog.getDebug());
+            settings.setJavaHeap(dialog.getJavaHeap());
+            settings.setJavaOptions(dialog.getJavaOptions());
+            settings.setTempDirectory(dialog.getTempDirectory());
             settings.setComment(dialog.getComment());
             settings.setName(dialog.getName());
 
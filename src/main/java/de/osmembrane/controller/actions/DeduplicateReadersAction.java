@@ -0,0 +1,98 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.ReaderDeduplicator;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.tools.I18N;
+
+/**
+ * Action to collapse readers which are reading the same data into one reader.
+ * The changes are previewed before they are applied.
+ * 
+ * @author agent
+ * 
+ */
+public class DeduplicateReadersAction extends AbstractAction {
+
+    private static final long serialVersionUID = -3167304429817640285L;
+
+    /**
+     * Creates a new {@link DeduplicateReadersAction}
+     */
+    public DeduplicateReadersAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.DeduplicateReaders.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.DeduplicateReaders.Description"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+        ReaderDeduplicator deduplicator = pipeline.findDuplicateReaders();
+        String title = I18N.getInstance().getString(
+                "Controller.Actions.DeduplicateReaders.Title");
+
+        if (!deduplicator.hasDuplicates()) {
+            JOptionPane.showMessageDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.DeduplicateReaders.NoDuplicates"),
+                    title, JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        /* show the preview of all changes */
+        StringBuilder preview = new StringBuilder();
+        for (String line : deduplicator.getPreview()) {
+            preview.append(line).append("\n");
+        }
+        JTextArea previewArea = new JTextArea(preview.toString().trim(), Math
+                .min(deduplicator.getPreview().size(), 15), 50);
+        previewArea.setEditable(false);
+
+        Object[] message = new Object[] {
+                new JLabel(I18N.getInstance().getString(
+                        "Controller.Actions.DeduplicateReaders.Preview")),
+                new JScrollPane(previewArea),
+                new JLabel(I18N.getInstance().getString(
+                        "Controller.Actions.DeduplicateReaders.Apply")) };
+
+        if (JOptionPane.showConfirmDialog(null, message, title,
+                JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        if (!pipeline.deduplicateReaders()) {
+            JOptionPane.showMessageDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.DeduplicateReaders.Failed"),
+                    title, JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
@@ -19,14 +19,14 @@ import javax.swing.Action;
 import javax.swing.KeyStroke;
 
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
 import de.osmembrane.resources.Resource;
 import de.osmembrane.tools.I18N;
 import de.osmembrane.tools.IconLoader.Size;
 import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.interfaces.IMainFrame;
-import de.osmembrane.view.panels.PipelineFunction;
-import de.osmembrane.view.panels.PipelineLink;
 
 /**
  * Action to delete a function or a connection from the pipeline. Receives no
@@ -64,25 +64,17 @@ public class DeleteSelectionAction extends AbstractAction {
     public void actionPerformed(ActionEvent e) {
         IMainFrame mainFrame = ViewRegistry.getInstance().getCasted(
                 MainFrame.class, IMainFrame.class);
-        Object selected = mainFrame.getSelected();
+        AbstractFunction function = mainFrame.getSelectedFunction();
+        AbstractConnector[] connection = mainFrame.getSelectedConnection();
 
-        if (selected != null) {
-            if (selected instanceof PipelineFunction) {
-                // delete selected function
-                PipelineFunction pf = (PipelineFunction) selected;
-                ModelProxy.getInstance().getPipeline()
-                        .deleteFunction(pf.getModelFunction());
+        if (function != null) {
+            // delete selected function
+            ModelProxy.getInstance().getPipeline().deleteFunction(function);
 
-            } else if (selected instanceof PipelineLink) {
-                // delete selected connection/link
-                PipelineLink pl = (PipelineLink) selected;
-                pl.getLinkSource()
-                        .getModelConnector()
-                        .getParent()
-                        .removeConnectionTo(
-                                pl.getLinkDestination().getModelConnector()
-                                        .getParent());
-            }
+        } else if (connection != null) {
+            // delete selected connection/link
+            connection[0].getParent().removeConnectionTo(
+                    connection[1].getParent());
         }
     } /* actionPerformed */
 }
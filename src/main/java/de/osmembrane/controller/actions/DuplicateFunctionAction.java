@@ -29,7 +29,7 @@ import de.osmembrane.tools.IconLoader.Size;
 import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.interfaces.IMainFrame;
-import de.osmembrane.view.panels.PipelineFunction;
+import de.osmembrane.view.panels.LibraryFunction;
 
 /**
  * Action to duplicate a function in the pipeline. Receives no specific event,
@@ -69,25 +69,20 @@ public class DuplicateFunctionAction extends AbstractAction {
     public void actionPerformed(ActionEvent e) {
         IMainFrame mainFrame = ViewRegistry.getInstance().getCasted(
                 MainFrame.class, IMainFrame.class);
-        Object selected = mainFrame.getSelected();
+        AbstractFunction selected = mainFrame.getSelectedFunction();
 
         if (selected != null) {
-            if (selected instanceof PipelineFunction) {
-                PipelineFunction pf = (PipelineFunction) selected;
+            // create new duplicate
+            AbstractFunction duplicate = selected.copy(CopyType.COPY_ALL);
 
-                // create new duplicate
-                AbstractFunction duplicate = pf.getModelFunction().copy(
-                        CopyType.COPY_ALL);
+            // set its location
+            Point2D duplLoc = duplicate.getCoordinate();
+            duplicate.setCoordinate(new Point2D.Double(duplLoc.getX() + 1.0
+                    * Math.random() * LibraryFunction.FUNCTION_SIZE.width,
+                    duplLoc.getY() + 1.1 * LibraryFunction.FUNCTION_SIZE.height));
 
-                // set its location
-                Point2D duplLoc = duplicate.getCoordinate();
-                duplicate.setCoordinate(new Point2D.Double(duplLoc.getX() + 1.0
-                        * Math.random() * pf.getPreferredSize().width, duplLoc
-                        .getY() + 1.1 * pf.getPreferredSize().height));
-
-                // add it
-                ModelProxy.getInstance().getPipeline().addFunction(duplicate);
-            }
+            // add it
+            ModelProxy.getInstance().getPipeline().addFunction(duplicate);
         }
     }
 }
@@ -0,0 +1,236 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.ButtonGroup;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
+
+import de.osmembrane.Application;
+import de.osmembrane.exceptions.ControlledException;
+import de.osmembrane.exceptions.ExceptionSeverity;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.algorithms.PipelinePartitioner;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Connection;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Partition;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.PipelineExecutor;
+import de.osmembrane.tools.RunRecord;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.ExecutionStateDialog;
+import de.osmembrane.view.interfaces.IExecutionStateDialog;
+
+/**
+ * Action to execute the pipeline as several osmosis processes, which are
+ * connected by named pipes or temporary files.
+ * 
+ * @author agent
+ * 
+ */
+public class ExecutePartitionedPipelineAction extends AbstractAction {
+
+    private static final long serialVersionUID = 2871706046436411803L;
+
+    /**
+     * Creates a new {@link ExecutePartitionedPipelineAction}
+     */
+    public ExecutePartitionedPipelineAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ExecutePartitionedPipeline.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ExecutePartitionedPipeline.Description"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+        String title = I18N.getInstance().getString(
+                "Controller.Actions.ExecutePartitionedPipeline.Title");
+
+        /* Check if the pipeline is complete */
+        if (!pipeline.isComplete()) {
+            if (!(JOptionPane.showConfirmDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete"),
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete.Title"),
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION)) {
+                return;
+            }
+        }
+
+        final PipelinePartitioner partitioner = pipeline.getPartitioner();
+        final List<Connection> candidates = partitioner.getCandidates();
+        if (candidates.isEmpty()) {
+            JOptionPane.showMessageDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.ExecutePartitionedPipeline.NoCandidates"),
+                    title, JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        /* let the user choose the cuts, the suggestion is preselected */
+        final List<JCheckBox> checkBoxes = new ArrayList<JCheckBox>();
+        JPanel cutPanel = new JPanel(new GridLayout(0, 1));
+        for (Connection candidate : candidates) {
+            JCheckBox checkBox = new JCheckBox(candidate.toString());
+            checkBoxes.add(checkBox);
+            cutPanel.add(checkBox);
+        }
+        ActionListener suggest = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                List<Connection> suggestion = partitioner.suggestCuts();
+                for (int i = 0; i < candidates.size(); i++) {
+                    checkBoxes.get(i).setSelected(
+                            suggestion.contains(candidates.get(i)));
+                }
+            }
+        };
+        suggest.actionPerformed(null);
+
+        JButton suggestButton = new JButton(I18N.getInstance().getString(
+                "Controller.Actions.ExecutePartitionedPipeline.Suggest"));
+        suggestButton.addActionListener(suggest);
+
+        JRadioButton filesButton = new JRadioButton(I18N.getInstance()
+                .getString("Controller.Actions.ExecutePartitionedPipeline.Files"),
+                true);
+        JRadioButton pipesButton = new JRadioButton(I18N.getInstance()
+                .getString("Controller.Actions.ExecutePartitionedPipeline.Pipes"));
+        ButtonGroup linkGroup = new ButtonGroup();
+        linkGroup.add(filesButton);
+        linkGroup.add(pipesButton);
+
+        /* named pipes are not available on windows */
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            pipesButton.setEnabled(false);
+        }
+
+        JPanel suggestPanel = new JPanel(new BorderLayout());
+        suggestPanel.add(suggestButton, BorderLayout.WEST);
+
+        Object[] message = new Object[] {
+                new JLabel(I18N.getInstance().getString(
+                        "Controller.Actions.ExecutePartitionedPipeline.Cuts")),
+                new JScrollPane(cutPanel), suggestPanel, filesButton,
+                pipesButton };
+
+        if (JOptionPane.showConfirmDialog(null, message, title,
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        List<Connection> cuts = new ArrayList<Connection>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (checkBoxes.get(i).isSelected()) {
+                cuts.add(candidates.get(i));
+            }
+        }
+        if (!partitioner.isValid(cuts)) {
+            JOptionPane.showMessageDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.ExecutePartitionedPipeline.Invalid"),
+                    title, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        /* the path to osmosis */
+        final String osmosisPath = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+
+        /* the working directory */
+        final String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+
+        File linkDirectory = new File(workingDirectory, "osmembrane-links-"
+                + System.currentTimeMillis());
+        if (!cuts.isEmpty() && !linkDirectory.mkdirs()) {
+            Application.handleException(new ControlledException(this,
+                    ExceptionSeverity.WARNING, I18N.getInstance().getString(
+                            "Controller.Actions.ExecutePartitionedPipeline.NoLinkDirectory",
+                            linkDirectory.getAbsolutePath())));
+            return;
+        }
+
+        List<Partition> partitions = partitioner.partition(cuts, linkDirectory);
+        List<List<String>> invocations = new ArrayList<List<String>>();
+        List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>();
+        List<JvmSizing> jvmSizings = new ArrayList<JvmSizing>();
+        for (Partition partition : partitions) {
+            invocations.add(pipeline.generateArguments(
+                    FileType.EXECUTION_FILETYPE, partition.getFunctions()));
+            dependencies.add(new HashSet<Integer>(partition.getDependencies()));
+
+            /* every partition only needs the heap of its own tasks */
+            jvmSizings.add(JvmSizing.recommend(partition.getFunctions(),
+                    pipeline.getSettings(), new File(workingDirectory)));
+        }
+
+        IExecutionStateDialog dialog = ViewRegistry.getInstance().getCasted(
+                ExecutionStateDialog.class, IExecutionStateDialog.class);
+
+        /* clear the contents of the exectuion window */
+        dialog.clear();
+
+        try {
+            PipelineExecutor executor = new PipelineExecutor(osmosisPath,
+                    workingDirectory, invocations, dependencies, dialog);
+            executor.setLinks(partitioner.getLinks(),
+                    (cuts.isEmpty() ? null : linkDirectory),
+                    pipesButton.isSelected());
+            executor.setRunRecord(RunRecord.create(pipeline, new File(
+                    workingDirectory)));
+            executor.setJvmSizings(jvmSizings, Math.max(0.0, JvmSizing
+                    .getAvailableMemory()));
+            executor.start();
+            dialog.showWindow();
+        } catch (IllegalArgumentException e1) {
+            linkDirectory.delete();
+            Application
+                    .handleException(new ControlledException(
+                            this,
+                            ExceptionSeverity.WARNING,
+                            I18N.getInstance()
+                                    .getString(
+                                            "Controller.Actions.ExecutePipeline.OsmosisNotFound")));
+        }
+    }
+}
@@ -13,8 +13,12 @@ package de.osmembrane.controller.actions;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -22,16 +26,23 @@ import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
 
 import de.osmembrane.Application;
+import de.osmembrane.controller.ActionRegistry;
 import de.osmembrane.exceptions.ControlledException;
 import de.osmembrane.exceptions.ExceptionSeverity;
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Partition;
+import de.osmembrane.model.algorithms.ResourceEstimator;
 import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractPipeline;
 import de.osmembrane.model.settings.SettingType;
 import de.osmembrane.resources.Resource;
 import de.osmembrane.tools.HeadlessSafe;
 import de.osmembrane.tools.I18N;
 import de.osmembrane.tools.IconLoader.Size;
+import de.osmembrane.tools.InProcessOsmosis;
 import de.osmembrane.tools.PipelineExecutor;
+import de.osmembrane.tools.RunRecord;
 import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.dialogs.ExecutionStateDialog;
 import de.osmembrane.view.interfaces.IExecutionStateDialog;
@@ -46,6 +57,11 @@ public class ExecutePipelineAction extends AbstractAction {
 
     private static final long serialVersionUID = -173334958831335922L;
 
+    /**
+     * the execution which is currently shown in the execution dialog
+     */
+    private PipelineExecutor executor;
+
     /**
      * Creates a new {@link ExecutePipelineAction}
      */
@@ -72,6 +88,17 @@ public class ExecutePipelineAction extends AbstractAction {
     @Override
     public void actionPerformed(ActionEvent e) {
 
+        /*
+         * the execution dialog is still busy, so the pipeline has to wait for
+         * its turn in the run queue
+         */
+        if (executor != null && executor.isAlive()
+                && !(e.getSource() instanceof Action)) {
+            ActionRegistry.getInstance().get(QueuePipelineAction.class)
+                    .actionPerformed(e);
+            return;
+        }
+
         /* Check if the pipeline is complete */
         if (!ModelProxy.getInstance().getPipeline().isComplete()) {
             if (!(JOptionPane.showConfirmDialog(
@@ -85,9 +112,6 @@ public class ExecutePipelineAction extends AbstractAction {
             }
         }
 
-        FileType type = FileType.EXECUTION_FILETYPE;
-        String pipeline = ModelProxy.getInstance().getPipeline().generate(type);
-
         /* the path to osmosis */
         final String osmosisPath = (String) ModelProxy.getInstance()
                 .getSettings().getValue(SettingType.DEFAULT_OSMOSIS_PATH);
@@ -96,16 +120,49 @@ public class ExecutePipelineAction extends AbstractAction {
         final String workingDirectory = (String) ModelProxy.getInstance()
                 .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
 
-        final List<String> parameters = new ArrayList<String>();
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+        ResourceEstimator estimator = pipeline.estimateResources();
+        JvmSizing jvmSizing = JvmSizing.recommend(estimator, pipeline
+                .getSettings(), new File(workingDirectory));
 
-        /* transform the params */
-        String[] params = pipeline.split(" +");
-        for (String param : params) {
-            if (param.length() > 0) {
-                parameters.add(param);
+        FileType type = FileType.EXECUTION_FILETYPE;
+        List<List<String>> invocations = new ArrayList<List<String>>();
+        List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>();
+        List<JvmSizing> jvmSizings = new ArrayList<JvmSizing>();
+
+        /* disconnected parts of the pipeline run in their own processes */
+        int parallelComponents = (Integer) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.PARALLEL_COMPONENTS);
+        if (parallelComponents > 0) {
+            List<Partition> components = pipeline.getPartitioner()
+                    .splitComponents();
+            if (components.size() > 1) {
+                for (Partition component : components) {
+                    invocations.add(pipeline.generateArguments(type,
+                            component.getFunctions()));
+                    dependencies.add(new HashSet<Integer>());
+
+                    /* every component only needs the heap of its own tasks */
+                    ResourceEstimator componentEstimator = new ResourceEstimator(
+                            component.getFunctions(), new File(
+                                    workingDirectory));
+                    componentEstimator.run();
+                    jvmSizings.add(JvmSizing.recommend(componentEstimator,
+                            pipeline.getSettings(), new File(workingDirectory)));
+                }
             }
         }
 
+        /* pipelines which fit into the free heap may run in-process */
+        InProcessOsmosis inProcess = null;
+        if (invocations.isEmpty()) {
+            inProcess = getInProcess(jvmSizing);
+            invocations.add(inProcess != null ? InProcessOsmosis.getArguments(
+                    pipeline, new File(workingDirectory)) : pipeline
+                    .generateArguments(type));
+            dependencies.add(new HashSet<Integer>());
+        }
+
         IExecutionStateDialog dialog = ViewRegistry.getInstance().getCasted(
                 ExecutionStateDialog.class, IExecutionStateDialog.class);
 
@@ -120,9 +177,21 @@ public class ExecutePipelineAction extends AbstractAction {
         }
 
         try {
-            PipelineExecutor executor = new PipelineExecutor(osmosisPath,
-                    workingDirectory, parameters, dialog);
+            executor = new PipelineExecutor(osmosisPath,
+                    workingDirectory, invocations, dependencies, dialog);
+            if (invocations.size() > 1) {
+                executor.setIndependent(parallelComponents);
+                /* the components together must not take more than is free */
+                executor.setJvmSizings(jvmSizings, Math.max(0.0, JvmSizing
+                        .getAvailableMemory()));
+            } else {
+                executor.setJvmSizing(jvmSizing);
+            }
             executor.setCallbackAction(action);
+            executor.setExpectedEntities(estimator.getInputEntities());
+            executor.setRunRecord(RunRecord.create(pipeline, new File(
+                    workingDirectory)));
+            executor.setInProcess(inProcess);
             executor.start();
             dialog.showWindow();
         } catch (IllegalArgumentException e1) {
@@ -136,4 +205,31 @@ public class ExecutePipelineAction extends AbstractAction {
         }
 
     }
+
+    /**
+     * Returns the in-process osmosis if it is enabled in the settings and
+     * the pipeline fits into the free heap.
+     * 
+     * @param jvmSizing
+     *            the recommended sizing of the pipeline
+     * @return the in-process osmosis or NULL to start a process
+     */
+    private InProcessOsmosis getInProcess(JvmSizing jvmSizing) {
+        if (!(Boolean) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.IN_PROCESS_EXECUTION)) {
+            return null;
+        }
+
+        String libraryPath = (String) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.OSMOSIS_LIBRARY_PATH);
+        try {
+            InProcessOsmosis inProcess = InProcessOsmosis
+                    .getInstance(new File(libraryPath));
+            return (inProcess.canRun(jvmSizing) ? inProcess : null);
+        } catch (IOException e) {
+            Application.handleException(new ControlledException(this,
+                    ExceptionSeverity.WARNING, e, e.getMessage()));
+            return null;
+        }
+    }
 }
@@ -25,6 +25,7 @@ import de.osmembrane.resources.Resource;
 import de.osmembrane.tools.HeadlessSafe;
 import de.osmembrane.tools.I18N;
 import de.osmembrane.tools.IconLoader.Size;
+import de.osmembrane.tools.RunQueue;
 
 /**
  * Action to exit the program with all additional stuff that might be necessary
@@ -88,6 +89,9 @@ public class ExitAction extends AbstractAction {
          */
         ModelProxy.getInstance().getPipeline().clearBackup();
 
+        /* running executions are restarted with the next start */
+        RunQueue.getInstance().shutdown();
+
         System.exit(0);
     }
 }
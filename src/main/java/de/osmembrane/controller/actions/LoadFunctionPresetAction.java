@@ -28,7 +28,6 @@ import de.osmembrane.view.dialogs.FunctionPresetDialog;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.interfaces.IFunctionPresetDialog;
 import de.osmembrane.view.interfaces.IMainFrame;
-import de.osmembrane.view.panels.PipelineFunction;
 
 /**
  * Action to load saved presets for a specific function.
@@ -60,12 +59,10 @@ public class LoadFunctionPresetAction extends AbstractAction {
     public void actionPerformed(ActionEvent e) {
         IMainFrame mainFrame = ViewRegistry.getInstance().getCasted(
                 MainFrame.class, IMainFrame.class);
-        Object select = mainFrame.getSelected();
-        if ((select == null) || !(select instanceof PipelineFunction)) {
+        AbstractFunction function = mainFrame.getSelectedFunction();
+        if (function == null) {
             return;
         }
-        AbstractFunction function = ((PipelineFunction) select)
-                .getModelFunction();
 
         AbstractSettings settings = ModelProxy.getInstance().getSettings();
 
@@ -0,0 +1,110 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JOptionPane;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.resources.Resource;
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.IconLoader.Size;
+import de.osmembrane.tools.RunQueue;
+import de.osmembrane.tools.RunRecord;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.RunQueueDialog;
+import de.osmembrane.view.interfaces.IRunQueueDialog;
+
+/**
+ * Action to add the created pipeline to the {@link RunQueue}, it is executed
+ * in the background as soon as enough resources are available.
+ * 
+ * @author agent
+ * 
+ */
+public class QueuePipelineAction extends AbstractAction {
+
+    private static final long serialVersionUID = 2283612964404735113L;
+
+    /**
+     * Creates a new {@link QueuePipelineAction}
+     */
+    public QueuePipelineAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.QueuePipeline.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.QueuePipeline.Description"));
+        putValue(Action.SMALL_ICON, Resource.PROGRAM_ICON.getImageIcon(
+                "execute_pipeline.png", Size.SMALL));
+        putValue(Action.LARGE_ICON_KEY, Resource.PROGRAM_ICON.getImageIcon(
+                "execute_pipeline.png", Size.NORMAL));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+
+        /* Check if the pipeline is complete */
+        if (!pipeline.isComplete()) {
+            if (!(JOptionPane.showConfirmDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete"),
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete.Title"),
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION)) {
+                return;
+            }
+        }
+
+        List<String> parameters = pipeline
+                .generateArguments(FileType.EXECUTION_FILETYPE);
+
+        String osmosisPath = (String) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+
+        /* the job is named like the pipeline in the title of the main frame */
+        URL url = pipeline.getFilename();
+        String name;
+        if (url == null) {
+            name = I18N.getInstance().getString("Controller.UnsavedTitle");
+        } else {
+            name = new File(url.getPath()).getName().replaceAll(
+                    "(?i)" + FileType.OSMEMBRANE.getExtension(), "");
+        }
+
+        RunQueue.getInstance().add(name, osmosisPath, workingDirectory,
+                parameters, JvmSizing.recommend(pipeline.estimateResources(),
+                        pipeline.getSettings(), new File(workingDirectory)),
+                RunRecord.create(pipeline, new File(workingDirectory)));
+
+        ViewRegistry.getInstance()
+                .getCasted(RunQueueDialog.class, IRunQueueDialog.class)
+                .showWindow();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.Dimension;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.ButtonGroup;
+import javax.swing.JOptionPane;
+import javax.swing.JRadioButton;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+
+import de.osmembrane.Application;
+import de.osmembrane.exceptions.ControlledException;
+import de.osmembrane.exceptions.ExceptionSeverity;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.PipelineSampler;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.resources.Constants;
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.PipelineExecutor;
+import de.osmembrane.tools.Tools;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.BoundingBoxDialog;
+import de.osmembrane.view.dialogs.ExecutionStateDialog;
+import de.osmembrane.view.interfaces.IBoundingBoxDialog;
+import de.osmembrane.view.interfaces.IExecutionStateDialog;
+import de.unistuttgart.iev.osm.bboxchooser.Bounds;
+
+/**
+ * Action to execute a sample of the pipeline. Every reader is cut to a small
+ * area, the outputs are written into a scratch directory and osmosis runs
+ * with low priority. The pipeline itself is not changed. When the execution
+ * dialog is closed the sample outputs are shown next to the configured ones.
+ * 
+ * @author agent
+ * 
+ */
+public class SampleRunPipelineAction extends AbstractAction {
+
+    private static final long serialVersionUID = 6407912985164421330L;
+
+    /**
+     * the outputs of the last sample run
+     */
+    private Map<String, File> outputs = new LinkedHashMap<String, File>();
+
+    /**
+     * Creates a new {@link SampleRunPipelineAction}
+     */
+    public SampleRunPipelineAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.Description"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (e.getSource() instanceof PipelineExecutor) {
+            showOutputs();
+            return;
+        }
+
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+        String title = I18N.getInstance().getString(
+                "Controller.Actions.SampleRunPipeline.Title");
+
+        /* Check if the pipeline is complete */
+        if (!pipeline.isComplete()) {
+            if (!(JOptionPane.showConfirmDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete"),
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete.Title"),
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION)) {
+                return;
+            }
+        }
+
+        /* the sample area, suggested from the pipeline or chosen on the map */
+        PipelineSampler sampler = pipeline.getSampler();
+        String area = sampler.suggestArea();
+
+        JRadioButton automaticButton = new JRadioButton();
+        JRadioButton chooseButton = new JRadioButton(I18N.getInstance()
+                .getString("Controller.Actions.SampleRunPipeline.ChooseArea"));
+        ButtonGroup areaGroup = new ButtonGroup();
+        areaGroup.add(automaticButton);
+        areaGroup.add(chooseButton);
+        if (area != null) {
+            automaticButton.setText(I18N.getInstance().getString(
+                    "Controller.Actions.SampleRunPipeline.AutomaticArea",
+                    area.replace(Constants.BBOX_SEPERATOR, ", ")));
+            automaticButton.setSelected(true);
+        } else {
+            automaticButton.setText(I18N.getInstance().getString(
+                    "Controller.Actions.SampleRunPipeline.NoArea"));
+            automaticButton.setEnabled(false);
+            chooseButton.setSelected(true);
+        }
+
+        Object[] message = new Object[] {
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.Area",
+                        PipelineSampler.AREA_SIZE), automaticButton,
+                chooseButton };
+        if (JOptionPane.showConfirmDialog(null, message, title,
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        if (chooseButton.isSelected()) {
+            IBoundingBoxDialog ibbd = ViewRegistry.getInstance().getCasted(
+                    BoundingBoxDialog.class, IBoundingBoxDialog.class);
+            ibbd.setBoundingBox((area != null ? new Bounds(area,
+                    Constants.BBOX_SEPERATOR) : null));
+            ibbd.centerWindow();
+            ibbd.showWindow();
+
+            Bounds b = ibbd.getBoundingBox();
+            if (b == null) {
+                return;
+            }
+            area = b.encodeAsString(Constants.BBOX_SEPERATOR);
+        }
+
+        /* the path to osmosis */
+        final String osmosisPath = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+
+        /* the working directory */
+        final String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+
+        /* outputs of earlier sample runs are removed */
+        File scratchDirectory = new File(
+                Tools.urlToFile(Constants.DEFAULT_USER_FOLDER),
+                Constants.DEFAULT_SAMPLES_FOLDER_NAME);
+        File[] previous = scratchDirectory.listFiles();
+        if (previous != null) {
+            for (File file : previous) {
+                file.delete();
+            }
+        }
+        if (!scratchDirectory.isDirectory() && !scratchDirectory.mkdirs()) {
+            Application.handleException(new ControlledException(this,
+                    ExceptionSeverity.WARNING, I18N.getInstance().getString(
+                            "Controller.Actions.SampleRunPipeline.NoScratchDirectory",
+                            scratchDirectory.getAbsolutePath())));
+            return;
+        }
+
+        List<AbstractFunction> sample = sampler.sample(area, scratchDirectory);
+        outputs = new LinkedHashMap<String, File>(sampler.getOutputs());
+        List<String> parameters = pipeline.generateArguments(
+                FileType.EXECUTION_FILETYPE, sample);
+
+        IExecutionStateDialog dialog = ViewRegistry.getInstance().getCasted(
+                ExecutionStateDialog.class, IExecutionStateDialog.class);
+
+        /* clear the contents of the exectuion window */
+        dialog.clear();
+
+        try {
+            PipelineExecutor executor = new PipelineExecutor(osmosisPath,
+                    workingDirectory, parameters, dialog);
+            executor.setLowPriority(true);
+            executor.setCallbackAction(SampleRunPipelineAction.class);
+            executor.start();
+            dialog.showWindow();
+        } catch (IllegalArgumentException e1) {
+            Application
+                    .handleException(new ControlledException(
+                            this,
+                            ExceptionSeverity.WARNING,
+                            I18N.getInstance()
+                                    .getString(
+                                            "Controller.Actions.ExecutePipeline.OsmosisNotFound")));
+        }
+    }
+
+    /**
+     * Shows the outputs of the last sample run next to the configured ones.
+     */
+    private void showOutputs() {
+        String[] columns = new String[] {
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.Output"),
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.SampleOutput"),
+                I18N.getInstance().getString(
+                        "Controller.Actions.SampleRunPipeline.Size") };
+        String[][] rows = new String[outputs.size()][];
+        int i = 0;
+        for (Map.Entry<String, File> output : outputs.entrySet()) {
+            File file = output.getValue();
+            if (file == null) {
+                rows[i++] = new String[] {
+                        output.getKey(),
+                        I18N.getInstance().getString(
+                                "Controller.Actions.SampleRunPipeline.Discarded"),
+                        "" };
+            } else {
+                rows[i++] = new String[] { output.getKey(),
+                        file.getAbsolutePath(),
+                        (file.isFile() ? file.length() + " B" : "-") };
+            }
+        }
+
+        JTable table = new JTable(rows, columns);
+        table.setEnabled(false);
+        JScrollPane pane = new JScrollPane(table);
+        pane.setPreferredSize(new Dimension(720, 160));
+
+        JOptionPane.showMessageDialog(null, pane, I18N.getInstance()
+                .getString("Controller.Actions.SampleRunPipeline.Title"),
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+}
@@ -25,7 +25,6 @@ import de.osmembrane.tools.IconLoader.Size;
 import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.interfaces.IMainFrame;
-import de.osmembrane.view.panels.PipelineFunction;
 
 /**
  * Action to save properties as a preset for a specific function.
@@ -57,12 +56,10 @@ public class SaveFunctionPresetAction extends AbstractAction {
     public void actionPerformed(ActionEvent e) {
         IMainFrame mainFrame = ViewRegistry.getInstance().getCasted(
                 MainFrame.class, IMainFrame.class);
-        Object select = mainFrame.getSelected();
-        if ((select == null) || !(select instanceof PipelineFunction)) {
+        AbstractFunction function = mainFrame.getSelectedFunction();
+        if (function == null) {
             return;
         }
-        AbstractFunction function = ((PipelineFunction) select)
-                .getModelFunction();
 
         /* Request a name for the preset */
         String name = JOptionPane.showInputDialog(
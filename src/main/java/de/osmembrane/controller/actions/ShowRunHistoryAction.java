@@ -0,0 +1,55 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+
+import de.osmembrane.tools.I18N;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.RunHistoryDialog;
+import de.osmembrane.view.interfaces.IRunHistoryDialog;
+
+/**
+ * Action to show the history of the executions.
+ * 
+ * @author agent
+ * 
+ */
+public class ShowRunHistoryAction extends AbstractAction {
+
+    private static final long serialVersionUID = 4417036952684520711L;
+
+    /**
+     * Creates a new {@link ShowRunHistoryAction}
+     */
+    public ShowRunHistoryAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ShowRunHistory.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ShowRunHistory.Description"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        IRunHistoryDialog dialog = ViewRegistry.getInstance().getCasted(
+                RunHistoryDialog.class, IRunHistoryDialog.class);
+        dialog.showWindow();
+        dialog.bringToFront();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.event.ActionEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+
+import de.osmembrane.tools.I18N;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.RunQueueDialog;
+import de.osmembrane.view.interfaces.IRunQueueDialog;
+
+/**
+ * Action to show the queued and running executions.
+ * 
+ * @author agent
+ * 
+ */
+public class ShowRunQueueAction extends AbstractAction {
+
+    private static final long serialVersionUID = -5307871213985870212L;
+
+    /**
+     * Creates a new {@link ShowRunQueueAction}
+     */
+    public ShowRunQueueAction() {
+        putValue(
+                Action.NAME,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ShowRunQueue.Name"));
+        putValue(
+                Action.SHORT_DESCRIPTION,
+                I18N.getInstance().getString(
+                        "Controller.Actions.ShowRunQueue.Description"));
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        IRunQueueDialog dialog = ViewRegistry.getInstance().getCasted(
+                RunQueueDialog.class, IRunQueueDialog.class);
+        dialog.showWindow();
+        dialog.bringToFront();
+    }
+}
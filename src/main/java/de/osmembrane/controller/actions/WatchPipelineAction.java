@@ -0,0 +1,190 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.controller.actions;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.resources.Resource;
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.IconLoader.Size;
+import de.osmembrane.tools.InputWatcher;
+import de.osmembrane.tools.RunQueue;
+import de.osmembrane.tools.RunQueue.Job;
+import de.osmembrane.tools.RunRecord;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.dialogs.RunQueueDialog;
+import de.osmembrane.view.interfaces.IRunQueueDialog;
+
+/**
+ * Action to start or stop the watch mode. While watching, the pipeline as it
+ * was when the watching started is added to the {@link RunQueue} every time
+ * its inputs have changed, see {@link InputWatcher}.
+ * 
+ * @author agent
+ * 
+ */
+public class WatchPipelineAction extends AbstractAction {
+
+    private static final long serialVersionUID = -1862461286370434651L;
+
+    /**
+     * the running watcher, NULL if not watching
+     */
+    private InputWatcher watcher;
+
+    /**
+     * Creates a new {@link WatchPipelineAction}
+     */
+    public WatchPipelineAction() {
+        showWatching(false);
+        putValue(Action.SMALL_ICON, Resource.PROGRAM_ICON.getImageIcon(
+                "execute_pipeline.png", Size.SMALL));
+        putValue(Action.LARGE_ICON_KEY, Resource.PROGRAM_ICON.getImageIcon(
+                "execute_pipeline.png", Size.NORMAL));
+    }
+
+    /**
+     * @return true if the inputs are watched
+     */
+    public boolean isWatching() {
+        return (watcher != null);
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (watcher != null) {
+            watcher.stop();
+            watcher = null;
+            showWatching(false);
+            return;
+        }
+
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+
+        /* Check if the pipeline is complete */
+        if (!pipeline.isComplete()) {
+            if (!(JOptionPane.showConfirmDialog(
+                    null,
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete"),
+                    I18N.getInstance().getString(
+                            "Controller.Actions.PipelineNotComplete.Title"),
+                    JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE) == JOptionPane.YES_OPTION)) {
+                return;
+            }
+        }
+
+        final String osmosisPath = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_OSMOSIS_PATH);
+        final String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+        int interval = (Integer) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.WATCH_INTERVAL);
+
+        List<File> inputs = InputWatcher.getInputs(Arrays.asList(pipeline
+                .getFunctions()), new File(workingDirectory));
+        if (inputs.isEmpty()) {
+            JOptionPane.showMessageDialog(null, I18N.getInstance().getString(
+                    "Tools.InputWatcher.NoInputs"), I18N.getInstance()
+                    .getString("Controller.Actions.WatchPipeline.Name"),
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        /* the job is named like the pipeline in the title of the main frame */
+        URL url = pipeline.getFilename();
+        final String name;
+        if (url == null) {
+            name = I18N.getInstance().getString("Controller.UnsavedTitle");
+        } else {
+            name = new File(url.getPath()).getName().replaceAll(
+                    "(?i)" + FileType.OSMEMBRANE.getExtension(), "");
+        }
+
+        /* later changes of the pipeline do not change the watched one */
+        final List<String> parameters = pipeline
+                .generateArguments(FileType.EXECUTION_FILETYPE);
+        final JvmSizing jvmSizing = JvmSizing.recommend(pipeline
+                .estimateResources(), pipeline.getSettings(), new File(
+                workingDirectory));
+        final RunRecord record = RunRecord.create(pipeline, new File(
+                workingDirectory));
+
+        final InputWatcher started = new InputWatcher(inputs,
+                new InputWatcher.Target() {
+
+                    private Job job;
+
+                    @Override
+                    public boolean isRunning() {
+                        return (job != null && (job.getState() == RunQueue.State.QUEUED || job
+                                .getState() == RunQueue.State.RUNNING));
+                    }
+
+                    @Override
+                    public void execute(List<File> changed) {
+                        job = RunQueue.getInstance().add(name, osmosisPath,
+                                workingDirectory, parameters, jvmSizing,
+                                record.copy());
+                    }
+
+                    @Override
+                    public void report(final String message) {
+                        /* the last message is shown as tool tip */
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (watcher != null) {
+                                    putValue(Action.SHORT_DESCRIPTION, message);
+                                }
+                            }
+                        });
+                    }
+                });
+        started.setMinimumInterval(interval * 1000L);
+
+        watcher = started;
+        showWatching(true);
+        Thread thread = new Thread(started, "InputWatcher");
+        thread.setDaemon(true);
+        thread.start();
+
+        ViewRegistry.getInstance()
+                .getCasted(RunQueueDialog.class, IRunQueueDialog.class)
+                .showWindow();
+    }
+
+    /**
+     * Changes the caption between starting and stopping the watch mode.
+     */
+    private void showWatching(boolean watching) {
+        String key = (watching ? "Controller.Actions.WatchPipeline.Stop"
+                : "Controller.Actions.WatchPipeline");
+        putValue(Action.NAME, I18N.getInstance().getString(key + ".Name"));
+        putValue(Action.SHORT_DESCRIPTION, I18N.getInstance().getString(
+                key + ".Description"));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.persistence.PipelinePersistenceObject;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.ConnectorType;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.tools.I18N;
+
+/**
+ * Inserts <code>--buffer</code> and <code>--buffer-change</code> tasks into a
+ * copy of a pipeline. Osmosis only runs a stage in its own thread when it is
+ * decoupled from its predecessor by a buffer, so a buffer is inserted between
+ * every two connected tasks which both consume a noticeable amount of CPU.<br/>
+ * <br/>
+ * The weight of a task is the relative processing time of its
+ * {@link de.osmembrane.model.pipeline.TaskCostProfile}. The original pipeline
+ * is never changed.
+ * 
+ * @author agent
+ */
+public class BufferInserter {
+
+    /**
+     * Minimum weight of both tasks of a connection to get a buffer in
+     * between. Light tasks like log-progress or buffers themselves stay below.
+     */
+    private static final double MIN_WEIGHT = 0.2;
+
+    /**
+     * Buffer tasks for each stream type which can be buffered.
+     */
+    private static final Map<ConnectorType, String> BUFFER_TASKS = new HashMap<ConnectorType, String>();
+    static {
+        BUFFER_TASKS.put(ConnectorType.ENTITY, "buffer");
+        BUFFER_TASKS.put(ConnectorType.CHANGE, "buffer-change");
+    }
+
+    private static final String CAPACITY_PARAMETER = "bufferCapacity";
+
+    /**
+     * The pipeline where buffers should be inserted.
+     */
+    private PipelinePersistenceObject original;
+
+    /**
+     * Capacity of every inserted buffer.
+     */
+    private int capacity;
+
+    /**
+     * Human readable report of all inserted buffers.
+     */
+    private List<String> report = new ArrayList<String>();
+
+    /**
+     * Creates a new inserter for a given pipeline.
+     * 
+     * @param original
+     *            the pipeline where buffers should be inserted
+     * @param capacity
+     *            capacity of the inserted buffers
+     */
+    public BufferInserter(PipelinePersistenceObject original, int capacity) {
+        this.original = original;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Inserts the buffers.
+     * 
+     * @return a copy of the pipeline with inserted buffers, or the original
+     *         pipeline if no buffer was required
+     */
+    public PipelinePersistenceObject insert() {
+        report.clear();
+
+        Pipeline pipeline = new Pipeline(true, true);
+        for (AbstractFunction function : PipelineOptimizer
+                .deepCopyFunctions(original.getFunctions())) {
+            pipeline.addFunction(function);
+        }
+
+        int inserted = 0;
+        try {
+            for (AbstractFunction function : pipeline.getFunctions()) {
+                if (!isHeavy(function)) {
+                    continue;
+                }
+
+                for (AbstractConnector outConnector : function
+                        .getOutConnectors()) {
+                    String bufferTask = BUFFER_TASKS
+                            .get(outConnector.getType());
+                    if (bufferTask == null) {
+                        continue;
+                    }
+
+                    for (AbstractConnector inConnector : outConnector
+                            .getConnections()) {
+                        AbstractFunction consumer = inConnector.getParent();
+                        if (!isHeavy(consumer)) {
+                            continue;
+                        }
+
+                        AbstractFunction buffer = createBuffer(bufferTask,
+                                function, consumer);
+                        pipeline.addFunction(buffer);
+
+                        function.removeConnectionTo(consumer);
+                        function.addConnectionTo(buffer);
+                        buffer.addConnectionTo(consumer);
+
+                        inserted++;
+                        addReport(bufferTask, function, consumer);
+                    }
+                }
+            }
+        } catch (ConnectorException e) {
+            /* the copy is broken now, fall back to the original pipeline */
+            report.clear();
+            report.add(I18N.getInstance().getString(
+                    "Model.BufferInserter.Failed", e.getMessage()));
+            return original;
+        }
+
+        if (inserted == 0) {
+            return original;
+        }
+
+        List<AbstractFunction> functions = new ArrayList<AbstractFunction>();
+        for (AbstractFunction function : pipeline.getFunctions()) {
+            /* remove the observer of this pipeline (no longer required) */
+            function.deleteObserver(pipeline);
+            functions.add(function);
+        }
+
+        return new PipelinePersistenceObject(functions, original.getSettings());
+    }
+
+    /**
+     * Returns the report of the last insertion, one entry per inserted
+     * buffer.
+     * 
+     * @return list of human readable messages
+     */
+    public List<String> getReport() {
+        return report;
+    }
+
+    /**
+     * Returns true if the task of the function uses enough CPU to be worth
+     * its own thread.
+     */
+    private boolean isHeavy(AbstractFunction function) {
+        return (function.getActiveTask().getCostProfile().getTime() >= MIN_WEIGHT);
+    }
+
+    /**
+     * Creates a new buffer function placed between from and to.
+     */
+    private AbstractFunction createBuffer(String bufferTask,
+            AbstractFunction from, AbstractFunction to) {
+        AbstractFunction buffer = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(bufferTask);
+
+        for (AbstractParameter param : buffer.getActiveTask().getParameters()) {
+            if (param.getName().equals(CAPACITY_PARAMETER)) {
+                param.setValue(String.valueOf(capacity));
+            }
+        }
+
+        Point2D fromCoordinate = from.getUnrasteredCoordinate();
+        Point2D toCoordinate = to.getUnrasteredCoordinate();
+        buffer.setCoordinate(new Point2D.Double(
+                (fromCoordinate.getX() + toCoordinate.getX()) / 2.0,
+                (fromCoordinate.getY() + toCoordinate.getY()) / 2.0));
+
+        return buffer;
+    }
+
+    /**
+     * Adds a message to the report, each message is only added once.
+     */
+    private void addReport(String bufferTask, AbstractFunction from,
+            AbstractFunction to) {
+        String message = I18N.getInstance().getString(
+                "Model.BufferInserter.Inserted", bufferTask,
+                from.getActiveTask().getName(), to.getActiveTask().getName());
+        if (!report.contains(message)) {
+            report.add(message);
+        }
+    }
+}
@@ -0,0 +1,690 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import de.osmembrane.model.algorithms.PipelinePartitioner.Connection;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Partition;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ParameterType;
+
+/**
+ * Make-like cache for intermediate results of a pipeline. At every cache
+ * point the upstream part of the pipeline is fingerprinted by its tasks,
+ * parameter values and the size and modification time of its input files. If
+ * an intermediate with that fingerprint is cached, the upstream part is
+ * replaced by a reader of it, otherwise the intermediate is written into the
+ * cache for the next execution. When the cache grows beyond its maximum size
+ * the least recently used intermediates are removed.
+ * 
+ * @author agent
+ */
+public class ExecutionCache {
+
+    /**
+     * Name of the index file in the cache directory, it contains the file,
+     * size and last usage of every complete intermediate.
+     */
+    public static final String INDEX_FILE_NAME = "cache.properties";
+
+    /**
+     * Has to be changed when the fingerprint is calculated in another way.
+     */
+    private static final String FINGERPRINT_VERSION = "1";
+
+    /**
+     * Files in the cache directory which are not in the index are removed
+     * when they are older than this (in milliseconds), younger ones may still
+     * be written by another execution.
+     */
+    private static final long ORPHAN_AGE = 24L * 60L * 60L * 1000L;
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The index is shared by all executions of this application.
+     */
+    private static final Object INDEX_LOCK = new Object();
+
+    /**
+     * An intermediate which is written by the current execution.
+     */
+    private static class Entry {
+
+        private String fingerprint;
+        private File file;
+
+        private Entry(String fingerprint, File file) {
+            this.fingerprint = fingerprint;
+            this.file = file;
+        }
+    }
+
+    private File workingDirectory;
+    private File directory;
+
+    /**
+     * Maximum size of the cache in bytes.
+     */
+    private long maxSize;
+
+    private PipelinePartitioner partitioner;
+
+    /**
+     * Intermediates written by the current execution, by partition. They are
+     * added to the index when their partition has finished successfully.
+     */
+    private Map<Integer, List<Entry>> pending = new HashMap<Integer, List<Entry>>();
+
+    private List<Connection> hits = new ArrayList<Connection>();
+    private List<Connection> misses = new ArrayList<Connection>();
+
+    /**
+     * Creates a new cache for the given functions.
+     * 
+     * @param functions
+     *            functions of the pipeline
+     * @param workingDirectory
+     *            directory relative input files are resolved against
+     * @param directory
+     *            the cache directory
+     * @param maxSize
+     *            maximum size of the cache in megabyte
+     */
+    public ExecutionCache(List<AbstractFunction> functions,
+            File workingDirectory, File directory, int maxSize) {
+        this.workingDirectory = workingDirectory;
+        this.directory = directory;
+        this.maxSize = maxSize * 1024L * 1024L;
+        this.partitioner = new PipelinePartitioner(functions);
+    }
+
+    /**
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns all connections where an intermediate can be cached. Only the
+     * producer may depend on the upstream part, so it can be replaced by a
+     * reader, and all sources of the upstream part have to read files, so
+     * their changes can be detected.
+     * 
+     * @return list of cache points
+     */
+    public List<Connection> getCandidates() {
+        List<Connection> candidates = new ArrayList<Connection>();
+        for (Connection candidate : partitioner.getCandidates()) {
+            Set<AbstractFunction> upstream = getUpstream(candidate.getFrom());
+            if (isClosed(upstream, candidate) && isReproducible(upstream)) {
+                candidates.add(candidate);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Suggests cache points. These are the last point in front of the
+     * writers, the point behind the most expensive task in front of it and
+     * every point which is already cached.
+     * 
+     * @return list of connections which should be cached
+     */
+    public List<Connection> suggestPoints() {
+        List<Connection> candidates = getCandidates();
+        Set<Connection> suggestion = new HashSet<Connection>();
+
+        for (Connection point : candidates) {
+            if (isCached(point)) {
+                suggestion.add(point);
+            }
+            if (isWriter(point.getTo()) || hasSuccessor(point, candidates)) {
+                continue;
+            }
+            suggestion.add(point);
+
+            /* the most expensive task, the later one on a draw */
+            Set<AbstractFunction> upstream = getUpstream(point.getFrom());
+            Connection expensive = null;
+            double maxTime = -1.0;
+            for (Connection other : candidates) {
+                double time = other.getFrom().getActiveTask().getCostProfile()
+                        .getTime();
+                if (upstream.contains(other.getFrom())
+                        && (time > maxTime || (time == maxTime && getUpstream(
+                                other.getFrom()).contains(
+                                expensive.getFrom())))) {
+                    expensive = other;
+                    maxTime = time;
+                }
+            }
+            if (expensive != null) {
+                suggestion.add(expensive);
+            }
+        }
+
+        /* keep the order of the candidates */
+        List<Connection> points = new ArrayList<Connection>();
+        for (Connection candidate : candidates) {
+            if (suggestion.contains(candidate)) {
+                points.add(candidate);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Returns the fingerprint of the intermediate at a cache point.
+     * 
+     * @param point
+     *            a cache point of {@link #getCandidates()}
+     * @return the fingerprint as hexadecimal string
+     */
+    public String getFingerprint(Connection point) {
+        StringBuilder content = new StringBuilder();
+        content.append(FINGERPRINT_VERSION).append('\n');
+        content.append(point.getType()).append('\n');
+        appendFunction(content, point.getFrom(),
+                new HashMap<AbstractFunction, Integer>());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder fingerprint = new StringBuilder();
+            for (byte b : digest.digest(content.toString().getBytes(CHARSET))) {
+                fingerprint.append(String.format("%02x", b));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            /* every java platform has to support SHA-1 */
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Checks if the intermediate at a cache point is cached.
+     * 
+     * @param point
+     *            a cache point of {@link #getCandidates()}
+     * @return true if the intermediate is cached
+     */
+    public boolean isCached(Connection point) {
+        synchronized (INDEX_LOCK) {
+            return (lookup(loadIndex(), getFingerprint(point)) != null);
+        }
+    }
+
+    /**
+     * Splits the pipeline at the given cache points. Upstream parts of cached
+     * intermediates are left out, all other intermediates are written into
+     * the cache directory, see {@link #commit(int)} and {@link #finish()}.
+     * 
+     * @param points
+     *            cache points of {@link #getCandidates()}
+     * @return the partitions which have to be executed, in an order where
+     *         every partition comes after the partitions it depends on
+     */
+    public List<Partition> plan(List<Connection> points) {
+        hits.clear();
+        misses.clear();
+        pending.clear();
+
+        List<Connection> cuts = new ArrayList<Connection>(points);
+        Map<Connection, String> fingerprints = new HashMap<Connection, String>();
+        Map<Connection, File> files = new HashMap<Connection, File>();
+
+        synchronized (INDEX_LOCK) {
+            Properties index = loadIndex();
+            for (Connection point : points) {
+                String fingerprint = getFingerprint(point);
+                File cached = lookup(index, fingerprint);
+                fingerprints.put(point, fingerprint);
+                if (cached != null) {
+                    files.put(point, cached);
+                    hits.add(point);
+                    touch(index, fingerprint);
+                }
+            }
+            saveIndex(index);
+        }
+
+        /* points in front of a cached one are not executed at all */
+        for (Connection hit : new ArrayList<Connection>(hits)) {
+            Set<AbstractFunction> upstream = getUpstream(hit.getFrom());
+            for (Connection point : points) {
+                if (point != hit && upstream.contains(point.getFrom())) {
+                    cuts.remove(point);
+                    hits.remove(point);
+                }
+            }
+        }
+
+        List<File> linkFiles = new ArrayList<File>();
+        for (Connection cut : cuts) {
+            if (!files.containsKey(cut)) {
+                files.put(cut, new File(directory, fingerprints.get(cut) + "-"
+                        + Long.toString(System.nanoTime(), 36)
+                        + partitioner.getLinkExtension(cut)));
+                misses.add(cut);
+            }
+            linkFiles.add(files.get(cut));
+        }
+
+        List<Partition> partitions = partitioner.partition(cuts, linkFiles);
+
+        /* leave out the partitions which only write cached intermediates */
+        int[] positions = new int[partitions.size()];
+        List<Partition> executed = new ArrayList<Partition>();
+        for (int i = 0; i < partitions.size(); i++) {
+            List<File> written = new ArrayList<File>(partitions.get(i)
+                    .getWrittenLinks());
+            boolean cached = !written.isEmpty();
+            for (Connection hit : hits) {
+                written.remove(files.get(hit));
+            }
+            if (cached && written.isEmpty()) {
+                positions[i] = -1;
+            } else {
+                positions[i] = executed.size();
+                executed.add(partitions.get(i));
+            }
+        }
+
+        for (int i = 0; i < executed.size(); i++) {
+            Set<Integer> dependencies = executed.get(i).getDependencies();
+            Set<Integer> remaining = new HashSet<Integer>();
+            for (int dependency : dependencies) {
+                if (positions[dependency] >= 0) {
+                    remaining.add(positions[dependency]);
+                }
+            }
+            dependencies.clear();
+            dependencies.addAll(remaining);
+
+            List<Entry> entries = new ArrayList<Entry>();
+            for (Connection miss : misses) {
+                if (executed.get(i).getWrittenLinks().contains(files.get(miss))) {
+                    entries.add(new Entry(fingerprints.get(miss), files
+                            .get(miss)));
+                }
+            }
+            pending.put(i, entries);
+        }
+
+        return executed;
+    }
+
+    /**
+     * @return the cache points of the last plan which are read from the cache
+     */
+    public List<Connection> getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the cache points of the last plan which are written into the
+     *         cache
+     */
+    public List<Connection> getMisses() {
+        return misses;
+    }
+
+    /**
+     * Adds the intermediates written by a partition to the cache, has to be
+     * called when the partition has finished successfully.
+     * 
+     * @param partition
+     *            index of the partition in the last plan
+     */
+    public void commit(int partition) {
+        List<Entry> entries = pending.remove(partition);
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+
+        synchronized (INDEX_LOCK) {
+            Properties index = loadIndex();
+            for (Entry entry : entries) {
+                if (!entry.file.isFile()) {
+                    continue;
+                }
+                File previous = lookup(index, entry.fingerprint);
+                if (previous != null && !previous.equals(entry.file)) {
+                    previous.delete();
+                }
+                index.setProperty(entry.fingerprint, entry.file.getName() + ";"
+                        + entry.file.length() + ";"
+                        + System.currentTimeMillis());
+            }
+            saveIndex(index);
+        }
+    }
+
+    /**
+     * Removes the intermediates of all partitions which have not finished
+     * successfully and the least recently used intermediates until the cache
+     * is not larger than its maximum size. Has to be called after the
+     * execution.
+     */
+    public void finish() {
+        for (List<Entry> entries : pending.values()) {
+            for (Entry entry : entries) {
+                entry.file.delete();
+            }
+        }
+        pending.clear();
+
+        synchronized (INDEX_LOCK) {
+            Properties index = loadIndex();
+            List<String> fingerprints = new ArrayList<String>();
+            long size = 0;
+            for (String fingerprint : index.stringPropertyNames()) {
+                if (lookup(index, fingerprint) == null) {
+                    index.remove(fingerprint);
+                } else {
+                    fingerprints.add(fingerprint);
+                    size += getLong(index, fingerprint, 1);
+                }
+            }
+
+            final Properties usage = index;
+            Collections.sort(fingerprints, new Comparator<String>() {
+                @Override
+                public int compare(String f1, String f2) {
+                    return Long.valueOf(getLong(usage, f1, 2)).compareTo(
+                            getLong(usage, f2, 2));
+                }
+            });
+            for (String fingerprint : fingerprints) {
+                if (size <= maxSize) {
+                    break;
+                }
+                size -= getLong(index, fingerprint, 1);
+                lookup(index, fingerprint).delete();
+                index.remove(fingerprint);
+            }
+
+            /* files of executions which did not finish properly */
+            Set<String> indexed = new HashSet<String>();
+            for (String fingerprint : index.stringPropertyNames()) {
+                indexed.add(index.getProperty(fingerprint).split(";")[0]);
+            }
+            File[] files = directory.listFiles();
+            if (files != null) {
+                long now = System.currentTimeMillis();
+                for (File file : files) {
+                    if (!file.getName().equals(INDEX_FILE_NAME)
+                            && !indexed.contains(file.getName())
+                            && now - file.lastModified() > ORPHAN_AGE) {
+                        file.delete();
+                    }
+                }
+            }
+
+            saveIndex(index);
+        }
+    }
+
+    /**
+     * Appends a function and everything upstream of it to the content of a
+     * fingerprint. Functions are numbered in the order they are appended, so
+     * a function which is reached twice is only referenced the second time.
+     */
+    private void appendFunction(StringBuilder content,
+            AbstractFunction function, Map<AbstractFunction, Integer> numbers) {
+        Integer number = numbers.get(function);
+        if (number != null) {
+            content.append('#').append(number).append('\n');
+            return;
+        }
+
+        for (AbstractConnector inConnector : function.getInConnectors()) {
+            for (AbstractConnector outConnector : inConnector.getConnections()) {
+                appendFunction(content, outConnector.getParent(), numbers);
+                content.append(outConnector.getConnectorIndex()).append('>')
+                        .append(inConnector.getConnectorIndex()).append('\n');
+            }
+        }
+
+        numbers.put(function, numbers.size());
+        content.append(function.getActiveTask().getName()).append('\n');
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            String value = getValue(param);
+            content.append(param.getName()).append('=').append(value);
+            File file = getFile(param);
+            if (file != null) {
+                content.append(';').append(file.getAbsolutePath()).append(';')
+                        .append(file.length()).append(';')
+                        .append(file.lastModified());
+            }
+            content.append('\n');
+        }
+    }
+
+    /**
+     * Returns the given function and all functions it depends on.
+     */
+    private Set<AbstractFunction> getUpstream(AbstractFunction start) {
+        Set<AbstractFunction> visited = new HashSet<AbstractFunction>();
+        List<AbstractFunction> stack = new ArrayList<AbstractFunction>();
+        stack.add(start);
+
+        while (!stack.isEmpty()) {
+            AbstractFunction function = stack.remove(stack.size() - 1);
+            if (!visited.add(function)) {
+                continue;
+            }
+            for (AbstractConnector inConnector : function.getInConnectors()) {
+                for (AbstractConnector outConnector : inConnector
+                        .getConnections()) {
+                    stack.add(outConnector.getParent());
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Checks that no connection leaves the upstream part, except the cache
+     * point itself.
+     */
+    private boolean isClosed(Set<AbstractFunction> upstream, Connection point) {
+        for (AbstractFunction function : upstream) {
+            for (AbstractConnector outConnector : function.getOutConnectors()) {
+                for (AbstractConnector inConnector : outConnector
+                        .getConnections()) {
+                    AbstractFunction consumer = inConnector.getParent();
+                    if (!upstream.contains(consumer)
+                            && !(function == point.getFrom() && consumer == point
+                                    .getTo())) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that every source of the upstream part reads an existing file.
+     */
+    private boolean isReproducible(Set<AbstractFunction> upstream) {
+        for (AbstractFunction function : upstream) {
+            if (function.getInConnectors().length > 0) {
+                continue;
+            }
+
+            boolean readsFile = false;
+            for (AbstractParameter param : function.getActiveTask()
+                    .getParameters()) {
+                File file = getFile(param);
+                if (param.getType() == ParameterType.FILENAME && file != null
+                        && file.isFile()) {
+                    readsFile = true;
+                }
+            }
+            if (!readsFile) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a function is a writer, i.e. it has no out-connectors.
+     */
+    private boolean isWriter(AbstractFunction function) {
+        return (function.getOutConnectors().length == 0);
+    }
+
+    /**
+     * Checks if there is another cache point behind the given one which is
+     * not in front of a writer.
+     */
+    private boolean hasSuccessor(Connection point, List<Connection> candidates) {
+        for (Connection other : candidates) {
+            if (other != point && !isWriter(other.getTo())
+                    && getUpstream(other.getFrom()).contains(point.getFrom())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value of a parameter, or its default value.
+     */
+    private String getValue(AbstractParameter param) {
+        String value = (param.isDefaultValue() ? param.getDefaultValue()
+                : param.getValue());
+        return (value == null ? "" : value);
+    }
+
+    /**
+     * Returns the file of a filename or directory parameter, or NULL if the
+     * parameter does not reference a file.
+     */
+    private File getFile(AbstractParameter param) {
+        if (param.getType() != ParameterType.FILENAME
+                && param.getType() != ParameterType.DIRECTORY) {
+            return null;
+        }
+
+        String value = getValue(param);
+        if (value.length() == 0 || value.equals("-")) {
+            return null;
+        }
+
+        File file = new File(value);
+        if (!file.isAbsolute() && workingDirectory != null) {
+            file = new File(workingDirectory, value);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the cached file of a fingerprint, or NULL if it is not cached
+     * or the file has been changed.
+     */
+    private File lookup(Properties index, String fingerprint) {
+        String entry = index.getProperty(fingerprint);
+        if (entry == null) {
+            return null;
+        }
+
+        File file = new File(directory, entry.split(";")[0]);
+        if (!file.isFile() || file.length() != getLong(index, fingerprint, 1)) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Marks a cached intermediate as used now.
+     */
+    private void touch(Properties index, String fingerprint) {
+        String[] entry = index.getProperty(fingerprint).split(";");
+        index.setProperty(fingerprint, entry[0] + ";" + entry[1] + ";"
+                + System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a numeric field of an index entry, 1 is the size and 2 the last
+     * usage.
+     */
+    private long getLong(Properties index, String fingerprint, int field) {
+        String[] entry = index.getProperty(fingerprint, "").split(";");
+        try {
+            return Long.parseLong(entry[field]);
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private Properties loadIndex() {
+        Properties index = new Properties();
+        File file = new File(directory, INDEX_FILE_NAME);
+        if (!file.isFile()) {
+            return index;
+        }
+
+        try {
+            InputStream stream = new FileInputStream(file);
+            try {
+                index.load(stream);
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            /* a broken index only makes the cache empty */
+            index.clear();
+        }
+        return index;
+    }
+
+    private void saveIndex(Properties index) {
+        directory.mkdirs();
+        try {
+            OutputStream stream = new FileOutputStream(new File(directory,
+                    INDEX_FILE_NAME));
+            try {
+                index.store(stream, null);
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            /* the intermediates are written again by the next execution */
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipelineSettings;
+
+/**
+ * Heap, garbage collector and temporary directory of the JVM osmosis runs in.
+ * The values are recommended from the {@link ResourceEstimator} of the
+ * pipeline and the free memory of the host, every value can be overridden in
+ * the {@link AbstractPipelineSettings}. They are passed to osmosis with the
+ * JAVACMD_OPTIONS environment variable.
+ * 
+ * @author agent
+ */
+public class JvmSizing implements Serializable {
+
+    private static final long serialVersionUID = 2011102012000001L;
+
+    /**
+     * Name of the environment variable osmosis reads its JVM options from.
+     */
+    public static final String ENVIRONMENT_VARIABLE = "JAVACMD_OPTIONS";
+
+    /**
+     * Matches an option which selects a garbage collector, a JVM refuses to
+     * start with two of them.
+     */
+    private static final Pattern COLLECTOR_OPTION = Pattern
+            .compile("-XX:\\+Use\\w*GC\\b");
+
+    /**
+     * Smallest recommended heap in megabyte.
+     */
+    private static final int MIN_HEAP = 256;
+
+    /**
+     * Heap of osmosis without any task in megabyte.
+     */
+    private static final double BASE_HEAP = 64.0;
+
+    /**
+     * The estimation is multiplied with this margin.
+     */
+    private static final double HEAP_MARGIN = 1.5;
+
+    /**
+     * The heap is rounded up to a multiple of this in megabyte.
+     */
+    private static final int HEAP_STEP = 64;
+
+    /**
+     * Share of the available memory the heap may take at most.
+     */
+    private static final double FREE_MEMORY_SHARE = 0.8;
+
+    /**
+     * Share of the physical memory the JVM takes as maximum heap if no heap
+     * is given.
+     */
+    private static final double DEFAULT_HEAP_SHARE = 0.25;
+
+    /**
+     * Memory information of Linux, MemAvailable includes the page cache.
+     */
+    private static final File MEMINFO = new File("/proc/meminfo");
+
+    /**
+     * Heaps below this size in megabyte are collected by the serial collector.
+     */
+    private static final int SMALL_HEAP = 1024;
+
+    /**
+     * The temporary directory should have this multiple of the estimated disk
+     * usage free.
+     */
+    private static final double DISK_MARGIN = 1.2;
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private int heap;
+    private String gcOptions;
+    private String tempDirectory;
+
+    /**
+     * Creates a new sizing.
+     * 
+     * @param heap
+     *            maximum heap in megabyte, 0 to keep the default of the JVM
+     * @param gcOptions
+     *            options of the garbage collector, may be empty
+     * @param tempDirectory
+     *            temporary directory or NULL for the default one
+     */
+    public JvmSizing(int heap, String gcOptions, String tempDirectory) {
+        this.heap = heap;
+        this.gcOptions = gcOptions;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Recommends the JVM of a pipeline. A heap is only recommended if the
+     * estimation is based on tasks with a known heap usage and exceeds the
+     * default heap of the JVM, otherwise the JVM keeps its default.
+     * 
+     * @param estimator
+     *            the finished estimation of the pipeline
+     * @param settings
+     *            settings of the pipeline with the overrides
+     * @param workingDirectory
+     *            working directory of osmosis, may be NULL
+     * @return the recommended sizing
+     */
+    public static JvmSizing recommend(ResourceEstimator estimator,
+            AbstractPipelineSettings settings, File workingDirectory) {
+        int heap = Math.max(0, settings.getJavaHeap());
+        if (heap == 0 && estimator.isHeapKnown()) {
+            heap = recommendHeap(estimator.getTotalHeap(),
+                    getAvailableMemory(), getDefaultHeap());
+        }
+
+        String gcOptions = settings.getJavaOptions();
+        if (gcOptions == null || gcOptions.trim().isEmpty()) {
+            gcOptions = recommendGc((heap > 0 ? heap : (int) getDefaultHeap()),
+                    Runtime.getRuntime().availableProcessors());
+        }
+
+        String tempDirectory = settings.getTempDirectory();
+        if (tempDirectory != null && !isPassable(tempDirectory.trim())) {
+            /* the launcher of osmosis would split the option */
+            tempDirectory = null;
+        }
+        if (tempDirectory == null || tempDirectory.trim().isEmpty()) {
+            File recommended = recommendTempDirectory(estimator.getTotalDisk(),
+                    workingDirectory);
+            tempDirectory = (recommended == null ? null : recommended
+                    .getAbsolutePath());
+        }
+
+        return new JvmSizing(heap, gcOptions.trim(), tempDirectory);
+    }
+
+    /**
+     * Recommends the JVM of a part of a pipeline which runs in its own
+     * process, from the estimation of its functions only.
+     * 
+     * @param functions
+     *            the functions of the part
+     * @param settings
+     *            settings of the pipeline with the overrides
+     * @param workingDirectory
+     *            working directory of osmosis, may be NULL
+     * @return the recommended sizing
+     */
+    public static JvmSizing recommend(List<AbstractFunction> functions,
+            AbstractPipelineSettings settings, File workingDirectory) {
+        ResourceEstimator estimator = new ResourceEstimator(functions,
+                workingDirectory);
+        estimator.run();
+        return recommend(estimator, settings, workingDirectory);
+    }
+
+    /**
+     * Recommends the maximum heap.
+     * 
+     * @param estimatedHeap
+     *            estimated heap of all tasks in megabyte
+     * @param freeMemory
+     *            available memory of the host in megabyte, negative if
+     *            unknown
+     * @return the heap in megabyte
+     */
+    public static int recommendHeap(double estimatedHeap, double freeMemory) {
+        double heap = BASE_HEAP + estimatedHeap * HEAP_MARGIN;
+        if (freeMemory > 0) {
+            /* better a slow osmosis than a swapping host */
+            heap = Math.min(heap, freeMemory * FREE_MEMORY_SHARE);
+        }
+        heap = Math.max(heap, MIN_HEAP);
+        return (int) Math.ceil(heap / HEAP_STEP) * HEAP_STEP;
+    }
+
+    /**
+     * Recommends the maximum heap if it is larger than the default heap of
+     * the JVM, a smaller one would only cause an OutOfMemoryError.
+     * 
+     * @param estimatedHeap
+     *            estimated heap of all tasks in megabyte
+     * @param freeMemory
+     *            available memory of the host in megabyte, negative if
+     *            unknown
+     * @param defaultHeap
+     *            default heap of the JVM in megabyte, negative if unknown
+     * @return the heap in megabyte, 0 to keep the default
+     */
+    public static int recommendHeap(double estimatedHeap, double freeMemory,
+            double defaultHeap) {
+        int heap = recommendHeap(estimatedHeap, freeMemory);
+        return (heap > defaultHeap ? heap : 0);
+    }
+
+    /**
+     * Recommends the garbage collector. Small heaps are collected serially to
+     * keep the footprint low, large heaps in parallel with half of the cores
+     * to leave room for other processes.
+     * 
+     * @param heap
+     *            the heap in megabyte
+     * @param processors
+     *            count of available processors
+     * @return options of the garbage collector
+     */
+    public static String recommendGc(int heap, int processors) {
+        if (heap < SMALL_HEAP || processors < 2) {
+            return "-XX:+UseSerialGC";
+        }
+        return "-XX:+UseParallelGC -XX:ParallelGCThreads="
+                + Math.max(1, processors / 2);
+    }
+
+    /**
+     * Recommends the temporary directory for the files of sorts and data
+     * sets. The default temporary directory is used if it has enough space,
+     * otherwise the working directory if it has more space.
+     * 
+     * @param estimatedDisk
+     *            estimated temporary disk usage in megabyte
+     * @param workingDirectory
+     *            working directory of osmosis, may be NULL
+     * @return the directory or NULL for the default one
+     */
+    public static File recommendTempDirectory(double estimatedDisk,
+            File workingDirectory) {
+        if (estimatedDisk <= 0.0) {
+            return null;
+        }
+
+        File temp = new File(System.getProperty("java.io.tmpdir"));
+        double needed = estimatedDisk * DISK_MARGIN * MEGABYTE;
+        if (temp.getUsableSpace() >= needed || workingDirectory == null
+                || !workingDirectory.isDirectory()
+                || !isPassable(workingDirectory.getAbsolutePath())) {
+            return (isPassable(temp.getAbsolutePath()) ? temp : null);
+        }
+        return (workingDirectory.getUsableSpace() > temp.getUsableSpace() ? workingDirectory
+                : temp);
+    }
+
+    /**
+     * Returns true if a directory can be passed in JAVACMD_OPTIONS. The
+     * launcher of osmosis does not quote the variable, so a path with
+     * whitespace would be split into several options.
+     * 
+     * @param path
+     *            the path of the directory
+     * @return true if the path contains no whitespace
+     */
+    public static boolean isPassable(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            if (Character.isWhitespace(path.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the maximum heap in megabyte, the default heap of the JVM if
+     *         none is given
+     */
+    public int getHeap() {
+        return (heap > 0 ? heap : (int) Math.max(0.0, getDefaultHeap()));
+    }
+
+    /**
+     * @return true if the heap is passed to the JVM, false if it keeps its
+     *         default
+     */
+    public boolean isHeapSet() {
+        return (heap > 0);
+    }
+
+    /**
+     * @return the options of the garbage collector
+     */
+    public String getGcOptions() {
+        return gcOptions;
+    }
+
+    /**
+     * @return the temporary directory or NULL for the default one
+     */
+    public String getTempDirectory() {
+        return tempDirectory;
+    }
+
+    /**
+     * @return all options of the JVM
+     */
+    public String getOptions() {
+        return getOptions(true);
+    }
+
+    /**
+     * Adds the options to the environment of osmosis. Options which are
+     * already set in the environment are kept, the heap and the temporary
+     * directory override them. A garbage collector which is already chosen
+     * there is kept, as the JVM does not start with two collectors.
+     * 
+     * @param environment
+     *            environment of the osmosis process
+     */
+    public void apply(Map<String, String> environment) {
+        String existing = environment.get(ENVIRONMENT_VARIABLE);
+        if (getOptions().isEmpty()) {
+            return;
+        } else if (existing == null || existing.trim().isEmpty()) {
+            environment.put(ENVIRONMENT_VARIABLE, getOptions());
+        } else {
+            /* the last -Xmx and -D win, a second collector is an error */
+            boolean collector = COLLECTOR_OPTION.matcher(existing).find();
+            environment.put(ENVIRONMENT_VARIABLE, existing.trim() + " "
+                    + getOptions(!collector));
+        }
+    }
+
+    /**
+     * @param withGc
+     *            false to leave out the options of the garbage collector
+     * @return the options of the JVM
+     */
+    private String getOptions(boolean withGc) {
+        StringBuilder options = new StringBuilder();
+        if (heap > 0) {
+            options.append(" -Xmx").append(heap).append('m');
+        }
+        if (withGc && !gcOptions.isEmpty()) {
+            options.append(' ').append(gcOptions);
+        }
+        if (tempDirectory != null) {
+            options.append(" -Djava.io.tmpdir=").append(tempDirectory);
+        }
+        return options.toString().trim();
+    }
+
+    @Override
+    public String toString() {
+        return getOptions();
+    }
+
+    /**
+     * Returns the memory which can be used without swapping. The free
+     * memory of the host does not count the page cache, which the kernel
+     * gives back on demand, so MemAvailable of Linux is used and the
+     * physical memory elsewhere.
+     * 
+     * @return available memory of the host in megabyte, -1 if unknown
+     */
+    public static double getAvailableMemory() {
+        if (MEMINFO.canRead()) {
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(
+                        MEMINFO));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.startsWith("MemAvailable:")) {
+                            String[] fields = line.trim().split("\\s+");
+                            return Long.parseLong(fields[1]) / 1024.0;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                /* use the physical memory */
+            } catch (NumberFormatException e) {
+                /* use the physical memory */
+            }
+        }
+        return getTotalMemory();
+    }
+
+    /**
+     * @return the default maximum heap of a JVM on this host in megabyte, -1
+     *         if unknown
+     */
+    public static double getDefaultHeap() {
+        double total = getTotalMemory();
+        return (total > 0 ? total * DEFAULT_HEAP_SHARE : -1);
+    }
+
+    /**
+     * @return physical memory of the host in megabyte, -1 if unknown
+     */
+    private static double getTotalMemory() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os)
+                    .getTotalPhysicalMemorySize() / MEGABYTE;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.osmembrane.model.persistence.PipelinePersistenceObject;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.CopyType;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.tools.I18N;
+
+/**
+ * Rewrites a copy of a pipeline, so that osmosis has to process less data.<br/>
+ * <br/>
+ * The following rewrites are done:
+ * <ul>
+ * <li>Filters are moved upstream of <code>sort</code> and <code>buffer</code>
+ * , bounding filters only if they do not depend on the order of the stream
+ * (completeWays enabled).</li>
+ * <li>Stateless tag filters are moved upstream of <code>merge</code> by
+ * applying them on every input of the merge.</li>
+ * <li>A filter directly following an identical filter is removed.</li>
+ * <li>Two adjacent bounding-boxes with equal options are combined to the
+ * intersection of both boxes, unless they complete ways or relations or do
+ * not overlap at all.</li>
+ * </ul>
+ * The original pipeline is never changed.
+ * 
+ * @author agent
+ */
+public class PipelineOptimizer {
+
+    /**
+     * Filters which decide for each entity on its own.
+     */
+    private static final List<String> STATELESS_FILTERS = Arrays.asList(
+            "tag-filter", "node-key", "node-key-value", "way-key",
+            "way-key-value");
+
+    /**
+     * Filters which cut the data to an area.
+     */
+    private static final List<String> AREA_FILTERS = Arrays.asList(
+            "bounding-box", "bounding-polygon");
+
+    private static final String USED_NODE = "used-node";
+    private static final String SORT = "sort";
+    private static final String BUFFER = "buffer";
+    private static final String MERGE = "merge";
+    private static final String BOUNDING_BOX = "bounding-box";
+
+    /**
+     * Parameters describing the area of a bounding-box.
+     */
+    private static final List<String> BOX_PARAMETERS = Arrays.asList("left",
+            "right", "top", "bottom");
+
+    /**
+     * Parameters describing a bounding-box as a tile.
+     */
+    private static final List<String> TILE_PARAMETERS = Arrays.asList("x1",
+            "y1", "x2", "y2", "zoom");
+
+    /**
+     * The pipeline which should be optimized.
+     */
+    private PipelinePersistenceObject original;
+
+    /**
+     * Pipeline holding the copy of the functions while rewriting.
+     */
+    private Pipeline pipeline;
+
+    /**
+     * Human readable report of all changes.
+     */
+    private List<String> report = new ArrayList<String>();
+
+    private boolean changed;
+
+    /**
+     * Creates a new optimizer for a given pipeline.
+     * 
+     * @param original
+     *            the pipeline which should be optimized
+     */
+    public PipelineOptimizer(PipelinePersistenceObject original) {
+        this.original = original;
+    }
+
+    /**
+     * Runs the optimization.
+     * 
+     * @return a rewritten copy of the pipeline, or the original pipeline if
+     *         nothing could be optimized
+     */
+    public PipelinePersistenceObject optimize() {
+        report.clear();
+        changed = false;
+
+        pipeline = new Pipeline(true, true);
+        for (AbstractFunction function : deepCopyFunctions(original
+                .getFunctions())) {
+            pipeline.addFunction(function);
+        }
+
+        try {
+            boolean rewritten;
+            do {
+                rewritten = false;
+                for (AbstractFunction function : pipeline.getFunctions()) {
+                    if (fuse(function) || pushDown(function)) {
+                        rewritten = true;
+                        changed = true;
+                        break;
+                    }
+                }
+            } while (rewritten);
+        } catch (ConnectorException e) {
+            /* the copy is broken now, fall back to the original pipeline */
+            report.clear();
+            report.add(I18N.getInstance().getString(
+                    "Model.Optimizer.Failed", e.getMessage()));
+            changed = false;
+        }
+
+        if (!changed) {
+            return original;
+        }
+
+        List<AbstractFunction> functions = new ArrayList<AbstractFunction>();
+        for (AbstractFunction function : pipeline.getFunctions()) {
+            /* remove the observer of this pipeline (no longer required) */
+            function.deleteObserver(pipeline);
+            functions.add(function);
+        }
+
+        return new PipelinePersistenceObject(functions, original.getSettings());
+    }
+
+    /**
+     * Returns the report of the last optimization, one entry per change.
+     * 
+     * @return list of human readable messages
+     */
+    public List<String> getReport() {
+        return report;
+    }
+
+    /**
+     * Returns if the last optimization changed the pipeline.
+     * 
+     * @return true if the pipeline was rewritten
+     */
+    public boolean hasChanged() {
+        return changed;
+    }
+
+    /**
+     * Moves a filter upstream of its predecessor if possible.
+     * 
+     * @return true if the pipeline was changed
+     */
+    private boolean pushDown(AbstractFunction filter)
+            throws ConnectorException {
+        String filterName = getTaskName(filter);
+        if (!isFilter(filterName)) {
+            return false;
+        }
+
+        AbstractFunction barrier = getSinglePredecessor(filter);
+        if (barrier == null || !isSoleConsumer(barrier, filter)) {
+            return false;
+        }
+        String barrierName = getTaskName(barrier);
+
+        if (barrierName.equals(SORT) || barrierName.equals(BUFFER)) {
+            if (barrierName.equals(SORT) && AREA_FILTERS.contains(filterName)
+                    && !isTrue(filter, "completeWays")) {
+                addReport("Model.Optimizer.KeptOrderDependent", filterName,
+                        barrierName);
+                return false;
+            }
+
+            AbstractFunction source = getSinglePredecessor(barrier);
+            if (source == null) {
+                return false;
+            }
+
+            List<AbstractFunction> consumers = getSuccessors(filter);
+            source.removeConnectionTo(barrier);
+            barrier.removeConnectionTo(filter);
+            for (AbstractFunction consumer : consumers) {
+                filter.removeConnectionTo(consumer);
+            }
+
+            source.addConnectionTo(filter);
+            filter.addConnectionTo(barrier);
+            for (AbstractFunction consumer : consumers) {
+                barrier.addConnectionTo(consumer);
+            }
+
+            Point2D filterCoordinate = filter.getUnrasteredCoordinate();
+            filter.setCoordinate(barrier.getUnrasteredCoordinate());
+            barrier.setCoordinate(filterCoordinate);
+
+            addReport("Model.Optimizer.PushedDown", filterName, barrierName);
+            return true;
+        }
+
+        if (barrierName.equals(MERGE)
+                && STATELESS_FILTERS.contains(filterName)) {
+            List<AbstractFunction> sources = new ArrayList<AbstractFunction>();
+            for (AbstractConnector inConnector : barrier.getInConnectors()) {
+                if (inConnector.getConnections().length != 1) {
+                    return false;
+                }
+                AbstractFunction source = inConnector.getConnections()[0]
+                        .getParent();
+                if (sources.contains(source)) {
+                    return false;
+                }
+                sources.add(source);
+            }
+
+            List<AbstractFunction> consumers = getSuccessors(filter);
+            for (AbstractFunction source : sources) {
+                source.removeConnectionTo(barrier);
+            }
+            barrier.removeConnectionTo(filter);
+            for (AbstractFunction consumer : consumers) {
+                filter.removeConnectionTo(consumer);
+            }
+
+            /* the inputs have to be connected in their original order */
+            for (int i = 0; i < sources.size(); i++) {
+                AbstractFunction branchFilter = filter;
+                if (i > 0) {
+                    branchFilter = filter.copy(CopyType.COPY_ALL);
+                    Point2D coordinate = filter.getUnrasteredCoordinate();
+                    branchFilter.setCoordinate(new Point2D.Double(coordinate
+                            .getX(), coordinate.getY() + i * 100.0));
+                    pipeline.addFunction(branchFilter);
+                }
+                sources.get(i).addConnectionTo(branchFilter);
+                branchFilter.addConnectionTo(barrier);
+            }
+            for (AbstractFunction consumer : consumers) {
+                barrier.addConnectionTo(consumer);
+            }
+
+            addReport("Model.Optimizer.PushedThroughMerge", filterName,
+                    barrierName);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Fuses a filter with an identical or compatible predecessor.
+     * 
+     * @return true if the pipeline was changed
+     */
+    private boolean fuse(AbstractFunction filter) throws ConnectorException {
+        String filterName = getTaskName(filter);
+        if (!isFilter(filterName)) {
+            return false;
+        }
+
+        AbstractFunction predecessor = getSinglePredecessor(filter);
+        if (predecessor == null || !isSoleConsumer(predecessor, filter)
+                || !getTaskName(predecessor).equals(filterName)) {
+            return false;
+        }
+
+        if (hasEqualParameters(predecessor, filter, null)) {
+            removeFilter(predecessor, filter);
+            addReport("Model.Optimizer.FusedIdentical", filterName);
+            return true;
+        }
+
+        /*
+         * completed ways and relations of the first box may reach into the
+         * second one, so only plain boxes are equal to their intersection
+         */
+        if (filterName.equals(BOUNDING_BOX) && isExplicitBox(predecessor)
+                && isExplicitBox(filter)
+                && hasEqualParameters(predecessor, filter, BOX_PARAMETERS)
+                && !isTrue(filter, "completeWays")
+                && !isTrue(filter, "completeRelations")) {
+            /* the intersection of both boxes */
+            double left = Math.max(getDouble(predecessor, "left"), getDouble(
+                    filter, "left"));
+            double right = Math.min(getDouble(predecessor, "right"),
+                    getDouble(filter, "right"));
+            double top = Math.min(getDouble(predecessor, "top"), getDouble(
+                    filter, "top"));
+            double bottom = Math.max(getDouble(predecessor, "bottom"),
+                    getDouble(filter, "bottom"));
+
+            /* disjoint boxes have no valid intersection */
+            if (left > right || bottom > top) {
+                return false;
+            }
+
+            setValue(predecessor, "left", left);
+            setValue(predecessor, "right", right);
+            setValue(predecessor, "top", top);
+            setValue(predecessor, "bottom", bottom);
+
+            removeFilter(predecessor, filter);
+            addReport("Model.Optimizer.FusedBoundingBox", filterName);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the filter and connects its consumers to the predecessor.
+     */
+    private void removeFilter(AbstractFunction predecessor,
+            AbstractFunction filter) throws ConnectorException {
+        List<AbstractFunction> consumers = getSuccessors(filter);
+        pipeline.deleteFunction(filter);
+        for (AbstractFunction consumer : consumers) {
+            predecessor.addConnectionTo(consumer);
+        }
+    }
+
+    /**
+     * Returns the only function connected to the in-connectors of a function,
+     * or NULL if there is not exactly one.
+     */
+    private AbstractFunction getSinglePredecessor(AbstractFunction function) {
+        AbstractConnector[] inConnectors = function.getInConnectors();
+        if (inConnectors.length != 1
+                || inConnectors[0].getConnections().length != 1) {
+            return null;
+        }
+        return inConnectors[0].getConnections()[0].getParent();
+    }
+
+    /**
+     * Returns true if consumer is the only function connected to the
+     * out-connectors of function.
+     */
+    private boolean isSoleConsumer(AbstractFunction function,
+            AbstractFunction consumer) {
+        AbstractConnector[] outConnectors = function.getOutConnectors();
+        return (outConnectors.length == 1
+                && outConnectors[0].getConnections().length == 1 && outConnectors[0]
+                .getConnections()[0].getParent() == consumer);
+    }
+
+    /**
+     * Returns all functions connected to the out-connectors of a function.
+     */
+    private List<AbstractFunction> getSuccessors(AbstractFunction function) {
+        List<AbstractFunction> successors = new ArrayList<AbstractFunction>();
+        for (AbstractConnector outConnector : function.getOutConnectors()) {
+            for (AbstractConnector connection : outConnector.getConnections()) {
+                successors.add(connection.getParent());
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * Compares all parameters of two functions with the same active task.
+     * 
+     * @param ignore
+     *            names of parameters which are not compared, may be NULL
+     */
+    private boolean hasEqualParameters(AbstractFunction first,
+            AbstractFunction second, List<String> ignore) {
+        AbstractParameter[] firstParams = first.getActiveTask()
+                .getParameters();
+        AbstractParameter[] secondParams = second.getActiveTask()
+                .getParameters();
+
+        for (int i = 0; i < firstParams.length; i++) {
+            if (ignore != null && ignore.contains(firstParams[i].getName())) {
+                continue;
+            }
+
+            String firstValue = getValue(firstParams[i]);
+            String secondValue = getValue(secondParams[i]);
+            if (firstValue == null ? secondValue != null : !firstValue
+                    .equals(secondValue)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns true if a bounding-box is described by explicitly set
+     * coordinates and not by a tile.
+     */
+    private boolean isExplicitBox(AbstractFunction function) {
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (BOX_PARAMETERS.contains(param.getName())) {
+                if (param.isDefaultValue()) {
+                    return false;
+                }
+                try {
+                    Double.parseDouble(param.getValue());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            } else if (TILE_PARAMETERS.contains(param.getName())
+                    && !param.isDefaultValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AbstractParameter getParameter(AbstractFunction function,
+            String name) {
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (param.getName().equals(name)) {
+                return param;
+            }
+        }
+        return null;
+    }
+
+    private double getDouble(AbstractFunction function, String name) {
+        return Double.parseDouble(getParameter(function, name).getValue());
+    }
+
+    private void setValue(AbstractFunction function, String name, double value) {
+        getParameter(function, name).setValue(String.valueOf(value));
+    }
+
+    private boolean isTrue(AbstractFunction function, String name) {
+        AbstractParameter param = getParameter(function, name);
+        if (param == null) {
+            return false;
+        }
+        String value = getValue(param);
+        return ("yes".equals(value) || "true".equals(value));
+    }
+
+    /**
+     * Returns the value of a parameter or its default value.
+     */
+    private String getValue(AbstractParameter param) {
+        return (param.isDefaultValue() ? param.getDefaultValue() : param
+                .getValue());
+    }
+
+    private String getTaskName(AbstractFunction function) {
+        return function.getActiveTask().getName();
+    }
+
+    private boolean isFilter(String taskName) {
+        return (STATELESS_FILTERS.contains(taskName)
+                || AREA_FILTERS.contains(taskName) || taskName
+                .equals(USED_NODE));
+    }
+
+    /**
+     * Adds a message to the report, each message is only added once.
+     */
+    private void addReport(String key, Object... values) {
+        String message = I18N.getInstance().getString(key, values);
+        if (!report.contains(message)) {
+            report.add(message);
+        }
+    }
+
+    /**
+     * Creates a deep copy of the functions, so the original pipeline stays
+     * untouched.
+     * 
+     * @param functions
+     *            the functions
+     * @return the copies, connected like the originals
+     */
+    public static List<AbstractFunction> deepCopyFunctions(
+            List<AbstractFunction> functions) {
+        /* Use serialization to create a copy of the functions in the pipeline */
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(new ArrayList<AbstractFunction>(functions));
+            ByteArrayInputStream bais = new ByteArrayInputStream(
+                    baos.toByteArray());
+            ObjectInputStream ois = new ObjectInputStream(bais);
+
+            @SuppressWarnings("unchecked")
+            List<AbstractFunction> copy = (List<AbstractFunction>) ois
+                    .readObject();
+            return copy;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.ConnectorType;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Splits a pipeline at given connections into several pipelines, which can be
+ * run by separate osmosis processes.<br/>
+ * <br/>
+ * Every cut connection is replaced by a writer in the producing pipeline and a
+ * reader in the consuming pipeline, both using the same link file. The link
+ * file can be a named pipe (the processes run at the same time) or a normal
+ * temporary file (a pipeline has to wait for the pipelines it depends on).
+ * The original pipeline is never changed.
+ * 
+ * @author agent
+ */
+public class PipelinePartitioner {
+
+    /**
+     * Minimum weight of a branch behind a tee to be worth an own process.
+     */
+    private static final double MIN_BRANCH_WEIGHT = 1.0;
+
+    /**
+     * Writer task, reader task and file extension for each stream type which
+     * can be linked.
+     */
+    private static final Map<ConnectorType, String[]> LINK_TASKS = new HashMap<ConnectorType, String[]>();
+    static {
+        LINK_TASKS.put(ConnectorType.ENTITY, new String[] { "write-pbf",
+                "read-pbf", ".osm.pbf" });
+        LINK_TASKS.put(ConnectorType.CHANGE, new String[] {
+                "write-xml-change", "read-xml-change", ".osc" });
+    }
+
+    private static final String FILE_PARAMETER = "file";
+
+    /**
+     * A connection of the original pipeline which can be cut.
+     */
+    public static class Connection {
+
+        private AbstractFunction from;
+        private AbstractFunction to;
+        private ConnectorType type;
+
+        private Connection(AbstractFunction from, AbstractFunction to,
+                ConnectorType type) {
+            this.from = from;
+            this.to = to;
+            this.type = type;
+        }
+
+        /**
+         * @return the producing function
+         */
+        public AbstractFunction getFrom() {
+            return from;
+        }
+
+        /**
+         * @return the consuming function
+         */
+        public AbstractFunction getTo() {
+            return to;
+        }
+
+        /**
+         * @return the type of the stream
+         */
+        public ConnectorType getType() {
+            return type;
+        }
+
+        @Override
+        public String toString() {
+            return from.getActiveTask().getName() + " -> "
+                    + to.getActiveTask().getName();
+        }
+    }
+
+    /**
+     * A part of the pipeline which is run by its own osmosis process.
+     */
+    public static class Partition {
+
+        private List<AbstractFunction> functions = new ArrayList<AbstractFunction>();
+        private Set<Integer> dependencies = new HashSet<Integer>();
+        private List<File> writtenLinks = new ArrayList<File>();
+
+        /**
+         * @return the functions of this part, including the link readers and
+         *         writers
+         */
+        public List<AbstractFunction> getFunctions() {
+            return functions;
+        }
+
+        /**
+         * @return indexes of the partitions which write the links this
+         *         partition reads
+         */
+        public Set<Integer> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * @return the link files this partition writes
+         */
+        public List<File> getWrittenLinks() {
+            return writtenLinks;
+        }
+    }
+
+    /**
+     * External function-list.
+     */
+    private List<AbstractFunction> functions;
+
+    /**
+     * Link files of the last partitioning.
+     */
+    private List<File> links = new ArrayList<File>();
+
+    /**
+     * Creates a new partitioner for the given functions.
+     * 
+     * @param functions
+     *            functions of the pipeline
+     */
+    public PipelinePartitioner(List<AbstractFunction> functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * Returns all connections which can be cut. These are the connections of
+     * a linkable stream type where the producer has only one out-connector of
+     * that type.
+     * 
+     * @return list of connections
+     */
+    public List<Connection> getCandidates() {
+        List<Connection> candidates = new ArrayList<Connection>();
+        for (AbstractFunction function : functions) {
+            for (AbstractConnector outConnector : function.getOutConnectors()) {
+                if (!LINK_TASKS.containsKey(outConnector.getType())
+                        || countOutConnectors(function, outConnector.getType()) > 1) {
+                    continue;
+                }
+                for (AbstractConnector inConnector : outConnector
+                        .getConnections()) {
+                    candidates.add(new Connection(function, inConnector
+                            .getParent(), outConnector.getType()));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Suggests cuts from the structure of the pipeline. Every branch behind a
+     * tee which is heavy enough runs in its own process, only the heaviest
+     * branch stays with the producer.
+     * 
+     * @return list of connections which should be cut
+     */
+    public List<Connection> suggestCuts() {
+        Map<AbstractFunction, List<Connection>> branches = new HashMap<AbstractFunction, List<Connection>>();
+        List<AbstractFunction> producers = new ArrayList<AbstractFunction>();
+        for (Connection candidate : getCandidates()) {
+            List<Connection> branch = branches.get(candidate.getFrom());
+            if (branch == null) {
+                branch = new ArrayList<Connection>();
+                branches.put(candidate.getFrom(), branch);
+                producers.add(candidate.getFrom());
+            }
+            branch.add(candidate);
+        }
+
+        List<Connection> cuts = new ArrayList<Connection>();
+        for (AbstractFunction producer : producers) {
+            List<Connection> branch = branches.get(producer);
+            if (branch.size() < 2) {
+                continue;
+            }
+
+            final Map<Connection, Double> weights = new HashMap<Connection, Double>();
+            for (Connection connection : branch) {
+                weights.put(connection, getWeight(connection.getTo()));
+            }
+            Collections.sort(branch, new Comparator<Connection>() {
+                @Override
+                public int compare(Connection c1, Connection c2) {
+                    return Double.compare(weights.get(c2), weights.get(c1));
+                }
+            });
+
+            for (Connection connection : branch.subList(1, branch.size())) {
+                if (weights.get(connection) < MIN_BRANCH_WEIGHT) {
+                    continue;
+                }
+                cuts.add(connection);
+                if (!isValid(cuts)) {
+                    cuts.remove(connection);
+                }
+            }
+        }
+
+        return cuts;
+    }
+
+    /**
+     * Checks if the pipeline can be split at the given connections. Every cut
+     * has to separate two partitions and the partitions must not depend on
+     * each other in a cycle.
+     * 
+     * @param cuts
+     *            connections which should be cut
+     * @return true if the cuts are valid
+     */
+    public boolean isValid(List<Connection> cuts) {
+        return (getPartitionOrder(cuts, getComponents(cuts)) != null);
+    }
+
+    /**
+     * Splits the pipeline at the given connections.
+     * 
+     * @param cuts
+     *            connections which should be cut, see {@link #isValid(List)}
+     * @param linkDirectory
+     *            directory where the link files are placed
+     * @return the partitions in an order where every partition comes after
+     *         the partitions it depends on
+     * @throws IllegalArgumentException
+     *             if the cuts are not valid
+     */
+    public List<Partition> partition(List<Connection> cuts, File linkDirectory) {
+        List<File> linkFiles = new ArrayList<File>();
+        for (Connection cut : cuts) {
+            linkFiles.add(new File(linkDirectory, "link-" + linkFiles.size()
+                    + getLinkExtension(cut)));
+        }
+        return partition(cuts, linkFiles);
+    }
+
+    /**
+     * Splits the pipeline at the given connections and links the partitions
+     * by the given files.
+     * 
+     * @param cuts
+     *            connections which should be cut, see {@link #isValid(List)}
+     * @param linkFiles
+     *            the link file of each cut, in the order of the cuts
+     * @return the partitions in an order where every partition comes after
+     *         the partitions it depends on
+     * @throws IllegalArgumentException
+     *             if the cuts are not valid
+     */
+    public List<Partition> partition(List<Connection> cuts,
+            List<File> linkFiles) {
+        int[] components = getComponents(cuts);
+        int[] order = getPartitionOrder(cuts, components);
+        if (order == null) {
+            throw new IllegalArgumentException("cuts do not split the pipeline");
+        }
+
+        List<Partition> partitions = new ArrayList<Partition>();
+        for (int i = 0; i < order.length; i++) {
+            partitions.add(new Partition());
+        }
+
+        Pipeline pipeline = new Pipeline(true, true);
+        List<AbstractFunction> copies = PipelineOptimizer
+                .deepCopyFunctions(functions);
+        for (int i = 0; i < copies.size(); i++) {
+            pipeline.addFunction(copies.get(i));
+            partitions.get(order[components[i]]).getFunctions()
+                    .add(copies.get(i));
+        }
+
+        /* remove all cut connections first, so no connector is still full */
+        for (Connection cut : cuts) {
+            copies.get(functions.indexOf(cut.getFrom())).removeConnectionTo(
+                    copies.get(functions.indexOf(cut.getTo())));
+        }
+
+        /* consumers with several cut inputs get them in the original order */
+        List<Connection> sortedCuts = new ArrayList<Connection>(cuts);
+        Collections.sort(sortedCuts, new Comparator<Connection>() {
+            @Override
+            public int compare(Connection c1, Connection c2) {
+                return getInIndex(c1) - getInIndex(c2);
+            }
+        });
+
+        links.clear();
+        try {
+            for (Connection cut : sortedCuts) {
+                int from = functions.indexOf(cut.getFrom());
+                int to = functions.indexOf(cut.getTo());
+                String[] tasks = LINK_TASKS.get(cut.getType());
+
+                File link = linkFiles.get(cuts.indexOf(cut));
+                links.add(link);
+
+                AbstractFunction writer = createLinkFunction(tasks[0], link);
+                AbstractFunction reader = createLinkFunction(tasks[1], link);
+                pipeline.addFunction(writer);
+                pipeline.addFunction(reader);
+
+                copies.get(from).addConnectionTo(writer);
+                reader.addConnectionTo(copies.get(to));
+
+                Partition producer = partitions.get(order[components[from]]);
+                Partition consumer = partitions.get(order[components[to]]);
+                producer.getFunctions().add(writer);
+                producer.getWrittenLinks().add(link);
+                consumer.getFunctions().add(reader);
+                consumer.getDependencies().add(order[components[from]]);
+            }
+        } catch (ConnectorException e) {
+            /* the connectors of the cut connections are free again */
+            throw new RuntimeException(e);
+        }
+
+        for (AbstractFunction function : pipeline.getFunctions()) {
+            /* remove the observer of this pipeline (no longer required) */
+            function.deleteObserver(pipeline);
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Splits the pipeline into its disconnected parts, functions which are
+     * not connected in any way to each other can run in separate processes
+     * without link files.
+     * 
+     * @return the parts, they do not depend on each other
+     */
+    public List<Partition> splitComponents() {
+        return partition(new ArrayList<Connection>(), new ArrayList<File>());
+    }
+
+    /**
+     * Returns the link files of the last partitioning, they have to be
+     * created (as named pipes) or removed by the executor.
+     * 
+     * @return list of link files
+     */
+    public List<File> getLinks() {
+        return links;
+    }
+
+    /**
+     * Returns the file extension of the link file for a cut connection.
+     * 
+     * @param cut
+     *            a connection of {@link #getCandidates()}
+     * @return the extension including the leading dot
+     */
+    public String getLinkExtension(Connection cut) {
+        return LINK_TASKS.get(cut.getType())[2];
+    }
+
+    /**
+     * Returns the component of each function, when all cut connections are
+     * removed.
+     */
+    private int[] getComponents(List<Connection> cuts) {
+        int[] parent = new int[functions.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+
+        Set<String> cutKeys = new HashSet<String>();
+        for (Connection cut : cuts) {
+            cutKeys.add(functions.indexOf(cut.getFrom()) + ">"
+                    + functions.indexOf(cut.getTo()));
+        }
+
+        for (int i = 0; i < functions.size(); i++) {
+            for (AbstractConnector outConnector : functions.get(i)
+                    .getOutConnectors()) {
+                for (AbstractConnector inConnector : outConnector
+                        .getConnections()) {
+                    int j = functions.indexOf(inConnector.getParent());
+                    if (j >= 0 && !cutKeys.contains(i + ">" + j)) {
+                        parent[find(parent, i)] = find(parent, j);
+                    }
+                }
+            }
+        }
+
+        /* number the components in the order of their first function */
+        Map<Integer, Integer> numbers = new HashMap<Integer, Integer>();
+        int[] components = new int[functions.size()];
+        for (int i = 0; i < components.length; i++) {
+            int root = find(parent, i);
+            Integer number = numbers.get(root);
+            if (number == null) {
+                number = numbers.size();
+                numbers.put(root, number);
+            }
+            components[i] = number;
+        }
+        return components;
+    }
+
+    /**
+     * Returns the position of each component in the execution order, or NULL
+     * if a cut does not separate two components or the components depend on
+     * each other in a cycle.
+     */
+    private int[] getPartitionOrder(List<Connection> cuts, int[] components) {
+        int count = 0;
+        for (int component : components) {
+            count = Math.max(count, component + 1);
+        }
+
+        List<Set<Integer>> successors = new ArrayList<Set<Integer>>();
+        for (int i = 0; i < count; i++) {
+            successors.add(new HashSet<Integer>());
+        }
+        for (Connection cut : cuts) {
+            int from = components[functions.indexOf(cut.getFrom())];
+            int to = components[functions.indexOf(cut.getTo())];
+            if (from == to) {
+                return null;
+            }
+            successors.get(from).add(to);
+        }
+
+        int[] inDegree = new int[count];
+        for (Set<Integer> next : successors) {
+            for (int component : next) {
+                inDegree[component]++;
+            }
+        }
+
+        /* Kahn's algorithm over the components */
+        int[] order = new int[count];
+        List<Integer> queue = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (inDegree[i] == 0) {
+                queue.add(i);
+            }
+        }
+        int position = 0;
+        while (position < queue.size()) {
+            int component = queue.get(position);
+            order[component] = position++;
+            for (int next : successors.get(component)) {
+                if (--inDegree[next] == 0) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        return (position == count ? order : null);
+    }
+
+    private int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Returns the summed processing time of all functions reachable from the
+     * given function.
+     */
+    private double getWeight(AbstractFunction start) {
+        Set<AbstractFunction> visited = new HashSet<AbstractFunction>();
+        List<AbstractFunction> stack = new ArrayList<AbstractFunction>();
+        stack.add(start);
+
+        double weight = 0.0;
+        while (!stack.isEmpty()) {
+            AbstractFunction function = stack.remove(stack.size() - 1);
+            if (!visited.add(function)) {
+                continue;
+            }
+            weight += function.getActiveTask().getCostProfile().getTime();
+            for (AbstractConnector outConnector : function.getOutConnectors()) {
+                for (AbstractConnector inConnector : outConnector
+                        .getConnections()) {
+                    stack.add(inConnector.getParent());
+                }
+            }
+        }
+        return weight;
+    }
+
+    private int countOutConnectors(AbstractFunction function,
+            ConnectorType type) {
+        int count = 0;
+        for (AbstractConnector outConnector : function.getOutConnectors()) {
+            if (outConnector.getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the in-connector a cut connection ends at.
+     */
+    private int getInIndex(Connection cut) {
+        for (AbstractConnector inConnector : cut.getTo().getInConnectors()) {
+            for (AbstractConnector outConnector : inConnector.getConnections()) {
+                if (outConnector.getParent() == cut.getFrom()) {
+                    return inConnector.getConnectorIndex();
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a reader or writer for a link file.
+     */
+    private AbstractFunction createLinkFunction(String taskName, File link) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        for (AbstractParameter param : function.getActiveTask().getParameters()) {
+            if (param.getName().equals(FILE_PARAMETER)) {
+                param.setValue(link.getAbsolutePath());
+            }
+        }
+        return function;
+    }
+}
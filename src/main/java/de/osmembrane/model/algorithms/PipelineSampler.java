@@ -0,0 +1,350 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.ConnectorType;
+import de.osmembrane.model.pipeline.ParameterType;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.resources.Constants;
+import de.osmembrane.tools.OsmFileBounds;
+
+/**
+ * Creates a sample version of a pipeline for a fast trial run. Every entity
+ * reader is followed by a bounding box around a small area, every file writer
+ * writes into a scratch directory and all other writers (e.g. into a
+ * database) are replaced by null writers. Change streams are not cut, there
+ * is no bounding box task for them.
+ * 
+ * @author agent
+ */
+public class PipelineSampler {
+
+    /**
+     * Edge length of an automatically chosen area in degrees, about one
+     * kilometre.
+     */
+    public static final double AREA_SIZE = 0.01;
+
+    /**
+     * Bounds larger than this (in degrees) do not tell where the data is,
+     * e.g. the center of the planet is in the ocean.
+     */
+    private static final double MAX_BOUNDS_EXTENT = 10.0;
+
+    private static final String BOUNDING_BOX_TASK = "bounding-box";
+    private static final String ENTITY_NULL_TASK = "write-null";
+    private static final String CHANGE_NULL_TASK = "write-null-change";
+    private static final String FILE_PARAMETER = "file";
+
+    /**
+     * External function-list.
+     */
+    private List<AbstractFunction> functions;
+
+    private File workingDirectory;
+
+    /**
+     * The output of each writer in the original pipeline and in the sample.
+     */
+    private Map<String, File> outputs = new LinkedHashMap<String, File>();
+
+    /**
+     * Creates a new sampler for the given functions.
+     * 
+     * @param functions
+     *            functions of the pipeline
+     * @param workingDirectory
+     *            directory relative input files are resolved against
+     */
+    public PipelineSampler(List<AbstractFunction> functions,
+            File workingDirectory) {
+        this.functions = functions;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Suggests a small area in the data of the pipeline. It is the center of
+     * the first bounding box in the pipeline or of the bounds an input file
+     * declares.
+     * 
+     * @return the area in the format of {@link #getArea(double, double)}, or
+     *         NULL if no area could be found
+     */
+    public String suggestArea() {
+        for (AbstractFunction function : functions) {
+            String bbox = function.getActiveTask().getBBox();
+            if (bbox == null) {
+                continue;
+            }
+            try {
+                String[] sides = bbox.split(Constants.BBOX_SEPERATOR);
+                String area = getCenterArea(Double.parseDouble(sides[0]),
+                        Double.parseDouble(sides[1]),
+                        Double.parseDouble(sides[2]),
+                        Double.parseDouble(sides[3]));
+                if (area != null) {
+                    return area;
+                }
+            } catch (RuntimeException e) {
+                /* an incomplete bounding box */
+            }
+        }
+
+        for (AbstractFunction function : functions) {
+            if (function.getInConnectors().length > 0) {
+                continue;
+            }
+            AbstractParameter param = getFileParameter(function);
+            if (param == null || getValue(param).length() == 0) {
+                continue;
+            }
+
+            File file = new File(getValue(param));
+            if (!file.isAbsolute() && workingDirectory != null) {
+                file = new File(workingDirectory, getValue(param));
+            }
+            double[] bounds = OsmFileBounds.read(file);
+            if (bounds != null) {
+                String area = getCenterArea(bounds[0], bounds[1], bounds[2],
+                        bounds[3]);
+                if (area != null) {
+                    return area;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a square area of {@link #AREA_SIZE} around a point.
+     * 
+     * @param lat
+     *            latitude of the center
+     * @param lon
+     *            longitude of the center
+     * @return the area as bottom, left, top and right, separated by
+     *         {@link Constants#BBOX_SEPERATOR}
+     */
+    public static String getArea(double lat, double lon) {
+        double half = AREA_SIZE / 2.0;
+        return String.format(Locale.US, "%.5f%s%.5f%s%.5f%s%.5f", lat - half,
+                Constants.BBOX_SEPERATOR, lon - half, Constants.BBOX_SEPERATOR,
+                lat + half, Constants.BBOX_SEPERATOR, lon + half);
+    }
+
+    /**
+     * Creates the sample pipeline, the original one is not changed.
+     * 
+     * @param area
+     *            the area of the bounding boxes, see
+     *            {@link #getArea(double, double)}
+     * @param scratchDirectory
+     *            directory the file writers write into
+     * @return the functions of the sample pipeline
+     */
+    public List<AbstractFunction> sample(String area, File scratchDirectory) {
+        outputs.clear();
+
+        Pipeline pipeline = new Pipeline(true, true);
+        List<AbstractFunction> copies = PipelineOptimizer
+                .deepCopyFunctions(functions);
+        for (AbstractFunction copy : copies) {
+            pipeline.addFunction(copy);
+        }
+
+        List<AbstractFunction> sample = new ArrayList<AbstractFunction>(copies);
+        try {
+            for (AbstractFunction function : copies) {
+                if (function.getInConnectors().length == 0
+                        && hasOutConnector(function, ConnectorType.ENTITY)) {
+                    AbstractFunction bbox = createFunction(BOUNDING_BOX_TASK);
+                    bbox.getActiveTask().setBBox(area);
+                    pipeline.addFunction(bbox);
+                    sample.add(sample.indexOf(function) + 1, bbox);
+                    insertBehind(function, bbox);
+                }
+
+                if (function.getOutConnectors().length == 0) {
+                    AbstractParameter param = getFileParameter(function);
+                    if (param != null) {
+                        redirect(param, scratchDirectory);
+                    } else {
+                        AbstractFunction writer = replaceWriter(pipeline,
+                                function);
+                        if (writer != null) {
+                            sample.set(sample.indexOf(function), writer);
+                        }
+                    }
+                }
+            }
+        } catch (ConnectorException e) {
+            /* the connectors of the moved connections are free again */
+            throw new RuntimeException(e);
+        }
+
+        for (AbstractFunction function : pipeline.getFunctions()) {
+            /* remove the observer of this pipeline (no longer required) */
+            function.deleteObserver(pipeline);
+        }
+
+        return sample;
+    }
+
+    /**
+     * Returns the outputs of the last sample. The key is the task and the
+     * configured output of the original pipeline, the value the file the
+     * sample writes or NULL if the output is discarded.
+     * 
+     * @return the outputs in the order of the pipeline
+     */
+    public Map<String, File> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Returns the area around the center of some bounds, or NULL if the
+     * bounds are too large to tell where the data is.
+     */
+    private String getCenterArea(double bottom, double left, double top,
+            double right) {
+        if (top < bottom || right < left || top - bottom > MAX_BOUNDS_EXTENT
+                || right - left > MAX_BOUNDS_EXTENT) {
+            return null;
+        }
+        return getArea((bottom + top) / 2.0, (left + right) / 2.0);
+    }
+
+    /**
+     * Moves all consumers of the entity stream of a reader behind the given
+     * function and connects the reader to it.
+     */
+    private void insertBehind(AbstractFunction reader, AbstractFunction filter)
+            throws ConnectorException {
+        for (AbstractConnector outConnector : reader.getOutConnectors()) {
+            if (outConnector.getType() != ConnectorType.ENTITY) {
+                continue;
+            }
+            for (AbstractConnector inConnector : outConnector.getConnections()) {
+                AbstractFunction consumer = inConnector.getParent();
+                reader.removeConnectionTo(consumer);
+                filter.addConnectionTo(consumer);
+            }
+        }
+        reader.addConnectionTo(filter);
+    }
+
+    /**
+     * Lets a file writer write into the scratch directory.
+     */
+    private void redirect(AbstractParameter param, File scratchDirectory) {
+        String value = getValue(param);
+        String name = new File(value).getName();
+        if (name.length() == 0 || name.equals("-")) {
+            name = param.getParent().getName();
+        }
+
+        File target = new File(scratchDirectory, name);
+        for (int i = 2; outputs.containsValue(target); i++) {
+            target = new File(scratchDirectory, i + "-" + name);
+        }
+
+        outputs.put(param.getParent().getName() + " " + value, target);
+        param.setValue(target.getAbsolutePath());
+    }
+
+    /**
+     * Replaces a writer without an output file by a null writer.
+     * 
+     * @return the null writer, or NULL if the writer could not be replaced
+     */
+    private AbstractFunction replaceWriter(Pipeline pipeline,
+            AbstractFunction writer) throws ConnectorException {
+        if (writer.getInConnectors().length != 1) {
+            return null;
+        }
+
+        AbstractConnector inConnector = writer.getInConnectors()[0];
+        AbstractFunction replacement;
+        if (inConnector.getType() == ConnectorType.ENTITY) {
+            replacement = createFunction(ENTITY_NULL_TASK);
+        } else if (inConnector.getType() == ConnectorType.CHANGE) {
+            replacement = createFunction(CHANGE_NULL_TASK);
+        } else {
+            return null;
+        }
+
+        String name = writer.getActiveTask().getName();
+        if (!name.equals(replacement.getActiveTask().getName())) {
+            outputs.put(name, null);
+        }
+
+        pipeline.addFunction(replacement);
+        for (AbstractConnector outConnector : inConnector.getConnections()) {
+            AbstractFunction producer = outConnector.getParent();
+            producer.removeConnectionTo(writer);
+            producer.addConnectionTo(replacement);
+        }
+        return replacement;
+    }
+
+    private boolean hasOutConnector(AbstractFunction function,
+            ConnectorType type) {
+        for (AbstractConnector outConnector : function.getOutConnectors()) {
+            if (outConnector.getType() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the file parameter of a reader or writer, or NULL if it has
+     * none.
+     */
+    private AbstractParameter getFileParameter(AbstractFunction function) {
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (param.getType() == ParameterType.FILENAME
+                    && param.getName().equals(FILE_PARAMETER)) {
+                return param;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of a parameter, or its default value.
+     */
+    private String getValue(AbstractParameter param) {
+        String value = (param.isDefaultValue() ? param.getDefaultValue()
+                : param.getValue());
+        return (value == null ? "" : value);
+    }
+
+    private AbstractFunction createFunction(String taskName) {
+        return ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+    }
+}
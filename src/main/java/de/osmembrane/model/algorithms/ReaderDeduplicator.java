@@ -0,0 +1,243 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.tools.I18N;
+
+/**
+ * Finds readers of a pipeline which are reading exactly the same data (same
+ * task, same parameter values) and collapses them into a single reader. The
+ * remaining reader is connected to all consumers of the removed ones, the
+ * generator will then emit a tee instead of reading the source twice.
+ * 
+ * @author agent
+ */
+public class ReaderDeduplicator {
+
+    /**
+     * External function-list.
+     */
+    private List<AbstractFunction> functions;
+
+    /**
+     * Groups of identical readers, the first reader of each group is kept.
+     */
+    private List<List<AbstractFunction>> groups = new ArrayList<List<AbstractFunction>>();
+
+    /**
+     * Creates a new instance with given functions.
+     * 
+     * @param functions
+     *            list of functions
+     */
+    public ReaderDeduplicator(List<AbstractFunction> functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * Searches the groups of identical readers, the pipeline is not changed.
+     */
+    public void run() {
+        groups.clear();
+
+        Map<String, List<AbstractFunction>> candidates = new LinkedHashMap<String, List<AbstractFunction>>();
+        for (AbstractFunction function : functions) {
+            if (!isReader(function)) {
+                continue;
+            }
+
+            String key = getKey(function);
+            List<AbstractFunction> candidate = candidates.get(key);
+            if (candidate == null) {
+                candidate = new ArrayList<AbstractFunction>();
+                candidates.put(key, candidate);
+            }
+            candidate.add(function);
+        }
+
+        for (List<AbstractFunction> candidate : candidates.values()) {
+            /*
+             * a reader feeding a function which is already fed by the group
+             * (like a merge of a file with itself) has to stay on its own
+             */
+            List<AbstractFunction> group = new ArrayList<AbstractFunction>();
+            Set<AbstractFunction> consumers = new HashSet<AbstractFunction>();
+            for (AbstractFunction reader : candidate) {
+                List<AbstractFunction> readerConsumers = getSuccessors(reader);
+                boolean shared = false;
+                for (AbstractFunction consumer : readerConsumers) {
+                    shared |= consumers.contains(consumer);
+                }
+                if (!shared) {
+                    group.add(reader);
+                    consumers.addAll(readerConsumers);
+                }
+            }
+
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the last run found any duplicate readers.
+     * 
+     * @return true if there is something to deduplicate
+     */
+    public boolean hasDuplicates() {
+        return !groups.isEmpty();
+    }
+
+    /**
+     * Returns the groups of identical readers found by the last run. The first
+     * reader of each group is the one which is kept.
+     * 
+     * @return list of groups
+     */
+    public List<List<AbstractFunction>> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns a human readable preview of the changes {@link #apply} would
+     * do, in the style of a diff.
+     * 
+     * @return list of lines
+     */
+    public List<String> getPreview() {
+        List<String> preview = new ArrayList<String>();
+        I18N i18n = I18N.getInstance();
+
+        for (List<AbstractFunction> group : groups) {
+            AbstractFunction keeper = group.get(0);
+            String name = keeper.getActiveTask().getName();
+            String parameters = describeParameters(keeper);
+
+            int consumers = 0;
+            for (AbstractFunction reader : group) {
+                consumers += getSuccessors(reader).size();
+            }
+
+            preview.add(i18n.getString("Model.ReaderDeduplicator.Keep", name,
+                    parameters, consumers));
+            for (AbstractFunction reader : group.subList(1, group.size())) {
+                preview.add(i18n.getString("Model.ReaderDeduplicator.Remove",
+                        name, parameters));
+                for (AbstractFunction consumer : getSuccessors(reader)) {
+                    preview.add(i18n.getString(
+                            "Model.ReaderDeduplicator.Rewire", consumer
+                                    .getActiveTask().getName(), name));
+                }
+            }
+        }
+
+        return preview;
+    }
+
+    /**
+     * Removes all duplicate readers from the pipeline and connects their
+     * consumers to the remaining reader of the group.
+     * 
+     * @param pipeline
+     *            the pipeline the functions belong to
+     * @throws ConnectorException
+     *             if a consumer could not be reconnected
+     */
+    public void apply(AbstractPipeline pipeline) throws ConnectorException {
+        for (List<AbstractFunction> group : groups) {
+            AbstractFunction keeper = group.get(0);
+            for (AbstractFunction reader : group.subList(1, group.size())) {
+                List<AbstractFunction> consumers = getSuccessors(reader);
+                pipeline.deleteFunction(reader);
+                for (AbstractFunction consumer : consumers) {
+                    keeper.addConnectionTo(consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the function is a connected source of the pipeline.
+     */
+    private boolean isReader(AbstractFunction function) {
+        return (function.getInConnectors().length == 0 && !getSuccessors(
+                function).isEmpty());
+    }
+
+    /**
+     * Returns a key which is equal for two readers doing exactly the same.
+     */
+    private String getKey(AbstractFunction function) {
+        StringBuilder key = new StringBuilder(function.getActiveTask()
+                .getName());
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            key.append('\0').append(param.getName()).append('=')
+                    .append(getValue(param));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the parameters of a function which are not set to their default
+     * value.
+     */
+    private String describeParameters(AbstractFunction function) {
+        StringBuilder description = new StringBuilder();
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (param.isDefaultValue()) {
+                continue;
+            }
+            if (description.length() > 0) {
+                description.append(", ");
+            }
+            description.append(param.getName()).append('=')
+                    .append(param.getValue());
+        }
+        return description.toString();
+    }
+
+    /**
+     * Returns all functions connected to the out-connectors of a function.
+     */
+    private List<AbstractFunction> getSuccessors(AbstractFunction function) {
+        List<AbstractFunction> successors = new ArrayList<AbstractFunction>();
+        for (AbstractConnector outConnector : function.getOutConnectors()) {
+            for (AbstractConnector connection : outConnector.getConnections()) {
+                successors.add(connection.getParent());
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * Returns the value of a parameter or its default value.
+     */
+    private String getValue(AbstractParameter param) {
+        return (param.isDefaultValue() ? param.getDefaultValue() : param
+                .getValue());
+    }
+}
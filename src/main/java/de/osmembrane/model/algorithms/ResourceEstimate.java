@@ -0,0 +1,142 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import de.osmembrane.model.pipeline.AbstractFunction;
+
+/**
+ * Estimated resource usage of a single {@link AbstractFunction}, created by
+ * the {@link ResourceEstimator}. All sizes are given in megabyte.
+ * 
+ * @author agent
+ */
+public class ResourceEstimate {
+
+    private AbstractFunction function;
+
+    private double input;
+    private double output;
+    private double time;
+    private double heap;
+    private double disk;
+    private double relativeTime;
+    private boolean inputKnown = true;
+    private boolean hotSpot;
+
+    /**
+     * Creates a new empty estimate for a function.
+     * 
+     * @param function
+     *            function which is estimated
+     */
+    protected ResourceEstimate(AbstractFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * @return the estimated function
+     */
+    public AbstractFunction getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the data volume entering the function
+     */
+    public double getInput() {
+        return input;
+    }
+
+    /**
+     * @return the data volume leaving the function (per outgoing connection)
+     */
+    public double getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the relative processing time of the function
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @return the estimated heap usage of the function
+     */
+    public double getHeap() {
+        return heap;
+    }
+
+    /**
+     * @return the estimated temporary disk usage of the function
+     */
+    public double getDisk() {
+        return disk;
+    }
+
+    /**
+     * @return share of the function on the time of the whole pipeline, between
+     *         0.0 and 1.0
+     */
+    public double getRelativeTime() {
+        return relativeTime;
+    }
+
+    /**
+     * @return false if any input size (of this function or an upstream one)
+     *         had to be guessed
+     */
+    public boolean isInputKnown() {
+        return inputKnown;
+    }
+
+    /**
+     * @return true if the function is one of the dominant costs of the
+     *         pipeline
+     */
+    public boolean isHotSpot() {
+        return hotSpot;
+    }
+
+    protected void setInput(double input) {
+        this.input = input;
+    }
+
+    protected void setOutput(double output) {
+        this.output = output;
+    }
+
+    protected void setTime(double time) {
+        this.time = time;
+    }
+
+    protected void setHeap(double heap) {
+        this.heap = heap;
+    }
+
+    protected void setDisk(double disk) {
+        this.disk = disk;
+    }
+
+    protected void setRelativeTime(double relativeTime) {
+        this.relativeTime = relativeTime;
+    }
+
+    protected void setInputKnown(boolean inputKnown) {
+        this.inputKnown = inputKnown;
+    }
+
+    protected void setHotSpot(boolean hotSpot) {
+        this.hotSpot = hotSpot;
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.algorithms;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ParameterType;
+import de.osmembrane.model.pipeline.TaskCostProfile;
+
+/**
+ * Statically estimates heap, temporary disk and relative processing time for
+ * every function of a pipeline. The estimation combines the
+ * {@link TaskCostProfile} of each task with the sizes of the input files
+ * found in the filename parameters of the sources of the pipeline.
+ * 
+ * @author agent
+ */
+public class ResourceEstimator {
+
+    /**
+     * Megabyte in bytes.
+     */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    /**
+     * Volume assumed for sources whose input size is not known (database,
+     * API, STDIN or missing files).
+     */
+    private static final double UNKNOWN_SOURCE_SIZE = 100.0;
+
+    /**
+     * Expansion of compressed input files.
+     */
+    private static final double COMPRESSION_FACTOR = 8.0;
+
+    /**
+     * Additional time per copied megabyte when a connector fans out to more
+     * than one function (which is generated as a tee).
+     */
+    private static final double TEE_TIME = 0.05;
+
+    /**
+     * Polygon vertices which double the time of a polygon-scaling task.
+     */
+    private static final double VERTICES_PER_TIME_UNIT = 1000.0;
+
+    /**
+     * Share of the pipelines time, heap or disk usage from which on a function
+     * is declared a hot spot.
+     */
+    private static final double HOT_SPOT_SHARE = 0.25;
+
+    /**
+     * Average size of one entity in a PBF file, in a compressed XML file and
+     * in a plain XML file, in bytes.
+     */
+    private static final double PBF_ENTITY_SIZE = 8.0;
+    private static final double COMPRESSED_ENTITY_SIZE = 15.0;
+    private static final double XML_ENTITY_SIZE = 150.0;
+
+    /**
+     * External function-list.
+     */
+    private List<AbstractFunction> functions;
+
+    /**
+     * Directory relative file names are resolved against, may be NULL.
+     */
+    private File workingDirectory;
+
+    /**
+     * Estimates for all functions.
+     */
+    private Map<AbstractFunction, ResourceEstimate> estimates = new HashMap<AbstractFunction, ResourceEstimate>();
+
+    private double totalTime;
+    private double totalHeap;
+    private double totalDisk;
+
+    /**
+     * True if a task with a known heap usage is in the pipeline.
+     */
+    private boolean heapKnown;
+
+    /**
+     * Creates a new instance with given functions.
+     * 
+     * @param functions
+     *            list of functions
+     * @param workingDirectory
+     *            directory against relative file names are resolved, may be
+     *            NULL
+     */
+    public ResourceEstimator(List<AbstractFunction> functions,
+            File workingDirectory) {
+        this.functions = functions;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Runs the estimation.
+     */
+    public void run() {
+        estimates.clear();
+        totalTime = 0.0;
+        totalHeap = 0.0;
+        totalDisk = 0.0;
+        heapKnown = false;
+
+        for (AbstractFunction function : topologicalOrder()) {
+            ResourceEstimate estimate = new ResourceEstimate(function);
+            TaskCostProfile profile = function.getActiveTask()
+                    .getCostProfile();
+
+            /* collect the volume from all incoming connections */
+            double input = 0.0;
+            boolean hasConnections = false;
+            for (AbstractConnector inConnector : function.getInConnectors()) {
+                for (AbstractConnector outConnector : inConnector
+                        .getConnections()) {
+                    ResourceEstimate source = estimates.get(outConnector
+                            .getParent());
+                    hasConnections = true;
+                    input += source.getOutput();
+                    if (!source.isInputKnown()) {
+                        estimate.setInputKnown(false);
+                    }
+                }
+            }
+
+            /* a function without any input reads its data from files */
+            if (!hasConnections && function.getInConnectors().length == 0) {
+                double fileSize = getFileSize(function);
+                if (fileSize < 0) {
+                    input = UNKNOWN_SOURCE_SIZE;
+                    estimate.setInputKnown(false);
+                } else {
+                    input = fileSize;
+                }
+            }
+
+            double time = profile.getTime() * input;
+            if (profile.isScalingWithVertices()) {
+                time *= 1.0 + countVertices(function) / VERTICES_PER_TIME_UNIT;
+            }
+
+            double output = profile.getOutput() * input;
+
+            /* a fan-out copies the whole output stream for each consumer */
+            for (AbstractConnector outConnector : function.getOutConnectors()) {
+                int consumers = outConnector.getConnections().length;
+                if (consumers > 1) {
+                    time += TEE_TIME * output * (consumers - 1);
+                }
+            }
+
+            estimate.setInput(input);
+            estimate.setOutput(output);
+            estimate.setTime(time);
+            estimate.setHeap(profile.getHeap() * input);
+            heapKnown |= profile.isHeapKnown();
+            estimate.setDisk(profile.getDisk() * input);
+            estimates.put(function, estimate);
+
+            totalTime += estimate.getTime();
+            totalHeap += estimate.getHeap();
+            totalDisk += estimate.getDisk();
+        }
+
+        for (ResourceEstimate estimate : estimates.values()) {
+            double timeShare = share(estimate.getTime(), totalTime);
+            double heapShare = share(estimate.getHeap(), totalHeap);
+            double diskShare = share(estimate.getDisk(), totalDisk);
+
+            estimate.setRelativeTime(timeShare);
+            estimate.setHotSpot(timeShare >= HOT_SPOT_SHARE
+                    || heapShare >= HOT_SPOT_SHARE
+                    || diskShare >= HOT_SPOT_SHARE);
+        }
+    }
+
+    /**
+     * Returns the estimate for a function.
+     * 
+     * @param function
+     *            function the estimate should be returned for
+     * @return estimate of the function or NULL if the function is unknown
+     */
+    public ResourceEstimate getEstimate(AbstractFunction function) {
+        return estimates.get(function);
+    }
+
+    /**
+     * Returns the estimates of all functions, in the order of the data flow.
+     * 
+     * @return list of all estimates
+     */
+    public List<ResourceEstimate> getEstimates() {
+        List<ResourceEstimate> result = new ArrayList<ResourceEstimate>();
+        for (AbstractFunction function : topologicalOrder()) {
+            result.add(estimates.get(function));
+        }
+        return result;
+    }
+
+    /**
+     * Returns all estimates which are hot spots of the pipeline.
+     * 
+     * @return list of hot spots
+     */
+    public List<ResourceEstimate> getHotSpots() {
+        List<ResourceEstimate> result = new ArrayList<ResourceEstimate>();
+        for (ResourceEstimate estimate : getEstimates()) {
+            if (estimate.isHotSpot()) {
+                result.add(estimate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the count of entities read by all sources of the pipeline
+     * from the sizes and formats of their input files.
+     * 
+     * @return count of entities or -1 if the input of a source is not known
+     */
+    public long getInputEntities() {
+        double entities = 0.0;
+        for (AbstractFunction function : functions) {
+            if (function.getInConnectors().length > 0
+                    || function.getOutConnectors().length == 0) {
+                continue;
+            }
+
+            List<File> files = getFiles(function);
+            if (files.isEmpty()) {
+                return -1;
+            }
+            for (File file : files) {
+                if (!file.isFile()) {
+                    return -1;
+                }
+                String name = file.getName().toLowerCase();
+                if (name.endsWith(".pbf")) {
+                    entities += file.length() / PBF_ENTITY_SIZE;
+                } else if (name.endsWith(".gz") || name.endsWith(".bz2")) {
+                    entities += file.length() / COMPRESSED_ENTITY_SIZE;
+                } else {
+                    entities += file.length() / XML_ENTITY_SIZE;
+                }
+            }
+        }
+        return (long) entities;
+    }
+
+    /**
+     * @return the relative time of the whole pipeline
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * @return the estimated heap of the whole pipeline in megabyte (all tasks
+     *         are running in the same JVM)
+     */
+    public double getTotalHeap() {
+        return totalHeap;
+    }
+
+    /**
+     * @return true if the heap is estimated from at least one task with a
+     *         known heap usage, the heap of the other tasks is unknown
+     */
+    public boolean isHeapKnown() {
+        return heapKnown;
+    }
+
+    /**
+     * @return the estimated temporary disk usage of the whole pipeline in
+     *         megabyte
+     */
+    public double getTotalDisk() {
+        return totalDisk;
+    }
+
+    /**
+     * Orders the functions in a way that every function comes after all
+     * functions it is connected from.
+     */
+    private List<AbstractFunction> topologicalOrder() {
+        Map<AbstractFunction, Integer> inDegree = new HashMap<AbstractFunction, Integer>();
+        Queue<AbstractFunction> ready = new LinkedList<AbstractFunction>();
+        List<AbstractFunction> order = new ArrayList<AbstractFunction>();
+
+        for (AbstractFunction function : functions) {
+            int degree = 0;
+            for (AbstractConnector connector : function.getInConnectors()) {
+                degree += connector.getConnections().length;
+            }
+            inDegree.put(function, degree);
+            if (degree == 0) {
+                ready.add(function);
+            }
+        }
+
+        while (!ready.isEmpty()) {
+            AbstractFunction function = ready.poll();
+            order.add(function);
+
+            for (AbstractConnector connector : function.getOutConnectors()) {
+                for (AbstractConnector target : connector.getConnections()) {
+                    AbstractFunction next = target.getParent();
+                    int degree = inDegree.get(next) - 1;
+                    inDegree.put(next, degree);
+                    if (degree == 0) {
+                        ready.add(next);
+                    }
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Returns the summed up size of all existing input files of a function.
+     * 
+     * @return size in megabyte or -1 if no file could be found
+     */
+    private double getFileSize(AbstractFunction function) {
+        double size = -1.0;
+
+        for (File file : getFiles(function)) {
+            if (file.isFile()) {
+                double fileSize = file.length() / MEGABYTE;
+                String name = file.getName().toLowerCase();
+                if (name.endsWith(".gz") || name.endsWith(".bz2")) {
+                    fileSize *= COMPRESSION_FACTOR;
+                }
+                size = Math.max(size, 0.0) + fileSize;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Counts the vertices of all polygon files of a function.
+     */
+    private int countVertices(AbstractFunction function) {
+        int vertices = 0;
+
+        for (File file : getFiles(function)) {
+            if (!file.isFile()) {
+                continue;
+            }
+
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(file));
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (isCoordinateLine(line)) {
+                            vertices++;
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                /* an unreadable polygon just does not scale the estimation */
+            }
+        }
+
+        return vertices;
+    }
+
+    /**
+     * Returns true if a line of a polygon file contains a coordinate pair.
+     */
+    private boolean isCoordinateLine(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 2) {
+            return false;
+        }
+
+        try {
+            Double.parseDouble(parts[0]);
+            Double.parseDouble(parts[1]);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns all files referenced by filename parameters of a function.
+     */
+    private List<File> getFiles(AbstractFunction function) {
+        List<File> files = new ArrayList<File>();
+
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (param.getType() != ParameterType.FILENAME) {
+                continue;
+            }
+
+            String value = (param.isDefaultValue() ? param.getDefaultValue()
+                    : param.getValue());
+            if (value == null || value.length() == 0 || value.equals("-")) {
+                continue;
+            }
+
+            File file = new File(value);
+            if (!file.isAbsolute() && workingDirectory != null) {
+                file = new File(workingDirectory, value);
+            }
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    /**
+     * Returns the share of value on total, 0.0 if total is 0.0.
+     */
+    private double share(double value, double total) {
+        return (total > 0.0 ? value / total : 0.0);
+    }
+}
@@ -11,10 +11,6 @@
 
 package de.osmembrane.model.parser;
 
-import java.util.regex.Pattern;
-
-import de.osmembrane.model.persistence.PipelinePersistenceObject;
-
 /**
  * Implementation of {@link IParser} for the bash (unix) command line.
  * 
@@ -25,8 +21,8 @@ public class BashParser extends CommandlineParser {
     protected String BREAKLINE_SYMBOL = "\\";
     protected String BREAKLINE_COMMAND = "\n";
     protected String COMMENT_SYMBOL = "# ";
-    protected Pattern[] COMMENT_PATTERNS = { Pattern.compile("#.*$",
-            Pattern.MULTILINE) };
+    protected String[] COMMENT_PREFIXES = { "#" };
+    protected String[] LINE_COMMENT_PREFIXES = {};
 
     /**
      * Creates a new {@link BashParser}.
@@ -35,12 +31,11 @@ public class BashParser extends CommandlineParser {
         super.setBreaklineSymbol(BREAKLINE_SYMBOL);
         super.setBreaklineCommand(BREAKLINE_COMMAND);
         super.setCommentSymbol(COMMENT_SYMBOL);
-        super.setRegexCommentPatterns(COMMENT_PATTERNS);
+        super.setCommentPrefixes(COMMENT_PREFIXES, LINE_COMMENT_PREFIXES);
     }
 
     @Override
-    public String parsePipeline(PipelinePersistenceObject pipeline) {
-        String result = super.parsePipeline(pipeline);
-        return "#!/bin/bash\n\n" + result;
+    protected String getPreamble() {
+        return "#!/bin/bash\n\n";
     }
 }
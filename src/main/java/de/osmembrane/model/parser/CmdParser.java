@@ -11,8 +11,6 @@
 
 package de.osmembrane.model.parser;
 
-import java.util.regex.Pattern;
-
 /**
  * Implementation of {@link IParser} for the cmd (windows) command line.
  * 
@@ -23,10 +21,8 @@ public class CmdParser extends CommandlineParser {
     protected String BREAKLINE_SYMBOL = "^";
     protected String BREAKLINE_COMMAND = "\r\n";
     protected String COMMENT_SYMBOL = ":: ";
-    protected Pattern[] COMMENT_PATTERNS = {
-            Pattern.compile("::.*$", Pattern.MULTILINE),
-            Pattern.compile("^\\p{Space}*REM .*$", Pattern.CASE_INSENSITIVE
-                    | Pattern.MULTILINE) };
+    protected String[] COMMENT_PREFIXES = { "::" };
+    protected String[] LINE_COMMENT_PREFIXES = { "REM " };
 
     /**
      * Creates a new {@link CmdParser}.
@@ -35,6 +31,6 @@ public class CmdParser extends CommandlineParser {
         super.setBreaklineSymbol(BREAKLINE_SYMBOL);
         super.setBreaklineCommand(BREAKLINE_COMMAND);
         super.setCommentSymbol(COMMENT_SYMBOL);
-        super.setRegexCommentPatterns(COMMENT_PATTERNS);
+        super.setCommentPrefixes(COMMENT_PREFIXES, LINE_COMMENT_PREFIXES);
     }
 }
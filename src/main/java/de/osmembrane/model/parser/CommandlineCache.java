@@ -0,0 +1,135 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.parser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.PipelineObserverObject;
+
+/**
+ * Caches the generated command line of a pipeline between two generations.
+ * <br/>
+ * For every function the task with its parameters is cached, as long as the
+ * topology of the pipeline does not change also the order of the functions
+ * and their pipes. The cache is kept up to date with the
+ * {@link PipelineObserverObject}s of the pipeline it belongs to, so a
+ * regeneration only has to render the changed parts again.
+ * 
+ * @author agent
+ */
+public class CommandlineCache {
+
+    /**
+     * Rendered task and parameters of each function.
+     */
+    private Map<AbstractFunction, CommandlineFragment> tasks = new HashMap<AbstractFunction, CommandlineFragment>();
+
+    /**
+     * Order of the functions, NULL if the topology has changed.
+     */
+    private List<AbstractFunction> order;
+
+    /**
+     * Rendered pipes (and tees) of each function, only valid with the order.
+     */
+    private Map<AbstractFunction, CommandlineFragment> pipes = new HashMap<AbstractFunction, CommandlineFragment>();
+
+    /**
+     * Settings the cached fragments have been rendered with.
+     */
+    private Boolean useShortTaskNames;
+    private Boolean exportDefaultValues;
+
+    /**
+     * Invalidates all entries which are affected by a change of the pipeline.
+     * 
+     * @param poo
+     *            the change of the pipeline
+     */
+    public void invalidate(PipelineObserverObject poo) {
+        switch (poo.getType()) {
+        case CHANGE_FUNCTION:
+            tasks.remove(poo.getChangedFunction());
+            break;
+        case DELETE_FUNCTION:
+            tasks.remove(poo.getChangedFunction());
+            clearTopology();
+            break;
+        case ADD_FUNCTION:
+        case ADD_CONNECTION:
+        case DELETE_CONNECTION:
+            clearTopology();
+            break;
+        case FULLCHANGE:
+            clear();
+            break;
+        case SAVED_PIPELINE:
+            break;
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        tasks.clear();
+        clearTopology();
+    }
+
+    /**
+     * Clears the cache if the settings, the cached fragments have been
+     * rendered with, have changed.
+     */
+    void checkSettings(boolean useShortTaskNames, boolean exportDefaultValues) {
+        if (!Boolean.valueOf(useShortTaskNames).equals(this.useShortTaskNames)
+                || !Boolean.valueOf(exportDefaultValues).equals(
+                        this.exportDefaultValues)) {
+            clear();
+            this.useShortTaskNames = useShortTaskNames;
+            this.exportDefaultValues = exportDefaultValues;
+        }
+    }
+
+    CommandlineFragment getTask(AbstractFunction function) {
+        return tasks.get(function);
+    }
+
+    void putTask(AbstractFunction function, CommandlineFragment fragment) {
+        tasks.put(function, fragment);
+    }
+
+    /**
+     * @return the cached order of the functions or NULL if the topology has
+     *         changed since the last generation
+     */
+    List<AbstractFunction> getOrder() {
+        return order;
+    }
+
+    CommandlineFragment getPipes(AbstractFunction function) {
+        return pipes.get(function);
+    }
+
+    void putTopology(List<AbstractFunction> order,
+            Map<AbstractFunction, CommandlineFragment> pipes) {
+        this.order = order;
+        this.pipes = pipes;
+    }
+
+    private void clearTopology() {
+        order = null;
+        pipes = new HashMap<AbstractFunction, CommandlineFragment>();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records a part of a generated command line, so that it can be replayed to
+ * any other {@link CommandlineSink} later on. The quotation is done by the
+ * sink the fragment is replayed to, so a fragment can be used for every
+ * format.
+ * 
+ * @author agent
+ */
+class CommandlineFragment implements CommandlineSink {
+
+    private static final int COMMENT = 0;
+    private static final int EMPTY_LINE = 1;
+    private static final int LINE_BREAK = 2;
+    private static final int ARGUMENT = 3;
+    private static final int QUOTED_ARGUMENT = 4;
+
+    private List<Integer> types = new ArrayList<Integer>();
+    private List<String> keys = new ArrayList<String>();
+    private List<String> values = new ArrayList<String>();
+
+    /**
+     * Writes all recorded pieces to another sink.
+     * 
+     * @param sink
+     *            the sink the pieces are written to
+     */
+    public void replay(CommandlineSink sink) throws IOException {
+        for (int i = 0; i < types.size(); i++) {
+            switch (types.get(i)) {
+            case COMMENT:
+                sink.comment(values.get(i));
+                break;
+            case EMPTY_LINE:
+                sink.emptyLine();
+                break;
+            case LINE_BREAK:
+                sink.lineBreak();
+                break;
+            case ARGUMENT:
+                sink.argument(values.get(i));
+                break;
+            case QUOTED_ARGUMENT:
+                sink.quotedArgument(keys.get(i), values.get(i));
+                break;
+            }
+        }
+    }
+
+    @Override
+    public void comment(String line) {
+        record(COMMENT, null, line);
+    }
+
+    @Override
+    public void emptyLine() {
+        record(EMPTY_LINE, null, null);
+    }
+
+    @Override
+    public void lineBreak() {
+        record(LINE_BREAK, null, null);
+    }
+
+    @Override
+    public void argument(String argument) {
+        record(ARGUMENT, null, argument);
+    }
+
+    @Override
+    public void quotedArgument(String key, String value) {
+        record(QUOTED_ARGUMENT, key, value);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    private void record(int type, String key, String value) {
+        types.add(type);
+        keys.add(key);
+        values.add(value);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.osmembrane.model.parser.ParseException.ErrorType;
+
+/**
+ * Splits a command line into its words in a single pass over the input.<br/>
+ * <br/>
+ * Quotes (' and ") are removed, line continuations are joined and comments are
+ * skipped. Every word remembers the line and column where it starts, so errors
+ * can be reported with a position.
+ * 
+ * @author agent
+ */
+class CommandlineLexer {
+
+    /**
+     * A single word of the command line.
+     */
+    static class Token {
+
+        private String text;
+        private String key;
+        private String value;
+        private boolean task;
+        private int line;
+        private int column;
+
+        /**
+         * @return the whole word without quotes
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return the key of a key=value word, NULL if the word has no key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the value of a key=value word, otherwise the whole word
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return true if the word starts a task (--task)
+         */
+        public boolean isTask() {
+            return task;
+        }
+
+        /**
+         * @return the name of the task, if the word starts a task
+         */
+        public String getTaskName() {
+            return text.substring(2);
+        }
+
+        /**
+         * @return line of the word, starting with 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return column of the word, starting with 1
+         */
+        public int getColumn() {
+            return column;
+        }
+    }
+
+    private String continuation;
+    private String[] commentPrefixes;
+    private String[] lineCommentPrefixes;
+
+    /**
+     * Creates a new lexer.
+     * 
+     * @param continuation
+     *            symbol at the end of a line which continues the command on
+     *            the next line, ignored if blank
+     * @param commentPrefixes
+     *            prefixes which start a comment at the beginning of a word
+     * @param lineCommentPrefixes
+     *            prefixes which start a comment at the beginning of a line
+     *            (case insensitive)
+     */
+    public CommandlineLexer(String continuation, String[] commentPrefixes,
+            String[] lineCommentPrefixes) {
+        this.continuation = (continuation.trim().isEmpty() ? null
+                : continuation);
+        this.commentPrefixes = commentPrefixes;
+        this.lineCommentPrefixes = lineCommentPrefixes;
+    }
+
+    /**
+     * Splits the input into words.
+     * 
+     * @param input
+     *            the command line
+     * @return all words of the command line
+     * @throws ParseException
+     *             if a quotation is not closed
+     */
+    public List<Token> tokenize(String input) throws ParseException {
+        List<Token> tokens = new ArrayList<Token>();
+        StringBuilder word = new StringBuilder();
+        int length = input.length();
+
+        int line = 1;
+        int lineOffset = 0;
+        boolean lineStart = true;
+
+        int i = 0;
+        while (i < length) {
+            char c = input.charAt(i);
+
+            /* whitespace between the words */
+            if (c == '\n') {
+                line++;
+                lineOffset = i + 1;
+                lineStart = true;
+                i++;
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r') {
+                i++;
+                continue;
+            }
+
+            /* comments and line continuations at the beginning of a word */
+            if ((lineStart && startsWithIgnoreCase(input, i,
+                    lineCommentPrefixes))
+                    || startsWith(input, i, commentPrefixes)) {
+                i = skipLine(input, i);
+                continue;
+            }
+            int next = skipContinuation(input, i);
+            if (next > i) {
+                i = next;
+                continue;
+            }
+            lineStart = false;
+
+            /* read the word */
+            Token token = new Token();
+            token.line = line;
+            token.column = i - lineOffset + 1;
+            token.task = input.startsWith("--", i);
+
+            word.setLength(0);
+            int keyEnd = -1;
+            boolean quoted = false;
+            while (i < length) {
+                c = input.charAt(i);
+
+                if (c == '\'' || c == '"') {
+                    int end = input.indexOf(c, i + 1);
+                    if (end < 0) {
+                        throw new ParseException(ErrorType.UNTERMINATED_QUOTE,
+                                input.substring(i, Math.min(length, i + 20)))
+                                .setPosition(line, i - lineOffset + 1);
+                    }
+                    /* quoted newlines are part of the word */
+                    for (int j = i + 1; j < end; j++) {
+                        if (input.charAt(j) == '\n') {
+                            line++;
+                            lineOffset = j + 1;
+                        }
+                    }
+                    word.append(input, i + 1, end);
+                    quoted = true;
+                    i = end + 1;
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    break;
+                } else if (skipContinuation(input, i) > i) {
+                    break;
+                } else {
+                    if (c == '=' && keyEnd < 0 && !quoted) {
+                        keyEnd = word.length();
+                    }
+                    word.append(c);
+                    i++;
+                }
+            }
+
+            token.text = word.toString();
+            if (keyEnd > 0) {
+                token.key = token.text.substring(0, keyEnd);
+                token.value = token.text.substring(keyEnd + 1);
+            } else {
+                token.value = token.text;
+            }
+            tokens.add(token);
+        }
+
+        return tokens;
+    }
+
+    /**
+     * Returns the position after a line continuation at the given position,
+     * or the position itself if there is no continuation.
+     */
+    private int skipContinuation(String input, int i) {
+        if (continuation == null || !input.startsWith(continuation, i)) {
+            return i;
+        }
+
+        /* only whitespace may follow the symbol up to the end of the line */
+        int j = i + continuation.length();
+        while (j < input.length()
+                && (input.charAt(j) == ' ' || input.charAt(j) == '\t' || input
+                        .charAt(j) == '\r')) {
+            j++;
+        }
+        if (j == input.length()) {
+            return j;
+        }
+        if (input.charAt(j) == '\n') {
+            /* the newline itself is handled as whitespace */
+            return j;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the position of the end of the current line.
+     */
+    private int skipLine(String input, int i) {
+        int end = input.indexOf('\n', i);
+        return (end < 0 ? input.length() : end);
+    }
+
+    private boolean startsWith(String input, int i, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (input.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean startsWithIgnoreCase(String input, int i, String[] prefixes) {
+        for (String prefix : prefixes) {
+            if (input.regionMatches(true, i, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -11,6 +11,9 @@
 
 package de.osmembrane.model.parser;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -22,6 +25,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.BufferInserter;
+import de.osmembrane.model.algorithms.PipelineOptimizer;
+import de.osmembrane.model.parser.CommandlineLexer.Token;
 import de.osmembrane.model.parser.ParseException.ErrorType;
 import de.osmembrane.model.persistence.PipelinePersistenceObject;
 import de.osmembrane.model.pipeline.AbstractConnector;
@@ -33,6 +39,7 @@ import de.osmembrane.model.pipeline.ConnectorException;
 import de.osmembrane.model.pipeline.ConnectorType;
 import de.osmembrane.model.pipeline.Pipeline;
 import de.osmembrane.model.pipeline.PipelineSettings;
+import de.osmembrane.model.settings.AbstractSettings;
 import de.osmembrane.model.settings.SettingType;
 import de.osmembrane.tools.I18N;
 
@@ -48,61 +55,23 @@ public class CommandlineParser implements IParser {
      */
     private boolean addOsmosisPath = true;
 
+    /**
+     * Cache of already generated parts, NULL if nothing should be cached.
+     */
+    private CommandlineCache cache;
+
     protected String breaklineSymbol = "<linebreak>";
     protected String breaklineCommand = "\n";
     protected String quotationSymbol = "\"";
     protected String commentSymbol = "<COMMENT>: ";
-    protected Pattern[] regexCommentPatterns = {};
+    protected String[] commentPrefixes = {};
+    protected String[] lineCommentPrefixes = {};
     protected boolean disableComments = false;
 
     protected static final String DEFAULT_KEY = "DEFAULTKEY";
 
-    protected static final Pattern PATTERN_TASK = Pattern.compile(
-            "--([^ ]+)(.*?)((?=--)|$)", Pattern.CASE_INSENSITIVE
-                    | Pattern.MULTILINE);
-
     protected static final Pattern PATTERN_PIPE = Pattern
-            .compile("^(in|out)pipe\\.([0-9+])$");
-
-    protected static final Pattern PATTERN_SPLIT_SPACES_PARAMETER = Pattern
-            .compile("(inPipe|outPipe)", Pattern.CASE_INSENSITIVE
-                    | Pattern.MULTILINE);
-
-    /**
-     * Returns a following group-matching:<br/>
-     * <br/>
-     * 0: whole parameter<br/>
-     * 1: parameter(format: key='value') or NULL<br/>
-     * 2: key or NULL<br/>
-     * 3: value or NULL<br/>
-     * 4: parameter(format: key="value") or NULL<br/>
-     * 5: key or NULL<br/>
-     * 6: value or NULL<br/>
-     * 7: parameter(format: key=value) or NULL<br/>
-     * 8: key or NULL<br/>
-     * 9: value or NULL<br/>
-     * 10: parameter(format: 'value') or NULL<br/>
-     * 11: value or NULL<br/>
-     * 12: parameter(format: "value") or NULL<br/>
-     * 13: value or NULL<br/>
-     * 14: parameter(format: value) or NULL<br/>
-     * 15: value or NULL
-     */
-    protected static final Pattern PATTERN_PARAMETER = Pattern.compile(
-    /* should match on key='value' */
-    "(([^= ]+)='([^']+)')|"
-    /* should match on key="value" */
-    + "(([^= ]+)=\"([^\"]+)\")|"
-    /* should match on key=value */
-    + "(([^= ]+)=([^ ]+))|"
-    /* should match on 'value' */
-    + "('([^']+)')|"
-    /* should match on "value" */
-    + "(\"([^\"]+)\")|"
-    /* should match on value */
-    + "(([^ ]+))",
-    /* case insensitive and multiline matching */
-    Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+            .compile("^(in|out)pipe\\.([0-9]+)$");
 
     @Override
     public PipelinePersistenceObject parseString(String input)
@@ -123,58 +92,62 @@ public class CommandlineParser implements IParser {
             openOutConnectors.put(type, new LinkedList<AbstractFunction>());
         }
 
-        /* replace all comments */
-        for (Pattern replacePattern : regexCommentPatterns) {
-            Matcher match = replacePattern.matcher(input);
-            input = match.replaceAll("");
-        }
-
-        /* join the commandlines */
-        input = input.replace(breaklineSymbol, "");
-        input = input.replace(breaklineCommand, " ");
+        List<Token> tokens = new CommandlineLexer(breaklineSymbol,
+                commentPrefixes, lineCommentPrefixes).tokenize(input);
 
-        Matcher taskMatcher = PATTERN_TASK.matcher(input);
+        /* everything in front of the first task (like the osmosis path) */
+        int position = 0;
+        while (position < tokens.size() && !tokens.get(position).isTask()) {
+            position++;
+        }
 
-        /* iterate over all found tasks */
-        while (taskMatcher.find()) {
-            String taskName = taskMatcher.group(1).toLowerCase();
-            String taskParameters = taskMatcher.group(2).trim();
+        while (position < tokens.size()) {
+            Token taskToken = tokens.get(position++);
+            String taskName = taskToken.getTaskName().toLowerCase();
 
-            Map<String, String> parameters = new HashMap<String, String>();
-            Map<Integer, String> inPipes = new HashMap<Integer, String>();
-            Map<Integer, String> outPipes = new HashMap<Integer, String>();
+            /* all words up to the next task are parameters of the task */
+            int firstParameter = position;
+            while (position < tokens.size() && !tokens.get(position).isTask()) {
+                position++;
+            }
+            List<Token> taskParameters = tokens.subList(firstParameter,
+                    position);
 
-            /* parse all parameters */
-            Matcher paramMatcher = PATTERN_PARAMETER.matcher(taskParameters);
+            Map<String, Token> parameters = new HashMap<String, Token>();
+            Map<Integer, Token> inPipes = new HashMap<Integer, Token>();
+            Map<Integer, Token> outPipes = new HashMap<Integer, Token>();
 
             /* iterate over all parameters */
-            while (paramMatcher.find()) {
-                String[] keyValuePair = getParameter(paramMatcher);
+            int spacesParameterEnd = taskParameters.size();
+            for (int i = 0; i < taskParameters.size(); i++) {
+                Token parameter = taskParameters.get(i);
 
                 /*
-                 * change the key to an empty String, if it NULL. this is a
-                 * default parameter.
+                 * change the key to DEFAULT_KEY, if it NULL. this is a default
+                 * parameter.
                  */
-                if (keyValuePair[0] == null) {
-                    keyValuePair[0] = DEFAULT_KEY;
+                String key = parameter.getKey();
+                if (key == null) {
+                    key = DEFAULT_KEY;
                 }
 
                 /* try to identify the parameter as an pipe */
-                Matcher pipeMatcher = PATTERN_PIPE.matcher(keyValuePair[0]
-                        .toLowerCase());
+                Matcher pipeMatcher = PATTERN_PIPE.matcher(key.toLowerCase());
                 if (pipeMatcher.find()) {
                     /* found a pipe */
                     String inOutPipe = pipeMatcher.group(1);
                     int pipeIndex = Integer.parseInt(pipeMatcher.group(2));
 
                     if (inOutPipe.equals("in")) {
-                        inPipes.put(pipeIndex, keyValuePair[1]);
+                        inPipes.put(pipeIndex, parameter);
                     } else {
-                        outPipes.put(pipeIndex, keyValuePair[1]);
+                        outPipes.put(pipeIndex, parameter);
                     }
+
+                    spacesParameterEnd = Math.min(spacesParameterEnd, i);
                 } else {
                     /* found a normal parameter */
-                    parameters.put(keyValuePair[0], keyValuePair[1]);
+                    parameters.put(key, parameter);
                 }
             }
 
@@ -188,16 +161,17 @@ public class CommandlineParser implements IParser {
                 /* get the count of outPipes defined in the tee-task */
                 int countOutPipes = 2;
                 if (parameters.get(DEFAULT_KEY) != null) {
-                    countOutPipes = Integer.parseInt(parameters
-                            .get(DEFAULT_KEY));
+                    countOutPipes = Integer.parseInt(parameters.get(
+                            DEFAULT_KEY).getValue());
                 } else if (parameters.get("outputCount") != null) {
-                    countOutPipes = Integer.parseInt(parameters
-                            .get("outputCount"));
+                    countOutPipes = Integer.parseInt(parameters.get(
+                            "outputCount").getValue());
                 }
 
                 /* try to get the function at the inPipe */
                 for (Integer pipeId : inPipes.keySet()) {
-                    function = connectionMap.get(inPipes.get(pipeId));
+                    function = connectionMap.get(inPipes.get(pipeId)
+                            .getValue());
                 }
 
                 /* check if that could be also an implicit function */
@@ -214,14 +188,15 @@ public class CommandlineParser implements IParser {
                  */
                 if (function == null) {
                     throw new ParseException(ErrorType.UNKNOWN_PIPE_STREAM,
-                            taskName);
+                            taskName).setPosition(taskToken.getLine(),
+                            taskToken.getColumn());
                 }
 
                 /* add all specified outPipes to the map */
                 int countedOutPipes = 0;
                 for (Integer pipeId : outPipes.keySet()) {
                     countedOutPipes++;
-                    String pipeName = outPipes.get(pipeId);
+                    String pipeName = outPipes.get(pipeId).getValue();
                     if (function != null) {
                         connectionMap.put(pipeName, function);
                     }
@@ -245,15 +220,17 @@ public class CommandlineParser implements IParser {
                         .getMatchingFunctionForTaskName(taskName);
 
                 if (function == null) {
-                    throw new ParseException(ErrorType.UNKNOWN_TASK, taskName);
+                    throw new ParseException(ErrorType.UNKNOWN_TASK, taskName)
+                            .setPosition(taskToken.getLine(),
+                                    taskToken.getColumn());
                 } else {
                     pipeline.addFunction(function);
                 }
 
                 /*
                  * We have to check if the function does contain a parameter
-                 * with "hasSpaces" set, if that is so, we have to parse the
-                 * parameters again.
+                 * with "hasSpaces" set, if that is so, all words in front of
+                 * the pipes are the value of that parameter.
                  */
                 AbstractParameter spacesParam = null;
                 for (AbstractParameter param : function.getActiveTask()
@@ -264,14 +241,22 @@ public class CommandlineParser implements IParser {
                 }
 
                 if (spacesParam != null) {
-                    String[] results = PATTERN_SPLIT_SPACES_PARAMETER
-                            .split(taskParameters);
+                    StringBuilder value = new StringBuilder();
+                    for (Token parameter : taskParameters.subList(0,
+                            spacesParameterEnd)) {
+                        if (value.length() > 0) {
+                            value.append(' ');
+                        }
+                        value.append(parameter.getText());
+                    }
 
-                    spacesParam.setValue(results[0].trim());
+                    spacesParam.setValue(value.toString());
                     if (!spacesParam.isValid()) {
                         throw new ParseException(
                                 ErrorType.INVALID_PARAMETER_VALUE, taskName,
-                                spacesParam.getName(), results[0].trim());
+                                spacesParam.getName(), value.toString())
+                                .setPosition(taskToken.getLine(),
+                                        taskToken.getColumn());
                     }
 
                     /*
@@ -281,6 +266,7 @@ public class CommandlineParser implements IParser {
                 } else {
                     /* copy parameters to the function */
                     for (String key : parameters.keySet()) {
+                        Token value = parameters.get(key);
                         boolean foundKey = false;
                         for (AbstractParameter parameter : function
                                 .getActiveTask().getParameters()) {
@@ -288,12 +274,13 @@ public class CommandlineParser implements IParser {
                                     .equals(key.toLowerCase())
                                     || (key.equals(DEFAULT_KEY) && parameter
                                             .isDefaultParameter())) {
-                                parameter.setValue(parameters.get(key));
+                                parameter.setValue(value.getValue());
                                 if (!parameter.isValid()) {
                                     throw new ParseException(
                                             ErrorType.INVALID_PARAMETER_VALUE,
                                             taskName, parameter.getName(),
-                                            parameters.get(key));
+                                            value.getValue()).setPosition(
+                                            value.getLine(), value.getColumn());
                                 }
 
                                 foundKey = true;
@@ -303,11 +290,14 @@ public class CommandlineParser implements IParser {
                             if (key.equals(DEFAULT_KEY)) {
                                 throw new ParseException(
                                         ErrorType.NO_DEFAULT_PARAMETER_FOUND,
-                                        taskName, parameters.get(key));
+                                        taskName, value.getValue())
+                                        .setPosition(value.getLine(),
+                                                value.getColumn());
                             } else {
                                 throw new ParseException(
                                         ErrorType.UNKNOWN_TASK_FORMAT,
-                                        taskName, key);
+                                        taskName, key).setPosition(
+                                        value.getLine(), value.getColumn());
                             }
                         }
                     }
@@ -315,14 +305,16 @@ public class CommandlineParser implements IParser {
 
                 /* add the connections */
                 for (Integer pipeId : inPipes.keySet()) {
-                    String pipeName = inPipes.get(pipeId);
-                    AbstractFunction outFunction = connectionMap.get(pipeName);
+                    Token pipe = inPipes.get(pipeId);
+                    AbstractFunction outFunction = connectionMap.get(pipe
+                            .getValue());
 
                     /* check if the inPipe has no counterpart as a outPipe */
                     if (outFunction == null) {
                         throw new ParseException(
                                 ErrorType.COUNTERPART_PIPE_MISSING, taskName,
-                                pipeId);
+                                pipeId).setPosition(pipe.getLine(),
+                                pipe.getColumn());
                     }
 
                     try {
@@ -337,7 +329,8 @@ public class CommandlineParser implements IParser {
                                 ErrorType.CONNECTION_NOT_PERMITTED, outFunction
                                         .getActiveTask().getName(), function
                                         .getActiveTask().getName(),
-                                connectionExceptionMessage);
+                                connectionExceptionMessage).setPosition(
+                                pipe.getLine(), pipe.getColumn());
                     }
                 }
                 /* find connectors without a explicit definition. */
@@ -364,17 +357,17 @@ public class CommandlineParser implements IParser {
                                         ErrorType.CONNECTION_NOT_PERMITTED,
                                         outFunction.getActiveTask().getName(),
                                         function.getActiveTask().getName(),
-                                        connectionExceptionMessage);
+                                        connectionExceptionMessage)
+                                        .setPosition(taskToken.getLine(),
+                                                taskToken.getColumn());
                             }
-                            /* remove the openConnector from the map */
-                            functions.remove(function);
                         }
                     }
                 }
 
                 /* register all open outPipes */
                 for (Integer pipeId : outPipes.keySet()) {
-                    String pipeName = outPipes.get(pipeId);
+                    String pipeName = outPipes.get(pipeId).getValue();
                     connectionMap.put(pipeName, function);
                 }
                 /* find connectors without a explicit definition. */
@@ -412,217 +405,357 @@ public class CommandlineParser implements IParser {
     /* ************************* */
     @Override
     public String parsePipeline(PipelinePersistenceObject pipelineObject) {
-        List<AbstractFunction> pipeline = pipelineObject.getFunctions();
-        AbstractPipelineSettings settings = pipelineObject.getSettings();
+        StringWriter writer = new StringWriter();
+        try {
+            parsePipeline(pipelineObject, writer);
+        } catch (IOException e) {
+            /* a StringWriter does not throw any IOExceptions */
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
 
-        /* Queue where functions are stored, that haven't been parsed yet. */
-        Queue<AbstractFunction> functionQueue = new LinkedList<AbstractFunction>();
+    @Override
+    public void parsePipeline(PipelinePersistenceObject pipelineObject,
+            Writer writer) throws IOException {
+        writer.write(getPreamble());
+        generate(pipelineObject, new TextSink(writer));
+    }
 
-        /* List with all used functions */
-        List<AbstractFunction> usedFunctions = new ArrayList<AbstractFunction>();
+    @Override
+    public List<String> parsePipelineArguments(
+            PipelinePersistenceObject pipelineObject) {
+        List<String> arguments = new ArrayList<String>();
+        try {
+            generate(pipelineObject, new ArgumentSink(arguments));
+        } catch (IOException e) {
+            /* a list does not throw any IOExceptions */
+            throw new RuntimeException(e);
+        }
+        return arguments;
+    }
 
-        /* connectorMap which maps to each used out-connector a uniqueId */
-        Map<AbstractConnector, Integer> connectorMap = new HashMap<AbstractConnector, Integer>();
+    @Override
+    public void setCache(CommandlineCache cache) {
+        this.cache = cache;
+    }
 
-        /* StringBuilder for the String-output. */
-        StringBuilder builder = new StringBuilder();
+    /**
+     * Returns the text written in front of a generated pipeline.
+     * 
+     * @return preamble, empty by default
+     */
+    protected String getPreamble() {
+        return "";
+    }
 
-        /* pipeIndex is the uniqueId for out-connectors */
-        int pipeIndex = 0;
+    /**
+     * Generates the command line of a pipeline and passes it piece by piece
+     * to a {@link CommandlineSink}, nothing of the output is kept in memory.
+     */
+    private void generate(PipelinePersistenceObject pipelineObject,
+            CommandlineSink sink) throws IOException {
+        /* read the settings once, they do not change while generating */
+        AbstractSettings globalSettings = ModelProxy.getInstance()
+                .getSettings();
+        boolean useShortTaskNames = (Boolean) globalSettings
+                .getValue(SettingType.USE_SHORT_TASK_NAMES_IF_AVAILABLE);
+        boolean exportDefaultValues = (Boolean) globalSettings
+                .getValue(SettingType.EXPORT_PARAMETERS_WITH_DEFAULT_VALUES);
+
+        PipelinePersistenceObject original = pipelineObject;
+
+        /* rewrite the pipeline, so that osmosis has to process less data */
+        List<String> optimizations = new ArrayList<String>();
+        if ((Boolean) globalSettings
+                .getValue(SettingType.OPTIMIZE_GENERATED_PIPELINE)) {
+            PipelineOptimizer optimizer = new PipelineOptimizer(pipelineObject);
+            pipelineObject = optimizer.optimize();
+            optimizations.addAll(optimizer.getReport());
+        }
 
-        /* add all functions to the queue */
-        for (AbstractFunction function : pipeline) {
-            functionQueue.add(function);
+        /* decouple CPU-heavy tasks, so osmosis runs them in own threads */
+        if ((Boolean) globalSettings.getValue(SettingType.INSERT_BUFFERS)) {
+            BufferInserter inserter = new BufferInserter(pipelineObject,
+                    (Integer) globalSettings
+                            .getValue(SettingType.BUFFER_CAPACITY));
+            pipelineObject = inserter.insert();
+            optimizations.addAll(inserter.getReport());
         }
 
+        List<AbstractFunction> pipeline = pipelineObject.getFunctions();
+        AbstractPipelineSettings settings = pipelineObject.getSettings();
+
         /* add the comment header block to the pipeline. */
         if (!disableComments) {
-            builder.append(getCommentSymbol()
-                    + "OSMembrane auto-generated pipeline for osmosis");
-            builder.append(getBreaklineCommand());
-
-            builder.append(getCommentSymbol() + "Name: " + settings.getName());
-            builder.append(getBreaklineCommand());
-
-            builder.append(getCommentSymbol() + "Date: "
-                    + new Date().toString());
-            builder.append(getBreaklineCommand());
-
-            builder.append(getCommentSymbol() + "Comment:");
-            builder.append(getBreaklineCommand());
+            sink.comment("OSMembrane auto-generated pipeline for osmosis");
+            sink.comment("Name: " + settings.getName());
+            sink.comment("Date: " + new Date().toString());
+            sink.comment("Comment:");
 
             String[] commentLines = settings.getComment().split("(\\r\\n|\\n)");
             for (String line : commentLines) {
-                builder.append(getCommentSymbol() + line);
-                builder.append(getBreaklineCommand());
+                sink.comment(line);
             }
-            builder.append(getBreaklineCommand());
+
+            if (optimizations.size() > 0) {
+                sink.comment("Optimizations:");
+                for (String optimization : optimizations) {
+                    sink.comment(optimization);
+                }
+            }
+            sink.emptyLine();
         }
 
         /* add the path to the osmosis binary */
         if (addOsmosisPath) {
-            builder.append(quotate((String) ModelProxy.getInstance()
-                    .getSettings().getValue(SettingType.DEFAULT_OSMOSIS_PATH)));
+            sink.quotedArgument(null, (String) globalSettings
+                    .getValue(SettingType.DEFAULT_OSMOSIS_PATH));
 
-            if (pipelineObject.getSettings().getVerbose() > 0) {
-                builder.append(" -v" + settings.getVerbose());
+            if (settings.getVerbose() > 0) {
+                sink.argument("-v" + settings.getVerbose());
             }
 
-            if (pipelineObject.getSettings().getDebug() > 0) {
-                builder.append(" -d" + settings.getDebug());
+            if (settings.getDebug() > 0) {
+                sink.argument("-d" + settings.getDebug());
             }
         }
 
-        /* do the parsing while a function is in the queue */
-        while (!functionQueue.isEmpty()) {
-            AbstractFunction function = functionQueue.poll();
-
-            /*
-             * Check if the function does not have any dependencies on a
-             * function which has not yet been parsed.
-             */
-            boolean addable = true;
-            for (AbstractConnector inConnector : function.getInConnectors()) {
-                for (AbstractConnector sourceConnector : inConnector
-                        .getConnections()) {
-                    AbstractFunction sourceFunction = sourceConnector
-                            .getParent();
-                    if (!usedFunctions.contains(sourceFunction)) {
-                        addable = false;
-                        break;
-                    }
+        /*
+         * the cache belongs to the functions of the pipeline, it can not be
+         * used for a rewritten copy.
+         */
+        CommandlineCache cache = (pipelineObject == original ? this.cache
+                : null);
+
+        if (cache == null) {
+            /* emit the functions in the order of the data flow */
+            Map<AbstractConnector, Integer> connectorMap = new HashMap<AbstractConnector, Integer>();
+            int pipeIndex = 0;
+            for (AbstractFunction function : topologicalOrder(pipeline)) {
+                writeTask(function, sink, useShortTaskNames,
+                        exportDefaultValues);
+                pipeIndex = writePipes(function, sink, connectorMap, pipeIndex);
+            }
+        } else {
+            cache.checkSettings(useShortTaskNames, exportDefaultValues);
+
+            /* the pipes only have to be numbered again if the topology changed */
+            List<AbstractFunction> order = cache.getOrder();
+            if (order == null || order.size() != pipeline.size()) {
+                order = topologicalOrder(pipeline);
+                Map<AbstractFunction, CommandlineFragment> pipes = new HashMap<AbstractFunction, CommandlineFragment>();
+                Map<AbstractConnector, Integer> connectorMap = new HashMap<AbstractConnector, Integer>();
+                int pipeIndex = 0;
+                for (AbstractFunction function : order) {
+                    CommandlineFragment fragment = new CommandlineFragment();
+                    pipeIndex = writePipes(function, fragment, connectorMap,
+                            pipeIndex);
+                    pipes.put(function, fragment);
                 }
-                if (!addable) {
-                    break;
+                cache.putTopology(order, pipes);
+            }
+
+            for (AbstractFunction function : order) {
+                CommandlineFragment task = cache.getTask(function);
+                if (task == null) {
+                    task = new CommandlineFragment();
+                    writeTask(function, task, useShortTaskNames,
+                            exportDefaultValues);
+                    cache.putTask(function, task);
                 }
+                task.replay(sink);
+                cache.getPipes(function).replay(sink);
             }
+        }
+
+        sink.flush();
+    }
+
+    /**
+     * Writes the task of a function with all its parameters.
+     */
+    private void writeTask(AbstractFunction function, CommandlineSink sink,
+            boolean useShortTaskNames, boolean exportDefaultValues)
+            throws IOException {
+        sink.lineBreak();
+
+        /*
+         * get the shortName and the name from the activeTask in the function
+         */
+        String stn = function.getActiveTask().getShortName();
+        String tn = function.getActiveTask().getName();
+
+        /* write the task(-short)-name */
+        sink.argument("--" + ((useShortTaskNames && stn != null) ? stn : tn));
+
+        /* write all parameters of the task */
+        for (AbstractParameter parameter : function.getActiveTask()
+                .getParameters()) {
 
             /*
-             * Only do the next steps if the function does _not_ have any
-             * dependencies.
+             * Only add a parameter when there is not a default value assigned,
+             * or settings say that they are needed.
              */
-            if (addable) {
-                usedFunctions.add(function);
+            String value = null;
+            if (parameter.getValue() != null) {
+                value = parameter.getValue();
+            } else if (parameter.isDefaultValue() && exportDefaultValues) {
+                value = parameter.getDefaultValue();
+            }
+            if (value != null) {
+                /* look up if it is a parameter with set "hasSpaces" */
+                if (parameter.hasSpaces() && parameter.isDefaultParameter()) {
+                    sink.argument(value);
+                } else {
+                    sink.quotedArgument(parameter.getName(), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the pipes of a function and the tees behind its out-connectors.
+     * 
+     * @param connectorMap
+     *            maps to each used out-connector a uniqueId, filled with the
+     *            out-connectors of the function
+     * @param pipeIndex
+     *            last used uniqueId for out-connectors
+     * @return last used uniqueId after the function
+     */
+    private int writePipes(AbstractFunction function, CommandlineSink sink,
+            Map<AbstractConnector, Integer> connectorMap, int pipeIndex)
+            throws IOException {
+        /* write all inConnectors */
+        for (AbstractConnector connector : function.getInConnectors()) {
+            for (AbstractConnector otherConnector : connector.getConnections()) {
+                /*
+                 * Use the offset to get the right connector of the attached
+                 * --tee to otherConnector.
+                 */
+                int offset = getConnectorOffset(connector, otherConnector);
+
+                sink.argument("inPipe." + connector.getConnectorIndex() + "="
+                        + (connectorMap.get(otherConnector) + offset));
+            }
+        }
+
+        /* Create the out-Connectors and remember the ones with a tee. */
+        List<AbstractConnector> teeConnectors = new ArrayList<AbstractConnector>();
+        for (AbstractConnector connector : function.getOutConnectors()) {
+            pipeIndex++;
 
-                appendLineBreak(builder);
+            sink.argument("outPipe." + connector.getConnectorIndex() + "="
+                    + pipeIndex);
 
+            /* Add a tee, 'cause more than one connection is attached. */
+            if (connector.getConnections().length > 1) {
                 /*
-                 * get the shortName and the name from the activeTask in the
-                 * function
+                 * add to the index + 1, 'cause the first tee-out-connector has
+                 * function.connector + 1 as pipe key.
                  */
-                String stn = function.getActiveTask().getShortName();
-                String tn = function.getActiveTask().getName();
-
-                /* write the task(-short)-name */
-                if ((Boolean) ModelProxy
-                        .getInstance()
-                        .getSettings()
-                        .getValue(SettingType.USE_SHORT_TASK_NAMES_IF_AVAILABLE)
-                        && stn != null) {
-                    builder.append("--" + stn);
-                } else {
-                    builder.append("--" + tn);
-                }
+                connectorMap.put(connector, (pipeIndex + 1));
+                teeConnectors.add(connector);
 
-                /* write all parameters of the task */
-                for (AbstractParameter parameter : function.getActiveTask()
-                        .getParameters()) {
+                /* reserve the outPipes of the tee */
+                pipeIndex += connector.getConnections().length;
+            } else {
+                connectorMap.put(connector, pipeIndex);
+            }
+        }
 
-                    /*
-                     * Only add a parameter when there is not a default value
-                     * assigned, or settings say that they are needed.
-                     */
-                    String value = null;
-                    if (parameter.getValue() != null) {
-                        value = parameter.getValue();
-                    } else if (parameter.isDefaultValue()
-                            && (Boolean) ModelProxy
-                                    .getInstance()
-                                    .getSettings()
-                                    .getValue(
-                                            SettingType.EXPORT_PARAMETERS_WITH_DEFAULT_VALUES)) {
-                        value = parameter.getDefaultValue();
-                    }
-                    if (value != null) {
-                        /* look up if it is a parameter with set "hasSpaces" */
-                        if (parameter.hasSpaces()
-                                && parameter.isDefaultParameter()) {
-                            builder.append(" " + parameter.getValue());
-                        } else {
-                            builder.append(" " + parameter.getName() + "="
-                                    + quotate(parameter.getValue()));
-                        }
-                    }
-                }
+        /* the tees are written behind all outPipes of the task */
+        for (AbstractConnector connector : teeConnectors) {
+            int connections = connector.getConnections().length;
+            int teeIndex = connectorMap.get(connector);
 
-                /* write all inConnectors */
-                for (AbstractConnector connector : function.getInConnectors()) {
-                    for (AbstractConnector otherConnector : connector
-                            .getConnections()) {
-                        /*
-                         * Use the offset to get the right connector of the
-                         * attached --tee to otherConnector.
-                         */
-                        int offset = getConnectorOffset(connector,
-                                otherConnector);
-
-                        builder.append(" inPipe."
-                                + connector.getConnectorIndex() + "="
-                                + (connectorMap.get(otherConnector) + offset));
-                    }
-                }
+            sink.lineBreak();
 
-                /* Create the out-Connectors and add a tee if needed. */
-                StringBuilder teeBuilder = new StringBuilder();
-                for (AbstractConnector connector : function.getOutConnectors()) {
-                    pipeIndex++;
-
-                    builder.append(" outPipe." + connector.getConnectorIndex()
-                            + "=" + pipeIndex);
-
-                    /* Add a tee, 'cause more than one connection is attached. */
-                    if (connector.getConnections().length > 1) {
-                        /*
-                         * add to the index + 1, 'cause the first
-                         * tee-out-connector has function.connector + 1 as pipe
-                         * key.
-                         */
-                        connectorMap.put(connector, (pipeIndex + 1));
-
-                        appendLineBreak(teeBuilder);
-
-                        /* add the correct --tee */
-                        teeBuilder
-                                .append("--"
-                                        + (connector.getType() == ConnectorType.ENTITY ? "tee"
-                                                : "change-tee") + " ");
-
-                        teeBuilder.append(connector.getConnections().length
-                                + " inPipe.0=" + pipeIndex);
-
-                        /* add all outPipes to the --tee */
-                        for (int i = 0; i < connector.getConnections().length; i++) {
-                            pipeIndex++;
-                            /*
-                             * append a out-pipe for the tee
-                             * (outPipe.Index=pipeIndex
-                             */
-                            teeBuilder
-                                    .append(" outPipe." + i + "=" + pipeIndex);
-                        }
-                    } else {
-                        connectorMap.put(connector, pipeIndex);
+            /* add the correct --tee */
+            sink.argument("--"
+                    + (connector.getType() == ConnectorType.ENTITY ? "tee"
+                            : "change-tee"));
+            sink.argument(String.valueOf(connections));
+            sink.argument("inPipe.0=" + (teeIndex - 1));
+
+            /* add all outPipes to the --tee */
+            for (int i = 0; i < connections; i++) {
+                sink.argument("outPipe." + i + "=" + (teeIndex + i));
+            }
+        }
+
+        return pipeIndex;
+    }
+
+    /**
+     * Orders the functions with Kahn's algorithm over an indexed graph, so
+     * that every function comes after all functions it is connected from.
+     * Functions without dependencies keep the order of the pipeline.
+     * 
+     * @param functions
+     *            functions of the pipeline
+     * @return functions in the order of the data flow
+     */
+    private List<AbstractFunction> topologicalOrder(
+            List<AbstractFunction> functions) {
+        int count = functions.size();
+
+        Map<AbstractFunction, Integer> index = new HashMap<AbstractFunction, Integer>(
+                count * 2);
+        for (int i = 0; i < count; i++) {
+            index.put(functions.get(i), i);
+        }
+
+        /* build the adjacency lists and count the incoming connections */
+        int[] inDegree = new int[count];
+        int[][] successors = new int[count][];
+        int[] successorCount = new int[count];
+        for (int i = 0; i < count; i++) {
+            AbstractConnector[] outConnectors = functions.get(i)
+                    .getOutConnectors();
+
+            int outDegree = 0;
+            for (AbstractConnector connector : outConnectors) {
+                outDegree += connector.getConnections().length;
+            }
+
+            successors[i] = new int[outDegree];
+            for (AbstractConnector connector : outConnectors) {
+                for (AbstractConnector target : connector.getConnections()) {
+                    Integer targetIndex = index.get(target.getParent());
+                    if (targetIndex != null) {
+                        successors[i][successorCount[i]++] = targetIndex;
+                        inDegree[targetIndex]++;
                     }
                 }
+            }
+        }
 
-                builder.append(teeBuilder);
-            } else {
-                /* function does not full-fill all dependencies, enqueue */
-                functionQueue.add(function);
+        /* the queue never holds more than all functions */
+        int[] queue = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            if (inDegree[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+
+        List<AbstractFunction> order = new ArrayList<AbstractFunction>(count);
+        while (head < tail) {
+            int current = queue[head++];
+            order.add(functions.get(current));
+
+            for (int i = 0; i < successorCount[current]; i++) {
+                int next = successors[current][i];
+                if (--inDegree[next] == 0) {
+                    queue[tail++] = next;
+                }
             }
         }
 
-        return builder.toString();
+        return order;
     }
 
     /**
@@ -660,44 +793,6 @@ public class CommandlineParser implements IParser {
                 "Sorry, but can't parse that, found a connection with only a connection in one direction.");
     }
 
-    /**
-     * Returns a key-value-pair.
-     * 
-     * @param paramMatcher
-     *            matched parameter which should be parsed.
-     * @return String-Array with first entry as key and second one as value
-     */
-    private String[] getParameter(Matcher paramMatcher) {
-        int[] keyEntries = { 1, 4, 7, 10, 12, 14 };
-        for (int i : keyEntries) {
-            if (paramMatcher.group(i) != null) {
-                /* found the right entry */
-                String key = null;
-                String value = null;
-
-                if (i < 10) {
-                    key = paramMatcher.group(i + 1).trim();
-                    value = paramMatcher.group(i + 2).trim();
-                } else {
-                    value = paramMatcher.group(i + 1).trim();
-                }
-
-                return new String[] { key, value };
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Adds a linebreak to a given {@link StringBuilder}.
-     */
-    private void appendLineBreak(StringBuilder builder) {
-        builder.append(" ");
-        builder.append(breaklineSymbol);
-        builder.append(breaklineCommand);
-    }
-
     /**
      * Adds a quotation to a {@link String} if it is needed.
      * 
@@ -751,16 +846,133 @@ public class CommandlineParser implements IParser {
         return quotationSymbol;
     }
 
-    protected void setRegexCommentPatterns(Pattern[] regexCommentPatterns) {
-        this.regexCommentPatterns = regexCommentPatterns;
-    }
-
-    @Override
-    public Pattern[] getRegexCommentPatterns() {
-        return regexCommentPatterns;
+    /**
+     * Sets the prefixes which start a comment.
+     * 
+     * @param commentPrefixes
+     *            prefixes which start a comment at the beginning of a word
+     * @param lineCommentPrefixes
+     *            prefixes which start a comment at the beginning of a line
+     *            (case insensitive)
+     */
+    protected void setCommentPrefixes(String[] commentPrefixes,
+            String[] lineCommentPrefixes) {
+        this.commentPrefixes = commentPrefixes;
+        this.lineCommentPrefixes = lineCommentPrefixes;
     }
 
     protected void disableComments(boolean disableComments) {
         this.disableComments = disableComments;
     }
+
+    /* ********************************* */
+    /* Receivers of the generated output */
+    /* ********************************* */
+
+    /**
+     * Writes the command line as text (including comments and line breaks)
+     * to a {@link Writer}.
+     */
+    private class TextSink implements CommandlineSink {
+
+        private Writer writer;
+
+        /**
+         * True if nothing has been written to the current line yet.
+         */
+        private boolean lineStart = true;
+
+        public TextSink(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void comment(String line) throws IOException {
+            writer.write(commentSymbol);
+            writer.write(line);
+            writer.write(breaklineCommand);
+        }
+
+        @Override
+        public void emptyLine() throws IOException {
+            writer.write(breaklineCommand);
+            lineStart = true;
+        }
+
+        @Override
+        public void lineBreak() throws IOException {
+            writer.write(" ");
+            writer.write(breaklineSymbol);
+            writer.write(breaklineCommand);
+            lineStart = true;
+        }
+
+        @Override
+        public void argument(String argument) throws IOException {
+            if (!lineStart) {
+                writer.write(" ");
+            }
+            writer.write(argument);
+            lineStart = false;
+        }
+
+        @Override
+        public void quotedArgument(String key, String value)
+                throws IOException {
+            argument((key == null ? "" : key + "=") + quotate(value));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Collects the command line as a list of arguments, exactly as they
+     * should be passed to a process. Comments and line breaks are skipped.
+     */
+    private class ArgumentSink implements CommandlineSink {
+
+        private List<String> arguments;
+
+        public ArgumentSink(List<String> arguments) {
+            this.arguments = arguments;
+        }
+
+        @Override
+        public void comment(String line) {
+        }
+
+        @Override
+        public void emptyLine() {
+        }
+
+        @Override
+        public void lineBreak() {
+        }
+
+        @Override
+        public void argument(String argument) {
+            /* split the words like the shell does with the text output */
+            if (argument.indexOf(' ') < 0) {
+                arguments.add(argument);
+                return;
+            }
+            for (String word : argument.trim().split(" +")) {
+                if (word.length() > 0) {
+                    arguments.add(word);
+                }
+            }
+        }
+
+        @Override
+        public void quotedArgument(String key, String value) {
+            arguments.add((key == null ? "" : key + "=") + value);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
 }
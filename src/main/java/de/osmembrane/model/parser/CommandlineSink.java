@@ -0,0 +1,58 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.parser;
+
+import java.io.IOException;
+
+/**
+ * Receives a command line generated by the {@link CommandlineParser} piece by
+ * piece.
+ * 
+ * @author agent
+ */
+interface CommandlineSink {
+
+    /**
+     * Adds a comment line.
+     */
+    void comment(String line) throws IOException;
+
+    /**
+     * Adds an empty line.
+     */
+    void emptyLine() throws IOException;
+
+    /**
+     * Continues the command on a new line.
+     */
+    void lineBreak() throws IOException;
+
+    /**
+     * Adds an argument which never needs a quotation. It may consist of
+     * several words separated by spaces (the value of a parameter with
+     * "hasSpaces"), which a shell reads as separate arguments.
+     */
+    void argument(String argument) throws IOException;
+
+    /**
+     * Adds an argument with a value which may need a quotation.
+     * 
+     * @param key
+     *            key of the argument, or NULL if the value stands alone
+     */
+    void quotedArgument(String key, String value) throws IOException;
+
+    /**
+     * Called after the whole command line is generated.
+     */
+    void flush() throws IOException;
+}
@@ -11,7 +11,9 @@
 
 package de.osmembrane.model.parser;
 
-import java.util.regex.Pattern;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 
 import de.osmembrane.model.persistence.PipelinePersistenceObject;
 import de.osmembrane.model.pipeline.Pipeline;
@@ -42,6 +44,41 @@ public interface IParser {
      */
     public String parsePipeline(PipelinePersistenceObject pipeline);
 
+    /**
+     * Writes the string representation of a given {@link Pipeline} directly
+     * to a {@link Writer}, without holding the whole output in memory.
+     * 
+     * @param pipeline
+     *            which should be transformed
+     * @param writer
+     *            where the representation is written to
+     * @throws IOException
+     *             if the writer fails
+     */
+    public void parsePipeline(PipelinePersistenceObject pipeline, Writer writer)
+            throws IOException;
+
+    /**
+     * Creates the list of arguments for a given {@link Pipeline}, exactly as
+     * they should be passed to a process (no quotation, no comments).
+     * 
+     * @param pipeline
+     *            which should be transformed
+     * @return list of arguments
+     */
+    public List<String> parsePipelineArguments(
+            PipelinePersistenceObject pipeline);
+
+    /**
+     * Sets a cache which is used to generate a pipeline, only the changed
+     * parts of the pipeline are generated again. The cache has to belong to
+     * the functions of the generated pipeline.
+     * 
+     * @param cache
+     *            cache for generated parts, NULL if nothing should be cached
+     */
+    public void setCache(CommandlineCache cache);
+
     /**
      * Returns the quotation symbol of the parser.
      * 
@@ -70,11 +107,4 @@ public interface IParser {
      */
     public String getCommentSymbol();
 
-    /**
-     * Returns the regex patterns for comments.
-     * 
-     * @return regex comment patterns
-     */
-    public Pattern[] getRegexCommentPatterns();
-
 }
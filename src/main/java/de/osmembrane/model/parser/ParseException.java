@@ -62,11 +62,22 @@ public class ParseException extends Exception {
          * The given parameter has an invalid value.
          */
         INVALID_PARAMETER_VALUE,
+
+        /**
+         * A quotation is opened but never closed.
+         */
+        UNTERMINATED_QUOTE,
     }
 
     private ErrorType type;
     private Object[] messageValues;
 
+    /**
+     * Position in the input where the error occurred, 0 if unknown.
+     */
+    private int line;
+    private int column;
+
     /**
      * Creates a new {@link ParseException} with a given {@link ErrorType}.
      * 
@@ -89,9 +100,49 @@ public class ParseException extends Exception {
         return type;
     }
 
+    /**
+     * Sets the position in the input where the error occurred.
+     * 
+     * @param line
+     *            line, starting with 1
+     * @param column
+     *            column, starting with 1
+     * @return the {@link ParseException} itself
+     */
+    public ParseException setPosition(int line, int column) {
+        this.line = line;
+        this.column = column;
+        return this;
+    }
+
+    /**
+     * Returns the line where the error occurred.
+     * 
+     * @return line starting with 1, or 0 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column where the error occurred.
+     * 
+     * @return column starting with 1, or 0 if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
     @Override
     public String getMessage() {
-        return I18N.getInstance().getString("Model.Parser.Exceptions." + type,
-                messageValues);
+        String message = I18N.getInstance().getString(
+                "Model.Parser.Exceptions." + type, messageValues);
+        if (line > 0) {
+            message += " "
+                    + I18N.getInstance().getString(
+                            "Model.Parser.Exceptions.Position",
+                            String.valueOf(line), String.valueOf(column));
+        }
+        return message;
     }
 }
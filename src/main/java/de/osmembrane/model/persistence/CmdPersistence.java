@@ -55,10 +55,9 @@ public class CmdPersistence extends AbstractPersistence {
             FileWriter fw = new FileWriter(file);
             BufferedWriter bw = new BufferedWriter(fw);
 
-            String output = ParserFactory.getInstance().getParser(PARSER)
-                    .parsePipeline((PipelinePersistenceObject) data);
+            ParserFactory.getInstance().getParser(PARSER)
+                    .parsePipeline((PipelinePersistenceObject) data, bw);
 
-            bw.write(output);
             bw.close();
             fw.close();
 
@@ -12,9 +12,15 @@
 package de.osmembrane.model.pipeline;
 
 import java.net.URL;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
+import de.osmembrane.model.algorithms.ExecutionCache;
+import de.osmembrane.model.algorithms.PipelinePartitioner;
+import de.osmembrane.model.algorithms.PipelineSampler;
+import de.osmembrane.model.algorithms.ReaderDeduplicator;
+import de.osmembrane.model.algorithms.ResourceEstimator;
 import de.osmembrane.model.persistence.FileException;
 import de.osmembrane.model.persistence.FileType;
 
@@ -142,6 +148,30 @@ public abstract class AbstractPipeline extends Observable implements Observer {
      */
     public abstract String generate(FileType filetype);
 
+    /**
+     * Generates the pipeline as a list of arguments, as they should be passed
+     * to the process.
+     * 
+     * @param filetype
+     *            filetype of the generated pipeline
+     * @return list of arguments
+     */
+    public abstract List<String> generateArguments(FileType filetype);
+
+    /**
+     * Generates a part of the pipeline with the settings of this pipeline as
+     * a list of arguments.
+     * 
+     * @param filetype
+     *            filetype of the generated pipeline
+     * @param functions
+     *            the functions which should be generated, e.g. a partition of
+     *            the {@link PipelinePartitioner}
+     * @return list of arguments
+     */
+    public abstract List<String> generateArguments(FileType filetype,
+            List<AbstractFunction> functions);
+
     /**
      * Imports the pipeline from a given file.
      * 
@@ -205,6 +235,63 @@ public abstract class AbstractPipeline extends Observable implements Observer {
      */
     public abstract boolean hasLoop();
 
+    /**
+     * Estimates heap, temporary disk and relative processing time of every
+     * function in the pipeline.
+     * 
+     * @return the finished {@link ResourceEstimator}
+     */
+    public abstract ResourceEstimator estimateResources();
+
+    /**
+     * Copies the functions of the pipeline, the copies are connected like
+     * the originals. The copies do not belong to the pipeline and are not
+     * observed, so they may be read by another thread.
+     * 
+     * @return the copies in the order of {@link #getFunctions()}
+     */
+    public abstract List<AbstractFunction> copyFunctions();
+
+    /**
+     * Searches readers which are reading exactly the same data, the pipeline
+     * itself is not changed.
+     * 
+     * @return the finished {@link ReaderDeduplicator}, can be used as preview
+     */
+    public abstract ReaderDeduplicator findDuplicateReaders();
+
+    /**
+     * Collapses all readers which are reading exactly the same data into one
+     * reader. All changes are done in one single undo step.
+     * 
+     * @return true if any readers were removed
+     */
+    public abstract boolean deduplicateReaders();
+
+    /**
+     * Returns a partitioner to split the pipeline into several osmosis
+     * processes, the pipeline itself is not changed.
+     * 
+     * @return a new {@link PipelinePartitioner}
+     */
+    public abstract PipelinePartitioner getPartitioner();
+
+    /**
+     * Returns a cache for the intermediate results of the pipeline in the
+     * cache directory of the user folder, the pipeline itself is not changed.
+     * 
+     * @return a new {@link ExecutionCache}
+     */
+    public abstract ExecutionCache getExecutionCache();
+
+    /**
+     * Returns a sampler to create a sample version of the pipeline for a
+     * trial run, the pipeline itself is not changed.
+     * 
+     * @return a new {@link PipelineSampler}
+     */
+    public abstract PipelineSampler getSampler();
+
     /**
      * Returns the save-state of the pipeline.
      * 
@@ -73,4 +73,46 @@ public abstract class AbstractPipelineSettings implements Serializable {
      * @return the name of the pipeline
      */
     public abstract String getName();
+
+    /**
+     * Sets the maximum heap of the osmosis JVM.
+     * 
+     * @param heap
+     *            heap in megabyte, 0 to recommend it from the pipeline
+     */
+    public abstract void setJavaHeap(int heap);
+
+    /**
+     * @return the maximum heap of the osmosis JVM in megabyte, 0 if it is
+     *         recommended from the pipeline
+     */
+    public abstract int getJavaHeap();
+
+    /**
+     * Sets the garbage collector options of the osmosis JVM.
+     * 
+     * @param options
+     *            the options, empty to recommend them from the heap
+     */
+    public abstract void setJavaOptions(String options);
+
+    /**
+     * @return the garbage collector options of the osmosis JVM, empty if they
+     *         are recommended from the heap
+     */
+    public abstract String getJavaOptions();
+
+    /**
+     * Sets the temporary directory of osmosis.
+     * 
+     * @param directory
+     *            the directory, empty to recommend it from the free space
+     */
+    public abstract void setTempDirectory(String directory);
+
+    /**
+     * @return the temporary directory of osmosis, empty if it is recommended
+     *         from the free space
+     */
+    public abstract String getTempDirectory();
 }
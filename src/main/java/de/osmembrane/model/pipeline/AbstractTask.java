@@ -96,6 +96,13 @@ public abstract class AbstractTask extends Observable implements Observer,
      */
     public abstract boolean setBBox(String bbox);
 
+    /**
+     * Returns the static cost profile of the {@link AbstractTask}.
+     * 
+     * @return cost profile of the task
+     */
+    public abstract TaskCostProfile getCostProfile();
+
     /**
      * Returns the input pipes for the {@link XMLTask} (required for
      * {@link AbstractFunction}).
@@ -17,8 +17,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.ObjectStreamException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Observable;
+import java.util.Set;
 
 import javax.imageio.ImageIO;
 
@@ -304,19 +306,17 @@ public class Function extends AbstractFunction {
                     }
 
                     if (!connectorOut.isFull() && !connectorIn.isFull()) {
-                        /* first, add connections */
-                        connectorIn.addConnection(connectorOut);
-                        connectorOut.addConnection(connectorIn);
-
-                        /* now check loop freeness */
-                        if (getPipeline().hasLoop()) {
-                            /* remove 'cause that is not ok */
-                            connectorIn.removeConnection(connectorOut);
-                            connectorOut.removeConnection(connectorIn);
-
+                        /*
+                         * check loop freeness, the function must not lead back
+                         * to this one
+                         */
+                        if (leadsTo(function, this)) {
                             throw new ConnectorException(Type.LOOP_CREATED);
                         }
 
+                        connectorIn.addConnection(connectorOut);
+                        connectorOut.addConnection(connectorIn);
+
                         changedNotifyObservers(new PipelineObserverObject(
                                 ChangeType.ADD_CONNECTION, connectorOut,
                                 connectorIn));
@@ -358,6 +358,36 @@ public class Function extends AbstractFunction {
         return false;
     }
 
+    /**
+     * Returns true if the target is reachable from the start function by
+     * following the out-connections (or both are the same function). Only the
+     * part of the pipeline behind the start function is visited.
+     */
+    private static boolean leadsTo(AbstractFunction start,
+            AbstractFunction target) {
+        Set<AbstractFunction> visited = new HashSet<AbstractFunction>();
+        List<AbstractFunction> stack = new ArrayList<AbstractFunction>();
+        stack.add(start);
+
+        while (!stack.isEmpty()) {
+            AbstractFunction current = stack.remove(stack.size() - 1);
+            if (current == target) {
+                return true;
+            }
+            if (visited.add(current)) {
+                for (AbstractConnector outConnector : current
+                        .getOutConnectors()) {
+                    for (AbstractConnector inConnector : outConnector
+                            .getConnections()) {
+                        stack.add(inConnector.getParent());
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     @Override
     protected void unlinkConnectors() {
         for (AbstractConnector outConnector : getOutConnectors()) {
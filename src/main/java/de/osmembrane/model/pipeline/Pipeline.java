@@ -19,13 +19,22 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Stack;
 
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.ExecutionCache;
 import de.osmembrane.model.algorithms.GraphPlanarizer;
+import de.osmembrane.model.algorithms.PipelinePartitioner;
+import de.osmembrane.model.algorithms.PipelineSampler;
+import de.osmembrane.model.algorithms.ReaderDeduplicator;
+import de.osmembrane.model.algorithms.ResourceEstimator;
 import de.osmembrane.model.algorithms.TarjanAlgorithm;
+import de.osmembrane.model.parser.CommandlineCache;
+import de.osmembrane.model.parser.IParser;
 import de.osmembrane.model.parser.ParserFactory;
 import de.osmembrane.model.persistence.AbstractPersistence;
 import de.osmembrane.model.persistence.FileException;
@@ -69,6 +78,12 @@ public class Pipeline extends AbstractPipeline {
      */
     private boolean undoRedoDisabled;
 
+    /**
+     * Generated parts of the command line, kept up to date with the changes
+     * of the pipeline.
+     */
+    private CommandlineCache commandlineCache = new CommandlineCache();
+
     /**
      * Creates a default pipeline with<br/>
      * 
@@ -285,12 +300,29 @@ public class Pipeline extends AbstractPipeline {
 
     @Override
     public String generate(FileType filetype) {
-        return ParserFactory
-                .getInstance()
-                .getParser(filetype.getParserClass())
-                .parsePipeline(
-                        new PipelinePersistenceObject(functions,
-                                pipelineSettings));
+        IParser parser = ParserFactory.getInstance().getParser(
+                filetype.getParserClass());
+        parser.setCache(commandlineCache);
+        return parser.parsePipeline(new PipelinePersistenceObject(functions,
+                pipelineSettings));
+    }
+
+    @Override
+    public List<String> generateArguments(FileType filetype) {
+        IParser parser = ParserFactory.getInstance().getParser(
+                filetype.getParserClass());
+        parser.setCache(commandlineCache);
+        return parser.parsePipelineArguments(new PipelinePersistenceObject(
+                functions, pipelineSettings));
+    }
+
+    @Override
+    public List<String> generateArguments(FileType filetype,
+            List<AbstractFunction> functions) {
+        IParser parser = ParserFactory.getInstance().getParser(
+                filetype.getParserClass());
+        return parser.parsePipelineArguments(new PipelinePersistenceObject(
+                functions, pipelineSettings));
     }
 
     @Override
@@ -336,6 +368,129 @@ public class Pipeline extends AbstractPipeline {
         return false;
     }
 
+    @Override
+    public ResourceEstimator estimateResources() {
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+
+        ResourceEstimator estimator = new ResourceEstimator(functions,
+                new File(workingDirectory));
+        estimator.run();
+        return estimator;
+    }
+
+    @Override
+    public List<AbstractFunction> copyFunctions() {
+        List<AbstractFunction> copies = new ArrayList<AbstractFunction>(
+                functions.size());
+        Map<AbstractFunction, AbstractFunction> copyOf = new HashMap<AbstractFunction, AbstractFunction>(
+                functions.size() * 2);
+        for (AbstractFunction function : functions) {
+            AbstractFunction copy = function.copy(CopyType.COPY_ALL);
+            copies.add(copy);
+            copyOf.put(function, copy);
+        }
+
+        /* connect the connectors directly, the copies are loop free already */
+        for (AbstractFunction function : functions) {
+            AbstractConnector[] outConnectors = function.getOutConnectors();
+            AbstractConnector[] copyOutConnectors = copyOf.get(function)
+                    .getOutConnectors();
+            for (int i = 0; i < outConnectors.length
+                    && i < copyOutConnectors.length; i++) {
+                for (AbstractConnector inConnector : outConnectors[i]
+                        .getConnections()) {
+                    AbstractFunction target = copyOf.get(inConnector
+                            .getParent());
+                    if (target == null) {
+                        continue;
+                    }
+                    AbstractConnector[] inConnectors = inConnector
+                            .getParent().getInConnectors();
+                    AbstractConnector[] copyInConnectors = target
+                            .getInConnectors();
+                    for (int j = 0; j < inConnectors.length
+                            && j < copyInConnectors.length; j++) {
+                        if (inConnectors[j] == inConnector) {
+                            copyOutConnectors[i]
+                                    .addConnection(copyInConnectors[j]);
+                            copyInConnectors[j]
+                                    .addConnection(copyOutConnectors[i]);
+                        }
+                    }
+                }
+            }
+        }
+        return copies;
+    }
+
+    @Override
+    public ReaderDeduplicator findDuplicateReaders() {
+        ReaderDeduplicator deduplicator = new ReaderDeduplicator(functions);
+        deduplicator.run();
+        return deduplicator;
+    }
+
+    @Override
+    public PipelinePartitioner getPartitioner() {
+        return new PipelinePartitioner(functions);
+    }
+
+    @Override
+    public ExecutionCache getExecutionCache() {
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+        int maxSize = (Integer) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.EXECUTION_CACHE_SIZE);
+
+        return new ExecutionCache(functions, new File(workingDirectory),
+                new File(Tools.urlToFile(Constants.DEFAULT_USER_FOLDER),
+                        Constants.DEFAULT_CACHE_FOLDER_NAME), maxSize);
+    }
+
+    @Override
+    public PipelineSampler getSampler() {
+        String workingDirectory = (String) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.DEFAULT_WORKING_DIRECTORY);
+
+        return new PipelineSampler(functions, new File(workingDirectory));
+    }
+
+    @Override
+    public boolean deduplicateReaders() {
+        ReaderDeduplicator deduplicator = findDuplicateReaders();
+        if (!deduplicator.hasDuplicates()) {
+            return false;
+        }
+
+        /*
+         * do not create an undo step for every single removed function and
+         * connection, the whole change is saved once afterwards.
+         */
+        boolean wasSilent = silent;
+        boolean wasUndoRedoDisabled = undoRedoDisabled;
+        silent = true;
+        undoRedoDisabled = true;
+        boolean applied = true;
+        try {
+            deduplicator.apply(this);
+        } catch (ConnectorException e) {
+            applied = false;
+        }
+        silent = wasSilent;
+        undoRedoDisabled = wasUndoRedoDisabled;
+
+        if (!applied) {
+            /* go back to the state before the deduplication */
+            restoreMemento(currentState);
+            return false;
+        }
+
+        changedNotifyObservers(new PipelineObserverObject(
+                ChangeType.FULLCHANGE, null));
+        return true;
+    }
+
     @Override
     public void arrangePipeline() {
         GraphPlanarizer gprizer = new GraphPlanarizer(functions);
@@ -390,6 +545,9 @@ public class Pipeline extends AbstractPipeline {
     protected void changedNotifyObservers(PipelineObserverObject poo) {
         poo.setPipeline(this);
 
+        /* drop the generated parts of the command line which are outdated */
+        commandlineCache.invalidate(poo);
+
         /* check if the undo-step is really required, or disabled. */
         if (poo.createUndoStep() && !undoRedoDisabled) {
             /* any changes made, set savedState to false */
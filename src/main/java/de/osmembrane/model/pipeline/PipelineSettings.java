@@ -24,6 +24,9 @@ public class PipelineSettings extends AbstractPipelineSettings {
     private int debugMode = -1;
     private String comment = new String();
     private String name = new String();
+    private int javaHeap = 0;
+    private String javaOptions = new String();
+    private String tempDirectory = new String();
 
     @Override
     public void setVerbose(int mode) {
@@ -65,4 +68,35 @@ public class PipelineSettings extends AbstractPipelineSettings {
         return name;
     }
 
+    @Override
+    public void setJavaHeap(int heap) {
+        this.javaHeap = heap;
+    }
+
+    @Override
+    public int getJavaHeap() {
+        return javaHeap;
+    }
+
+    @Override
+    public void setJavaOptions(String options) {
+        this.javaOptions = options;
+    }
+
+    @Override
+    public String getJavaOptions() {
+        /* pipelines saved before the option existed */
+        return (javaOptions == null ? "" : javaOptions);
+    }
+
+    @Override
+    public void setTempDirectory(String directory) {
+        this.tempDirectory = directory;
+    }
+
+    @Override
+    public String getTempDirectory() {
+        return (tempDirectory == null ? "" : tempDirectory);
+    }
+
 }
@@ -170,6 +170,11 @@ public class Task extends AbstractTask {
         return (left == null && right == null && top == null && bottom == null);
     }
 
+    @Override
+    public TaskCostProfile getCostProfile() {
+        return new TaskCostProfile(xmlTask);
+    }
+
     @Override
     protected List<XMLPipe> getInputPipe() {
         return xmlTask.getInputPipe();
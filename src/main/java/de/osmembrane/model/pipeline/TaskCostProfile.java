@@ -0,0 +1,119 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model.pipeline;
+
+import de.osmembrane.model.xml.XMLTask;
+
+/**
+ * Describes the static cost profile of a {@link AbstractTask}. All values are
+ * relative to one megabyte of data entering the task and are only meant for a
+ * rough estimation of the resources a pipeline will need.
+ * 
+ * @author agent
+ */
+public class TaskCostProfile {
+
+    /**
+     * Scaling value for tasks which are scaling with the vertex count of a
+     * polygon file.
+     */
+    public static final String SCALING_VERTICES = "vertices";
+
+    private static final double DEFAULT_TIME = 1.0;
+    private static final double DEFAULT_HEAP = 0.0;
+    private static final double DEFAULT_DISK = 0.0;
+    private static final double DEFAULT_OUTPUT = 1.0;
+
+    private double time;
+    private double heap;
+    private boolean heapKnown;
+    private double disk;
+    private double output;
+    private String scaling;
+
+    /**
+     * Creates a new cost profile out of the cost attributes of a
+     * {@link XMLTask}, missing attributes are replaced by neutral defaults.
+     * 
+     * @param xmlTask
+     *            task which contains the cost attributes
+     */
+    public TaskCostProfile(XMLTask xmlTask) {
+        this.time = (xmlTask.isSetCostTime() ? xmlTask.getCostTime()
+                : DEFAULT_TIME);
+        this.heap = (xmlTask.isSetCostHeap() ? xmlTask.getCostHeap()
+                : DEFAULT_HEAP);
+        this.heapKnown = xmlTask.isSetCostHeap();
+        this.disk = (xmlTask.isSetCostDisk() ? xmlTask.getCostDisk()
+                : DEFAULT_DISK);
+        this.output = (xmlTask.isSetCostOutput() ? xmlTask.getCostOutput()
+                : DEFAULT_OUTPUT);
+        this.scaling = xmlTask.getCostScaling();
+    }
+
+    /**
+     * Returns the relative processing time per megabyte of input.
+     * 
+     * @return relative processing time
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the heap usage in megabyte per megabyte of input.
+     * 
+     * @return heap usage factor
+     */
+    public double getHeap() {
+        return heap;
+    }
+
+    /**
+     * Returns true if the heap usage is given for the task, otherwise it is
+     * unknown and counted as 0.
+     * 
+     * @return true if the heap usage is known
+     */
+    public boolean isHeapKnown() {
+        return heapKnown;
+    }
+
+    /**
+     * Returns the temporary disk usage in megabyte per megabyte of input.
+     * 
+     * @return disk usage factor
+     */
+    public double getDisk() {
+        return disk;
+    }
+
+    /**
+     * Returns the ratio between the data leaving and the data entering the
+     * task.
+     * 
+     * @return output ratio
+     */
+    public double getOutput() {
+        return output;
+    }
+
+    /**
+     * Returns true if the processing time scales with the vertex count of a
+     * polygon file.
+     * 
+     * @return true if the task scales with the vertex count
+     */
+    public boolean isScalingWithVertices() {
+        return SCALING_VERTICES.equals(scaling);
+    }
+}
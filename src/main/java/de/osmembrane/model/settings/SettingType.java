@@ -68,6 +68,27 @@ public enum SettingType {
      */
     EXPORT_PARAMETERS_WITH_DEFAULT_VALUES(Boolean.class, false),
 
+    /**
+     * Optimize the pipeline (filter pushdown and fusion) when it is generated.
+     * 
+     * can be casted to a {@link Boolean}
+     */
+    OPTIMIZE_GENERATED_PIPELINE(Boolean.class, false),
+
+    /**
+     * Insert buffers between CPU-heavy tasks when the pipeline is generated.
+     * 
+     * can be casted to a {@link Boolean}
+     */
+    INSERT_BUFFERS(Boolean.class, false),
+
+    /**
+     * Capacity of the automatically inserted buffers.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    BUFFER_CAPACITY(Integer.class, Constants.DEFAULT_BUFFER_CAPACITY),
+
     /**
      * Maximum count of undo-steps.
      * 
@@ -75,6 +96,69 @@ public enum SettingType {
      */
     MAXIMUM_UNDO_STEPS(Integer.class, Constants.MAXIMUM_UNDO_STEPS),
 
+    /**
+     * Maximum count of output lines kept while executing a pipeline.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    MAXIMUM_OUTPUT_LINES(Integer.class,
+            Constants.DEFAULT_MAXIMUM_OUTPUT_LINES),
+
+    /**
+     * Maximum count of pipelines the run queue executes at the same time.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    RUN_QUEUE_SIZE(Integer.class, Constants.DEFAULT_RUN_QUEUE_SIZE),
+
+    /**
+     * Maximum size of the execution cache in megabyte.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    EXECUTION_CACHE_SIZE(Integer.class,
+            Constants.DEFAULT_EXECUTION_CACHE_SIZE),
+
+    /**
+     * Minimum time between two executions of the watch mode in seconds.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    WATCH_INTERVAL(Integer.class, Constants.DEFAULT_WATCH_INTERVAL),
+
+    /**
+     * Execute osmosis in the JVM of OSMembrane, see
+     * {@link de.osmembrane.tools.InProcessOsmosis}. Off by default, it needs
+     * an osmosis which provides Osmosis.run.
+     * 
+     * can be casted to a {@link Boolean}
+     */
+    IN_PROCESS_EXECUTION(Boolean.class, false),
+
+    /**
+     * Directory with the jars of osmosis for the in-process execution.
+     * 
+     * can be casted to a {@link String}
+     */
+    OSMOSIS_LIBRARY_PATH(String.class, ""),
+
+    /**
+     * Maximum count of disconnected parts of a pipeline which are executed as
+     * own processes at the same time, 0 to execute the pipeline as one
+     * process.
+     * 
+     * can be casted to a {@link Integer}
+     */
+    PARALLEL_COMPONENTS(Integer.class, Constants.DEFAULT_PARALLEL_COMPONENTS),
+
+    /**
+     * Draw the pipeline on a single canvas instead of one component per
+     * function, connector and link, for large pipelines.
+     * 
+     * can be casted to a {@link Boolean}
+     */
+    CANVAS_RENDERING(Boolean.class, false),
+
     /**
      * Coordinate raster size.
      * 
@@ -49,6 +49,11 @@ import javax.xml.bind.annotation.XmlType;
  *       &lt;attribute name="shortName" type="{http://www.w3.org/2001/XMLSchema}string" />
  *       &lt;attribute name="friendlyName" type="{http://www.w3.org/2001/XMLSchema}string" />
  *       &lt;attribute name="helpURI" type="{http://www.w3.org/2001/XMLSchema}anyURI" />
+ *       &lt;attribute name="costTime" type="{http://www.w3.org/2001/XMLSchema}double" />
+ *       &lt;attribute name="costHeap" type="{http://www.w3.org/2001/XMLSchema}double" />
+ *       &lt;attribute name="costDisk" type="{http://www.w3.org/2001/XMLSchema}double" />
+ *       &lt;attribute name="costOutput" type="{http://www.w3.org/2001/XMLSchema}double" />
+ *       &lt;attribute name="costScaling" type="{http://www.w3.org/2001/XMLSchema}string" />
  *     &lt;/extension>
  *   &lt;/complexContent>
  * &lt;/complexType>
@@ -73,6 +78,16 @@ public class XMLTask extends XMLHasDescription {
     @XmlAttribute
     @XmlSchemaType(name = "anyURI")
     protected String helpURI;
+    @XmlAttribute
+    protected Double costTime;
+    @XmlAttribute
+    protected Double costHeap;
+    @XmlAttribute
+    protected Double costDisk;
+    @XmlAttribute
+    protected Double costOutput;
+    @XmlAttribute
+    protected String costScaling;
 
     /**
      * Gets the value of the inputPipe property.
@@ -286,4 +301,129 @@ public class XMLTask extends XMLHasDescription {
         return (this.helpURI != null);
     }
 
+    /**
+     * Gets the value of the costTime property (relative processing time per megabyte of input).
+     * 
+     * @return possible object is {@link Double }
+     * 
+     */
+    public Double getCostTime() {
+        return costTime;
+    }
+
+    /**
+     * Sets the value of the costTime property.
+     * 
+     * @param value
+     *            allowed object is {@link Double }
+     * 
+     */
+    public void setCostTime(Double value) {
+        this.costTime = value;
+    }
+
+    public boolean isSetCostTime() {
+        return (this.costTime != null);
+    }
+
+    /**
+     * Gets the value of the costHeap property (heap usage per megabyte of input).
+     * 
+     * @return possible object is {@link Double }
+     * 
+     */
+    public Double getCostHeap() {
+        return costHeap;
+    }
+
+    /**
+     * Sets the value of the costHeap property.
+     * 
+     * @param value
+     *            allowed object is {@link Double }
+     * 
+     */
+    public void setCostHeap(Double value) {
+        this.costHeap = value;
+    }
+
+    public boolean isSetCostHeap() {
+        return (this.costHeap != null);
+    }
+
+    /**
+     * Gets the value of the costDisk property (temporary disk usage per megabyte of input).
+     * 
+     * @return possible object is {@link Double }
+     * 
+     */
+    public Double getCostDisk() {
+        return costDisk;
+    }
+
+    /**
+     * Sets the value of the costDisk property.
+     * 
+     * @param value
+     *            allowed object is {@link Double }
+     * 
+     */
+    public void setCostDisk(Double value) {
+        this.costDisk = value;
+    }
+
+    public boolean isSetCostDisk() {
+        return (this.costDisk != null);
+    }
+
+    /**
+     * Gets the value of the costOutput property (ratio of output to input volume).
+     * 
+     * @return possible object is {@link Double }
+     * 
+     */
+    public Double getCostOutput() {
+        return costOutput;
+    }
+
+    /**
+     * Sets the value of the costOutput property.
+     * 
+     * @param value
+     *            allowed object is {@link Double }
+     * 
+     */
+    public void setCostOutput(Double value) {
+        this.costOutput = value;
+    }
+
+    public boolean isSetCostOutput() {
+        return (this.costOutput != null);
+    }
+
+    /**
+     * Gets the value of the costScaling property (additional cost scaling).
+     * 
+     * @return possible object is {@link String }
+     * 
+     */
+    public String getCostScaling() {
+        return costScaling;
+    }
+
+    /**
+     * Sets the value of the costScaling property.
+     * 
+     * @param value
+     *            allowed object is {@link String }
+     * 
+     */
+    public void setCostScaling(String value) {
+        this.costScaling = value;
+    }
+
+    public boolean isSetCostScaling() {
+        return (this.costScaling != null);
+    }
+
 }
@@ -137,6 +137,71 @@ public class Constants {
      */
     public static final int MAXIMUM_UNDO_STEPS = 100;
 
+    /**
+     * Capacity of the buffers which are inserted into generated pipelines.
+     */
+    public static final int DEFAULT_BUFFER_CAPACITY = 100;
+
+    /**
+     * Maximum count of output lines kept in the execution state dialog.
+     */
+    public static final int DEFAULT_MAXIMUM_OUTPUT_LINES = 10000;
+
+    /**
+     * Count of pipelines the run queue executes at the same time.
+     */
+    public static final int DEFAULT_RUN_QUEUE_SIZE = 2;
+
+    /**
+     * Name of the file in the user folder the run queue is saved to.
+     */
+    public static final String DEFAULT_QUEUE_FILE_NAME = "run.queue";
+
+    /**
+     * Name of the folder in the user folder the data of the executions is
+     * saved to.
+     */
+    public static final String DEFAULT_RUNS_FOLDER_NAME = "runs";
+
+    /**
+     * Name of the file in the runs folder the run history is appended to.
+     */
+    public static final String DEFAULT_RUN_HISTORY_FILE_NAME = "history.log";
+
+    /**
+     * Name of the folder in the user folder the intermediates of the
+     * execution cache are saved to.
+     */
+    public static final String DEFAULT_CACHE_FOLDER_NAME = "cache";
+
+    /**
+     * Maximum size of the execution cache in megabyte.
+     */
+    public static final int DEFAULT_EXECUTION_CACHE_SIZE = 51200;
+
+    /**
+     * Minimum time between two executions of the watch mode in seconds.
+     */
+    public static final int DEFAULT_WATCH_INTERVAL = 60;
+
+    /**
+     * Count of disconnected parts of a pipeline which are executed at the
+     * same time, 0 executes a pipeline always as one process.
+     */
+    public static final int DEFAULT_PARALLEL_COMPONENTS = 4;
+
+    /**
+     * Period of a scheduled replication pipeline in seconds, if neither given
+     * nor configured in its replication directory.
+     */
+    public static final int DEFAULT_REPLICATION_PERIOD = 3600;
+
+    /**
+     * Name of the folder in the user folder the outputs of sample runs are
+     * written to, it is emptied before every sample run.
+     */
+    public static final String DEFAULT_SAMPLES_FOLDER_NAME = "samples";
+
     /**
      * The default path to the osmosis binaries.
      */
@@ -0,0 +1,293 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.osmembrane.model.persistence.FileException;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Converts all pipelines of a directory into another {@link FileType}, e.g.
+ * imports a directory of osmosis scripts as OSMembrane pipelines.<br/>
+ * <br/>
+ * Every file is converted on its own in a pool of worker threads, each with
+ * its own silent {@link Pipeline} without undo steps. No view is created, so
+ * the conversion also works headless.
+ * 
+ * @author agent
+ */
+public class BatchConverter {
+
+    /**
+     * Result of the conversion of a single file.
+     */
+    public static class Result {
+
+        private File source;
+        private File target;
+        private long time;
+        private FileException exception;
+
+        private Result(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        /**
+         * @return the converted file
+         */
+        public File getSource() {
+            return source;
+        }
+
+        /**
+         * @return the file the pipeline has been saved to
+         */
+        public File getTarget() {
+            return target;
+        }
+
+        /**
+         * @return time needed for the conversion in milliseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return true if the file was converted successfully
+         */
+        public boolean isSuccessful() {
+            return (exception == null);
+        }
+
+        /**
+         * @return the exception of a failed conversion or NULL
+         */
+        public FileException getException() {
+            return exception;
+        }
+
+        /**
+         * Returns a human readable description of the failure, for syntax
+         * problems including the position inside the file.
+         * 
+         * @return description of the failure, NULL if successful
+         */
+        public String getFailure() {
+            if (exception == null) {
+                return null;
+            }
+            if (exception.getParentException() != null
+                    && exception.getParentException().getMessage() != null) {
+                return exception.getParentException().getMessage();
+            }
+            return exception.getType().toString();
+        }
+    }
+
+    private File directory;
+    private FileType targetType;
+    private File outputDirectory;
+    private int threads;
+    private boolean recursive;
+
+    /**
+     * Creates a new converter.
+     * 
+     * @param directory
+     *            directory with the pipelines which should be converted
+     * @param targetType
+     *            the {@link FileType} the pipelines are converted to
+     * @param outputDirectory
+     *            directory where the converted pipelines are saved, or NULL to
+     *            save them next to the original files
+     * @param threads
+     *            count of worker threads
+     * @param recursive
+     *            true if also the subdirectories should be converted
+     */
+    public BatchConverter(File directory, FileType targetType,
+            File outputDirectory, int threads, boolean recursive) {
+        this.directory = directory;
+        this.targetType = targetType;
+        this.outputDirectory = outputDirectory;
+        this.threads = Math.max(1, threads);
+        this.recursive = recursive;
+    }
+
+    /**
+     * Converts all files and waits until all are finished.
+     * 
+     * @return results in the order of the files
+     */
+    public List<Result> convert() {
+        List<File> files = new ArrayList<File>();
+        collectFiles(directory, files);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<Future<Result>>();
+        for (final File file : files) {
+            futures.add(pool.submit(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    return convert(file);
+                }
+            }));
+        }
+        pool.shutdown();
+
+        List<Result> results = new ArrayList<Result>();
+        for (Future<Result> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                /* convert() catches everything expected */
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Writes a report of all conversions, every failure with its reason and a
+     * summary.
+     * 
+     * @param results
+     *            results of {@link #convert()}
+     * @param totalTime
+     *            total time of the conversion in milliseconds
+     * @param out
+     *            stream the report is written to
+     */
+    public void printReport(List<Result> results, long totalTime,
+            PrintStream out) {
+        I18N i18n = I18N.getInstance();
+        int failed = 0;
+
+        for (Result result : results) {
+            if (result.isSuccessful()) {
+                out.println(i18n.getString("Tools.BatchConverter.Converted",
+                        result.getSource(), result.getTarget(),
+                        String.valueOf(result.getTime())));
+            }
+        }
+
+        for (Result result : results) {
+            if (!result.isSuccessful()) {
+                failed++;
+                out.println(i18n.getString("Tools.BatchConverter.Failed",
+                        result.getSource(), String.valueOf(result.getTime()),
+                        result.getFailure()));
+            }
+        }
+
+        out.println(i18n.getString("Tools.BatchConverter.Summary",
+                String.valueOf(results.size() - failed),
+                String.valueOf(failed), String.valueOf(totalTime),
+                String.valueOf(threads)));
+    }
+
+    /**
+     * Converts a single file.
+     */
+    private Result convert(File file) {
+        FileType sourceType = FileType.fileTypeFor(file);
+        Result result = new Result(file, getTarget(file));
+        long start = System.nanoTime();
+
+        try {
+            Pipeline pipeline = new Pipeline(true, true);
+            if (sourceType == FileType.OSMEMBRANE) {
+                pipeline.loadPipeline(file.toURI().toURL());
+            } else {
+                pipeline.importPipeline(file.toURI().toURL(), sourceType);
+            }
+
+            result.target.getParentFile().mkdirs();
+            pipeline.exportPipeline(result.target.toURI().toURL(), targetType);
+        } catch (FileException e) {
+            result.exception = e;
+        } catch (MalformedURLException e) {
+            result.exception = new FileException(FileException.Type.NOT_FOUND,
+                    e);
+        } catch (RuntimeException e) {
+            /* a broken file must not stop the other conversions */
+            result.exception = new FileException(
+                    FileException.Type.WRONG_FORMAT, e);
+        }
+
+        result.time = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    /**
+     * Returns the file a converted pipeline is saved to.
+     */
+    private File getTarget(File file) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        if (extension > 0) {
+            name = name.substring(0, extension);
+        }
+        name += targetType.getExtension();
+
+        if (outputDirectory == null) {
+            return new File(file.getParentFile(), name);
+        }
+
+        /* keep the structure of the subdirectories */
+        String relative = directory.toURI().relativize(
+                file.getParentFile().toURI()).getPath();
+        return new File(new File(outputDirectory, relative), name);
+    }
+
+    /**
+     * Adds all files which can be converted to the list.
+     */
+    private void collectFiles(File directory, List<File> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (recursive) {
+                    collectFiles(child, files);
+                }
+            } else {
+                FileType type = FileType.fileTypeFor(child);
+                if (type != null && type != targetType) {
+                    files.add(child);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.algorithms.PipelineOptimizer;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ParameterType;
+
+/**
+ * Executes osmosis inside the JVM of OSMembrane instead of starting a new
+ * one. The jars of osmosis are loaded from a directory into a class loader
+ * which does not see the classes of OSMembrane, and the loader is kept
+ * between the runs, so short pipelines do not pay for the start and warm-up
+ * of a JVM.<br/>
+ * <br/>
+ * A run looks like a {@link Process} to the callers: its output is the
+ * logging of osmosis, formatted like on the console. Osmosis is invoked
+ * through Osmosis.run, which throws instead of exiting the JVM, an exception
+ * becomes the exit value {@link #EXIT_FAILED}. Osmosis versions without it
+ * cannot be executed in-process. Osmosis keeps static state, so
+ * only one run is executed at a time, further runs wait. The heap is shared
+ * with OSMembrane, see {@link #canRun(JvmSizing)}, and relative paths would
+ * be resolved against the working directory of OSMembrane, so the arguments
+ * are generated with absolute paths, see
+ * {@link #getArguments(AbstractPipeline, File)}.
+ * 
+ * @author agent
+ */
+public class InProcessOsmosis {
+
+    /**
+     * The entry point of osmosis.
+     */
+    public static final String MAIN_CLASS = "org.openstreetmap.osmosis.core.Osmosis";
+
+    /**
+     * Exit value if osmosis has thrown an exception.
+     */
+    public static final int EXIT_FAILED = 1;
+
+    /**
+     * Exit value of a destroyed run, like a process killed by SIGTERM.
+     */
+    public static final int EXIT_DESTROYED = 143;
+
+    /**
+     * Parent logger of all loggers of osmosis.
+     */
+    private static final String LOGGER_NAME = "org.openstreetmap.osmosis";
+
+    /**
+     * Time a destroyed run gets to stop its threads, in milliseconds.
+     */
+    private static final long STOP_TIMEOUT = 1000;
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private static InProcessOsmosis instance;
+
+    private File libraryDirectory;
+    private URLClassLoader loader;
+
+    /**
+     * Osmosis.run(String[]), unlike main it does not exit the JVM.
+     */
+    private Method entryPoint;
+
+    /**
+     * Only one run at a time, osmosis configures the logging globally.
+     */
+    private final Object runLock = new Object();
+
+    private volatile int runs = 0;
+
+    /**
+     * Set if a destroyed run left threads behind, the loader is not used
+     * again then.
+     */
+    private volatile boolean broken = false;
+
+    /**
+     * Returns the warm instance for a library directory. A new class loader
+     * is created if the directory has changed or a run could not be stopped.
+     * 
+     * @param libraryDirectory
+     *            directory with the jars of osmosis, searched recursively
+     * @return the instance
+     * @throws IOException
+     *             if the directory contains no osmosis or one without
+     *             Osmosis.run
+     */
+    public static synchronized InProcessOsmosis getInstance(
+            File libraryDirectory) throws IOException {
+        File directory = libraryDirectory.getAbsoluteFile();
+        if (instance != null
+                && (!instance.libraryDirectory.equals(directory) || instance.broken)) {
+            instance.close();
+            instance = null;
+        }
+        if (instance == null) {
+            instance = new InProcessOsmosis(directory);
+        }
+        return instance;
+    }
+
+    private InProcessOsmosis(File libraryDirectory) throws IOException {
+        this.libraryDirectory = libraryDirectory;
+
+        List<URL> jars = new ArrayList<URL>();
+        collectJars(libraryDirectory, jars);
+        if (jars.isEmpty()) {
+            throw new IOException(I18N.getInstance().getString(
+                    "Tools.InProcessOsmosis.NoJars", libraryDirectory));
+        }
+
+        /* the parent is the extension loader, not the one of OSMembrane */
+        loader = new URLClassLoader(jars.toArray(new URL[jars.size()]),
+                ClassLoader.getSystemClassLoader().getParent());
+        Class<?> main;
+        try {
+            main = loader.loadClass(MAIN_CLASS);
+        } catch (ClassNotFoundException e) {
+            close();
+            throw new IOException(I18N.getInstance().getString(
+                    "Tools.InProcessOsmosis.NoJars", libraryDirectory), e);
+        }
+
+        /* main would exit the JVM of OSMembrane, so it is not an option */
+        try {
+            entryPoint = main.getMethod("run", String[].class);
+        } catch (NoSuchMethodException e) {
+            entryPoint = null;
+        }
+        if (entryPoint == null
+                || !Modifier.isStatic(entryPoint.getModifiers())) {
+            close();
+            throw new IOException(I18N.getInstance().getString(
+                    "Tools.InProcessOsmosis.NoRunMethod", libraryDirectory));
+        }
+    }
+
+    /**
+     * @return the directory the jars are loaded from
+     */
+    public File getLibraryDirectory() {
+        return libraryDirectory;
+    }
+
+    /**
+     * @return count of the runs started with the current class loader
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Returns true if the free heap of OSMembrane is large enough for a
+     * pipeline, otherwise it should be executed in its own JVM.
+     * 
+     * @param jvmSizing
+     *            the recommended sizing of the pipeline, or NULL if unknown
+     * @return true if the pipeline can be executed in-process
+     */
+    public boolean canRun(JvmSizing jvmSizing) {
+        if (jvmSizing == null) {
+            return true;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return jvmSizing.getHeap() <= (runtime.maxMemory() - used) / MEGABYTE;
+    }
+
+    /**
+     * Starts a run of osmosis, it waits until the previous run has finished.
+     * 
+     * @param arguments
+     *            the arguments of osmosis, see
+     *            {@link #getArguments(AbstractPipeline, File)}
+     * @return the run
+     */
+    public Process start(List<String> arguments) {
+        OsmosisProcess process = new OsmosisProcess(
+                arguments.toArray(new String[arguments.size()]));
+        process.thread.start();
+        return process;
+    }
+
+    /**
+     * Generates the arguments of a pipeline for an in-process run. The
+     * working directory of OSMembrane cannot be changed, so relative files
+     * and directories are resolved against the working directory of the
+     * execution, also if they are default values.
+     * 
+     * @param pipeline
+     *            the pipeline, it is not changed
+     * @param workingDirectory
+     *            the working directory of the execution, or NULL
+     * @return the arguments
+     */
+    public static List<String> getArguments(AbstractPipeline pipeline,
+            File workingDirectory) {
+        List<AbstractFunction> copies = PipelineOptimizer
+                .deepCopyFunctions(Arrays.asList(pipeline.getFunctions()));
+        if (workingDirectory != null) {
+            for (AbstractFunction function : copies) {
+                for (AbstractParameter param : function.getActiveTask()
+                        .getParameters()) {
+                    if (param.getType() != ParameterType.FILENAME
+                            && param.getType() != ParameterType.DIRECTORY) {
+                        continue;
+                    }
+                    String value = (param.isDefaultValue() ? param
+                            .getDefaultValue() : param.getValue());
+                    if (value == null || value.length() == 0
+                            || value.equals("-") || new File(value).isAbsolute()) {
+                        continue;
+                    }
+                    param.setValue(new File(workingDirectory, value)
+                            .getAbsolutePath());
+                }
+            }
+        }
+        return pipeline.generateArguments(FileType.EXECUTION_FILETYPE, copies);
+    }
+
+    /**
+     * Releases the class loader, runs which are still active keep it.
+     */
+    public synchronized void close() {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            /* the jars are closed when the loader is collected */
+        }
+    }
+
+    private static void collectJars(File directory, List<URL> jars)
+            throws IOException {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                collectJars(child, jars);
+            } else if (child.getName().toLowerCase().endsWith(".jar")) {
+                jars.add(child.toURI().toURL());
+            }
+        }
+    }
+
+    /**
+     * A run of osmosis in its own thread group.
+     */
+    private class OsmosisProcess extends Process {
+
+        private String[] arguments;
+        private ThreadGroup group;
+        private Thread thread;
+        private OutputPipe output = new OutputPipe();
+
+        private Integer exitValue;
+
+        /**
+         * Set when osmosis has been invoked, not while waiting for the
+         * previous run.
+         */
+        private volatile boolean invoked = false;
+
+        public OsmosisProcess(String[] arguments) {
+            this.arguments = arguments;
+            this.group = new ThreadGroup("osmosis-" + (runs + 1));
+            this.thread = new Thread(group, new Runnable() {
+                @Override
+                public void run() {
+                    int exit;
+                    synchronized (runLock) {
+                        exit = execute();
+                    }
+                    output.close();
+                    finish(exit);
+                }
+            }, "osmosis");
+            thread.setContextClassLoader(loader);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Invokes osmosis with the logging captured.
+         */
+        private int execute() {
+            if (isDestroyed()) {
+                return EXIT_DESTROYED;
+            }
+            invoked = true;
+            runs++;
+
+            Logger logger = Logger.getLogger(LOGGER_NAME);
+            Logger root = Logger.getLogger("");
+            Level rootLevel = root.getLevel();
+            Map<Handler, Level> handlerLevels = new HashMap<Handler, Level>();
+            for (Handler handler : root.getHandlers()) {
+                handlerLevels.put(handler, handler.getLevel());
+            }
+            boolean parentHandlers = logger.getUseParentHandlers();
+            Handler capture = new CaptureHandler();
+            logger.addHandler(capture);
+            logger.setUseParentHandlers(false);
+
+            try {
+                entryPoint.invoke(null, (Object) arguments);
+                return 0;
+            } catch (InvocationTargetException e) {
+                output.println(stackTrace(e.getCause()));
+                return EXIT_FAILED;
+            } catch (IllegalAccessException e) {
+                output.println(stackTrace(e));
+                return EXIT_FAILED;
+            } finally {
+                logger.removeHandler(capture);
+                logger.setUseParentHandlers(parentHandlers);
+                /* osmosis sets the levels of the root logger */
+                root.setLevel(rootLevel);
+                for (Map.Entry<Handler, Level> entry : handlerLevels
+                        .entrySet()) {
+                    entry.getKey().setLevel(entry.getValue());
+                }
+            }
+        }
+
+        private synchronized void finish(int exit) {
+            if (exitValue == null) {
+                exitValue = exit;
+            }
+            notifyAll();
+        }
+
+        private synchronized boolean isDestroyed() {
+            return (exitValue != null);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    /* osmosis does not read the standard input in-process */
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return output;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return -1;
+                }
+            };
+        }
+
+        @Override
+        public synchronized int waitFor() throws InterruptedException {
+            while (exitValue == null) {
+                wait();
+            }
+            return exitValue;
+        }
+
+        @Override
+        public synchronized int exitValue() {
+            if (exitValue == null) {
+                throw new IllegalThreadStateException();
+            }
+            return exitValue;
+        }
+
+        @Override
+        public synchronized boolean isAlive() {
+            return (exitValue == null);
+        }
+
+        /**
+         * Interrupts all threads of the run. Threads which do not stop keep
+         * running, the class loader is not used again then.
+         */
+        @Override
+        public void destroy() {
+            /* first, so a waiting run is not started anymore */
+            finish(EXIT_DESTROYED);
+            output.close();
+            group.interrupt();
+            try {
+                thread.join(STOP_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (invoked && thread.isAlive()) {
+                broken = true;
+            }
+        }
+
+        private String stackTrace(Throwable throwable) {
+            StringWriter writer = new StringWriter();
+            throwable.printStackTrace(new PrintWriter(writer));
+            return writer.toString().trim();
+        }
+
+        /**
+         * Formats the log records like the console handler of osmosis.
+         */
+        private class CaptureHandler extends Handler {
+
+            private SimpleFormatter formatter = new SimpleFormatter();
+
+            @Override
+            public void publish(LogRecord record) {
+                if (!isLoggable(record)) {
+                    return;
+                }
+                StringBuilder line = new StringBuilder();
+                line.append(record.getLevel().getName()).append(": ").append(
+                        formatter.formatMessage(record));
+                if (record.getThrown() != null) {
+                    line.append('\n').append(stackTrace(record.getThrown()));
+                }
+                output.println(line.toString());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+    }
+
+    /**
+     * Unbounded buffer between the logging of osmosis and the reader of the
+     * output. Unlike a piped stream, it does not care which threads write.
+     */
+    private static class OutputPipe extends InputStream {
+
+        private byte[] buffer = new byte[8192];
+        private int start = 0;
+        private int end = 0;
+        private boolean closed = false;
+
+        public synchronized void println(String line) {
+            if (closed) {
+                return;
+            }
+            byte[] bytes = (line + "\n").getBytes(CHARSET);
+            if (end + bytes.length > buffer.length) {
+                int length = end - start;
+                byte[] target = buffer;
+                if (length + bytes.length > buffer.length) {
+                    target = new byte[Math.max(2 * buffer.length, length
+                            + bytes.length)];
+                }
+                System.arraycopy(buffer, start, target, 0, length);
+                buffer = target;
+                start = 0;
+                end = length;
+            }
+            System.arraycopy(bytes, 0, buffer, end, bytes.length);
+            end += bytes.length;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return (read < 0 ? -1 : single[0] & 0xff);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len)
+                throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (start == end && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (start == end) {
+                return -1;
+            }
+            int count = Math.min(len, end - start);
+            System.arraycopy(buffer, start, b, off, count);
+            start += count;
+            return count;
+        }
+
+        @Override
+        public synchronized int available() {
+            return end - start;
+        }
+    }
+}
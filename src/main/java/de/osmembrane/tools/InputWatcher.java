@@ -0,0 +1,414 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.ParameterType;
+
+/**
+ * Watches the input files and directories of a pipeline and triggers an
+ * execution when they have changed. Bursts of changes are collected until the
+ * inputs have been quiet for a while, and an execution is only triggered if
+ * the inputs are stable and differ from the last execution. Between two
+ * executions there is a minimum interval, and no execution is started while
+ * the previous one is still running, the changes are kept until it has
+ * finished.<br/>
+ * <br/>
+ * The {@link WatchService} may miss changes, e.g. on network file systems,
+ * so the inputs are also rescanned from time to time.
+ * 
+ * @author agent
+ */
+public class InputWatcher implements Runnable {
+
+    /**
+     * Time the inputs have to be unchanged before they are considered stable,
+     * in milliseconds.
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 2000;
+
+    /**
+     * Interval in which the watch service is polled, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 250;
+
+    /**
+     * Interval in which the inputs are rescanned without any event, in
+     * milliseconds.
+     */
+    private static final long RESCAN_INTERVAL = 60000;
+
+    /**
+     * The executions triggered by the watcher.
+     */
+    public interface Target {
+
+        /**
+         * @return true if the previous execution is still running
+         */
+        boolean isRunning();
+
+        /**
+         * Starts an execution, it should not block the watcher.
+         * 
+         * @param changed
+         *            the inputs which have changed
+         */
+        void execute(List<File> changed);
+
+        /**
+         * Reports what the watcher does.
+         * 
+         * @param message
+         *            a translated message
+         */
+        void report(String message);
+    }
+
+    private List<File> inputs;
+    private Target target;
+    private long quietPeriod = DEFAULT_QUIET_PERIOD;
+    private long minimumInterval = 0;
+
+    private volatile WatchService watchService;
+    private volatile boolean stopped = false;
+
+    /**
+     * State of the inputs at the last execution, or at the start.
+     */
+    private Map<File, String> executed;
+
+    /**
+     * State of the inputs at the last check, and time of the last change.
+     */
+    private Map<File, String> checked;
+    private long lastChange;
+
+    private long lastExecution = -1;
+    private long lastRescan;
+
+    /**
+     * True if the last check found a change which has not been executed yet.
+     */
+    private boolean pending = false;
+
+    /**
+     * Reason the pending change is waiting, to report it only once.
+     */
+    private String waiting;
+
+    /**
+     * Creates a new watcher.
+     * 
+     * @param inputs
+     *            the watched input files and directories
+     * @param target
+     *            the target of the executions
+     */
+    public InputWatcher(List<File> inputs, Target target) {
+        this.inputs = new ArrayList<File>();
+        for (File input : inputs) {
+            this.inputs.add(input.getAbsoluteFile());
+        }
+        this.target = target;
+    }
+
+    /**
+     * Returns the inputs of a pipeline, these are the files and directories
+     * of the readers.
+     * 
+     * @param functions
+     *            the functions of the pipeline
+     * @param workingDirectory
+     *            directory relative paths are resolved against, or NULL
+     * @return the inputs
+     */
+    public static List<File> getInputs(List<AbstractFunction> functions,
+            File workingDirectory) {
+        List<File> inputs = new ArrayList<File>();
+        for (AbstractFunction function : functions) {
+            if (function.getInConnectors().length > 0) {
+                continue;
+            }
+            for (AbstractParameter param : function.getActiveTask()
+                    .getParameters()) {
+                if (param.getType() != ParameterType.FILENAME
+                        && param.getType() != ParameterType.DIRECTORY) {
+                    continue;
+                }
+                String value = (param.isDefaultValue() ? param
+                        .getDefaultValue() : param.getValue());
+                if (value == null || value.length() == 0 || value.equals("-")) {
+                    continue;
+                }
+                File input = new File(value);
+                if (!input.isAbsolute() && workingDirectory != null) {
+                    input = new File(workingDirectory, value);
+                }
+                if (!inputs.contains(input)) {
+                    inputs.add(input);
+                }
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Sets the time the inputs have to be unchanged before an execution.
+     * 
+     * @param quietPeriod
+     *            the time in milliseconds
+     */
+    public void setQuietPeriod(long quietPeriod) {
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Sets the minimum time between the starts of two executions.
+     * 
+     * @param minimumInterval
+     *            the time in milliseconds
+     */
+    public void setMinimumInterval(long minimumInterval) {
+        this.minimumInterval = minimumInterval;
+    }
+
+    /**
+     * @return the watched inputs
+     */
+    public List<File> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Watches the inputs until {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        I18N i18n = I18N.getInstance();
+        Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (File input : inputs) {
+                /* files are watched through their directory */
+                File directory = (input.isDirectory() ? input : input
+                        .getParentFile());
+                try {
+                    Path path = directory.toPath();
+                    directories.put(path.register(watchService,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE), path);
+                } catch (IOException e) {
+                    target.report(i18n.getString(
+                            "Tools.InputWatcher.NotWatched", input));
+                }
+            }
+        } catch (IOException e) {
+            target.report(i18n.getString("Tools.InputWatcher.NotWatched",
+                    inputs));
+        }
+
+        reset(System.currentTimeMillis());
+        target.report(i18n.getString("Tools.InputWatcher.Watching",
+                inputs.size()));
+
+        while (!stopped) {
+            boolean event = false;
+            try {
+                WatchKey key = (watchService == null ? null : watchService
+                        .poll(POLL_INTERVAL, TimeUnit.MILLISECONDS));
+                if (watchService == null) {
+                    Thread.sleep(POLL_INTERVAL);
+                }
+                while (key != null) {
+                    event |= isRelevant(directories.get(key), key.pollEvents());
+                    key.reset();
+                    key = watchService.poll();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+
+            long now = System.currentTimeMillis();
+            if (event || now - lastRescan >= RESCAN_INTERVAL) {
+                lastRescan = now;
+                check(now);
+            } else if (pending) {
+                check(now);
+            }
+        }
+
+        stop();
+    }
+
+    /**
+     * Stops watching, can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                /* nothing is watched anymore anyway */
+            }
+        }
+    }
+
+    /**
+     * Takes the current state of the inputs as executed.
+     * 
+     * @param now
+     *            the current time in milliseconds
+     */
+    void reset(long now) {
+        executed = snapshot();
+        checked = executed;
+        lastChange = now;
+        lastRescan = now;
+        pending = false;
+        waiting = null;
+    }
+
+    /**
+     * Checks the inputs and starts an execution if they have changed and are
+     * stable.
+     * 
+     * @param now
+     *            the current time in milliseconds
+     */
+    void check(long now) {
+        Map<File, String> current = snapshot();
+        if (!current.equals(checked)) {
+            /* still being written, wait for the quiet period again */
+            checked = current;
+            lastChange = now;
+        }
+        pending = !current.equals(executed);
+        if (!pending) {
+            waiting = null;
+            return;
+        }
+
+        I18N i18n = I18N.getInstance();
+        String reason = null;
+        if (now - lastChange < quietPeriod) {
+            return;
+        } else if (target.isRunning()) {
+            reason = i18n.getString("Tools.InputWatcher.Running");
+        } else if (lastExecution >= 0
+                && now - lastExecution < minimumInterval) {
+            reason = i18n.getString("Tools.InputWatcher.Interval",
+                    (minimumInterval - (now - lastExecution) + 999) / 1000);
+        }
+        if (reason != null) {
+            if (waiting == null) {
+                target.report(reason);
+            }
+            waiting = reason;
+            return;
+        }
+
+        List<File> changed = new ArrayList<File>();
+        for (File input : inputs) {
+            String state = current.get(input);
+            if (!state.equals(executed.get(input))) {
+                changed.add(input);
+            }
+        }
+
+        executed = current;
+        lastExecution = now;
+        pending = false;
+        waiting = null;
+        target.report(i18n.getString("Tools.InputWatcher.Changed", changed));
+        target.execute(changed);
+    }
+
+    /**
+     * @return true if an event concerns one of the inputs
+     */
+    private boolean isRelevant(Path directory, List<WatchEvent<?>> events) {
+        if (directory == null) {
+            return false;
+        }
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                return true;
+            }
+            File changed = directory.resolve((Path) event.context()).toFile();
+            for (File input : inputs) {
+                if (input.equals(changed)
+                        || input.equals(directory.toFile())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state of all inputs. A file is described by its size and
+     * modification time, a directory by the states of its files.
+     */
+    private Map<File, String> snapshot() {
+        Map<File, String> states = new LinkedHashMap<File, String>();
+        for (File input : inputs) {
+            states.put(input, describe(input));
+        }
+        return states;
+    }
+
+    private String describe(File file) {
+        if (file.isFile()) {
+            return file.length() + "@" + file.lastModified();
+        } else if (!file.isDirectory()) {
+            return "-";
+        }
+
+        File[] children = file.listFiles();
+        if (children == null) {
+            return "-";
+        }
+        Arrays.sort(children);
+        StringBuilder state = new StringBuilder();
+        for (File child : children) {
+            if (child.isFile()) {
+                state.append(child.getName()).append('=').append(
+                        describe(child)).append(';');
+            }
+        }
+        return state.toString();
+    }
+}
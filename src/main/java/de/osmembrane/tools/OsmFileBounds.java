@@ -0,0 +1,296 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the bounds an OSM file declares in its header. Only the header is
+ * read, so this is fast for files of any size. Supported are PBF files (the
+ * bbox of the header block) and XML files, also gzipped (the
+ * <code>&lt;bounds&gt;</code> or <code>&lt;bound&gt;</code> element).
+ * 
+ * @author agent
+ */
+public class OsmFileBounds {
+
+    /**
+     * Bytes of a XML file which are searched for the bounds element.
+     */
+    private static final int XML_HEADER_SIZE = 8192;
+
+    /**
+     * Maximum size of the PBF header blob, larger ones are not a header.
+     */
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+
+    private static final double NANO = 1e-9;
+
+    private static final Pattern PATTERN_BOUNDS = Pattern
+            .compile("<bounds\\s([^>]*)>");
+    private static final Pattern PATTERN_BOUND = Pattern
+            .compile("<bound\\s[^>]*box=\"([^\"]*)\"");
+    private static final Pattern PATTERN_ATTRIBUTE = Pattern
+            .compile("(\\w+)=[\"']([^\"']*)[\"']");
+
+    private OsmFileBounds() {
+    }
+
+    /**
+     * Reads the bounds of an OSM file.
+     * 
+     * @param file
+     *            the file
+     * @return minimum latitude, minimum longitude, maximum latitude and
+     *         maximum longitude, or NULL if the file does not declare its
+     *         bounds or could not be read
+     */
+    public static double[] read(File file) {
+        String name = file.getName().toLowerCase();
+        try {
+            if (name.endsWith(".pbf")) {
+                return readPbf(file);
+            } else if (name.endsWith(".osm") || name.endsWith(".osm.gz")
+                    || name.endsWith(".osc") || name.endsWith(".osc.gz")) {
+                return readXml(file, name.endsWith(".gz"));
+            }
+        } catch (IOException e) {
+            /* the bounds are only a hint */
+        } catch (DataFormatException e) {
+            /* the bounds are only a hint */
+        }
+        return null;
+    }
+
+    private static double[] readXml(File file, boolean gzip)
+            throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            if (gzip) {
+                stream = new GZIPInputStream(stream);
+            }
+
+            byte[] buffer = new byte[XML_HEADER_SIZE];
+            int length = 0;
+            int read;
+            while (length < buffer.length
+                    && (read = stream.read(buffer, length, buffer.length
+                            - length)) > 0) {
+                length += read;
+            }
+            String header = new String(buffer, 0, length,
+                    Charset.forName("UTF-8"));
+
+            Matcher bounds = PATTERN_BOUNDS.matcher(header);
+            if (bounds.find()) {
+                double[] result = new double[4];
+                String[] names = { "minlat", "minlon", "maxlat", "maxlon" };
+                int found = 0;
+                Matcher attribute = PATTERN_ATTRIBUTE.matcher(bounds.group(1));
+                while (attribute.find()) {
+                    for (int i = 0; i < names.length; i++) {
+                        if (names[i].equals(attribute.group(1))) {
+                            result[i] = Double.parseDouble(attribute.group(2));
+                            found++;
+                        }
+                    }
+                }
+                return (found == names.length ? result : null);
+            }
+
+            Matcher bound = PATTERN_BOUND.matcher(header);
+            if (bound.find()) {
+                String[] box = bound.group(1).split(",");
+                if (box.length == 4) {
+                    double[] result = new double[4];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = Double.parseDouble(box[i].trim());
+                    }
+                    return result;
+                }
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the bbox of the header block, which is the first blob of a PBF
+     * file.
+     */
+    private static double[] readPbf(File file) throws IOException,
+            DataFormatException {
+        DataInputStream stream = new DataInputStream(new FileInputStream(file));
+        try {
+            int headerLength = stream.readInt();
+            if (headerLength <= 0 || headerLength > MAX_HEADER_SIZE) {
+                return null;
+            }
+            byte[] blobHeader = new byte[headerLength];
+            stream.readFully(blobHeader);
+
+            /* BlobHeader: 1 = type, 3 = datasize */
+            Message header = new Message(blobHeader);
+            String type = null;
+            long dataSize = -1;
+            while (header.next()) {
+                if (header.field == 1) {
+                    type = new String(header.bytes(), Charset.forName("UTF-8"));
+                } else if (header.field == 3) {
+                    dataSize = header.value;
+                }
+            }
+            if (!"OSMHeader".equals(type) || dataSize <= 0
+                    || dataSize > MAX_HEADER_SIZE) {
+                return null;
+            }
+            byte[] blob = new byte[(int) dataSize];
+            stream.readFully(blob);
+
+            /* Blob: 1 = raw, 2 = raw_size, 3 = zlib_data */
+            Message data = new Message(blob);
+            byte[] raw = null;
+            byte[] zlib = null;
+            long rawSize = -1;
+            while (data.next()) {
+                if (data.field == 1) {
+                    raw = data.bytes();
+                } else if (data.field == 2) {
+                    rawSize = data.value;
+                } else if (data.field == 3) {
+                    zlib = data.bytes();
+                }
+            }
+            if (raw == null && zlib != null && rawSize > 0
+                    && rawSize <= MAX_HEADER_SIZE) {
+                raw = new byte[(int) rawSize];
+                Inflater inflater = new Inflater();
+                inflater.setInput(zlib);
+                inflater.inflate(raw);
+                inflater.end();
+            }
+            if (raw == null) {
+                return null;
+            }
+
+            /* HeaderBlock: 1 = bbox */
+            Message block = new Message(raw);
+            while (block.next()) {
+                if (block.field != 1) {
+                    continue;
+                }
+
+                /* HeaderBBox: left, right, top, bottom in nanodegrees */
+                Message bbox = new Message(block.bytes());
+                double[] sides = new double[4];
+                while (bbox.next()) {
+                    if (bbox.field >= 1 && bbox.field <= 4) {
+                        /* sint64 is zigzag encoded */
+                        long value = (bbox.value >>> 1) ^ -(bbox.value & 1);
+                        sides[bbox.field - 1] = value * NANO;
+                    }
+                }
+                return new double[] { sides[3], sides[0], sides[2], sides[1] };
+            }
+            return null;
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Minimal reader of the fields of a protocol buffers message, only what
+     * the PBF header needs.
+     */
+    private static class Message {
+
+        private byte[] data;
+        private int position = 0;
+
+        private int field;
+        private long value;
+        private int start;
+        private int length;
+
+        private Message(byte[] data) {
+            this.data = data;
+        }
+
+        /**
+         * Reads the next field, varint values are in value, length delimited
+         * ones are returned by {@link #bytes()}.
+         */
+        private boolean next() throws IOException {
+            if (position >= data.length) {
+                return false;
+            }
+            long key = varint();
+            field = (int) (key >>> 3);
+            switch ((int) (key & 7)) {
+            case 0:
+                value = varint();
+                break;
+            case 1:
+                position += 8;
+                break;
+            case 2:
+                length = (int) varint();
+                start = position;
+                position += length;
+                break;
+            case 5:
+                position += 4;
+                break;
+            default:
+                throw new IOException("unsupported wire type");
+            }
+            if (position > data.length) {
+                throw new IOException("truncated message");
+            }
+            return true;
+        }
+
+        private byte[] bytes() {
+            byte[] bytes = new byte[length];
+            System.arraycopy(data, start, bytes, 0, length);
+            return bytes;
+        }
+
+        private long varint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new IOException("truncated varint");
+                }
+                byte b = data[position++];
+                result |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the output of one osmosis process and keeps track of its progress.
+ * The entity counts are reported by the <code>--log-progress</code> and
+ * <code>--log-progress-change</code> tasks, which only print the current
+ * entity and the rate of the last interval. The processed entities are
+ * therefore summed up from the rates.
+ * 
+ * @author agent
+ */
+public class OsmosisProgress {
+
+    /**
+     * Line of a progress logger, e.g.
+     * "INFO: [label] Processing Node 1234, 5678.9 objects/second."
+     */
+    private static final Pattern PATTERN_PROGRESS = Pattern
+            .compile("(?:\\[(.*)\\] )?Processing (?:(?:Create|Modify|Delete) )?([A-Za-z]+) -?[0-9]+, ([0-9.E]+) objects/second\\.");
+
+    /**
+     * Line of a progress logger at the end of its stream.
+     */
+    private static final Pattern PATTERN_COMPLETED = Pattern
+            .compile("(?:\\[(.*)\\] )?Processing completed\\.");
+
+    private static final String LINE_EXECUTING = "Pipeline executing, waiting for completion.";
+    private static final String LINE_COMPLETE = "Pipeline complete.";
+
+    /**
+     * Time after which the rate of a logger is not current anymore, in
+     * milliseconds.
+     */
+    private static final long RATE_TIMEOUT = 15000;
+
+    /**
+     * Entities of one type counted by one progress logger.
+     */
+    public static class Stage {
+
+        private String name;
+        private double entities = 0.0;
+        private double rate = 0.0;
+        private long start;
+        private long end;
+
+        private Stage(String name, long start) {
+            this.name = name;
+            this.start = start;
+            this.end = start;
+        }
+
+        /**
+         * @return entity type, with the label of the logger if it has one
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return estimated count of processed entities
+         */
+        public long getEntities() {
+            return (long) entities;
+        }
+
+        /**
+         * @return entities per second of the last interval
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * @return time from the first to the last report in milliseconds
+         */
+        public long getElapsed() {
+            return end - start;
+        }
+    }
+
+    /**
+     * All stages in the order they were started.
+     */
+    private List<Stage> stages = new ArrayList<Stage>();
+
+    /**
+     * The current stage of each logger.
+     */
+    private Map<String, Stage> current = new HashMap<String, Stage>();
+
+    /**
+     * Processed entities of each logger over all its stages.
+     */
+    private Map<String, Double> processed = new HashMap<String, Double>();
+
+    /**
+     * Time of the last report of each logger.
+     */
+    private Map<String, Long> lastReport = new HashMap<String, Long>();
+
+    private long started;
+    private long expectedEntities = -1;
+    private boolean complete = false;
+
+    /**
+     * Creates a new progress for a process started now.
+     * 
+     * @param started
+     *            start time of the process in milliseconds
+     */
+    public OsmosisProgress(long started) {
+        this.started = started;
+    }
+
+    /**
+     * Sets the count of entities read by the pipeline, if it is known. The
+     * progress can be estimated then.
+     * 
+     * @param expectedEntities
+     *            count of entities or -1 if unknown
+     */
+    public synchronized void setExpectedEntities(long expectedEntities) {
+        this.expectedEntities = expectedEntities;
+    }
+
+    /**
+     * Parses one line of the output.
+     * 
+     * @param line
+     *            line printed by osmosis
+     * @param time
+     *            time the line was read in milliseconds
+     * @return true if the line changed the progress
+     */
+    public synchronized boolean parse(String line, long time) {
+        if (line.endsWith(LINE_EXECUTING)) {
+            /* the loggers start counting now */
+            started = time;
+            return true;
+        } else if (line.endsWith(LINE_COMPLETE)) {
+            complete = true;
+            return true;
+        }
+
+        Matcher matcher = PATTERN_COMPLETED.matcher(line);
+        if (matcher.find()) {
+            String logger = getLogger(matcher.group(1));
+            Stage stage = current.remove(logger);
+            if (stage != null) {
+                stage.end = time;
+                stage.rate = 0.0;
+            }
+            return (stage != null);
+        }
+
+        matcher = PATTERN_PROGRESS.matcher(line);
+        if (!matcher.find()) {
+            return false;
+        }
+
+        String logger = getLogger(matcher.group(1));
+        String type = matcher.group(2);
+        double rate;
+        try {
+            rate = Double.parseDouble(matcher.group(3));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        Long last = lastReport.get(logger);
+        long interval = time - (last != null ? last : started);
+        lastReport.put(logger, time);
+
+        Stage stage = current.get(logger);
+        if (stage == null || !stage.getName().endsWith(type)) {
+            /* the previous stage ended with its last report */
+            stage = new Stage((logger.isEmpty() ? type : "[" + logger + "] "
+                    + type), (last != null ? last : started));
+            current.put(logger, stage);
+            stages.add(stage);
+        }
+
+        double entities = rate * Math.max(interval, 0) / 1000.0;
+        stage.entities += entities;
+        stage.rate = rate;
+        stage.end = time;
+
+        Double sum = processed.get(logger);
+        processed.put(logger, (sum != null ? sum : 0.0) + entities);
+
+        return true;
+    }
+
+    /**
+     * @return all stages in the order they were started
+     */
+    public synchronized List<Stage> getStages() {
+        return new ArrayList<Stage>(stages);
+    }
+
+    /**
+     * Returns the summed up current rate of all loggers.
+     * 
+     * @param time
+     *            the current time in milliseconds
+     * @return entities per second
+     */
+    public synchronized double getCurrentRate(long time) {
+        double rate = 0.0;
+        for (Map.Entry<String, Stage> entry : current.entrySet()) {
+            if (time - lastReport.get(entry.getKey()) <= RATE_TIMEOUT) {
+                rate += entry.getValue().getRate();
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * @return processed entities of the logger which has seen the most
+     *         entities, this usually is the one next to the reader
+     */
+    public synchronized long getProcessed() {
+        double max = 0.0;
+        for (double sum : processed.values()) {
+            max = Math.max(max, sum);
+        }
+        return (long) max;
+    }
+
+    /**
+     * @return estimated progress in percent or -1 if it is unknown
+     */
+    public synchronized int getProgress() {
+        if (complete) {
+            return 100;
+        }
+        if (expectedEntities <= 0 || processed.isEmpty()) {
+            return -1;
+        }
+        /* the count is an estimation, so never claim to be done */
+        return (int) Math.min(99, (100 * getProcessed()) / expectedEntities);
+    }
+
+    /**
+     * Estimates the remaining time from the expected entities and the current
+     * rate.
+     * 
+     * @param time
+     *            the current time in milliseconds
+     * @return remaining time in milliseconds or -1 if it is unknown
+     */
+    public synchronized long getRemainingTime(long time) {
+        double rate = getCurrentRate(time);
+        if (complete || expectedEntities <= 0 || rate <= 0.0) {
+            return -1;
+        }
+        long remaining = Math.max(expectedEntities - getProcessed(), 0);
+        return (long) (1000.0 * remaining / rate);
+    }
+
+    /**
+     * @return true if osmosis reported the end of the pipeline
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    private String getLogger(String label) {
+        return (label == null ? "" : label);
+    }
+}
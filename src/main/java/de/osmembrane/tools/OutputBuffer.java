@@ -0,0 +1,68 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded buffer between the threads reading the output of osmosis and the
+ * execution dialog. If the dialog does not keep up, the oldest lines are
+ * dropped and replaced by a note how many lines have been skipped.
+ * 
+ * @author agent
+ */
+class OutputBuffer {
+
+    private int capacity;
+    private ArrayDeque<String> lines = new ArrayDeque<String>();
+    private int skipped = 0;
+
+    /**
+     * Creates a new buffer.
+     * 
+     * @param capacity
+     *            maximum count of buffered lines
+     */
+    public OutputBuffer(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a line, dropping the oldest one if the buffer is full.
+     */
+    public synchronized void add(String line) {
+        if (lines.size() == capacity) {
+            lines.removeFirst();
+            skipped++;
+        }
+        lines.addLast(line);
+    }
+
+    /**
+     * Returns all buffered lines and empties the buffer. If lines have been
+     * dropped since the last call, the batch starts with a note about them.
+     */
+    public synchronized List<String> drain() {
+        List<String> batch = new ArrayList<String>(lines.size() + 1);
+        if (skipped > 0) {
+            batch.add(I18N.getInstance().getString(
+                    "Tools.PipelineExecutor.SkippedLines",
+                    String.valueOf(skipped)));
+            skipped = 0;
+        }
+        batch.addAll(lines);
+        lines.clear();
+        return batch;
+    }
+}
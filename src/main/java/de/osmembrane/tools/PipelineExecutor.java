@@ -12,38 +12,190 @@
 package de.osmembrane.tools;
 
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.Action;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import de.osmembrane.Application;
 import de.osmembrane.controller.ActionRegistry;
 import de.osmembrane.exceptions.ControlledException;
 import de.osmembrane.exceptions.ExceptionSeverity;
+import de.osmembrane.model.algorithms.ExecutionCache;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.resources.Constants;
 import de.osmembrane.view.interfaces.IExecutionStateDialog;
 
 /**
- * Executor for a pipeline
+ * Executor for a pipeline. A pipeline can also be run as a group of osmosis
+ * processes which are connected by link files, see
+ * {@link de.osmembrane.model.algorithms.PipelinePartitioner}, or as a group of
+ * independent processes for the disconnected parts of a pipeline.
  * 
  * @author jakob_jarosch
  */
 public class PipelineExecutor extends Thread implements WindowListener {
 
+    /**
+     * Interval in which the running processes are checked.
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * Interval in which the read output is moved into the dialog.
+     */
+    private static final int PUMP_INTERVAL = 100;
+
+    /**
+     * Maximum count of output lines waiting for the dialog, older lines are
+     * skipped when osmosis is faster than the dialog.
+     */
+    private static final int MAX_BUFFERED_LINES = 10000;
+
+    /**
+     * Count of pump intervals after which the progress is shown.
+     */
+    private static final int PROGRESS_PUMPS = 10;
+
+    /**
+     * Interval in which the resources of the processes are sampled.
+     */
+    private static final long SAMPLE_INTERVAL = 1000;
+
+    /**
+     * Locations of the nice command for low priority executions.
+     */
+    private static final String[] NICE_PATHS = { "/usr/bin/nice", "/bin/nice" };
+
+    /**
+     * Suffix of the file with the JVM options and the result of a run.
+     */
+    private static final String RUN_PROPERTIES_SUFFIX = ".run.properties";
+
+    /**
+     * Distinguishes executions started in the same millisecond.
+     */
+    private static final AtomicInteger runCounter = new AtomicInteger();
+
     private String osmosisPath;
     private File workingDirectory;
-    private List<String> parameters;
+    private List<List<String>> invocations;
+    private List<Set<Integer>> dependencies;
     private IExecutionStateDialog dialog;
 
+    private List<File> links = new ArrayList<File>();
+    private File linkDirectory;
+    private boolean namedPipes;
+
     private Class<? extends Action> callbackEvent;
 
-    private int executionState = -1;
+    private volatile int executionState = -1;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * All started processes, to destroy them on cancellation.
+     */
+    private List<Process> running = new ArrayList<Process>();
+
+    private OutputBuffer output = new OutputBuffer(MAX_BUFFERED_LINES);
+
+    /**
+     * Progress of each started process, guarded by running.
+     */
+    private List<OsmosisProgress> progresses = new ArrayList<OsmosisProgress>();
+
+    private long expectedEntities = -1;
+
+    private int pumps = 0;
+
+    /**
+     * Set when the final state is shown, the progress is not updated anymore.
+     */
+    private volatile boolean done = false;
+
+    /**
+     * Sampler of the osmosis processes, NULL if /proc is not available.
+     */
+    private ProcessSampler sampler;
+
+    /**
+     * The newest sample and the sample which was last shown in the dialog.
+     */
+    private volatile ProcessSampler.Sample sample;
+    private ProcessSampler.Sample shownSample;
+
+    /**
+     * JVM options of osmosis, NULL to keep the environment as it is.
+     */
+    private JvmSizing jvmSizing;
+
+    /**
+     * JVM options of every single process, NULL to use {@link #jvmSizing}
+     * for all of them.
+     */
+    private List<JvmSizing> jvmSizings;
+
+    /**
+     * Memory in megabyte the heaps of the processes running at the same time
+     * may sum up to, 0 for no limit.
+     */
+    private double heapBudget = 0.0;
+
+    /**
+     * The cache the processes write their intermediates into, or NULL.
+     */
+    private ExecutionCache cache;
+
+    /**
+     * True if the processes are started with the lowest scheduling priority.
+     */
+    private boolean lowPriority = false;
+
+    /**
+     * The record which is added to the run history, or NULL.
+     */
+    private RunRecord record;
+
+    /**
+     * Unique name of the files of this execution in the runs folder.
+     */
+    private String runName;
+
+    /**
+     * Executes osmosis in-process instead of starting a JVM, or NULL.
+     */
+    private InProcessOsmosis inProcess;
+
+    /**
+     * True if the processes do not depend on each other, a failed process
+     * does not stop the others then.
+     */
+    private boolean independent = false;
+
+    /**
+     * Maximum count of processes running at the same time, 0 for no limit.
+     */
+    private int maxRunning = 0;
 
     /**
      * Initialize the pipeline executor.
@@ -53,9 +205,28 @@ public class PipelineExecutor extends Thread implements WindowListener {
      */
     public PipelineExecutor(String osmosisPath, String workingDirectory,
             List<String> parameters, IExecutionStateDialog dialog) {
+        this(osmosisPath, workingDirectory, Collections
+                .singletonList(parameters), Collections.singletonList(Collections
+                .<Integer> emptySet()), dialog);
+    }
+
+    /**
+     * Initialize the pipeline executor for a group of osmosis processes.
+     * 
+     * @param invocations
+     *            parameters of each process
+     * @param dependencies
+     *            indexes of the processes each process has to wait for
+     * @throws IllegalArgumentException
+     *             when the osmosis executable is not runnable.
+     */
+    public PipelineExecutor(String osmosisPath, String workingDirectory,
+            List<List<String>> invocations, List<Set<Integer>> dependencies,
+            IExecutionStateDialog dialog) {
         setPath(osmosisPath);
         this.workingDirectory = new File(workingDirectory);
-        this.parameters = parameters;
+        this.invocations = invocations;
+        this.dependencies = dependencies;
         this.dialog = dialog;
         dialog.addWindowListener(this);
 
@@ -66,6 +237,139 @@ public class PipelineExecutor extends Thread implements WindowListener {
                 .getString("View.Cancel"));
     }
 
+    /**
+     * Sets the files which connect the processes. They are removed after the
+     * execution, together with their directory.
+     * 
+     * @param links
+     *            the link files
+     * @param linkDirectory
+     *            directory of the link files
+     * @param namedPipes
+     *            true if the links should be created as named pipes, all
+     *            processes are started at once then; otherwise a process is
+     *            started when the processes it depends on have finished
+     */
+    public void setLinks(List<File> links, File linkDirectory,
+            boolean namedPipes) {
+        this.links = links;
+        this.linkDirectory = linkDirectory;
+        this.namedPipes = namedPipes;
+    }
+
+    /**
+     * Sets the count of entities the pipeline reads, to estimate the progress
+     * of a single process.
+     * 
+     * @param expectedEntities
+     *            count of entities or -1 if it is unknown
+     */
+    public void setExpectedEntities(long expectedEntities) {
+        this.expectedEntities = expectedEntities;
+    }
+
+    /**
+     * Sets the heap, garbage collector and temporary directory of the osmosis
+     * JVMs.
+     * 
+     * @param jvmSizing
+     *            the sizing or NULL to keep the environment as it is
+     */
+    public void setJvmSizing(JvmSizing jvmSizing) {
+        this.jvmSizing = jvmSizing;
+    }
+
+    /**
+     * Sizes the JVM of every process on its own, as the disconnected parts
+     * of a pipeline need different heaps. A process is only started while
+     * the summed up heaps of the running processes fit into the budget.
+     * 
+     * @param jvmSizings
+     *            the sizing of every invocation
+     * @param heapBudget
+     *            memory in megabyte the heaps of the running processes may
+     *            sum up to, 0 for no limit
+     */
+    public void setJvmSizings(List<JvmSizing> jvmSizings, double heapBudget) {
+        if (jvmSizings.size() != invocations.size()) {
+            throw new IllegalArgumentException(
+                    "one JVM sizing per invocation expected");
+        }
+        this.jvmSizings = jvmSizings;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * @return the JVM sizing of osmosis or NULL
+     */
+    public JvmSizing getJvmSizing() {
+        return jvmSizing;
+    }
+
+    /**
+     * Sets the execution cache the processes were planned with. The
+     * intermediates of a process are added to the cache when it has finished
+     * successfully.
+     * 
+     * @param cache
+     *            the cache or NULL
+     */
+    public void setCache(ExecutionCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Lets the processes run with the lowest scheduling priority, so they do
+     * not slow down other work. Only supported where <code>nice</code> is
+     * available, elsewhere the processes run with normal priority.
+     * 
+     * @param lowPriority
+     *            true for the lowest priority
+     */
+    public void setLowPriority(boolean lowPriority) {
+        this.lowPriority = lowPriority;
+    }
+
+    /**
+     * Sets the record of this execution, it is completed and added to the
+     * {@link RunHistory} when the execution has ended.
+     * 
+     * @param record
+     *            the record or NULL if the execution should not be recorded
+     */
+    public void setRunRecord(RunRecord record) {
+        this.record = record;
+    }
+
+    /**
+     * Lets osmosis run in-process instead of in its own JVM. Only a single
+     * process is executed in-process, groups of processes are always
+     * started as processes. The parameters have to be generated with
+     * {@link InProcessOsmosis#getArguments(de.osmembrane.model.pipeline.AbstractPipeline, File)}
+     * then.
+     * 
+     * @param inProcess
+     *            the in-process osmosis or NULL to start a process
+     */
+    public void setInProcess(InProcessOsmosis inProcess) {
+        this.inProcess = inProcess;
+    }
+
+    /**
+     * Lets the processes run independently of each other, as the
+     * disconnected parts of a pipeline do. A failed process does not stop
+     * the others, the output of each process is also written into its own
+     * log in the runs folder and the exit values are listed at the end.
+     * 
+     * @param maxRunning
+     *            maximum count of processes running at the same time, 0 for
+     *            no limit
+     */
+    public void setIndependent(int maxRunning) {
+        this.independent = true;
+        this.maxRunning = maxRunning;
+    }
+
     /**
      * Sets a call back action which is called after completing of the
      * execution.
@@ -78,76 +382,612 @@ public class PipelineExecutor extends Thread implements WindowListener {
 
     @Override
     public void run() {
-        dialog.setState(I18N.getInstance().getString(
-                "Tools.PipelineExecutor.StartingOsmosis"));
-        dialog.setProgress(10);
+        updateDialog(I18N.getInstance().getString(
+                "Tools.PipelineExecutor.StartingOsmosis"), 10, null);
 
-        List<String> cmdLine = new ArrayList<String>(parameters.size() + 1);
-        cmdLine.add(osmosisPath);
-        cmdLine.addAll(parameters);
+        int count = invocations.size();
+        Process[] processes = new Process[count];
+        OutputThread[] outputs = new OutputThread[count];
+        Integer[] exitValues = new Integer[count];
 
-        try {
-            ProcessBuilder processBuilder = new ProcessBuilder(cmdLine);
-            Process process = processBuilder.directory(workingDirectory)
-                    .redirectErrorStream(true).start();
+        long started = System.currentTimeMillis();
+        long sampled = started;
+        if (ProcessSampler.isAvailable()) {
+            sampler = new ProcessSampler(started);
+        }
+        runName = reserveRunName(started);
+        if (record != null) {
+            record.start(started, invocations);
+        }
 
-            final BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()));
+        final Timer pump = new Timer(PUMP_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                pumpOutput();
+                if (++pumps % PROGRESS_PUMPS == 0) {
+                    pumpProgress();
+                }
+            }
+        });
+        pump.start();
 
-            dialog.setState(I18N.getInstance().getString(
-                    "Tools.PipelineExecutor.RunningOsmosis"));
-            dialog.setProgress(10);
+        try {
+            if (namedPipes) {
+                createNamedPipes();
+            }
 
-            String line = null;
-            do {
-                try {
-                    ReadThread thread = new ReadThread(reader);
-                    thread.start();
-                    thread.join();
-                    line = thread.getLine();
-                } catch (InterruptedException e) {
-                    interrupt();
-                    line = null;
+            if (inProcess != null && count == 1) {
+                output.add(I18N.getInstance().getString(
+                        "Tools.PipelineExecutor.InProcess",
+                        inProcess.getLibraryDirectory(),
+                        inProcess.getRuns()));
+            } else if (jvmSizings != null) {
+                for (int i = 0; i < count; i++) {
+                    output.add("[" + (i + 1) + "] "
+                            + I18N.getInstance().getString(
+                                    "Tools.PipelineExecutor.JvmOptions",
+                                    jvmSizings.get(i).getOptions()));
                 }
+            } else if (jvmSizing != null) {
+                output.add(I18N.getInstance().getString(
+                        "Tools.PipelineExecutor.JvmOptions",
+                        jvmSizing.getOptions()));
+            }
+            if (cache != null) {
+                output.add(I18N.getInstance().getString(
+                        "Tools.PipelineExecutor.CacheUsage",
+                        cache.getHits().size(), cache.getMisses().size(),
+                        cache.getDirectory().getAbsolutePath()));
+            }
+            updateDialog(I18N.getInstance().getString(
+                    "Tools.PipelineExecutor.RunningOsmosis"), 10, null);
 
-                if (line != null) {
-                    dialog.addOutputLine(line);
+            int startedCount = 0;
+            int finished = 0;
+            int failure = 0;
+            while (finished < count && (failure == 0 || independent)
+                    && !cancelled) {
+                synchronized (running) {
+                    for (int i = 0; i < count && !cancelled; i++) {
+                        if (processes[i] == null
+                                && isStartable(i, exitValues)
+                                && (maxRunning <= 0 || namedPipes || startedCount
+                                        - finished < maxRunning)
+                                && isAdmitted(i, processes, exitValues)) {
+                            processes[i] = start(invocations.get(i),
+                                    getJvmSizing(i));
+                            startedCount++;
+                            running.add(processes[i]);
+                            if (sampler != null) {
+                                sampler.addProcess(processes[i]);
+                            }
+                            OsmosisProgress progress = new OsmosisProgress(
+                                    System.currentTimeMillis());
+                            if (count == 1) {
+                                progress.setExpectedEntities(expectedEntities);
+                            }
+                            progresses.add(progress);
+                            outputs[i] = new OutputThread(processes[i],
+                                    (count > 1 ? "[" + (i + 1) + "] " : ""),
+                                    progress);
+                            if (independent && count > 1) {
+                                File log = getLogFile(i);
+                                outputs[i].setLog(log);
+                                if (record != null) {
+                                    record.addRunFile(log);
+                                }
+                            }
+                            outputs[i].start();
+                        }
+                    }
                 }
-            } while (line != null && !isInterrupted());
 
-            if (!isInterrupted()) {
-                int exitValue = -255;
-                try {
-                    exitValue = process.waitFor();
-                    if (exitValue == 0) {
-                        dialog.setState(I18N.getInstance().getString(
-                                "Tools.PipelineExecutor.Finished"));
-                        dialog.setCloseButtonCaption(I18N.getInstance()
-                                .getString("View.OK"));
-                        dialog.setProgress(100);
-                    } else {
-                        dialog.setState(I18N.getInstance().getString(
-                                "Tools.PipelineExecutor.Failed"));
-                        dialog.setCloseButtonCaption(I18N.getInstance()
-                                .getString("View.Close"));
+                int previous = finished;
+                for (int i = 0; i < count; i++) {
+                    if (processes[i] != null && exitValues[i] == null
+                            && !processes[i].isAlive()) {
+                        /* get the complete output before the result */
+                        outputs[i].join();
+                        exitValues[i] = processes[i].exitValue();
+                        finished++;
+                        if (exitValues[i] != 0) {
+                            if (failure == 0) {
+                                failure = exitValues[i];
+                            }
+                        } else if (cache != null) {
+                            cache.commit(i);
+                        }
                     }
+                }
 
-                    executionState = exitValue;
-                } catch (InterruptedException e) {
-                    interrupt();
+                long now = System.currentTimeMillis();
+                if (sampler != null && now - sampled >= SAMPLE_INTERVAL) {
+                    sampled = now;
+                    sample = sampler.sample(now);
+                }
+
+                if (count > 1 && finished != previous) {
+                    updateDialog(null, 10 + (90 * finished) / count, null);
+                }
+                if (finished < count && (failure == 0 || independent)) {
+                    Thread.sleep(POLL_INTERVAL);
                 }
-            } else {
-                process.destroy();
-                reader.close();
             }
 
+            done = true;
+            if (independent && count > 1) {
+                listExitValues(exitValues);
+            }
+            if (!cancelled) {
+                int failed = 0;
+                for (Integer exitValue : exitValues) {
+                    if (exitValue != null && exitValue != 0) {
+                        failed++;
+                    }
+                }
+                if (failure == 0) {
+                    updateDialog(I18N.getInstance().getString(
+                            "Tools.PipelineExecutor.Finished"), 100, I18N
+                            .getInstance().getString("View.OK"));
+                } else if (independent && failed < count) {
+                    updateDialog(I18N.getInstance().getString(
+                            "Tools.PipelineExecutor.PartlyFailed", failed,
+                            count), -1, I18N.getInstance().getString(
+                            "View.Close"));
+                } else {
+                    updateDialog(I18N.getInstance().getString(
+                            "Tools.PipelineExecutor.Failed"), -1, I18N
+                            .getInstance().getString("View.Close"));
+                }
+
+                executionState = failure;
+            }
+        } catch (InterruptedException e) {
+            cancel();
         } catch (IOException e) {
-            dialog.setState(I18N.getInstance().getString(
-                    "Tools.PipelineExecutor.IOExecption"));
-            dialog.setProgress(0);
+            done = true;
+            updateDialog(I18N.getInstance().getString(
+                    "Tools.PipelineExecutor.IOExecption"), 0, null);
             Application.handleException(new ControlledException(this,
                     ExceptionSeverity.WARNING, e, I18N.getInstance().getString(
                             "Tools.PipelineExecutor.IOExecption")));
+        } finally {
+            /* one failed process stops the whole group */
+            destroyProcesses();
+            deleteLinks();
+            if (cache != null) {
+                cache.finish();
+            }
+            saveRun();
+            saveRecord();
+
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    pump.stop();
+                    pumpOutput();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the result of the execution.
+     * 
+     * @return 0 if all processes finished successfully, the exit value of the
+     *         failed process or -1 if the execution did not finish
+     */
+    public int getExecutionState() {
+        return executionState;
+    }
+
+    /**
+     * Returns the sampled resources of the osmosis processes.
+     * 
+     * @return the samples, empty if the processes could not be sampled
+     */
+    public List<ProcessSampler.Sample> getResourceSamples() {
+        if (sampler == null) {
+            return Collections.emptyList();
+        }
+        return sampler.getSamples();
+    }
+
+    /**
+     * Cancels the execution by destroying all running osmosis processes.
+     */
+    public void cancel() {
+        cancelled = true;
+        destroyProcesses();
+    }
+
+    /**
+     * Destroys all processes which are still running.
+     */
+    private void destroyProcesses() {
+        synchronized (running) {
+            for (Process process : running) {
+                if (process.isAlive()) {
+                    process.destroy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the buffered output lines into the dialog, has to be called in
+     * the event dispatch thread.
+     */
+    private void pumpOutput() {
+        List<String> batch = output.drain();
+        if (!batch.isEmpty()) {
+            dialog.addOutputLines(batch);
+        }
+    }
+
+    /**
+     * Shows the throughput and the progress parsed from the output in the
+     * dialog, has to be called in the event dispatch thread.
+     */
+    private void pumpProgress() {
+        if (done) {
+            return;
+        }
+
+        ProcessSampler.Sample newest = sample;
+        if (newest != null && newest != shownSample) {
+            shownSample = newest;
+            dialog.addResourceSample(newest);
+        }
+
+        I18N i18n = I18N.getInstance();
+        long now = System.currentTimeMillis();
+        double rate = 0.0;
+        int progress = -1;
+        long remaining = -1;
+        StringBuilder statistics = new StringBuilder();
+
+        synchronized (running) {
+            for (int i = 0; i < progresses.size(); i++) {
+                OsmosisProgress processProgress = progresses.get(i);
+                rate += processProgress.getCurrentRate(now);
+                for (OsmosisProgress.Stage stage : processProgress
+                        .getStages()) {
+                    if (statistics.length() > 0) {
+                        statistics.append(", ");
+                    }
+                    statistics.append(i18n.getString(
+                            "Tools.PipelineExecutor.Stage",
+                            (progresses.size() > 1 ? "[" + (i + 1) + "] " : "")
+                                    + stage.getName(), stage.getEntities(),
+                            formatDuration(stage.getElapsed())));
+                }
+            }
+            if (invocations.size() == 1 && progresses.size() == 1) {
+                progress = progresses.get(0).getProgress();
+                remaining = progresses.get(0).getRemainingTime(now);
+            }
+        }
+
+        if (statistics.length() == 0) {
+            /* the pipeline has no progress logger */
+            return;
+        }
+
+        statistics.append(" \u2013 ").append(
+                i18n.getString("Tools.PipelineExecutor.Rate", (long) rate));
+        if (remaining >= 0) {
+            statistics.append(", ").append(
+                    i18n.getString("Tools.PipelineExecutor.Remaining",
+                            formatDuration(remaining)));
+        }
+
+        dialog.addThroughputSample(rate);
+        dialog.setStatistics(statistics.toString());
+        if (progress >= 0) {
+            /* 10 percent are used for the start of osmosis */
+            dialog.setProgress(10 + (progress * 90) / 100);
+        }
+    }
+
+    /**
+     * Lists the exit value and the log of each process, for a group of
+     * independent processes.
+     */
+    private void listExitValues(Integer[] exitValues) {
+        I18N i18n = I18N.getInstance();
+        for (int i = 0; i < exitValues.length; i++) {
+            String prefix = "[" + (i + 1) + "] ";
+            if (exitValues[i] == null) {
+                output.add(prefix
+                        + i18n.getString("Tools.PipelineExecutor.NotFinished"));
+            } else {
+                output.add(prefix
+                        + i18n.getString("Tools.PipelineExecutor.ExitValue",
+                                exitValues[i], getLogFile(i)
+                                        .getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * @return the log file of a process of a group of independent processes
+     */
+    private File getLogFile(int index) {
+        return new File(getRunsFolder(), runName + "." + (index + 1) + ".log");
+    }
+
+    /**
+     * @return the runs folder in the user folder
+     */
+    private static File getRunsFolder() {
+        return new File(Tools.urlToFile(Constants.DEFAULT_USER_FOLDER),
+                Constants.DEFAULT_RUNS_FOLDER_NAME);
+    }
+
+    /**
+     * Returns a name for the files of an execution in the runs folder which
+     * is not used by any other execution, also not by one of another
+     * OSMembrane started at the same time. The name is reserved by creating
+     * the run properties file.
+     * 
+     * @return the name of the files of the execution
+     */
+    private static String reserveRunName(long started) {
+        File folder = getRunsFolder();
+        folder.mkdirs();
+        String prefix = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS")
+                .format(new Date(started));
+
+        String name = prefix + "-" + runCounter.incrementAndGet();
+        try {
+            while (!new File(folder, name + RUN_PROPERTIES_SUFFIX)
+                    .createNewFile()) {
+                name = prefix + "-" + runCounter.incrementAndGet();
+            }
+        } catch (IOException e) {
+            /* saving the run fails anyway, the name just stays unreserved */
+        }
+        return name;
+    }
+
+    /**
+     * Saves the JVM options, the result and the sampled resources of the
+     * execution to the runs folder in the user folder.
+     */
+    private void saveRun() {
+        File folder = getRunsFolder();
+        folder.mkdirs();
+
+        Properties run = new Properties();
+        run.setProperty("exit", String.valueOf(executionState));
+        run.setProperty("cancelled", String.valueOf(cancelled));
+        if (jvmSizings != null) {
+            for (int i = 0; i < jvmSizings.size(); i++) {
+                run.setProperty("jvm.heap." + (i + 1), String
+                        .valueOf(jvmSizings.get(i).getHeap()));
+                run.setProperty("jvm.options." + (i + 1), jvmSizings.get(i)
+                        .getOptions());
+            }
+        } else if (jvmSizing != null) {
+            run.setProperty("jvm.heap", String.valueOf(jvmSizing.getHeap()));
+            run.setProperty("jvm.options", jvmSizing.getOptions());
+        }
+
+        try {
+            File properties = new File(folder, runName + RUN_PROPERTIES_SUFFIX);
+            OutputStream stream = new FileOutputStream(properties);
+            try {
+                run.store(stream, null);
+            } finally {
+                stream.close();
+            }
+            if (record != null) {
+                record.addRunFile(properties);
+            }
+            if (sampler != null && !sampler.getSamples().isEmpty()) {
+                File resources = new File(folder, runName + ".resources.csv");
+                sampler.writeSamples(resources);
+                if (record != null) {
+                    record.addRunFile(resources);
+                }
+            }
+        } catch (IOException e) {
+            /* the records are only an addition to the execution */
+        }
+    }
+
+    /**
+     * Completes the record of the execution and adds it to the run history.
+     * A successful run is compared with the previous one.
+     */
+    private void saveRecord() {
+        if (record == null) {
+            return;
+        }
+
+        List<OsmosisProgress> parsed;
+        synchronized (running) {
+            parsed = new ArrayList<OsmosisProgress>(progresses);
+        }
+        record.finish(System.currentTimeMillis(), executionState, parsed);
+
+        try {
+            RunHistory.Comparison comparison = RunHistory.getInstance()
+                    .appendAndCompare(record);
+            if (comparison != null && record.isSuccessful()) {
+                for (String line : comparison.describe()) {
+                    output.add(line);
+                }
+            }
+        } catch (IOException e) {
+            /* the history is only an addition to the execution */
+        }
+    }
+
+    /**
+     * Formats a duration as hours, minutes and seconds.
+     */
+    private String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600,
+                (seconds / 60) % 60, seconds % 60);
+    }
+
+    /**
+     * Updates the dialog in the event dispatch thread, after all output lines
+     * which were read before.
+     * 
+     * @param state
+     *            the new state or NULL
+     * @param progress
+     *            the new progress or a negative value
+     * @param caption
+     *            the new caption of the close button or NULL
+     */
+    private void updateDialog(final String state, final int progress,
+            final String caption) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                pumpOutput();
+                if (state != null) {
+                    dialog.setState(state);
+                }
+                if (progress >= 0) {
+                    dialog.setProgress(progress);
+                }
+                if (caption != null) {
+                    dialog.setCloseButtonCaption(caption);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns true if a process can be started, that is when all processes
+     * it depends on have finished successfully.
+     */
+    private boolean isStartable(int index, Integer[] exitValues) {
+        if (namedPipes) {
+            return true;
+        }
+        for (int dependency : dependencies.get(index)) {
+            if (exitValues[dependency] == null || exitValues[dependency] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the heap of a process fits into the heap budget next to
+     * the heaps of the running processes.
+     */
+    private boolean isAdmitted(int index, Process[] processes,
+            Integer[] exitValues) {
+        if (jvmSizings == null || namedPipes) {
+            return true;
+        }
+        int runningCount = 0;
+        double reservedHeap = 0.0;
+        for (int i = 0; i < processes.length; i++) {
+            if (processes[i] != null && exitValues[i] == null) {
+                runningCount++;
+                reservedHeap += jvmSizings.get(i).getHeap();
+            }
+        }
+        return fitsHeapBudget(jvmSizings.get(index).getHeap(), runningCount,
+                reservedHeap, heapBudget);
+    }
+
+    /**
+     * Returns true if another process fits into the heap budget. Like in the
+     * {@link RunQueue}, a process is always admitted if nothing else runs,
+     * so a process which does not fit at all does not block the others.
+     * 
+     * @param heap
+     *            heap of the process in megabyte
+     * @param running
+     *            count of running processes
+     * @param reservedHeap
+     *            summed up heap of the running processes in megabyte
+     * @param heapBudget
+     *            memory in megabyte the heaps may sum up to, 0 for no limit
+     */
+    static boolean fitsHeapBudget(double heap, int running,
+            double reservedHeap, double heapBudget) {
+        if (running == 0 || heapBudget <= 0.0) {
+            return true;
+        }
+        return reservedHeap + heap <= heapBudget;
+    }
+
+    /**
+     * @return the JVM sizing of a process or NULL
+     */
+    private JvmSizing getJvmSizing(int index) {
+        return (jvmSizings != null ? jvmSizings.get(index) : jvmSizing);
+    }
+
+    /**
+     * Starts a osmosis process with the given parameters.
+     */
+    private Process start(List<String> parameters, JvmSizing sizing)
+            throws IOException {
+        if (inProcess != null && invocations.size() == 1) {
+            return inProcess.start(parameters);
+        }
+
+        List<String> cmdLine = new ArrayList<String>(parameters.size() + 4);
+        if (lowPriority) {
+            for (String nice : NICE_PATHS) {
+                if (new File(nice).canExecute()) {
+                    cmdLine.add(nice);
+                    cmdLine.add("-n");
+                    cmdLine.add("19");
+                    break;
+                }
+            }
+        }
+        cmdLine.add(osmosisPath);
+        cmdLine.addAll(parameters);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(cmdLine);
+        if (sizing != null) {
+            sizing.apply(processBuilder.environment());
+        }
+        return processBuilder.directory(workingDirectory)
+                .redirectErrorStream(true).start();
+    }
+
+    /**
+     * Creates all link files as named pipes.
+     */
+    private void createNamedPipes() throws IOException, InterruptedException {
+        List<String> cmdLine = new ArrayList<String>(links.size() + 1);
+        cmdLine.add("mkfifo");
+        for (File link : links) {
+            cmdLine.add(link.getAbsolutePath());
+        }
+
+        Process process = new ProcessBuilder(cmdLine).redirectErrorStream(
+                true).start();
+        if (process.waitFor() != 0) {
+            throw new IOException("mkfifo failed with exit code "
+                    + process.exitValue());
+        }
+    }
+
+    /**
+     * Removes all link files and their directory.
+     */
+    private void deleteLinks() {
+        for (File link : links) {
+            link.delete();
+        }
+        if (linkDirectory != null) {
+            linkDirectory.delete();
         }
     }
 
@@ -175,7 +1015,7 @@ public class PipelineExecutor extends Thread implements WindowListener {
         dialog.removeWindowListener(this);
 
         if (this.isAlive()) {
-            this.interrupt();
+            cancel();
         } else {
             if (callbackEvent != null && executionState == 0) {
                 ActionRegistry.getInstance().get(callbackEvent)
@@ -207,33 +1047,59 @@ public class PipelineExecutor extends Thread implements WindowListener {
     @Override
     public void windowDeactivated(WindowEvent e) {
     }
-}
 
-/**
- * ReadThread which is able to be interrupted while reading a line.
- * 
- * @author jakob_jarosch
- */
-class ReadThread extends Thread {
+    /**
+     * Thread which forwards the output of a process until the process ends.
+     */
+    private class OutputThread extends Thread {
 
-    private BufferedReader reader;
-    private String line;
+        private BufferedReader reader;
+        private String prefix;
+        private OsmosisProgress progress;
+        private File log;
 
-    public ReadThread(BufferedReader reader) {
-        this.reader = reader;
-    }
+        public OutputThread(Process process, String prefix,
+                OsmosisProgress progress) {
+            this.reader = new BufferedReader(new InputStreamReader(
+                    process.getInputStream()));
+            this.prefix = prefix;
+            this.progress = progress;
+        }
 
-    @Override
-    public void run() {
-        line = null;
-        try {
-            line = reader.readLine();
-        } catch (IOException e) {
-            line = null;
+        /**
+         * Writes the output also into the given file.
+         */
+        public void setLog(File log) {
+            this.log = log;
         }
-    }
 
-    public String getLine() {
-        return line;
+        @Override
+        public void run() {
+            PrintWriter writer = null;
+            if (log != null) {
+                log.getParentFile().mkdirs();
+                try {
+                    writer = new PrintWriter(new FileWriter(log));
+                } catch (IOException e) {
+                    /* the log is only an addition to the dialog */
+                }
+            }
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    progress.parse(line, System.currentTimeMillis());
+                    output.add(prefix + line);
+                    if (writer != null) {
+                        writer.println(line);
+                    }
+                }
+            } catch (IOException e) {
+                /* the process has been destroyed */
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
     }
 }
@@ -0,0 +1,477 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.persistence.FileException;
+import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.AbstractTask;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Executes a saved pipeline without any view, e.g. from a cron job. The
+ * pipeline is loaded, its parameters can be overridden, and osmosis is started
+ * with the generated arguments. The output of osmosis is passed through to a
+ * stream.
+ * 
+ * @author agent
+ */
+public class PipelineRunner {
+
+    /**
+     * exit code if the pipeline could not be loaded or is not complete
+     */
+    public static final int EXIT_INVALID = 2;
+
+    /**
+     * exit code if osmosis could not be started
+     */
+    public static final int EXIT_NOT_STARTED = 3;
+
+    private File file;
+    private String osmosisPath;
+    private File workingDirectory;
+    private List<String> overrides = new ArrayList<String>();
+
+    private Pipeline pipeline;
+
+    private RunHistory history = RunHistory.getInstance();
+
+    /**
+     * Directory of the osmosis jars for in-process runs, or NULL.
+     */
+    private File libraryDirectory;
+
+    /**
+     * Creates a new runner.
+     * 
+     * @param file
+     *            the pipeline, either a OSMembrane file or any importable
+     *            {@link FileType}
+     * @param osmosisPath
+     *            path to the osmosis executable
+     * @param workingDirectory
+     *            working directory of osmosis
+     */
+    public PipelineRunner(File file, String osmosisPath, File workingDirectory) {
+        this.file = file;
+        this.osmosisPath = osmosisPath;
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Overrides the value of a parameter after the pipeline is loaded. The
+     * override looks like &lt;task&gt;[#&lt;n&gt;].&lt;parameter&gt;=&lt;value&gt;
+     * where the task is the name or short name of the active task, without
+     * #n all functions with that task are changed, otherwise only the n-th
+     * one.
+     * 
+     * @param override
+     *            the override as described above
+     */
+    public void addOverride(String override) {
+        overrides.add(override);
+    }
+
+    /**
+     * Sets the history the run is recorded in, by default the history in the
+     * user folder.
+     * 
+     * @param history
+     *            the history or NULL if the run should not be recorded
+     */
+    public void setHistory(RunHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Lets osmosis run in-process, see {@link InProcessOsmosis}. Pipelines
+     * which do not fit into the free heap are still executed in their own
+     * JVM.
+     * 
+     * @param libraryDirectory
+     *            directory with the jars of osmosis, or NULL to always start
+     *            a process
+     */
+    public void setInProcess(File libraryDirectory) {
+        this.libraryDirectory = libraryDirectory;
+    }
+
+    /**
+     * @return the pipeline file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the working directory of osmosis, may be NULL
+     */
+    public File getWorkingDirectory() {
+        return workingDirectory;
+    }
+
+    /**
+     * @return the pipeline of the last {@link #prepare(PrintStream)}, NULL
+     *         if it has not been called yet
+     */
+    public Pipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Loads the pipeline and applies all overrides.
+     * 
+     * @param log
+     *            stream for the description of problems
+     * @return arguments for osmosis, NULL if the pipeline can not be executed
+     */
+    public List<String> prepare(PrintStream log) {
+        I18N i18n = I18N.getInstance();
+
+        pipeline = new Pipeline(true, true);
+        try {
+            FileType type = FileType.fileTypeFor(file);
+            if (!file.isFile()) {
+                throw new FileException(FileException.Type.NOT_FOUND);
+            } else if (type == null) {
+                throw new FileException(FileException.Type.WRONG_FORMAT);
+            } else if (type == FileType.OSMEMBRANE) {
+                pipeline.loadPipeline(file.toURI().toURL());
+            } else {
+                pipeline.importPipeline(file.toURI().toURL(), type);
+            }
+        } catch (FileException e) {
+            log.println(i18n.getString("Tools.PipelineRunner.LoadFailed",
+                    file, e.getType()));
+            return null;
+        } catch (MalformedURLException e) {
+            log.println(i18n.getString("Tools.PipelineRunner.LoadFailed",
+                    file, e.getMessage()));
+            return null;
+        }
+
+        for (String override : overrides) {
+            if (!applyOverride(override, log)) {
+                return null;
+            }
+        }
+
+        if (!pipeline.isComplete()) {
+            for (AbstractFunction function : pipeline.getFunctions()) {
+                if (function.isComplete()) {
+                    continue;
+                }
+                String invalid = getInvalidParameters(function);
+                if (invalid.isEmpty()) {
+                    log.println(i18n.getString(
+                            "Tools.PipelineRunner.Unconnected", function
+                                    .getActiveTask().getName()));
+                } else {
+                    log.println(i18n.getString(
+                            "Tools.PipelineRunner.Incomplete", function
+                                    .getActiveTask().getName(), invalid));
+                }
+            }
+            return null;
+        }
+
+        return pipeline.generateArguments(FileType.EXECUTION_FILETYPE);
+    }
+
+    /**
+     * Executes the pipeline and waits until osmosis is finished.
+     * 
+     * @param log
+     *            stream the output of osmosis is written to
+     * @return the exit code of osmosis, {@link #EXIT_INVALID} or
+     *         {@link #EXIT_NOT_STARTED}
+     */
+    public int run(PrintStream log) {
+        List<String> parameters = prepare(log);
+        if (parameters == null) {
+            return EXIT_INVALID;
+        }
+
+        JvmSizing jvmSizing = JvmSizing.recommend(pipeline.estimateResources(),
+                pipeline.getSettings(), workingDirectory);
+
+        InProcessOsmosis inProcess = null;
+        if (libraryDirectory != null) {
+            try {
+                inProcess = InProcessOsmosis.getInstance(libraryDirectory);
+            } catch (IOException e) {
+                log.println(e.getMessage());
+                return EXIT_NOT_STARTED;
+            }
+            if (inProcess.canRun(jvmSizing)) {
+                parameters = InProcessOsmosis.getArguments(pipeline,
+                        workingDirectory);
+                log.println(I18N.getInstance().getString(
+                        "Tools.PipelineExecutor.InProcess", libraryDirectory,
+                        inProcess.getRuns()));
+            } else {
+                inProcess = null;
+            }
+        }
+        if (inProcess == null) {
+            log.println(I18N.getInstance().getString(
+                    "Tools.PipelineExecutor.JvmOptions", jvmSizing.getOptions()));
+        }
+
+        RunRecord record = RunRecord.create(file.getAbsolutePath(), Arrays
+                .asList(pipeline.getFunctions()), workingDirectory);
+        OsmosisProgress progress = new OsmosisProgress(System
+                .currentTimeMillis());
+        record.start(System.currentTimeMillis(), Collections
+                .singletonList(parameters));
+
+        final Process process;
+        try {
+            if (inProcess != null) {
+                process = inProcess.start(parameters);
+            } else {
+                List<String> cmdLine = new ArrayList<String>(
+                        parameters.size() + 1);
+                cmdLine.add(osmosisPath);
+                cmdLine.addAll(parameters);
+
+                ProcessBuilder processBuilder = new ProcessBuilder(cmdLine);
+                jvmSizing.apply(processBuilder.environment());
+                process = processBuilder.directory(workingDirectory)
+                        .redirectErrorStream(true).start();
+            }
+        } catch (IOException e) {
+            log.println(I18N.getInstance().getString(
+                    "Tools.PipelineRunner.NotStarted", osmosisPath,
+                    e.getMessage()));
+            return EXIT_NOT_STARTED;
+        }
+
+        /* a killed runner (e.g. by a cron timeout) must not leave osmosis */
+        Thread killer = new Thread() {
+            @Override
+            public void run() {
+                process.destroy();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(killer);
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    process.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                progress.parse(line, System.currentTimeMillis());
+                log.println(line);
+            }
+            int exitCode = process.waitFor();
+            saveRecord(record, exitCode, progress, log);
+            return exitCode;
+        } catch (IOException e) {
+            process.destroy();
+            return EXIT_NOT_STARTED;
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            return EXIT_NOT_STARTED;
+        } finally {
+            log.flush();
+            try {
+                Runtime.getRuntime().removeShutdownHook(killer);
+            } catch (IllegalStateException e) {
+                /* already shutting down, the hook does its job */
+            }
+        }
+    }
+
+    /**
+     * Executes the pipeline every time its inputs have changed, until the
+     * thread is interrupted. The pipeline is loaded again for every
+     * execution, see {@link InputWatcher}.
+     * 
+     * @param log
+     *            stream the output of osmosis and of the watcher is written
+     *            to
+     * @param minimumInterval
+     *            minimum time between two executions in milliseconds
+     * @return {@link #EXIT_INVALID} if the pipeline could not be loaded or
+     *         has no inputs, otherwise 0 when the watching has ended
+     */
+    public int watch(final PrintStream log, long minimumInterval) {
+        if (prepare(log) == null) {
+            return EXIT_INVALID;
+        }
+        List<File> inputs = InputWatcher.getInputs(Arrays.asList(pipeline
+                .getFunctions()), workingDirectory);
+        if (inputs.isEmpty()) {
+            log.println(I18N.getInstance().getString(
+                    "Tools.InputWatcher.NoInputs"));
+            return EXIT_INVALID;
+        }
+
+        InputWatcher watcher = new InputWatcher(inputs,
+                new InputWatcher.Target() {
+
+                    private Thread execution;
+
+                    @Override
+                    public boolean isRunning() {
+                        return (execution != null && execution.isAlive());
+                    }
+
+                    @Override
+                    public void execute(List<File> changed) {
+                        execution = new Thread() {
+                            @Override
+                            public void run() {
+                                int exitCode = PipelineRunner.this.run(log);
+                                log.println(I18N.getInstance().getString(
+                                        "Tools.InputWatcher.Finished",
+                                        exitCode));
+                            }
+                        };
+                        execution.start();
+                    }
+
+                    @Override
+                    public void report(String message) {
+                        log.println(message);
+                    }
+                });
+        watcher.setMinimumInterval(minimumInterval);
+        watcher.run();
+        return 0;
+    }
+
+    /**
+     * Completes the record of the run and adds it to the history. A
+     * successful run is compared with the previous one.
+     */
+    private void saveRecord(RunRecord record, int exitCode,
+            OsmosisProgress progress, PrintStream log) {
+        if (history == null) {
+            return;
+        }
+
+        record.finish(System.currentTimeMillis(), exitCode, Collections
+                .singletonList(progress));
+        try {
+            RunHistory.Comparison comparison = history.appendAndCompare(record);
+            if (comparison != null && record.isSuccessful()) {
+                for (String line : comparison.describe()) {
+                    log.println(line);
+                }
+            }
+        } catch (IOException e) {
+            /* the history is only an addition to the run */
+        }
+    }
+
+    /**
+     * Applies a single override to the loaded pipeline.
+     */
+    private boolean applyOverride(String override, PrintStream log) {
+        I18N i18n = I18N.getInstance();
+
+        int assign = override.indexOf('=');
+        int dot = (assign < 0 ? -1 : override.lastIndexOf('.', assign));
+        if (dot <= 0) {
+            log.println(i18n.getString("Tools.PipelineRunner.InvalidOverride",
+                    override));
+            return false;
+        }
+
+        String taskName = override.substring(0, dot);
+        String parameterName = override.substring(dot + 1, assign);
+        String value = override.substring(assign + 1);
+
+        int index = 0;
+        int hash = taskName.lastIndexOf('#');
+        if (hash > 0) {
+            try {
+                index = Integer.parseInt(taskName.substring(hash + 1));
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+            taskName = taskName.substring(0, hash);
+            if (index < 1) {
+                log.println(i18n.getString(
+                        "Tools.PipelineRunner.InvalidOverride", override));
+                return false;
+            }
+        }
+
+        boolean found = false;
+        int count = 0;
+        for (AbstractFunction function : pipeline.getFunctions()) {
+            AbstractTask task = function.getActiveTask();
+            if (!taskName.equals(task.getName())
+                    && !taskName.equals(task.getShortName())) {
+                continue;
+            }
+            count++;
+            if (index != 0 && index != count) {
+                continue;
+            }
+
+            for (AbstractParameter parameter : task.getParameters()) {
+                if (parameter.getName().equals(parameterName)) {
+                    if (!parameter.validate(value)) {
+                        log.println(i18n.getString(
+                                "Tools.PipelineRunner.InvalidValue", value,
+                                override));
+                        return false;
+                    }
+                    parameter.setValue(value);
+                    found = true;
+                }
+            }
+        }
+
+        if (!found) {
+            log.println(i18n.getString(
+                    "Tools.PipelineRunner.UnknownParameter", override));
+        }
+        return found;
+    }
+
+    /**
+     * @return comma separated names of the parameters without a valid value
+     */
+    private String getInvalidParameters(AbstractFunction function) {
+        StringBuilder missing = new StringBuilder();
+        for (AbstractParameter parameter : function.getActiveTask()
+                .getParameters()) {
+            if (!parameter.isValid()) {
+                if (missing.length() > 0) {
+                    missing.append(", ");
+                }
+                missing.append(parameter.getName());
+            }
+        }
+        return missing.toString();
+    }
+}
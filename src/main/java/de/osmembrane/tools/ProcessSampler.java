@@ -0,0 +1,480 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Samples CPU time, resident memory, I/O and threads of a group of processes
+ * including all their child processes from the /proc file system. Where /proc
+ * is not available no samples are taken.
+ * 
+ * @author agent
+ */
+public class ProcessSampler {
+
+    /**
+     * maximum count of retained samples, when it is reached every second
+     * sample is dropped and the interval of the new samples is doubled
+     */
+    private static final int MAX_SAMPLES = 720;
+
+    /**
+     * clock ticks per second of the CPU times in /proc/[pid]/stat, this is
+     * 100 on all common Linux systems
+     */
+    private static final int CLOCK_TICKS = 100;
+
+    private static final File PROC = new File("/proc");
+
+    /**
+     * A single sample of the whole process tree.
+     */
+    public static class Sample {
+
+        private long time;
+        private long cpuTime;
+        private double cpuUsage;
+        private long rss;
+        private long readBytes;
+        private long writeBytes;
+        private int threads;
+
+        /**
+         * @return time of the sample in milliseconds since the start
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * @return used CPU time in milliseconds
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        /**
+         * @return used cores since the previous sample, e.g. 1.5 for one and a
+         *         half fully used cores
+         */
+        public double getCpuUsage() {
+            return cpuUsage;
+        }
+
+        /**
+         * @return resident memory in bytes
+         */
+        public long getRss() {
+            return rss;
+        }
+
+        /**
+         * @return read bytes from the storage layer, -1 if unknown
+         */
+        public long getReadBytes() {
+            return readBytes;
+        }
+
+        /**
+         * @return written bytes to the storage layer, -1 if unknown
+         */
+        public long getWriteBytes() {
+            return writeBytes;
+        }
+
+        /**
+         * @return count of threads
+         */
+        public int getThreads() {
+            return threads;
+        }
+    }
+
+    private long started;
+    private Set<Integer> roots = new HashSet<Integer>();
+    private List<Sample> samples = new ArrayList<Sample>();
+
+    /**
+     * only every n-th sample is retained, see {@link #MAX_SAMPLES}
+     */
+    private int stride = 1;
+    private int skipped = 0;
+
+    private Sample previous;
+
+    /**
+     * Creates a new sampler.
+     * 
+     * @param started
+     *            start time of the execution in milliseconds
+     */
+    public ProcessSampler(long started) {
+        this.started = started;
+    }
+
+    /**
+     * @return true if the processes can be sampled on this system
+     */
+    public static boolean isAvailable() {
+        return new File(PROC, "self/stat").canRead();
+    }
+
+    /**
+     * Returns the process id of a started process.
+     * 
+     * @param process
+     *            the process
+     * @return the id or -1 if it is unknown
+     */
+    public static int getPid(Process process) {
+        try {
+            /* Java 9 and later */
+            Method pid = Process.class.getMethod("pid");
+            return ((Long) pid.invoke(process)).intValue();
+        } catch (Exception e) {
+            /* Java 8 on unix systems */
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Adds a process, it is sampled together with all of its children.
+     * 
+     * @param process
+     *            the process
+     */
+    public synchronized void addProcess(Process process) {
+        int pid = getPid(process);
+        if (pid > 0) {
+            roots.add(pid);
+        }
+    }
+
+    /**
+     * Takes a sample of all processes.
+     * 
+     * @param time
+     *            current time in milliseconds
+     * @return the sample or NULL if the processes can not be sampled
+     */
+    public synchronized Sample sample(long time) {
+        if (roots.isEmpty() || !isAvailable()) {
+            return null;
+        }
+
+        Map<Integer, long[]> stats = (hasChildrenFiles() ? readTree()
+                : readAll());
+        Set<Integer> tree = new HashSet<Integer>();
+        for (int root : roots) {
+            if (stats.containsKey(root)) {
+                tree.add(root);
+            }
+        }
+
+        /* add the children until no new one is found */
+        boolean added = !tree.isEmpty();
+        while (added) {
+            added = false;
+            for (Map.Entry<Integer, long[]> entry : stats.entrySet()) {
+                if (!tree.contains(entry.getKey())
+                        && tree.contains((int) entry.getValue()[0])) {
+                    tree.add(entry.getKey());
+                    added = true;
+                }
+            }
+        }
+
+        Sample sample = new Sample();
+        sample.time = time - started;
+        for (int pid : tree) {
+            long[] stat = stats.get(pid);
+            sample.cpuTime += (stat[1] * 1000) / CLOCK_TICKS;
+            sample.threads += stat[2];
+            sample.rss += readStatus(pid);
+            long[] io = readIo(pid);
+            if (io == null || sample.readBytes < 0) {
+                sample.readBytes = -1;
+                sample.writeBytes = -1;
+            } else {
+                sample.readBytes += io[0];
+                sample.writeBytes += io[1];
+            }
+        }
+
+        if (previous != null && sample.time > previous.time) {
+            /* children which finished without being waited for are lost */
+            sample.cpuUsage = Math.max(0.0,
+                    (double) (sample.cpuTime - previous.cpuTime)
+                            / (sample.time - previous.time));
+        }
+        previous = sample;
+
+        retain(sample);
+        return sample;
+    }
+
+    /**
+     * @return the retained samples, in an evenly spaced but growing interval
+     */
+    public synchronized List<Sample> getSamples() {
+        return new ArrayList<Sample>(samples);
+    }
+
+    /**
+     * Writes the retained samples as comma separated values.
+     * 
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file could not be written
+     */
+    public void writeSamples(File file) throws IOException {
+        PrintWriter writer = new PrintWriter(file, "UTF-8");
+        try {
+            writer.println("time_ms,cpu_ms,cpu_cores,rss_bytes,"
+                    + "read_bytes,write_bytes,threads");
+            for (Sample sample : getSamples()) {
+                writer.println(sample.time + "," + sample.cpuTime + ","
+                        + String.format("%.2f", sample.cpuUsage) + ","
+                        + sample.rss + "," + sample.readBytes + ","
+                        + sample.writeBytes + "," + sample.threads);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Retains every stride-th sample and thins the series out when it is full.
+     */
+    private void retain(Sample sample) {
+        if (++skipped < stride) {
+            return;
+        }
+        skipped = 0;
+        samples.add(sample);
+
+        if (samples.size() >= MAX_SAMPLES) {
+            List<Sample> thinned = new ArrayList<Sample>(MAX_SAMPLES);
+            for (int i = 0; i < samples.size(); i += 2) {
+                thinned.add(samples.get(i));
+            }
+            samples = thinned;
+            stride *= 2;
+        }
+    }
+
+    /**
+     * @return true if the kernel lists the children of each thread, then only
+     *         the process tree has to be read instead of all processes
+     */
+    private boolean hasChildrenFiles() {
+        String[] tasks = new File(PROC, "self/task").list();
+        return (tasks != null && tasks.length > 0 && new File(PROC, "self/task/"
+                + tasks[0] + "/children").canRead());
+    }
+
+    /**
+     * Reads the stat of the sampled processes and all their children.
+     */
+    private Map<Integer, long[]> readTree() {
+        Map<Integer, long[]> stats = new HashMap<Integer, long[]>();
+        List<Integer> pending = new ArrayList<Integer>(roots);
+        while (!pending.isEmpty()) {
+            int pid = pending.remove(pending.size() - 1);
+            long[] stat = readStat(pid);
+            if (stat == null || stats.containsKey(pid)) {
+                continue;
+            }
+            stats.put(pid, stat);
+
+            String[] tasks = new File(PROC, pid + "/task").list();
+            if (tasks == null) {
+                continue;
+            }
+            for (String task : tasks) {
+                String children = readLine(new File(PROC, pid + "/task/"
+                        + task + "/children"));
+                if (children == null) {
+                    continue;
+                }
+                for (String child : children.trim().split(" ")) {
+                    if (!child.isEmpty()) {
+                        pending.add(Integer.valueOf(child));
+                    }
+                }
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the stat of all processes of the system.
+     */
+    private Map<Integer, long[]> readAll() {
+        Map<Integer, long[]> stats = new HashMap<Integer, long[]>();
+        String[] names = PROC.list();
+        if (names == null) {
+            return stats;
+        }
+
+        for (String name : names) {
+            if (name.isEmpty() || !Character.isDigit(name.charAt(0))) {
+                continue;
+            }
+            int pid = Integer.parseInt(name);
+            long[] stat = readStat(pid);
+            if (stat != null) {
+                stats.put(pid, stat);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the parent, the CPU time including the finished children and the
+     * thread count of a process.
+     * 
+     * @return the values or NULL if the process has already finished
+     */
+    private long[] readStat(int pid) {
+        String line = readLine(new File(PROC, pid + "/stat"));
+        if (line == null) {
+            return null;
+        }
+
+        /* the command may contain spaces and braces */
+        int end = line.lastIndexOf(')');
+        if (end < 0) {
+            return null;
+        }
+        String[] fields = line.substring(end + 2).split(" ");
+        if (fields.length < 18) {
+            return null;
+        }
+        try {
+            /* fields start with the state, see proc(5) */
+            long ppid = Long.parseLong(fields[1]);
+            long cpu = Long.parseLong(fields[11]) + Long.parseLong(fields[12])
+                    + Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+            long threads = Long.parseLong(fields[17]);
+            return new long[] { ppid, cpu, threads };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return resident memory of a process in bytes
+     */
+    private long readStatus(int pid) {
+        BufferedReader reader = open(new File(PROC, pid + "/status"));
+        if (reader == null) {
+            return 0;
+        }
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] fields = line.substring(6).trim().split("\\s+");
+                    return Long.parseLong(fields[0]) * 1024;
+                }
+            }
+        } catch (IOException e) {
+            /* the process has finished in between */
+        } catch (NumberFormatException e) {
+            /* unknown format */
+        } finally {
+            close(reader);
+        }
+        return 0;
+    }
+
+    /**
+     * @return read and written bytes of a process or NULL if they can not be
+     *         read
+     */
+    private long[] readIo(int pid) {
+        BufferedReader reader = open(new File(PROC, pid + "/io"));
+        if (reader == null) {
+            return null;
+        }
+        try {
+            long[] io = new long[] { -1, -1 };
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("read_bytes:")) {
+                    io[0] = Long.parseLong(line.substring(11).trim());
+                } else if (line.startsWith("write_bytes:")) {
+                    io[1] = Long.parseLong(line.substring(12).trim());
+                }
+            }
+            return (io[0] < 0 || io[1] < 0 ? null : io);
+        } catch (IOException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        } finally {
+            close(reader);
+        }
+    }
+
+    private String readLine(File file) {
+        BufferedReader reader = open(file);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            return reader.readLine();
+        } catch (IOException e) {
+            return null;
+        } finally {
+            close(reader);
+        }
+    }
+
+    private BufferedReader open(File file) {
+        try {
+            return new BufferedReader(new FileReader(file));
+        } catch (IOException e) {
+            /* not readable or already gone */
+            return null;
+        }
+    }
+
+    private void close(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            /* nothing to do */
+        }
+    }
+}
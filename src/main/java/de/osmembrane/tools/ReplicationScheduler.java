@@ -0,0 +1,575 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TimeZone;
+
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.resources.Constants;
+
+/**
+ * Executes replication pipelines (e.g. with read-replication-interval)
+ * periodically, so a local extract can be kept up to date without a cron
+ * job. Before every run the lag of the replication directory is determined
+ * from its state file and the state file of the server. If it is behind by
+ * several intervals, the maxInterval of the configuration is raised for that
+ * run to read them at once, and the pipeline is executed again right away as
+ * long as it catches up.<br/>
+ * <br/>
+ * Runs of the same replication directory never overlap, also not with other
+ * processes, the directory is locked while a pipeline is executed. The runs
+ * are recorded in the {@link RunHistory} by the {@link PipelineRunner}.
+ * 
+ * @author agent
+ */
+public class ReplicationScheduler implements Runnable {
+
+    /**
+     * Maximum number of intervals read in one run.
+     */
+    public static final int MAX_BATCH = 24;
+
+    /**
+     * Files of an osmosis replication directory.
+     */
+    static final String STATE_FILE = "state.txt";
+    static final String CONFIGURATION_FILE = "configuration.txt";
+    private static final String LOCK_FILE = "osmembrane.lock";
+
+    private static final String BASE_URL_KEY = "baseUrl";
+    private static final String MAX_INTERVAL_KEY = "maxInterval";
+    private static final String TIMESTAMP_KEY = "timestamp";
+    private static final String SEQUENCE_NUMBER_KEY = "sequenceNumber";
+
+    /**
+     * Tasks which keep their state in a replication directory.
+     */
+    private static final List<String> REPLICATION_TASKS = Arrays.asList(
+            "read-replication-interval", "read-change-interval",
+            "merge-replication-files");
+
+    private static final String DIRECTORY_PARAMETER = "workingDirectory";
+
+    /**
+     * Milliseconds to wait for the replication server, the lag is read
+     * while the replication directory is locked.
+     */
+    static final int SERVER_TIMEOUT = 3000;
+
+    /**
+     * A scheduled pipeline.
+     */
+    public static class Job {
+
+        private PipelineRunner runner;
+        private File directory;
+        private long period;
+        private long nextRun;
+
+        private int exitCode = -1;
+        private long lag = -1;
+
+        private Job(PipelineRunner runner, File directory, long period) {
+            this.runner = runner;
+            this.directory = directory;
+            this.period = period;
+        }
+
+        /**
+         * @return the name of the pipeline
+         */
+        public String getName() {
+            return runner.getFile().getName();
+        }
+
+        /**
+         * @return the replication directory of the pipeline
+         */
+        public File getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return the time between two regular runs in milliseconds
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+        /**
+         * @return the time of the next run in milliseconds
+         */
+        public long getNextRun() {
+            return nextRun;
+        }
+
+        /**
+         * @return the exit code of the last run, -1 if it has not run yet
+         */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * @return the lag after the last run in milliseconds, -1 if unknown
+         */
+        public long getLag() {
+            return lag;
+        }
+    }
+
+    private List<Job> jobs = new ArrayList<Job>();
+
+    private PrintStream log;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * Creates a new scheduler without any jobs.
+     * 
+     * @param log
+     *            stream the output of the runs and of the scheduler is
+     *            written to
+     */
+    public ReplicationScheduler(PrintStream log) {
+        this.log = log;
+    }
+
+    /**
+     * Schedules a pipeline, it is executed the first time when the scheduler
+     * is started.
+     * 
+     * @param runner
+     *            the runner of the pipeline
+     * @param period
+     *            time between two runs in milliseconds, or 0 for the
+     *            maxInterval of the replication directory
+     * @return the job, or NULL if the pipeline could not be loaded or has no
+     *         replication task
+     */
+    public Job add(PipelineRunner runner, long period) {
+        if (runner.prepare(log) == null) {
+            return null;
+        }
+
+        File directory = getReplicationDirectory(Arrays.asList(runner
+                .getPipeline().getFunctions()), runner.getWorkingDirectory());
+        if (directory == null) {
+            log.println(I18N.getInstance().getString(
+                    "Tools.ReplicationScheduler.NoReplication",
+                    runner.getFile()));
+            return null;
+        }
+
+        if (period <= 0) {
+            long maxInterval = getMaxInterval(directory);
+            period = (maxInterval > 0 ? maxInterval
+                    : Constants.DEFAULT_REPLICATION_PERIOD * 1000L);
+        }
+
+        Job job = new Job(runner, directory, period);
+        jobs.add(job);
+        log.println(I18N.getInstance().getString(
+                "Tools.ReplicationScheduler.Scheduled", job.getName(),
+                period / 1000, directory));
+        return job;
+    }
+
+    /**
+     * @return the scheduled jobs
+     */
+    public List<Job> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Executes the jobs until {@link #stop()} is called. One job is executed
+     * at a time, the one which is due first.
+     */
+    @Override
+    public void run() {
+        while (!stopped) {
+            Job next = null;
+            for (Job job : jobs) {
+                if (next == null || job.nextRun < next.nextRun) {
+                    next = job;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+
+            long delay = next.nextRun - System.currentTimeMillis();
+            if (delay > 0) {
+                synchronized (this) {
+                    try {
+                        if (!stopped) {
+                            wait(delay);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            execute(next, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Stops the scheduler after the running job, can be called from any
+     * thread.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Executes a job once and schedules its next run.
+     * 
+     * @param job
+     *            the job
+     * @param now
+     *            the current time in milliseconds
+     */
+    void execute(Job job, long now) {
+        I18N i18n = I18N.getInstance();
+        job.nextRun = now + job.period;
+
+        RandomAccessFile lockFile = null;
+        FileLock lock = null;
+        try {
+            lockFile = new RandomAccessFile(new File(job.directory, LOCK_FILE),
+                    "rw");
+            FileChannel channel = lockFile.getChannel();
+            lock = channel.tryLock();
+        } catch (IOException e) {
+            /* the directory is not usable, osmosis reports why */
+        } catch (OverlappingFileLockException e) {
+            /* locked by this process */
+        }
+        if (lockFile != null && lock == null) {
+            log.println(i18n.getString("Tools.ReplicationScheduler.Locked",
+                    job.getName(), job.directory));
+            close(lockFile);
+            return;
+        }
+
+        File configuration = new File(job.directory, CONFIGURATION_FILE);
+        byte[] original = null;
+        try {
+            Properties before = readState(job.directory);
+            long lag = getLag(job.directory, now);
+            long maxInterval = getMaxInterval(job.directory);
+
+            int batch = getBatch(lag, maxInterval);
+            if (batch > 1) {
+                original = read(configuration);
+                setMaxInterval(configuration, original, maxInterval * batch);
+                log.println(i18n.getString("Tools.ReplicationScheduler.Lag",
+                        job.getName(), formatLag(lag), batch));
+            }
+
+            job.exitCode = job.runner.run(log);
+
+            Properties after = readState(job.directory);
+            job.lag = getLag(job.directory, System.currentTimeMillis());
+            String sequenceBefore = getSequenceNumber(before);
+            String sequenceAfter = getSequenceNumber(after);
+            log.println(i18n.getString("Tools.ReplicationScheduler.Finished",
+                    job.getName(), job.exitCode, sequenceBefore,
+                    sequenceAfter, formatLag(job.lag)));
+
+            /* catch up without waiting as long as the runs make progress */
+            if (job.exitCode == 0 && !sequenceAfter.equals(sequenceBefore)
+                    && job.lag > job.period) {
+                job.nextRun = now;
+                log.println(i18n.getString(
+                        "Tools.ReplicationScheduler.CatchingUp", job.getName()));
+            }
+        } catch (IOException e) {
+            log.println(i18n.getString(
+                    "Tools.ReplicationScheduler.ConfigurationFailed",
+                    configuration, e.getMessage()));
+        } finally {
+            if (original != null) {
+                try {
+                    write(configuration, original);
+                } catch (IOException e) {
+                    log.println(i18n.getString(
+                            "Tools.ReplicationScheduler.ConfigurationFailed",
+                            configuration, e.getMessage()));
+                }
+            }
+            if (lock != null) {
+                try {
+                    lock.release();
+                } catch (IOException e) {
+                    /* released with the file anyway */
+                }
+            }
+            close(lockFile);
+        }
+    }
+
+    /**
+     * Returns the replication directory of a pipeline.
+     * 
+     * @param functions
+     *            the functions of the pipeline
+     * @param workingDirectory
+     *            directory a relative replication directory is resolved
+     *            against, or NULL
+     * @return the directory of the first replication task, NULL if there is
+     *         none
+     */
+    public static File getReplicationDirectory(
+            List<AbstractFunction> functions, File workingDirectory) {
+        for (AbstractFunction function : functions) {
+            if (!REPLICATION_TASKS.contains(function.getActiveTask()
+                    .getName())) {
+                continue;
+            }
+            for (AbstractParameter param : function.getActiveTask()
+                    .getParameters()) {
+                if (!param.getName().equals(DIRECTORY_PARAMETER)) {
+                    continue;
+                }
+                String value = (param.isDefaultValue() ? param
+                        .getDefaultValue() : param.getValue());
+                if (value == null || value.length() == 0) {
+                    value = ".";
+                }
+                File directory = new File(value);
+                if (!directory.isAbsolute() && workingDirectory != null) {
+                    directory = new File(workingDirectory, value);
+                }
+                return directory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how far a replication directory is behind. This is the
+     * difference to the timestamp of the server, or to the current time if
+     * the server is not reachable.
+     * 
+     * @param directory
+     *            the replication directory
+     * @param now
+     *            the current time in milliseconds
+     * @return the lag in milliseconds, -1 if unknown
+     */
+    static long getLag(File directory, long now) {
+        try {
+            long local = getTimestamp(readState(directory));
+            if (local < 0) {
+                return -1;
+            }
+
+            long remote = -1;
+            String baseUrl = readProperties(
+                    new File(directory, CONFIGURATION_FILE).toURI().toURL())
+                    .getProperty(BASE_URL_KEY);
+            if (baseUrl != null && baseUrl.length() > 0) {
+                try {
+                    remote = getTimestamp(readProperties(new URL(baseUrl
+                            .replaceAll("/+$", "")
+                            + "/" + STATE_FILE)));
+                } catch (IOException e) {
+                    /* no answer from the server, compare with now */
+                }
+            }
+            return Math.max(0, (remote < 0 ? now : remote) - local);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the number of intervals which are read in one run.
+     * 
+     * @param lag
+     *            the lag in milliseconds, -1 if unknown
+     * @param maxInterval
+     *            the configured interval of a run in milliseconds, -1 if
+     *            unknown
+     * @return the number between 1 and {@link #MAX_BATCH}
+     */
+    static int getBatch(long lag, long maxInterval) {
+        if (lag <= maxInterval || maxInterval <= 0) {
+            return 1;
+        }
+        long batch = (lag + maxInterval - 1) / maxInterval;
+        return (int) Math.min(batch, MAX_BATCH);
+    }
+
+    /**
+     * @return the maxInterval of the configuration in milliseconds, -1 if
+     *         there is none
+     */
+    static long getMaxInterval(File directory) {
+        try {
+            String value = readProperties(
+                    new File(directory, CONFIGURATION_FILE).toURI().toURL())
+                    .getProperty(MAX_INTERVAL_KEY);
+            return (value == null ? -1 : Long.parseLong(value.trim()) * 1000L);
+        } catch (IOException e) {
+            return -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Writes the configuration with another maxInterval, all other lines
+     * are kept.
+     */
+    private static void setMaxInterval(File configuration, byte[] original,
+            long maxInterval) throws IOException {
+        String[] lines = new String(original, "ISO-8859-1").split("\n", -1);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.trim().matches(MAX_INTERVAL_KEY + "\\s*[=:].*")) {
+                line = MAX_INTERVAL_KEY + "=" + (maxInterval / 1000)
+                        + (line.endsWith("\r") ? "\r" : "");
+            }
+            content.append(line);
+            if (i < lines.length - 1) {
+                content.append('\n');
+            }
+        }
+        write(configuration, content.toString().getBytes("ISO-8859-1"));
+    }
+
+    /**
+     * @return the timestamp of a state file in milliseconds, -1 if it has
+     *         none
+     */
+    private static long getTimestamp(Properties state) {
+        String value = state.getProperty(TIMESTAMP_KEY);
+        if (value == null) {
+            return -1;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(
+                "yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value.trim()).getTime();
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static String getSequenceNumber(Properties state) {
+        String value = state.getProperty(SEQUENCE_NUMBER_KEY);
+        return (value == null ? "-" : value.trim());
+    }
+
+    private static String formatLag(long lag) {
+        if (lag < 0) {
+            return I18N.getInstance().getString("Tools.RunHistory.Unknown");
+        }
+        return String.valueOf(lag / 60000);
+    }
+
+    /**
+     * @return the state file of a replication directory, empty if it does
+     *         not exist yet
+     */
+    private static Properties readState(File directory) {
+        try {
+            return readProperties(new File(directory, STATE_FILE).toURI()
+                    .toURL());
+        } catch (IOException e) {
+            return new Properties();
+        }
+    }
+
+    /**
+     * Reads a state or configuration file, they are property files.
+     */
+    private static Properties readProperties(URL url) throws IOException {
+        Properties properties = new Properties();
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(SERVER_TIMEOUT);
+        connection.setReadTimeout(SERVER_TIMEOUT);
+        InputStream stream = connection.getInputStream();
+        try {
+            properties.load(stream);
+        } finally {
+            stream.close();
+        }
+        return properties;
+    }
+
+    private static byte[] read(File file) throws IOException {
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < content.length) {
+                int read = stream.read(content, offset, content.length
+                        - offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+        } finally {
+            stream.close();
+        }
+        return content;
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(content);
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                /* nothing left to do */
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import de.osmembrane.resources.Constants;
+
+/**
+ * Append-only store of the {@link RunRecord}s of all executions, one line
+ * per run in the runs folder of the user folder. The file is locked while a
+ * record is appended, so the view and headless runs (e.g. from a cron job)
+ * can share it.
+ * 
+ * @author agent
+ */
+public class RunHistory {
+
+    /**
+     * Relative change of the duration or the throughput which is reported
+     * as a regression.
+     */
+    public static final double REGRESSION_THRESHOLD = 0.1;
+
+    private static final String CHARSET = "UTF-8";
+
+    private static RunHistory instance;
+
+    private File file;
+
+    /**
+     * Comparison of a run with an earlier run of the same pipeline.
+     */
+    public static class Comparison {
+
+        private RunRecord baseline;
+        private RunRecord run;
+        private List<String> removedFunctions = new ArrayList<String>();
+        private List<String> addedFunctions = new ArrayList<String>();
+
+        private Comparison(RunRecord baseline, RunRecord run) {
+            this.baseline = baseline;
+            this.run = run;
+
+            /* the functions are compared as multisets of their signatures */
+            List<String> added = new ArrayList<String>(run.getFunctions());
+            for (String function : baseline.getFunctions()) {
+                if (!added.remove(function)) {
+                    removedFunctions.add(function);
+                }
+            }
+            addedFunctions = added;
+        }
+
+        /**
+         * @return the earlier run
+         */
+        public RunRecord getBaseline() {
+            return baseline;
+        }
+
+        /**
+         * @return the compared run
+         */
+        public RunRecord getRun() {
+            return run;
+        }
+
+        /**
+         * @return relative change of the duration, e.g. 0.2 if the run took
+         *         20 percent longer, NaN if unknown
+         */
+        public double getDurationChange() {
+            return change(baseline.getDuration(), run.getDuration());
+        }
+
+        /**
+         * @return relative change of the throughput, NaN if unknown
+         */
+        public double getThroughputChange() {
+            return change(baseline.getThroughput(), run.getThroughput());
+        }
+
+        /**
+         * @return true if the run is slower than the baseline by more than
+         *         the {@link RunHistory#REGRESSION_THRESHOLD}
+         */
+        public boolean isRegression() {
+            return getDurationChange() > REGRESSION_THRESHOLD
+                    || getThroughputChange() < -REGRESSION_THRESHOLD;
+        }
+
+        /**
+         * @return true if the functions or connections differ
+         */
+        public boolean isPipelineChanged() {
+            return !baseline.getFingerprint().equals(run.getFingerprint());
+        }
+
+        /**
+         * @return signatures of the functions which are only in the baseline
+         */
+        public List<String> getRemovedFunctions() {
+            return removedFunctions;
+        }
+
+        /**
+         * @return signatures of the functions which are only in the run
+         */
+        public List<String> getAddedFunctions() {
+            return addedFunctions;
+        }
+
+        /**
+         * Describes the comparison for the output of an execution.
+         * 
+         * @return the lines of the description
+         */
+        public List<String> describe() {
+            I18N i18n = I18N.getInstance();
+            String date = DateFormat.getDateTimeInstance().format(
+                    new Date(baseline.getStarted()));
+
+            List<String> lines = new ArrayList<String>();
+            lines.add(i18n.getString("Tools.RunHistory.Comparison", date,
+                    formatChange(getDurationChange()),
+                    formatChange(getThroughputChange())));
+            if (isPipelineChanged()) {
+                lines.add(i18n.getString("Tools.RunHistory.PipelineChanged",
+                        removedFunctions.size(), addedFunctions.size()));
+            }
+            if (isRegression()) {
+                lines.add(i18n.getString("Tools.RunHistory.Regression", date));
+            }
+            return lines;
+        }
+
+        private static double change(double before, double after) {
+            if (before <= 0 || after < 0) {
+                return Double.NaN;
+            }
+            return (after - before) / before;
+        }
+    }
+
+    /**
+     * Formats a relative change as signed percentage.
+     * 
+     * @param change
+     *            the change, NaN if unknown
+     * @return the formatted change
+     */
+    public static String formatChange(double change) {
+        if (Double.isNaN(change)) {
+            return I18N.getInstance().getString("Tools.RunHistory.Unknown");
+        }
+        return String.format("%+.1f %%", 100.0 * change);
+    }
+
+    /**
+     * Creates a history stored in the given file.
+     * 
+     * @param file
+     *            the file of the history, created with the first record
+     */
+    public RunHistory(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the history in the runs folder of the user folder
+     */
+    public static synchronized RunHistory getInstance() {
+        if (instance == null) {
+            File folder = new File(
+                    Tools.urlToFile(Constants.DEFAULT_USER_FOLDER),
+                    Constants.DEFAULT_RUNS_FOLDER_NAME);
+            instance = new RunHistory(new File(folder,
+                    Constants.DEFAULT_RUN_HISTORY_FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Appends a record to the history.
+     * 
+     * @param record
+     *            the finished record
+     * @throws IOException
+     *             if the history could not be written
+     */
+    public void append(RunRecord record) throws IOException {
+        file.getParentFile().mkdirs();
+        byte[] line = (record.encode() + "\n").getBytes(CHARSET);
+
+        FileOutputStream stream = new FileOutputStream(file, true);
+        try {
+            FileChannel channel = stream.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                channel.write(ByteBuffer.wrap(line));
+            } finally {
+                lock.release();
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Loads all records, broken lines (e.g. of an interrupted write) are
+     * skipped.
+     * 
+     * @return the records in the order they were appended
+     */
+    public List<RunRecord> load() {
+        List<RunRecord> records = new ArrayList<RunRecord>();
+        if (!file.isFile()) {
+            return records;
+        }
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    RunRecord record = RunRecord.decode(line);
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            /* return what could be read */
+        }
+        return records;
+    }
+
+    /**
+     * Returns the pipelines of some records.
+     * 
+     * @param records
+     *            records of {@link #load()}
+     * @return identifiers of the pipelines, sorted
+     */
+    public static List<String> getPipelines(List<RunRecord> records) {
+        List<String> pipelines = new ArrayList<String>();
+        for (RunRecord record : records) {
+            if (!pipelines.contains(record.getPipeline())) {
+                pipelines.add(record.getPipeline());
+            }
+        }
+        Collections.sort(pipelines);
+        return pipelines;
+    }
+
+    /**
+     * Returns the runs of one pipeline.
+     * 
+     * @param records
+     *            records of {@link #load()}
+     * @param pipeline
+     *            identifier of the pipeline
+     * @return the runs in the order they were appended
+     */
+    public static List<RunRecord> getRuns(List<RunRecord> records,
+            String pipeline) {
+        List<RunRecord> runs = new ArrayList<RunRecord>();
+        for (RunRecord record : records) {
+            if (record.getPipeline().equals(pipeline)) {
+                runs.add(record);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Compares a run with the last successful run before it.
+     * 
+     * @param runs
+     *            runs of one pipeline, see {@link #getRuns(List, String)}
+     * @param index
+     *            index of the compared run
+     * @return the comparison, or NULL if there is no earlier successful run
+     */
+    public static Comparison compareWithPrevious(List<RunRecord> runs,
+            int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (runs.get(i).isSuccessful()) {
+                return new Comparison(runs.get(i), runs.get(index));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares two runs.
+     * 
+     * @param baseline
+     *            the earlier run
+     * @param run
+     *            the compared run
+     * @return the comparison
+     */
+    public static Comparison compare(RunRecord baseline, RunRecord run) {
+        return new Comparison(baseline, run);
+    }
+
+    /**
+     * Appends a record to the history and compares it with the last
+     * successful run of the same pipeline.
+     * 
+     * @param record
+     *            the finished record
+     * @return the comparison, or NULL if there is no earlier successful run
+     * @throws IOException
+     *             if the history could not be written
+     */
+    public Comparison appendAndCompare(RunRecord record) throws IOException {
+        List<RunRecord> runs = getRuns(load(), record.getPipeline());
+        append(record);
+        runs.add(record);
+        return compareWithPrevious(runs, runs.size() - 1);
+    }
+}
@@ -0,0 +1,614 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.awt.event.WindowListener;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.resources.Constants;
+import de.osmembrane.view.interfaces.IExecutionStateDialog;
+
+/**
+ * Queue of pipeline executions. Several executions run at the same time, a
+ * queued execution is only started when the pool has room and the machine has
+ * a free core and enough free memory for the heap of osmosis.<br/>
+ * <br/>
+ * Queued and running executions are saved to the queue file on every change,
+ * so they are started again after a restart. Observers are notified with the
+ * changed {@link Job} or NULL if the list of jobs changed.
+ * 
+ * @author agent
+ */
+public class RunQueue extends Observable {
+
+    /**
+     * Share of the physical memory which may be reserved by the jobs.
+     */
+    private static final double MEMORY_SHARE = 0.9;
+
+    /**
+     * Megabyte in bytes.
+     */
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private static RunQueue instance = new RunQueue();
+
+    /**
+     * State of a job.
+     */
+    public enum State {
+        QUEUED, RUNNING, FINISHED, FAILED, CANCELLED
+    }
+
+    /**
+     * One execution of a pipeline. The job receives the output of its
+     * {@link PipelineExecutor} like the execution dialog does.
+     */
+    public class Job implements IExecutionStateDialog {
+
+        private Entry entry;
+        private State state = State.QUEUED;
+        private String stateText = "";
+        private int progress = 0;
+        private String statistics = "";
+        private ArrayDeque<String> log = new ArrayDeque<String>();
+        private long started;
+        private long ended;
+        private PipelineExecutor executor;
+
+        private Job(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * @return name of the executed pipeline
+         */
+        public String getName() {
+            return entry.name;
+        }
+
+        /**
+         * @return maximum heap of osmosis in megabyte
+         */
+        public double getHeap() {
+            return entry.heap;
+        }
+
+        /**
+         * @return the current state
+         */
+        public synchronized State getState() {
+            return state;
+        }
+
+        /**
+         * @return the last state reported by the executor
+         */
+        public synchronized String getStateText() {
+            return stateText;
+        }
+
+        /**
+         * @return progress in percent
+         */
+        public synchronized int getProgress() {
+            return progress;
+        }
+
+        /**
+         * @return the last statistics reported by the executor
+         */
+        public synchronized String getStatistics() {
+            return statistics;
+        }
+
+        /**
+         * @return the retained output lines
+         */
+        public synchronized List<String> getLog() {
+            return new ArrayList<String>(log);
+        }
+
+        /**
+         * @return time the job is or was running in milliseconds
+         */
+        public synchronized long getElapsed() {
+            if (started == 0) {
+                return 0;
+            }
+            return (ended != 0 ? ended : System.currentTimeMillis()) - started;
+        }
+
+        @Override
+        public void setState(String state) {
+            synchronized (this) {
+                stateText = state;
+            }
+            changed(this);
+        }
+
+        @Override
+        public void setProgress(int progress) {
+            synchronized (this) {
+                this.progress = progress;
+            }
+            changed(this);
+        }
+
+        @Override
+        public void setStatistics(String statistics) {
+            synchronized (this) {
+                this.statistics = statistics;
+            }
+            changed(this);
+        }
+
+        @Override
+        public void addThroughputSample(double throughput) {
+        }
+
+        @Override
+        public void addResourceSample(ProcessSampler.Sample sample) {
+        }
+
+        @Override
+        public void addOutputLine(String outputLine) {
+            List<String> lines = new ArrayList<String>();
+            lines.add(outputLine);
+            addOutputLines(lines);
+        }
+
+        @Override
+        public synchronized void addOutputLines(List<String> outputLines) {
+            int maximum = (Integer) ModelProxy.getInstance().getSettings()
+                    .getValue(SettingType.MAXIMUM_OUTPUT_LINES);
+            for (String line : outputLines) {
+                log.addLast(line);
+            }
+            while (log.size() > maximum) {
+                log.removeFirst();
+            }
+        }
+
+        @Override
+        public void setCloseButtonCaption(String caption) {
+        }
+
+        @Override
+        public synchronized void clear() {
+            stateText = "";
+            progress = 0;
+            statistics = "";
+            log.clear();
+        }
+
+        @Override
+        public void addWindowListener(WindowListener wl) {
+        }
+
+        @Override
+        public void removeWindowListener(WindowListener wl) {
+        }
+
+        @Override
+        public void showWindow() {
+        }
+
+        @Override
+        public void hideWindow() {
+        }
+
+        @Override
+        public void setWindowTitle(String viewTitle) {
+        }
+
+        @Override
+        public void centerWindow() {
+        }
+
+        @Override
+        public void bringToFront() {
+        }
+
+        @Override
+        public void dispose() {
+        }
+    }
+
+    /**
+     * The saved part of a job.
+     */
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = -4410387396512170871L;
+
+        private String name;
+        private String osmosisPath;
+        private String workingDirectory;
+        private ArrayList<String> parameters;
+        private double heap;
+        private JvmSizing jvmSizing;
+        private RunRecord record;
+    }
+
+    /**
+     * All jobs in the order they were added.
+     */
+    private List<Job> jobs = new ArrayList<Job>();
+
+    /**
+     * File the queue is saved to, NULL if it should not be saved.
+     */
+    private File queueFile;
+
+    private RunQueue() {
+        this(new File(Tools.urlToFile(Constants.DEFAULT_USER_FOLDER),
+                Constants.DEFAULT_QUEUE_FILE_NAME));
+    }
+
+    /**
+     * Creates a queue saved to the given file.
+     * 
+     * @param queueFile
+     *            file the queue is saved to
+     */
+    RunQueue(File queueFile) {
+        this.queueFile = queueFile;
+    }
+
+    /**
+     * @return the one and only instance of {@link RunQueue}
+     */
+    public static RunQueue getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds an execution to the queue, it is started as soon as possible.
+     * 
+     * @param name
+     *            name of the pipeline
+     * @param osmosisPath
+     *            path to the osmosis executable
+     * @param workingDirectory
+     *            working directory of osmosis
+     * @param parameters
+     *            generated parameters of the pipeline
+     * @param jvmSizing
+     *            heap and options of the osmosis JVM
+     * @param record
+     *            record of the execution for the {@link RunHistory}, or NULL
+     * @return the new job
+     */
+    public Job add(String name, String osmosisPath, String workingDirectory,
+            List<String> parameters, JvmSizing jvmSizing, RunRecord record) {
+        Entry entry = new Entry();
+        entry.name = name;
+        entry.osmosisPath = osmosisPath;
+        entry.workingDirectory = workingDirectory;
+        entry.parameters = new ArrayList<String>(parameters);
+        entry.heap = jvmSizing.getHeap();
+        entry.jvmSizing = jvmSizing;
+        entry.record = record;
+
+        Job job = new Job(entry);
+        synchronized (this) {
+            jobs.add(job);
+        }
+        changed(null);
+        schedule();
+        return job;
+    }
+
+    /**
+     * @return all jobs in the order they were added
+     */
+    public synchronized List<Job> getJobs() {
+        return new ArrayList<Job>(jobs);
+    }
+
+    /**
+     * Cancels a job, a queued job is not started anymore.
+     * 
+     * @param job
+     *            the job to cancel
+     */
+    public void cancel(Job job) {
+        PipelineExecutor executor = null;
+        synchronized (this) {
+            synchronized (job) {
+                if (job.state == State.QUEUED) {
+                    job.state = State.CANCELLED;
+                } else if (job.state == State.RUNNING) {
+                    executor = job.executor;
+                    job.state = State.CANCELLED;
+                }
+            }
+        }
+        if (executor != null) {
+            executor.cancel();
+        }
+        changed(job);
+        save();
+    }
+
+    /**
+     * Removes all jobs which are not queued or running anymore.
+     */
+    public void removeCompleted() {
+        synchronized (this) {
+            List<Job> remaining = new ArrayList<Job>();
+            for (Job job : jobs) {
+                State state = job.getState();
+                if (state == State.QUEUED || state == State.RUNNING) {
+                    remaining.add(job);
+                }
+            }
+            jobs = remaining;
+        }
+        changed(null);
+    }
+
+    /**
+     * Loads the queue file and starts the saved jobs.
+     */
+    @SuppressWarnings("unchecked")
+    public void load() {
+        if (!queueFile.isFile()) {
+            return;
+        }
+
+        List<Entry> entries;
+        try {
+            ObjectInputStream input = new ObjectInputStream(
+                    new FileInputStream(queueFile));
+            try {
+                entries = (List<Entry>) input.readObject();
+            } finally {
+                input.close();
+            }
+        } catch (Exception e) {
+            /* a broken queue file is ignored */
+            return;
+        }
+
+        synchronized (this) {
+            for (Entry entry : entries) {
+                jobs.add(new Job(entry));
+            }
+        }
+        changed(null);
+        schedule();
+    }
+
+    /**
+     * Stops all running jobs, they stay in the queue file and are started
+     * again with the next {@link #load()}.
+     */
+    public void shutdown() {
+        List<PipelineExecutor> executors = new ArrayList<PipelineExecutor>();
+        synchronized (this) {
+            save();
+            for (Job job : jobs) {
+                synchronized (job) {
+                    if (job.state == State.RUNNING) {
+                        executors.add(job.executor);
+                    }
+                }
+            }
+            /* nothing is started or saved anymore */
+            queueFile = null;
+            jobs.clear();
+        }
+        for (PipelineExecutor executor : executors) {
+            executor.cancel();
+        }
+    }
+
+    /**
+     * Starts queued jobs as long as they are admitted.
+     */
+    private void schedule() {
+        List<Job> started = new ArrayList<Job>();
+        synchronized (this) {
+            for (Job job : jobs) {
+                if (job.getState() != State.QUEUED) {
+                    continue;
+                }
+                if (!isAdmitted(job)) {
+                    /* keep the order of the queue */
+                    break;
+                }
+                if (start(job)) {
+                    started.add(job);
+                }
+            }
+            save();
+        }
+        for (Job job : started) {
+            changed(job);
+        }
+    }
+
+    /**
+     * Returns true if a job may be started now.
+     */
+    private boolean isAdmitted(Job job) {
+        int running = 0;
+        double reservedHeap = 0.0;
+        for (Job other : jobs) {
+            if (other.getState() == State.RUNNING) {
+                running++;
+                reservedHeap += other.getHeap();
+            }
+        }
+
+        /* a job which does not fit at all must not block the queue */
+        if (running == 0) {
+            return true;
+        }
+
+        int poolSize = (Integer) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.RUN_QUEUE_SIZE);
+        if (running >= poolSize) {
+            return false;
+        }
+
+        return hasFreeResources(job, running, reservedHeap);
+    }
+
+    /**
+     * Returns true if the machine has a free core and enough free memory for
+     * another job.
+     * 
+     * @param job
+     *            the job to start
+     * @param running
+     *            count of running jobs
+     * @param reservedHeap
+     *            summed up heap of the running jobs in megabyte
+     */
+    boolean hasFreeResources(Job job, int running, double reservedHeap) {
+        /* every osmosis process keeps at least one core busy */
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double busy = Math.max(running, os.getSystemLoadAverage());
+        if (os.getAvailableProcessors() - busy < 1.0) {
+            return false;
+        }
+
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean memory = (com.sun.management.OperatingSystemMXBean) os;
+            double total = memory.getTotalPhysicalMemorySize() / MEGABYTE;
+            double free = JvmSizing.getAvailableMemory();
+            if (job.getHeap() > free
+                    || reservedHeap + job.getHeap() > total * MEMORY_SHARE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts the executor of a job.
+     * 
+     * @return true if the job has been started
+     */
+    private boolean start(final Job job) {
+        final PipelineExecutor executor;
+        try {
+            executor = new PipelineExecutor(job.entry.osmosisPath,
+                    job.entry.workingDirectory, job.entry.parameters, job);
+            executor.setJvmSizing(job.entry.jvmSizing);
+            executor.setRunRecord(job.entry.record);
+        } catch (IllegalArgumentException e) {
+            synchronized (job) {
+                job.state = State.FAILED;
+                job.stateText = I18N.getInstance().getString(
+                        "Controller.Actions.ExecutePipeline.OsmosisNotFound");
+            }
+            return true;
+        }
+
+        synchronized (job) {
+            job.executor = executor;
+            job.state = State.RUNNING;
+            job.started = System.currentTimeMillis();
+        }
+        executor.start();
+
+        /* wait for the end of the execution without blocking the queue */
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    executor.join();
+                } catch (InterruptedException e) {
+                    executor.cancel();
+                }
+                finished(job);
+            }
+        };
+        waiter.setDaemon(true);
+        waiter.start();
+        return true;
+    }
+
+    /**
+     * Called when the executor of a job has finished.
+     */
+    private void finished(Job job) {
+        synchronized (job) {
+            job.ended = System.currentTimeMillis();
+            if (job.state == State.RUNNING) {
+                job.state = (job.executor.getExecutionState() == 0 ? State.FINISHED
+                        : State.FAILED);
+            }
+            job.executor = null;
+        }
+        changed(job);
+        schedule();
+    }
+
+    /**
+     * Saves all queued and running jobs.
+     */
+    private synchronized void save() {
+        if (queueFile == null) {
+            return;
+        }
+
+        ArrayList<Entry> entries = new ArrayList<Entry>();
+        for (Job job : jobs) {
+            State state = job.getState();
+            if (state == State.QUEUED || state == State.RUNNING) {
+                entries.add(job.entry);
+            }
+        }
+
+        try {
+            if (entries.isEmpty()) {
+                queueFile.delete();
+                return;
+            }
+            ObjectOutputStream output = new ObjectOutputStream(
+                    new FileOutputStream(queueFile));
+            try {
+                output.writeObject(entries);
+            } finally {
+                output.close();
+            }
+        } catch (IOException e) {
+            /* the queue just does not survive a restart */
+        }
+    }
+
+    private void changed(Job job) {
+        setChanged();
+        notifyObservers(job);
+    }
+}
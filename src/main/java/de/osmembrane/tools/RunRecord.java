@@ -0,0 +1,615 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import java.io.File;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ParameterType;
+
+/**
+ * Record of one execution of a pipeline for the {@link RunHistory}. The
+ * record is created with the pipeline before the execution, the executor
+ * fills in the timing, the exit code, the stages parsed from the output of
+ * osmosis and the sizes of the input and output files.
+ * 
+ * @author agent
+ */
+public class RunRecord implements Serializable {
+
+    private static final long serialVersionUID = -2873409811723523562L;
+
+    /**
+     * Version of the encoding, stored with every record.
+     */
+    private static final String VERSION = "1";
+
+    /**
+     * Entities of one type counted by one progress logger, see
+     * {@link OsmosisProgress.Stage}.
+     */
+    public static class Stage implements Serializable {
+
+        private static final long serialVersionUID = 6002361385286367514L;
+
+        private String name;
+        private long entities;
+        private long elapsed;
+
+        private Stage(String name, long entities, long elapsed) {
+            this.name = name;
+            this.entities = entities;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return entity type, with the label of the logger and the process
+         *         if there are several
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return estimated count of processed entities
+         */
+        public long getEntities() {
+            return entities;
+        }
+
+        /**
+         * @return time of the stage in milliseconds
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+    }
+
+    private String pipeline;
+    private String fingerprint;
+    private ArrayList<String> functions = new ArrayList<String>();
+    private ArrayList<ArrayList<String>> arguments = new ArrayList<ArrayList<String>>();
+    private long started = -1;
+    private long ended = -1;
+    private int exitCode = -1;
+    private long entities = -1;
+    private ArrayList<Stage> stages = new ArrayList<Stage>();
+    private LinkedHashMap<String, Long> inputs = new LinkedHashMap<String, Long>();
+    private LinkedHashMap<String, Long> outputs = new LinkedHashMap<String, Long>();
+    private ArrayList<String> runFiles = new ArrayList<String>();
+
+    private RunRecord() {
+    }
+
+    /**
+     * Creates the record of an execution of the given pipeline, the runs are
+     * grouped by the file of the pipeline.
+     * 
+     * @param pipeline
+     *            the executed pipeline
+     * @param workingDirectory
+     *            working directory of osmosis
+     * @return the new record
+     */
+    public static RunRecord create(AbstractPipeline pipeline,
+            File workingDirectory) {
+        URL url = pipeline.getFilename();
+        List<AbstractFunction> functions = new ArrayList<AbstractFunction>();
+        Collections.addAll(functions, pipeline.getFunctions());
+        return create((url == null ? "" : Tools.urlToFile(url)
+                .getAbsolutePath()), functions, workingDirectory);
+    }
+
+    /**
+     * Creates the record of an execution of the given functions.
+     * 
+     * @param pipeline
+     *            identifier of the pipeline, usually the absolute path of its
+     *            file, an empty string for an unsaved pipeline
+     * @param functions
+     *            functions of the pipeline
+     * @param workingDirectory
+     *            working directory of osmosis, relative files are resolved
+     *            against it
+     * @return the new record
+     */
+    public static RunRecord create(String pipeline,
+            List<AbstractFunction> functions, File workingDirectory) {
+        RunRecord record = new RunRecord();
+        record.pipeline = pipeline;
+
+        Map<AbstractFunction, String> signatures = new HashMap<AbstractFunction, String>();
+        for (AbstractFunction function : functions) {
+            String signature = getSignature(function);
+            signatures.put(function, signature);
+            record.functions.add(signature);
+        }
+        Collections.sort(record.functions);
+
+        /* the connections are part of the fingerprint */
+        List<String> connections = new ArrayList<String>();
+        for (AbstractFunction function : functions) {
+            for (AbstractConnector outConnector : function.getOutConnectors()) {
+                for (AbstractConnector inConnector : outConnector
+                        .getConnections()) {
+                    connections.add(signatures.get(function) + " > "
+                            + signatures.get(inConnector.getParent()));
+                }
+            }
+
+            boolean reader = (function.getInConnectors().length == 0);
+            boolean writer = (function.getOutConnectors().length == 0);
+            if (!reader && !writer) {
+                continue;
+            }
+            for (AbstractParameter param : function.getActiveTask()
+                    .getParameters()) {
+                if (param.getType() != ParameterType.FILENAME
+                        && param.getType() != ParameterType.DIRECTORY) {
+                    continue;
+                }
+                String value = (param.isDefaultValue() ? param
+                        .getDefaultValue() : param.getValue());
+                if (value == null || value.length() == 0 || value.equals("-")) {
+                    continue;
+                }
+                File file = new File(value);
+                if (!file.isAbsolute() && workingDirectory != null) {
+                    file = new File(workingDirectory, value);
+                }
+                (reader ? record.inputs : record.outputs).put(
+                        file.getAbsolutePath(), -1L);
+            }
+        }
+        Collections.sort(connections);
+
+        StringBuilder content = new StringBuilder();
+        for (String signature : record.functions) {
+            content.append(signature).append('\n');
+        }
+        for (String connection : connections) {
+            content.append(connection).append('\n');
+        }
+        record.fingerprint = digest(content.toString());
+
+        return record;
+    }
+
+    /**
+     * Returns a new record for another execution of the same pipeline, e.g.
+     * in the watch mode.
+     * 
+     * @return the new record, not started yet
+     */
+    public RunRecord copy() {
+        RunRecord record = new RunRecord();
+        record.pipeline = pipeline;
+        record.fingerprint = fingerprint;
+        record.functions.addAll(functions);
+        for (String input : inputs.keySet()) {
+            record.inputs.put(input, -1L);
+        }
+        for (String output : outputs.keySet()) {
+            record.outputs.put(output, -1L);
+        }
+        return record;
+    }
+
+    /**
+     * Called when the execution is started, the sizes of the input files are
+     * measured.
+     * 
+     * @param time
+     *            start time in milliseconds
+     * @param arguments
+     *            arguments of each osmosis process
+     */
+    public void start(long time, List<List<String>> arguments) {
+        this.started = time;
+        this.arguments.clear();
+        this.runFiles.clear();
+        for (List<String> processArguments : arguments) {
+            this.arguments.add(new ArrayList<String>(processArguments));
+        }
+        for (Map.Entry<String, Long> input : inputs.entrySet()) {
+            input.setValue(measure(new File(input.getKey())));
+        }
+    }
+
+    /**
+     * Called when the execution has ended, the sizes of the output files are
+     * measured.
+     * 
+     * @param time
+     *            end time in milliseconds
+     * @param exitCode
+     *            0 if osmosis was successful, -1 if the execution was
+     *            cancelled
+     * @param progresses
+     *            the parsed output of each osmosis process
+     */
+    public void finish(long time, int exitCode,
+            List<OsmosisProgress> progresses) {
+        this.ended = time;
+        this.exitCode = exitCode;
+
+        stages.clear();
+        entities = -1;
+        for (int i = 0; i < progresses.size(); i++) {
+            OsmosisProgress progress = progresses.get(i);
+            for (OsmosisProgress.Stage stage : progress.getStages()) {
+                stages.add(new Stage((progresses.size() > 1 ? "[" + (i + 1)
+                        + "] " : "")
+                        + stage.getName(), stage.getEntities(), stage
+                        .getElapsed()));
+            }
+            /* the processes of a group pass on the same entities */
+            if (!progress.getStages().isEmpty()) {
+                entities = Math.max(entities, progress.getProcessed());
+            }
+        }
+
+        for (Map.Entry<String, Long> output : outputs.entrySet()) {
+            output.setValue(measure(new File(output.getKey())));
+        }
+    }
+
+    /**
+     * @return identifier of the pipeline, empty for an unsaved pipeline
+     */
+    public String getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * @return fingerprint of the functions, their parameters and connections
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the task and the changed parameters of each function, sorted
+     */
+    public List<String> getFunctions() {
+        return Collections.unmodifiableList(functions);
+    }
+
+    /**
+     * @return arguments of each osmosis process
+     */
+    public List<? extends List<String>> getArguments() {
+        return Collections.unmodifiableList(arguments);
+    }
+
+    /**
+     * @return start time in milliseconds, -1 if the run has not started
+     */
+    public long getStarted() {
+        return started;
+    }
+
+    /**
+     * @return end time in milliseconds, -1 if the run has not ended
+     */
+    public long getEnded() {
+        return ended;
+    }
+
+    /**
+     * @return duration in milliseconds, -1 if it is unknown
+     */
+    public long getDuration() {
+        return (started < 0 || ended < started ? -1 : ended - started);
+    }
+
+    /**
+     * @return exit code of osmosis, -1 if the execution did not finish
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return true if the execution finished successfully
+     */
+    public boolean isSuccessful() {
+        return (exitCode == 0);
+    }
+
+    /**
+     * @return the stages reported by the progress loggers
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * @return processed entities, -1 if the pipeline has no progress logger
+     */
+    public long getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return entities per second over the whole run, -1 if it is unknown
+     */
+    public double getThroughput() {
+        long duration = getDuration();
+        if (entities < 0 || duration <= 0) {
+            return -1.0;
+        }
+        return (1000.0 * entities) / duration;
+    }
+
+    /**
+     * @return the input files with their size in bytes, -1 if missing
+     */
+    public Map<String, Long> getInputs() {
+        return Collections.unmodifiableMap(inputs);
+    }
+
+    /**
+     * @return the output files with their size in bytes, -1 if missing
+     */
+    public Map<String, Long> getOutputs() {
+        return Collections.unmodifiableMap(outputs);
+    }
+
+    /**
+     * Adds a file the executor has written for this run to the runs folder.
+     * 
+     * @param file
+     *            the run properties, the sampled resources or a process log
+     */
+    public void addRunFile(File file) {
+        runFiles.add(file.getAbsolutePath());
+    }
+
+    /**
+     * @return the files written for this run to the runs folder
+     */
+    public List<String> getRunFiles() {
+        return Collections.unmodifiableList(runFiles);
+    }
+
+    /**
+     * Encodes the record as a single line.
+     */
+    String encode() {
+        StringBuilder line = new StringBuilder();
+        append(line, "version", VERSION);
+        append(line, "pipeline", pipeline);
+        append(line, "fingerprint", fingerprint);
+        append(line, "started", started);
+        append(line, "ended", ended);
+        append(line, "exit", exitCode);
+        append(line, "entities", entities);
+        for (int i = 0; i < functions.size(); i++) {
+            append(line, "function." + i, functions.get(i));
+        }
+        for (int i = 0; i < arguments.size(); i++) {
+            for (int j = 0; j < arguments.get(i).size(); j++) {
+                append(line, "argument." + i + "." + j, arguments.get(i)
+                        .get(j));
+            }
+        }
+        for (int i = 0; i < stages.size(); i++) {
+            append(line, "stage." + i + ".name", stages.get(i).name);
+            append(line, "stage." + i + ".entities", stages.get(i).entities);
+            append(line, "stage." + i + ".elapsed", stages.get(i).elapsed);
+        }
+        appendFiles(line, "input", inputs);
+        appendFiles(line, "output", outputs);
+        for (int i = 0; i < runFiles.size(); i++) {
+            append(line, "runfile." + i, runFiles.get(i));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Decodes a line of {@link #encode()}.
+     * 
+     * @return the record, or NULL if the line is not a valid record
+     */
+    static RunRecord decode(String line) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (String field : line.split("\t")) {
+            int assign = field.indexOf('=');
+            if (assign <= 0) {
+                return null;
+            }
+            values.put(field.substring(0, assign), unescape(field
+                    .substring(assign + 1)));
+        }
+        if (!VERSION.equals(values.get("version"))
+                || !values.containsKey("pipeline")) {
+            return null;
+        }
+
+        RunRecord record = new RunRecord();
+        try {
+            record.pipeline = values.get("pipeline");
+            record.fingerprint = values.get("fingerprint");
+            record.started = Long.parseLong(values.get("started"));
+            record.ended = Long.parseLong(values.get("ended"));
+            record.exitCode = Integer.parseInt(values.get("exit"));
+            record.entities = Long.parseLong(values.get("entities"));
+            for (int i = 0; values.containsKey("function." + i); i++) {
+                record.functions.add(values.get("function." + i));
+            }
+            for (int i = 0; values.containsKey("argument." + i + ".0"); i++) {
+                ArrayList<String> processArguments = new ArrayList<String>();
+                for (int j = 0; values.containsKey("argument." + i + "." + j); j++) {
+                    processArguments.add(values.get("argument." + i + "." + j));
+                }
+                record.arguments.add(processArguments);
+            }
+            for (int i = 0; values.containsKey("stage." + i + ".name"); i++) {
+                record.stages.add(new Stage(values.get("stage." + i + ".name"),
+                        Long.parseLong(values.get("stage." + i + ".entities")),
+                        Long.parseLong(values.get("stage." + i + ".elapsed"))));
+            }
+            readFiles(values, "input", record.inputs);
+            readFiles(values, "output", record.outputs);
+            for (int i = 0; values.containsKey("runfile." + i); i++) {
+                record.runFiles.add(values.get("runfile." + i));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        } catch (NullPointerException e) {
+            /* a missing value */
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Returns the task and all changed parameters of a function.
+     */
+    private static String getSignature(AbstractFunction function) {
+        StringBuilder signature = new StringBuilder(function.getActiveTask()
+                .getName());
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (!param.isDefaultValue() && param.getValue() != null) {
+                signature.append(' ').append(param.getName()).append('=')
+                        .append(param.getValue());
+            }
+        }
+        return signature.toString();
+    }
+
+    /**
+     * Returns the size of a file or of all files in a directory.
+     */
+    private static long measure(File file) {
+        if (file.isFile()) {
+            return file.length();
+        } else if (!file.isDirectory()) {
+            return -1;
+        }
+        long size = 0;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                size += Math.max(measure(child), 0);
+            }
+        }
+        return size;
+    }
+
+    private static String digest(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest(content.getBytes("UTF-8"))) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            /* every java platform has to support SHA-1 */
+            throw new RuntimeException(e);
+        } catch (UnsupportedEncodingException e) {
+            /* every java platform has to support UTF-8 */
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void appendFiles(StringBuilder line, String key,
+            Map<String, Long> files) {
+        int i = 0;
+        for (Map.Entry<String, Long> file : files.entrySet()) {
+            append(line, key + "." + i + ".path", file.getKey());
+            append(line, key + "." + i + ".size", file.getValue());
+            i++;
+        }
+    }
+
+    private static void readFiles(Map<String, String> values, String key,
+            Map<String, Long> files) {
+        for (int i = 0; values.containsKey(key + "." + i + ".path"); i++) {
+            files.put(values.get(key + "." + i + ".path"), Long
+                    .parseLong(values.get(key + "." + i + ".size")));
+        }
+    }
+
+    private static void append(StringBuilder line, String key, Object value) {
+        if (line.length() > 0) {
+            line.append('\t');
+        }
+        line.append(key).append('=').append(escape(String.valueOf(value)));
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+            case '\\':
+                escaped.append("\\\\");
+                break;
+            case '\t':
+                escaped.append("\\t");
+                break;
+            case '\n':
+                escaped.append("\\n");
+                break;
+            case '\r':
+                escaped.append("\\r");
+                break;
+            default:
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            switch (next) {
+            case 't':
+                unescaped.append('\t');
+                break;
+            case 'n':
+                unescaped.append('\n');
+                break;
+            case 'r':
+                unescaped.append('\r');
+                break;
+            default:
+                unescaped.append(next);
+            }
+        }
+        return unescaped.toString();
+    }
+}
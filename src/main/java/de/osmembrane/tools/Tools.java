@@ -14,6 +14,11 @@ package de.osmembrane.tools;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 
 /**
  * Some tools for general usage.
@@ -41,4 +46,48 @@ public class Tools {
         }
         return f;
     }
+
+    /**
+     * Appends lines to a plain text document and removes the oldest lines
+     * beyond a maximum, so the document behaves like a ring buffer of lines.
+     * Empty lines are skipped.
+     * 
+     * @param document
+     *            document with one line per element
+     * @param lines
+     *            lines to append
+     * @param maximumLines
+     *            count of lines kept in the document
+     * @return true if anything was appended
+     */
+    public static boolean appendLines(Document document, List<String> lines,
+            int maximumLines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            if ((line == null) || (line.isEmpty())) {
+                continue;
+            }
+            if (text.length() > 0 || document.getLength() > 0) {
+                text.append('\n');
+            }
+            text.append(line);
+        }
+        if (text.length() == 0) {
+            return false;
+        }
+
+        try {
+            document.insertString(document.getLength(), text.toString(), null);
+
+            /* drop the oldest lines */
+            Element root = document.getDefaultRootElement();
+            int excess = root.getElementCount() - maximumLines;
+            if (excess > 0) {
+                document.remove(0, root.getElement(excess).getStartOffset());
+            }
+        } catch (BadLocationException e) {
+            /* can not happen, all offsets are taken from the document */
+        }
+        return true;
+    }
 }
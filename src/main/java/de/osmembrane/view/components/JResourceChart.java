@@ -0,0 +1,169 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.components;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+
+import javax.swing.JComponent;
+
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.ProcessSampler.Sample;
+
+/**
+ * A small chart showing the used cores and the resident memory of the last
+ * samples of an execution, each with its own scale.
+ * 
+ * @author agent
+ * 
+ */
+public class JResourceChart extends JComponent {
+
+    private static final long serialVersionUID = 2906212542377370415L;
+
+    /**
+     * count of samples shown
+     */
+    private static final int SAMPLES = 120;
+
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+
+    private static final Color CPU_COLOR = new Color(0.2f, 0.4f, 0.8f);
+
+    private static final Color MEMORY_COLOR = new Color(0.85f, 0.45f, 0.1f);
+
+    /**
+     * ring buffers of the samples
+     */
+    private double[] cpu = new double[SAMPLES];
+    private double[] memory = new double[SAMPLES];
+
+    /**
+     * index of the next sample and count of samples
+     */
+    private int next = 0;
+    private int count = 0;
+
+    /**
+     * Creates a new {@link JResourceChart}.
+     */
+    public JResourceChart() {
+        setPreferredSize(new Dimension(SAMPLES * 3, 48));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+    }
+
+    /**
+     * Adds a sample, the oldest sample is dropped.
+     * 
+     * @param sample
+     *            sample of the osmosis processes
+     */
+    public void addSample(Sample sample) {
+        cpu[next] = sample.getCpuUsage();
+        memory[next] = sample.getRss() / MEGABYTE;
+        next = (next + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+
+        String io = (sample.getReadBytes() < 0 ? "?" : String.format("%,.0f",
+                sample.getReadBytes() / MEGABYTE))
+                + " / "
+                + (sample.getWriteBytes() < 0 ? "?" : String.format("%,.0f",
+                        sample.getWriteBytes() / MEGABYTE));
+        setToolTipText(I18N.getInstance().getString(
+                "View.ExecutionStateDialog.Resources",
+                String.format("%.1f", sample.getCpuUsage()),
+                String.format("%,.0f", sample.getRss() / MEGABYTE), io,
+                sample.getThreads()));
+        repaint();
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void clear() {
+        next = 0;
+        count = 0;
+        setToolTipText(null);
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        int width = getWidth();
+        int height = getHeight();
+
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, width, height);
+        g2.setColor(Color.LIGHT_GRAY);
+        g2.drawRect(0, 0, width - 1, height - 1);
+
+        if (count > 1) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+
+            /* at least one core, so an idle process is drawn as idle */
+            double maxCpu = Math.max(1.0, max(cpu));
+            double maxMemory = max(memory);
+            drawSeries(g2, cpu, maxCpu, CPU_COLOR);
+            drawSeries(g2, memory, maxMemory, MEMORY_COLOR);
+
+            int ascent = g2.getFontMetrics().getAscent();
+            g2.setColor(CPU_COLOR);
+            g2.drawString(String.format("%.1f CPU", maxCpu), 4, ascent + 2);
+            String memoryLabel = String.format("%,.0f MB", maxMemory);
+            g2.setColor(MEMORY_COLOR);
+            g2.drawString(memoryLabel, width - 4
+                    - g2.getFontMetrics().stringWidth(memoryLabel), ascent + 2);
+        }
+
+        g2.dispose();
+    }
+
+    private double max(double[] series) {
+        double max = 0.0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, series[i]);
+        }
+        return max;
+    }
+
+    private void drawSeries(Graphics2D g2, double[] series, double max,
+            Color color) {
+        if (max <= 0.0) {
+            return;
+        }
+
+        int width = getWidth();
+        int height = getHeight();
+        double step = (width - 2.0) / (SAMPLES - 1);
+        double scale = (height - 4.0) / max;
+        Path2D.Double path = new Path2D.Double();
+        for (int i = 0; i < count; i++) {
+            double sample = series[(next - count + i + SAMPLES) % SAMPLES];
+            double x = width - 1.0 - (count - 1 - i) * step;
+            double y = height - 2.0 - sample * scale;
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        g2.setColor(color);
+        g2.draw(path);
+    }
+}
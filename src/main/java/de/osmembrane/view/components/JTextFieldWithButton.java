@@ -126,6 +126,13 @@ public class JTextFieldWithButton extends JPanel {
         return field.getText();
     }
 
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        field.setEnabled(enabled);
+        button.setEnabled(enabled);
+    }
+
     /**
      * Sets the button caption to caption
      * 
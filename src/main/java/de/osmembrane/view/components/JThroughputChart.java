@@ -0,0 +1,127 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.components;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+
+import javax.swing.JComponent;
+
+/**
+ * A small chart showing the last throughput samples of an execution, the
+ * newest sample on the right.
+ * 
+ * @author agent
+ * 
+ */
+public class JThroughputChart extends JComponent {
+
+    private static final long serialVersionUID = -6383462047520766309L;
+
+    /**
+     * count of samples shown
+     */
+    private static final int SAMPLES = 120;
+
+    /**
+     * ring buffer of the samples
+     */
+    private double[] samples = new double[SAMPLES];
+
+    /**
+     * index of the next sample and count of samples
+     */
+    private int next = 0;
+    private int count = 0;
+
+    /**
+     * Creates a new {@link JThroughputChart}.
+     */
+    public JThroughputChart() {
+        setPreferredSize(new Dimension(SAMPLES * 3, 48));
+        setForeground(new Color(0.2f, 0.4f, 0.8f));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+    }
+
+    /**
+     * Adds a sample, the oldest sample is dropped.
+     * 
+     * @param sample
+     *            throughput in entities per second
+     */
+    public void addSample(double sample) {
+        samples[next] = sample;
+        next = (next + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+        setToolTipText(String.format("%,.0f/s", sample));
+        repaint();
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void clear() {
+        next = 0;
+        count = 0;
+        setToolTipText(null);
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        int width = getWidth();
+        int height = getHeight();
+
+        g2.setColor(getBackground());
+        g2.fillRect(0, 0, width, height);
+        g2.setColor(Color.LIGHT_GRAY);
+        g2.drawRect(0, 0, width - 1, height - 1);
+
+        double max = 0.0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+
+        if (count > 1 && max > 0.0) {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    RenderingHints.VALUE_ANTIALIAS_ON);
+
+            double step = (width - 2.0) / (SAMPLES - 1);
+            double scale = (height - 4.0) / max;
+            Path2D.Double path = new Path2D.Double();
+            for (int i = 0; i < count; i++) {
+                double sample = samples[(next - count + i + SAMPLES) % SAMPLES];
+                double x = width - 1.0 - (count - 1 - i) * step;
+                double y = height - 2.0 - sample * scale;
+                if (i == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+            }
+            g2.setColor(getForeground());
+            g2.draw(path);
+
+            g2.setColor(Color.GRAY);
+            g2.drawString(String.format("%,.0f/s", max), 4, g2
+                    .getFontMetrics().getAscent() + 2);
+        }
+
+        g2.dispose();
+    }
+}
@@ -22,6 +22,8 @@ import java.awt.Window;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.Observable;
+import java.util.Observer;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
@@ -30,18 +32,23 @@ import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 
 import de.osmembrane.controller.ActionRegistry;
 import de.osmembrane.controller.actions.ExportPipelineAction;
 import de.osmembrane.model.persistence.FileType;
 import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.PipelineObserverObject;
+import de.osmembrane.model.pipeline.PipelineObserverObject.ChangeType;
 import de.osmembrane.tools.I18N;
 import de.osmembrane.view.AbstractDialog;
+import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.interfaces.ICommandLineDialog;
 
 /**
  * Simple dialog to display the generated command line, export it, or copy it to
- * the clipboard.
+ * the clipboard. The dialog does not block the main window, the command line
+ * is updated while the pipeline is edited.
  * 
  * @see "Spezifikation.pdf, chapter 2.5 (German)"
  * 
@@ -49,7 +56,7 @@ import de.osmembrane.view.interfaces.ICommandLineDialog;
  * 
  */
 public class CommandLineDialog extends AbstractDialog implements
-        ICommandLineDialog {
+        ICommandLineDialog, Observer {
 
     private static final long serialVersionUID = -904804959704267472L;
 
@@ -62,12 +69,18 @@ public class CommandLineDialog extends AbstractDialog implements
 
     private AbstractPipeline pipeline;
 
+    /**
+     * true if a regeneration is already queued on the event dispatch thread
+     */
+    private boolean regeneratePending;
+
     /**
      * Creates a new {@link CommandLineDialog}
      */
     public CommandLineDialog(Window owner) {
         super(owner);
         setWindowTitle(I18N.getInstance().getString("View.CommandLineDialog"));
+        setModalityType(ModalityType.MODELESS);
 
         // set the basics up
         setLayout(new GridBagLayout());
@@ -171,6 +184,8 @@ public class CommandLineDialog extends AbstractDialog implements
 
         pack();
         centerWindow();
+
+        ViewRegistry.getInstance().addObserver(this);
     }
 
     @Override
@@ -183,4 +198,32 @@ public class CommandLineDialog extends AbstractDialog implements
         this.commandline.setText(pipeline.generate(fileType));
     }
 
+    @Override
+    public void update(Observable o, Object arg) {
+        if (!isVisible() || !(arg instanceof PipelineObserverObject)) {
+            return;
+        }
+
+        PipelineObserverObject poo = (PipelineObserverObject) arg;
+        if (poo.getType() == ChangeType.SAVED_PIPELINE
+                || poo.getPipeline() != pipeline || regeneratePending) {
+            return;
+        }
+
+        /* a burst of changes (like dragging a function) is generated once */
+        regeneratePending = true;
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                regeneratePending = false;
+                if (isVisible()) {
+                    int caret = commandline.getCaretPosition();
+                    regenerate();
+                    commandline.setCaretPosition(Math.min(caret, commandline
+                            .getDocument().getLength()));
+                }
+            }
+        });
+    }
+
 }
@@ -12,6 +12,7 @@
 package de.osmembrane.view.dialogs;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridBagConstraints;
@@ -20,24 +21,43 @@ import java.awt.Insets;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.awt.font.TextAttribute;
 import java.text.AttributedCharacterIterator.Attribute;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.swing.AbstractAction;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
+import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.KeyStroke;
 import javax.swing.ScrollPaneConstants;
-
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Document;
+
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.resources.Constants;
+import de.osmembrane.tools.HeadlessSafe;
 import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.Tools;
+import de.osmembrane.tools.ProcessSampler.Sample;
 import de.osmembrane.view.AbstractDialog;
+import de.osmembrane.view.components.JResourceChart;
+import de.osmembrane.view.components.JThroughputChart;
 import de.osmembrane.view.interfaces.IExecutionStateDialog;
 
 /**
@@ -51,6 +71,11 @@ public class ExecutionStateDialog extends AbstractDialog implements
 
     private static final long serialVersionUID = 956559876768946717L;
 
+    /**
+     * background of the find field if the text was not found
+     */
+    private static final Color NOT_FOUND_BACKGROUND = new Color(255, 200, 200);
+
     /**
      * text field to display the state
      */
@@ -61,11 +86,42 @@ public class ExecutionStateDialog extends AbstractDialog implements
      */
     private JProgressBar progress;
 
+    /**
+     * label to display the statistics of the execution
+     */
+    private JLabel statistics;
+
+    /**
+     * chart to display the throughput of the execution
+     */
+    private JThroughputChart throughput;
+
+    /**
+     * chart to display the used resources of the osmosis processes, only
+     * visible if they can be sampled
+     */
+    private JResourceChart resources;
+
     /**
      * text area to display the output lines
      */
     private JTextArea lines;
 
+    /**
+     * scroll pane of the output lines
+     */
+    private JScrollPane linesScrollPane;
+
+    /**
+     * maximum count of retained output lines, the oldest lines are removed
+     */
+    private int maximumLines = Constants.DEFAULT_MAXIMUM_OUTPUT_LINES;
+
+    /**
+     * text field for the quick find in the output lines
+     */
+    private JTextField findField;
+
     /**
      * button to close
      */
@@ -104,22 +160,86 @@ public class ExecutionStateDialog extends AbstractDialog implements
         JPanel content = new JPanel();
         content.setLayout(new BorderLayout());
 
+        JPanel progressPanel = new JPanel(new BorderLayout(8, 4));
         progress = new JProgressBar(0, 100);
-        content.add(progress, BorderLayout.NORTH);
+        progressPanel.add(progress, BorderLayout.NORTH);
+        statistics = new JLabel(" ");
+        progressPanel.add(statistics, BorderLayout.CENTER);
+        throughput = new JThroughputChart();
+        resources = new JResourceChart();
+        resources.setVisible(false);
+        JPanel charts = new JPanel(new BorderLayout(8, 0));
+        charts.add(resources, BorderLayout.WEST);
+        charts.add(throughput, BorderLayout.EAST);
+        progressPanel.add(charts, BorderLayout.EAST);
+        content.add(progressPanel, BorderLayout.NORTH);
 
         lines = new JTextArea(25, 80);
         lines.setEditable(false);
         lines.setLineWrap(true);
         lines.setWrapStyleWord(true);
 
+        /* appending must not move the view, see addOutputLines */
+        ((DefaultCaret) lines.getCaret())
+                .setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+
         Map<Attribute, String> fontAttrib = new HashMap<Attribute, String>();
         fontAttrib.put(TextAttribute.FAMILY, Font.MONOSPACED);
         lines.setFont(lines.getFont().deriveFont(fontAttrib));
 
-        content.add(new JScrollPane(lines,
+        linesScrollPane = new JScrollPane(lines,
                 ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS,
-                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER),
-                BorderLayout.CENTER);
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        content.add(linesScrollPane, BorderLayout.CENTER);
+
+        // quick find
+        JPanel find = new JPanel(new BorderLayout(8, 0));
+        find.add(new JLabel(I18N.getInstance().getString(
+                "View.ExecutionStateDialog.Find")
+                + ":"), BorderLayout.WEST);
+        findField = new JTextField();
+        final Color defaultBackground = findField.getBackground();
+        ActionListener findNext = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                findNext();
+            }
+        };
+        findField.addActionListener(findNext);
+        findField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                findField.setBackground(defaultBackground);
+            }
+
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                findField.setBackground(defaultBackground);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        find.add(findField, BorderLayout.CENTER);
+        JButton findButton = new JButton(I18N.getInstance().getString(
+                "View.ExecutionStateDialog.FindNext"));
+        findButton.addActionListener(findNext);
+        find.add(findButton, BorderLayout.EAST);
+        content.add(find, BorderLayout.SOUTH);
+
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_F,
+                        HeadlessSafe.getMenuShortcutKeyMask()), "find");
+        getRootPane().getActionMap().put("find", new AbstractAction() {
+            private static final long serialVersionUID = -2207146155364012867L;
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                findField.requestFocusInWindow();
+                findField.selectAll();
+            }
+        });
 
         add(content, BorderLayout.CENTER);
 
@@ -157,30 +277,83 @@ public class ExecutionStateDialog extends AbstractDialog implements
         this.progress.setValue(progress);
     }
 
+    @Override
+    public void setStatistics(String statistics) {
+        this.statistics.setText(statistics);
+        this.statistics.setToolTipText(statistics);
+    }
+
+    @Override
+    public void addThroughputSample(double throughput) {
+        this.throughput.addSample(throughput);
+    }
+
+    @Override
+    public void addResourceSample(Sample sample) {
+        if (!resources.isVisible()) {
+            resources.setVisible(true);
+            resources.revalidate();
+        }
+        resources.addSample(sample);
+    }
+
     @Override
     public void addOutputLine(String outputLine) {
-        if ((outputLine == null) || (outputLine.isEmpty())) {
+        addOutputLines(Collections.singletonList(outputLine));
+    }
+
+    @Override
+    public void addOutputLines(List<String> outputLines) {
+        /* only follow the output if the user has not scrolled up */
+        JScrollBar scrollBar = linesScrollPane.getVerticalScrollBar();
+        boolean atBottom = (scrollBar.getValue()
+                + scrollBar.getVisibleAmount() >= scrollBar.getMaximum()
+                - lines.getFont().getSize());
+
+        Document document = lines.getDocument();
+        if (Tools.appendLines(document, outputLines, maximumLines) && atBottom) {
+            lines.setCaretPosition(document.getLength());
+        }
+    }
+
+    /**
+     * Selects the next occurrence of the text of the find field in the output
+     * lines, starting behind the current selection.
+     */
+    private void findNext() {
+        String needle = findField.getText().toLowerCase();
+        if (needle.isEmpty()) {
             return;
         }
 
-        if (lines.getText().isEmpty()) {
-            lines.setText(outputLine);
-        } else {
-            lines.setText(lines.getText()
-                    + System.getProperty("line.separator") + outputLine);
+        String haystack = lines.getText().toLowerCase();
+        int index = haystack.indexOf(needle, lines.getSelectionEnd());
+        if (index < 0) {
+            /* wrap around */
+            index = haystack.indexOf(needle);
         }
 
-        int lastChar = lines.getText().length() - 1;
-        if (lastChar < 0) {
-            lastChar = 0;
+        if (index < 0) {
+            findField.setBackground(NOT_FOUND_BACKGROUND);
+            return;
         }
-        lines.setCaretPosition(lastChar);
+
+        lines.setCaretPosition(index);
+        lines.moveCaretPosition(index + needle.length());
+        lines.getCaret().setSelectionVisible(true);
     }
 
     @Override
     public void clear() {
+        maximumLines = (Integer) ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.MAXIMUM_OUTPUT_LINES);
+
         stateField.setText("");
         progress.setValue(0);
+        statistics.setText(" ");
+        throughput.clear();
+        resources.clear();
+        resources.setVisible(false);
         lines.setText("");
         closeButton.setText("");
     }
@@ -30,6 +30,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 
 import de.osmembrane.tools.I18N;
 import de.osmembrane.view.AbstractDialog;
@@ -62,6 +63,10 @@ public class PipelineSettingsDialog extends AbstractDialog implements
     private JCheckBox debugFlag;
     private JSpinner debug;
 
+    private JSpinner javaHeap;
+    private JTextField javaOptions;
+    private JTextField tempDirectory;
+
     private JTextArea comment;
 
     /**
@@ -169,15 +174,59 @@ public class PipelineSettingsDialog extends AbstractDialog implements
                 .getPreferredSize().height));
         settings.add(debug, gbc);
 
+        /* the osmosis JVM, empty values are recommended on execution */
         gbc.gridy = 3;
         gbc.gridx = 0;
         settings.add(
                 new JLabel(I18N.getInstance().getString(
-                        "View.PipelineSettingsDialog.Comment")
+                        "View.PipelineSettingsDialog.JavaHeap")
                         + ":"), gbc);
+        gbc.gridx = 1;
+        javaHeap = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE,
+                64));
+        javaHeap.setToolTipText(I18N.getInstance().getString(
+                "View.PipelineSettingsDialog.Automatic"));
+        javaHeap.setPreferredSize(new Dimension(minSpinnerWidth * 2, javaHeap
+                .getPreferredSize().height));
+        settings.add(javaHeap, gbc);
 
         gbc.gridy = 4;
         gbc.gridx = 0;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "View.PipelineSettingsDialog.JavaOptions")
+                        + ":"), gbc);
+        gbc.gridx = 1;
+        javaOptions = new JTextField();
+        javaOptions.setToolTipText(I18N.getInstance().getString(
+                "View.PipelineSettingsDialog.Automatic"));
+        javaOptions.setPreferredSize(new Dimension(minFieldWidth, javaOptions
+                .getPreferredSize().height));
+        settings.add(javaOptions, gbc);
+
+        gbc.gridy = 5;
+        gbc.gridx = 0;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "View.PipelineSettingsDialog.TempDirectory")
+                        + ":"), gbc);
+        gbc.gridx = 1;
+        tempDirectory = new JTextField();
+        tempDirectory.setToolTipText(I18N.getInstance().getString(
+                "View.PipelineSettingsDialog.Automatic"));
+        tempDirectory.setPreferredSize(new Dimension(minFieldWidth,
+                tempDirectory.getPreferredSize().height));
+        settings.add(tempDirectory, gbc);
+
+        gbc.gridy = 6;
+        gbc.gridx = 0;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "View.PipelineSettingsDialog.Comment")
+                        + ":"), gbc);
+
+        gbc.gridy = 7;
+        gbc.gridx = 0;
         gbc.gridwidth = 2;
         comment = new JTextArea();
         comment.setPreferredSize(new Dimension(minFieldWidth * 2, minFieldWidth));
@@ -226,6 +275,36 @@ public class PipelineSettingsDialog extends AbstractDialog implements
         }
     }
 
+    @Override
+    public void setJavaHeap(int heap) {
+        javaHeap.setValue(heap);
+    }
+
+    @Override
+    public int getJavaHeap() {
+        return (Integer) javaHeap.getValue();
+    }
+
+    @Override
+    public void setJavaOptions(String options) {
+        javaOptions.setText(options);
+    }
+
+    @Override
+    public String getJavaOptions() {
+        return javaOptions.getText().trim();
+    }
+
+    @Override
+    public void setTempDirectory(String directory) {
+        tempDirectory.setText(directory);
+    }
+
+    @Override
+    public String getTempDirectory() {
+        return tempDirectory.getText().trim();
+    }
+
     @Override
     public void setComment(String comment) {
         this.comment.setText(comment);
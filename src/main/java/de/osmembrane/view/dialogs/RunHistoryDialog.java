@@ -0,0 +1,517 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.dialogs;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.RunHistory;
+import de.osmembrane.tools.RunHistory.Comparison;
+import de.osmembrane.tools.RunRecord;
+import de.osmembrane.view.AbstractDialog;
+import de.osmembrane.view.interfaces.IRunHistoryDialog;
+
+/**
+ * Shows the runs of the {@link RunHistory}. The runs of one pipeline are
+ * listed with the change of their duration and throughput compared to the
+ * previous successful run, regressions are highlighted. The details show
+ * which functions changed between a run and the previous one, or between two
+ * selected runs.
+ * 
+ * @author agent
+ * 
+ */
+public class RunHistoryDialog extends AbstractDialog implements
+        IRunHistoryDialog {
+
+    private static final long serialVersionUID = -3385208921587345082L;
+
+    /**
+     * all records of the history
+     */
+    private List<RunRecord> records = new ArrayList<RunRecord>();
+
+    /**
+     * the shown runs of the selected pipeline, newest first
+     */
+    private List<RunRecord> runs = new ArrayList<RunRecord>();
+
+    /**
+     * the comparison of each shown run with its previous run, or NULL
+     */
+    private List<Comparison> comparisons = new ArrayList<Comparison>();
+
+    private JComboBox<String> pipelineBox;
+
+    private RunTableModel model = new RunTableModel();
+
+    private JTable table;
+
+    private JTextArea details;
+
+    /**
+     * true while the pipeline box is filled
+     */
+    private boolean refreshing;
+
+    /**
+     * Creates a new {@link RunHistoryDialog}.
+     */
+    public RunHistoryDialog(Window owner) {
+        super(owner);
+        setWindowTitle(I18N.getInstance().getString("View.RunHistoryDialog"));
+        setModalityType(ModalityType.MODELESS);
+        setLayout(new BorderLayout());
+
+        JPanel pipelinePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pipelinePanel.add(new JLabel(I18N.getInstance().getString(
+                "View.RunHistoryDialog.Pipeline")));
+        pipelineBox = new JComboBox<String>();
+        pipelineBox.setRenderer(new DefaultListCellRenderer() {
+
+            private static final long serialVersionUID = 4785231446093167745L;
+
+            @Override
+            public Component getListCellRendererComponent(JList<?> list,
+                    Object value, int index, boolean isSelected,
+                    boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list,
+                        getPipelineName((String) value), index, isSelected,
+                        cellHasFocus);
+            }
+        });
+        pipelineBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!refreshing) {
+                    showPipeline((String) pipelineBox.getSelectedItem());
+                }
+            }
+        });
+        pipelinePanel.add(pipelineBox);
+        add(pipelinePanel, BorderLayout.NORTH);
+
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        table.setDefaultRenderer(Object.class, new RunCellRenderer());
+        table.getColumnModel().getColumn(0).setPreferredWidth(140);
+        table.getSelectionModel().addListSelectionListener(
+                new ListSelectionListener() {
+                    @Override
+                    public void valueChanged(ListSelectionEvent e) {
+                        if (!e.getValueIsAdjusting()) {
+                            showDetails();
+                        }
+                    }
+                });
+        JScrollPane tablePane = new JScrollPane(table);
+        tablePane.setPreferredSize(new Dimension(800, 220));
+
+        details = new JTextArea(12, 80);
+        details.setEditable(false);
+        details.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JScrollPane detailsPane = new JScrollPane(details);
+
+        JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                tablePane, detailsPane);
+        split.setResizeWeight(0.5);
+        add(split, BorderLayout.CENTER);
+
+        JPanel buttonGrid = new JPanel(new GridLayout(1, 2, 10, 0));
+
+        JButton refreshButton = new JButton(I18N.getInstance().getString(
+                "View.RunHistoryDialog.Refresh"));
+        refreshButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        buttonGrid.add(refreshButton);
+
+        JButton closeButton = new JButton(I18N.getInstance().getString(
+                "View.Close"));
+        closeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hideWindow();
+            }
+        });
+        buttonGrid.add(closeButton);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttons.add(buttonGrid);
+        add(buttons, BorderLayout.SOUTH);
+
+        pack();
+        centerWindow();
+    }
+
+    @Override
+    public void showWindow() {
+        refresh();
+        super.showWindow();
+    }
+
+    /**
+     * Reloads the history and keeps the selected pipeline.
+     */
+    private void refresh() {
+        String selected = (String) pipelineBox.getSelectedItem();
+        records = RunHistory.getInstance().load();
+
+        refreshing = true;
+        pipelineBox.removeAllItems();
+        for (String pipeline : RunHistory.getPipelines(records)) {
+            pipelineBox.addItem(pipeline);
+        }
+        if (selected != null) {
+            pipelineBox.setSelectedItem(selected);
+        }
+        refreshing = false;
+
+        showPipeline((String) pipelineBox.getSelectedItem());
+    }
+
+    /**
+     * Shows the runs of a pipeline.
+     */
+    private void showPipeline(String pipeline) {
+        runs = new ArrayList<RunRecord>();
+        comparisons = new ArrayList<Comparison>();
+        if (pipeline != null) {
+            List<RunRecord> appended = RunHistory.getRuns(records, pipeline);
+            for (int i = appended.size() - 1; i >= 0; i--) {
+                runs.add(appended.get(i));
+                comparisons.add(RunHistory.compareWithPrevious(appended, i));
+            }
+        }
+        model.fireTableDataChanged();
+        showDetails();
+    }
+
+    /**
+     * Shows the details of the selected run compared to its previous run, or
+     * of two selected runs compared to each other.
+     */
+    private void showDetails() {
+        int[] rows = table.getSelectedRows();
+        StringBuilder text = new StringBuilder();
+        if (rows.length == 1) {
+            RunRecord run = runs.get(rows[0]);
+            Comparison comparison = comparisons.get(rows[0]);
+            if (comparison == null) {
+                appendRun(text, run);
+            } else {
+                appendComparison(text, comparison);
+            }
+        } else if (rows.length == 2) {
+            /* the rows are sorted newest first */
+            appendComparison(text, RunHistory.compare(runs.get(rows[1]),
+                    runs.get(rows[0])));
+        } else {
+            text.append(I18N.getInstance().getString(
+                    "View.RunHistoryDialog.SelectRuns"));
+        }
+        details.setText(text.toString());
+        details.setCaretPosition(0);
+    }
+
+    private void appendRun(StringBuilder text, RunRecord run) {
+        I18N i18n = I18N.getInstance();
+        text.append(i18n.getString("View.RunHistoryDialog.Run",
+                formatDate(run.getStarted()))).append("\n\n");
+
+        text.append(i18n.getString("View.RunHistoryDialog.Functions")).append(
+                "\n");
+        for (String function : run.getFunctions()) {
+            text.append("  ").append(function).append("\n");
+        }
+
+        text.append("\n").append(i18n.getString("View.RunHistoryDialog.Stages"))
+                .append("\n");
+        for (RunRecord.Stage stage : run.getStages()) {
+            text.append(String.format("  %-40s %12d %10s%n", stage.getName(),
+                    stage.getEntities(), formatDuration(stage.getElapsed())));
+        }
+
+        appendFiles(text, i18n.getString("View.RunHistoryDialog.Inputs"), run
+                .getInputs(), null);
+        appendFiles(text, i18n.getString("View.RunHistoryDialog.Outputs"),
+                run.getOutputs(), null);
+
+        text.append("\n").append(
+                i18n.getString("View.RunHistoryDialog.Arguments")).append("\n");
+        for (List<String> arguments : run.getArguments()) {
+            text.append("  ");
+            for (String argument : arguments) {
+                text.append(argument).append(' ');
+            }
+            text.append("\n");
+        }
+
+        if (!run.getRunFiles().isEmpty()) {
+            text.append("\n").append(
+                    i18n.getString("View.RunHistoryDialog.RunFiles")).append(
+                    "\n");
+            for (String file : run.getRunFiles()) {
+                text.append("  ").append(file).append("\n");
+            }
+        }
+    }
+
+    private void appendComparison(StringBuilder text, Comparison comparison) {
+        I18N i18n = I18N.getInstance();
+        RunRecord baseline = comparison.getBaseline();
+        RunRecord run = comparison.getRun();
+
+        text.append(i18n.getString("View.RunHistoryDialog.Compared",
+                formatDate(run.getStarted()), formatDate(baseline.getStarted())))
+                .append("\n");
+        text.append(String.format("  %-20s %12s %12s %10s%n", i18n
+                .getString("View.RunHistoryDialog.Duration"),
+                formatDuration(baseline.getDuration()), formatDuration(run
+                        .getDuration()), RunHistory.formatChange(comparison
+                        .getDurationChange())));
+        text.append(String.format("  %-20s %12s %12s %10s%n", i18n
+                .getString("View.RunHistoryDialog.Throughput"),
+                formatThroughput(baseline.getThroughput()),
+                formatThroughput(run.getThroughput()), RunHistory
+                        .formatChange(comparison.getThroughputChange())));
+        if (comparison.isRegression()) {
+            text.append("\n").append(
+                    i18n.getString("View.RunHistoryDialog.Regression"))
+                    .append("\n");
+        }
+
+        text.append("\n").append(
+                i18n.getString("View.RunHistoryDialog.ChangedFunctions"))
+                .append("\n");
+        if (!comparison.isPipelineChanged()) {
+            text.append("  ").append(
+                    i18n.getString("View.RunHistoryDialog.Unchanged")).append(
+                    "\n");
+        } else if (comparison.getRemovedFunctions().isEmpty()
+                && comparison.getAddedFunctions().isEmpty()) {
+            text.append("  ").append(
+                    i18n.getString("View.RunHistoryDialog.ConnectionsChanged"))
+                    .append("\n");
+        }
+        for (String function : comparison.getRemovedFunctions()) {
+            text.append("  - ").append(function).append("\n");
+        }
+        for (String function : comparison.getAddedFunctions()) {
+            text.append("  + ").append(function).append("\n");
+        }
+
+        text.append("\n").append(i18n.getString("View.RunHistoryDialog.Stages"))
+                .append("\n");
+        for (RunRecord.Stage stage : run.getStages()) {
+            RunRecord.Stage before = null;
+            for (RunRecord.Stage other : baseline.getStages()) {
+                if (other.getName().equals(stage.getName())) {
+                    before = other;
+                    break;
+                }
+            }
+            text.append(String.format("  %-40s %10s %10s%n", stage.getName(),
+                    (before == null ? "" : formatDuration(before.getElapsed())),
+                    formatDuration(stage.getElapsed())));
+        }
+
+        appendFiles(text, i18n.getString("View.RunHistoryDialog.Inputs"), run
+                .getInputs(), baseline.getInputs());
+        appendFiles(text, i18n.getString("View.RunHistoryDialog.Outputs"),
+                run.getOutputs(), baseline.getOutputs());
+    }
+
+    /**
+     * Appends the files of a run with their size, and their size in the
+     * baseline if it is given.
+     */
+    private void appendFiles(StringBuilder text, String title,
+            Map<String, Long> files, Map<String, Long> baseline) {
+        if (files.isEmpty()) {
+            return;
+        }
+        text.append("\n").append(title).append("\n");
+        for (Map.Entry<String, Long> file : files.entrySet()) {
+            Long before = (baseline == null ? null : baseline.get(file
+                    .getKey()));
+            text.append(String.format("  %-50s %12s %12s%n", file.getKey(),
+                    (before == null ? "" : formatSize(before)),
+                    formatSize(file.getValue())));
+        }
+    }
+
+    /**
+     * Returns the shown name of a pipeline.
+     */
+    private String getPipelineName(String pipeline) {
+        if (pipeline == null) {
+            return "";
+        } else if (pipeline.isEmpty()) {
+            return I18N.getInstance().getString("Controller.UnsavedTitle");
+        }
+        return new File(pipeline).getName() + " (" + pipeline + ")";
+    }
+
+    private String formatDate(long time) {
+        return DateFormat.getDateTimeInstance().format(new Date(time));
+    }
+
+    private String formatDuration(long millis) {
+        if (millis < 0) {
+            return I18N.getInstance().getString("Tools.RunHistory.Unknown");
+        }
+        long seconds = millis / 1000;
+        return String.format("%d:%02d:%02d", seconds / 3600,
+                (seconds / 60) % 60, seconds % 60);
+    }
+
+    private String formatThroughput(double throughput) {
+        if (throughput < 0) {
+            return I18N.getInstance().getString("Tools.RunHistory.Unknown");
+        }
+        return String.format("%.0f/s", throughput);
+    }
+
+    private String formatSize(long bytes) {
+        if (bytes < 0) {
+            return "-";
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Table model showing one run per row.
+     */
+    private class RunTableModel extends AbstractTableModel {
+
+        private static final long serialVersionUID = 2243616707389405539L;
+
+        private final String[] columns = new String[] {
+                I18N.getInstance().getString("View.RunHistoryDialog.Started"),
+                I18N.getInstance().getString("View.RunHistoryDialog.Duration"),
+                I18N.getInstance().getString("View.RunHistoryDialog.ExitCode"),
+                I18N.getInstance().getString("View.RunHistoryDialog.Entities"),
+                I18N.getInstance().getString(
+                        "View.RunHistoryDialog.Throughput"),
+                I18N.getInstance().getString(
+                        "View.RunHistoryDialog.DurationChange"),
+                I18N.getInstance().getString(
+                        "View.RunHistoryDialog.ThroughputChange"),
+                I18N.getInstance().getString(
+                        "View.RunHistoryDialog.PipelineChanged") };
+
+        @Override
+        public int getRowCount() {
+            return runs.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            RunRecord run = runs.get(row);
+            Comparison comparison = comparisons.get(row);
+            switch (column) {
+            case 0:
+                return formatDate(run.getStarted());
+            case 1:
+                return formatDuration(run.getDuration());
+            case 2:
+                return run.getExitCode();
+            case 3:
+                return (run.getEntities() < 0 ? "" : run.getEntities());
+            case 4:
+                return formatThroughput(run.getThroughput());
+            case 5:
+                return (comparison == null ? "" : RunHistory
+                        .formatChange(comparison.getDurationChange()));
+            case 6:
+                return (comparison == null ? "" : RunHistory
+                        .formatChange(comparison.getThroughputChange()));
+            default:
+                return (comparison != null && comparison.isPipelineChanged() ? I18N
+                        .getInstance().getString("View.RunHistoryDialog.Changed")
+                        : "");
+            }
+        }
+    }
+
+    /**
+     * Renderer highlighting failed runs and regressions.
+     */
+    private class RunCellRenderer extends DefaultTableCellRenderer {
+
+        private static final long serialVersionUID = -6193542150398946045L;
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table,
+                Object value, boolean isSelected, boolean hasFocus, int row,
+                int column) {
+            Component component = super.getTableCellRendererComponent(table,
+                    value, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                Comparison comparison = comparisons.get(row);
+                if (!runs.get(row).isSuccessful()) {
+                    component.setForeground(Color.GRAY);
+                } else if (comparison != null && comparison.isRegression()) {
+                    component.setForeground(Color.RED);
+                } else {
+                    component.setForeground(table.getForeground());
+                }
+            }
+            return component;
+        }
+    }
+}
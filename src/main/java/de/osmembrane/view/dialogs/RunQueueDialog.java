@@ -0,0 +1,282 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.dialogs;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.JButton;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import de.osmembrane.tools.I18N;
+import de.osmembrane.tools.RunQueue;
+import de.osmembrane.tools.RunQueue.Job;
+import de.osmembrane.view.AbstractDialog;
+import de.osmembrane.view.interfaces.IRunQueueDialog;
+
+/**
+ * Compact list of all queued, running and completed pipeline executions of
+ * the {@link RunQueue}. The dialog does not block the main window.
+ * 
+ * @author agent
+ * 
+ */
+public class RunQueueDialog extends AbstractDialog implements
+        IRunQueueDialog, Observer {
+
+    private static final long serialVersionUID = 7046217734591733870L;
+
+    /**
+     * interval in which the running times are updated
+     */
+    private static final int REFRESH_INTERVAL = 1000;
+
+    /**
+     * the shown jobs
+     */
+    private List<Job> jobs = new ArrayList<Job>();
+
+    private JobTableModel model = new JobTableModel();
+
+    private JTable table;
+
+    /**
+     * true if a refresh is already queued on the event dispatch thread
+     */
+    private boolean refreshPending;
+
+    private Timer refreshTimer;
+
+    /**
+     * Creates a new {@link RunQueueDialog}.
+     */
+    public RunQueueDialog(Window owner) {
+        super(owner);
+        setWindowTitle(I18N.getInstance().getString("View.RunQueueDialog"));
+        setModalityType(ModalityType.MODELESS);
+        setLayout(new BorderLayout());
+
+        table = new JTable(model);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(0).setPreferredWidth(160);
+        table.getColumnModel().getColumn(4).setPreferredWidth(320);
+        JScrollPane tablePane = new JScrollPane(table);
+        tablePane.setPreferredSize(new Dimension(720, 200));
+        add(tablePane, BorderLayout.CENTER);
+
+        JPanel buttonGrid = new JPanel(new GridLayout(1, 4, 10, 0));
+
+        JButton logButton = new JButton(I18N.getInstance().getString(
+                "View.RunQueueDialog.ShowLog"));
+        logButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Job job = getSelectedJob();
+                if (job != null) {
+                    showLog(job);
+                }
+            }
+        });
+        buttonGrid.add(logButton);
+
+        JButton cancelButton = new JButton(I18N.getInstance().getString(
+                "View.Cancel"));
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Job job = getSelectedJob();
+                if (job != null) {
+                    RunQueue.getInstance().cancel(job);
+                }
+            }
+        });
+        buttonGrid.add(cancelButton);
+
+        JButton removeButton = new JButton(I18N.getInstance().getString(
+                "View.RunQueueDialog.RemoveCompleted"));
+        removeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                RunQueue.getInstance().removeCompleted();
+            }
+        });
+        buttonGrid.add(removeButton);
+
+        JButton closeButton = new JButton(I18N.getInstance().getString(
+                "View.Close"));
+        closeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hideWindow();
+            }
+        });
+        buttonGrid.add(closeButton);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttons.add(buttonGrid);
+        add(buttons, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                model.fireTableRowsUpdated(0, jobs.size() - 1);
+            }
+        });
+
+        pack();
+        centerWindow();
+
+        RunQueue.getInstance().addObserver(this);
+        refresh();
+    }
+
+    @Override
+    public void showWindow() {
+        refreshTimer.start();
+        super.showWindow();
+    }
+
+    @Override
+    public void hideWindow() {
+        refreshTimer.stop();
+        super.hideWindow();
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        RunQueue.getInstance().deleteObserver(this);
+        super.dispose();
+    }
+
+    @Override
+    public void update(Observable o, Object arg) {
+        /* the queue reports from the executing threads */
+        synchronized (this) {
+            if (refreshPending) {
+                return;
+            }
+            refreshPending = true;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (RunQueueDialog.this) {
+                    refreshPending = false;
+                }
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Reloads the jobs from the queue and keeps the selection.
+     */
+    private void refresh() {
+        Job selected = getSelectedJob();
+        jobs = RunQueue.getInstance().getJobs();
+        model.fireTableDataChanged();
+
+        int index = jobs.indexOf(selected);
+        if (index >= 0) {
+            table.getSelectionModel().setSelectionInterval(index, index);
+        }
+    }
+
+    private Job getSelectedJob() {
+        int row = table.getSelectedRow();
+        return (row >= 0 && row < jobs.size() ? jobs.get(row) : null);
+    }
+
+    /**
+     * Shows the retained output lines of a job.
+     */
+    private void showLog(Job job) {
+        StringBuilder log = new StringBuilder();
+        for (String line : job.getLog()) {
+            log.append(line).append("\n");
+        }
+        JTextArea logArea = new JTextArea(log.toString(), 25, 80);
+        logArea.setEditable(false);
+
+        JOptionPane.showMessageDialog(this, new JScrollPane(logArea),
+                job.getName(), JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Table model showing one job per row.
+     */
+    private class JobTableModel extends AbstractTableModel {
+
+        private static final long serialVersionUID = -1370286455312089316L;
+
+        private final String[] columns = new String[] {
+                I18N.getInstance().getString("View.RunQueueDialog.Pipeline"),
+                I18N.getInstance().getString("View.State"),
+                I18N.getInstance().getString("View.RunQueueDialog.Progress"),
+                I18N.getInstance().getString("View.RunQueueDialog.Time"),
+                I18N.getInstance().getString("View.RunQueueDialog.Details") };
+
+        @Override
+        public int getRowCount() {
+            return jobs.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Job job = jobs.get(row);
+            switch (column) {
+            case 0:
+                return job.getName();
+            case 1:
+                return I18N.getInstance().getString(
+                        "View.RunQueueDialog.State." + job.getState());
+            case 2:
+                return job.getProgress() + " %";
+            case 3:
+                long seconds = job.getElapsed() / 1000;
+                return String.format("%d:%02d:%02d", seconds / 3600,
+                        (seconds / 60) % 60, seconds % 60);
+            default:
+                String statistics = job.getStatistics();
+                return (statistics.isEmpty() ? job.getStateText() : statistics);
+            }
+        }
+    }
+}
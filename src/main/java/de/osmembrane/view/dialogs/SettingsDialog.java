@@ -75,6 +75,13 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
      */
     private JTextFieldWithButton workingPath;
 
+    /**
+     * Components to edit whether and with which jars osmosis is executed
+     * in-process
+     */
+    private JCheckBox inProcessExecution;
+    private JTextFieldWithButton osmosisLibraryPath;
+
     /**
      * Components to edit the default zoom
      */
@@ -97,11 +104,52 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
      */
     private JCheckBox defaultParamExport;
 
+    /**
+     * Components to edit whether generated pipelines shall be optimized
+     */
+    private JCheckBox optimizePipeline;
+
+    /**
+     * Components to edit whether and how buffers shall be inserted
+     */
+    private JCheckBox insertBuffers;
+    private JSpinner bufferCapacity;
+
     /**
      * Components to edit how much undo steps shall be available
      */
     private JSpinner maxUndoSteps;
 
+    /**
+     * Component to edit how many output lines are kept while executing
+     */
+    private JSpinner maxOutputLines;
+
+    /**
+     * Component to edit how many pipelines the run queue executes at once
+     */
+    private JSpinner runQueueSize;
+
+    /**
+     * Component to edit the maximum size of the execution cache
+     */
+    private JSpinner executionCacheSize;
+
+    /**
+     * Component to edit the minimum time between two watched executions
+     */
+    private JSpinner watchInterval;
+
+    /**
+     * Components to edit the count of parallel pipeline components
+     */
+    private JSpinner parallelComponents;
+
+    /**
+     * Components to edit whether the pipeline is drawn on a single canvas
+     */
+    private JCheckBox canvasRendering;
+
     /**
      * Components to edit the grid size
      */
@@ -194,7 +242,9 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
 
                 JFileChooser fc = new JFileChooser();
                 fc.setSelectedFile(new File(jtfwb.getValue()));
-                if (jtfwb.equals(workingPath)) {
+                final boolean directories = (jtfwb.equals(workingPath) || jtfwb
+                        .equals(osmosisLibraryPath));
+                if (directories) {
                     fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
                     fc.setAcceptAllFileFilterUsed(false);
                 }
@@ -207,8 +257,8 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
 
                     @Override
                     public boolean accept(File f) {
-                        return (jtfwb.equals(workingPath)) ? f.isDirectory()
-                                : f.canExecute();
+                        return (directories) ? f.isDirectory() : f
+                                .canExecute();
                     }
                 });
                 if (fc.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
@@ -348,6 +398,29 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
         settings.add(defaultZoom, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridy = 8;
+        gbc.gridx = 0;
+        inProcessExecution = new JCheckBox(I18N.getInstance().getString(
+                "Model.Settings.Type.IN_PROCESS_EXECUTION")
+                + ":");
+        inProcessExecution.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.IN_PROCESS_EXECUTION.Description"));
+        inProcessExecution.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                osmosisLibraryPath.setEnabled(inProcessExecution.isSelected());
+            }
+        });
+        settings.add(inProcessExecution, gbc);
+        gbc.gridx = 1;
+        osmosisLibraryPath = new JTextFieldWithButton("", "...");
+        osmosisLibraryPath.setPreferredSize(new Dimension(minFieldWidth,
+                osmosisLibraryPath.getPreferredSize().height));
+        osmosisLibraryPath.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.OSMOSIS_LIBRARY_PATH.Description"));
+        osmosisLibraryPath.addButtonActionListener(selectFiles);
+        settings.add(osmosisLibraryPath, gbc);
+
         gbc.gridy = 0;
         gbc.gridx = 2;
         gbc.gridwidth = 2;
@@ -398,6 +471,38 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
                 "Model.Settings.Type.MAXIMUM_UNDO_STEPS.Description"));
         settings.add(maxUndoSteps, gbc);
 
+        gbc.gridy = 4;
+        gbc.gridx = 2;
+        gbc.gridwidth = 2;
+        optimizePipeline = new JCheckBox(I18N.getInstance().getString(
+                "Model.Settings.Type.OPTIMIZE_GENERATED_PIPELINE"));
+        optimizePipeline.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.OPTIMIZE_GENERATED_PIPELINE.Description"));
+        settings.add(optimizePipeline, gbc);
+        gbc.gridwidth = 1;
+
+        gbc.gridy = 5;
+        gbc.gridx = 2;
+        insertBuffers = new JCheckBox(I18N.getInstance().getString(
+                "Model.Settings.Type.INSERT_BUFFERS")
+                + ":");
+        insertBuffers.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.INSERT_BUFFERS.Description"));
+        insertBuffers.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                bufferCapacity.setEnabled(insertBuffers.isSelected());
+            }
+        });
+        settings.add(insertBuffers, gbc);
+        gbc.gridx = 3;
+        bufferCapacity = new JSpinner();
+        bufferCapacity.setPreferredSize(new Dimension(minSpinnerWidth,
+                bufferCapacity.getPreferredSize().height));
+        bufferCapacity.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.BUFFER_CAPACITY.Description"));
+        settings.add(bufferCapacity, gbc);
+
         gbc.gridy = 6;
         gbc.gridx = 2;
         rasterSizeEnable = new JCheckBox(I18N.getInstance().getString(
@@ -436,6 +541,86 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
         settings.add(rasterSize, gbc);
         gbc.gridwidth = 1;
 
+        gbc.gridy = 8;
+        gbc.gridx = 2;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "Model.Settings.Type.MAXIMUM_OUTPUT_LINES")
+                        + ":"), gbc);
+        gbc.gridx = 3;
+        maxOutputLines = new JSpinner();
+        maxOutputLines.setPreferredSize(new Dimension(minSpinnerWidth,
+                maxOutputLines.getPreferredSize().height));
+        maxOutputLines.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.MAXIMUM_OUTPUT_LINES.Description"));
+        settings.add(maxOutputLines, gbc);
+
+        gbc.gridy = 9;
+        gbc.gridx = 2;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "Model.Settings.Type.RUN_QUEUE_SIZE")
+                        + ":"), gbc);
+        gbc.gridx = 3;
+        runQueueSize = new JSpinner();
+        runQueueSize.setPreferredSize(new Dimension(minSpinnerWidth,
+                runQueueSize.getPreferredSize().height));
+        runQueueSize.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.RUN_QUEUE_SIZE.Description"));
+        settings.add(runQueueSize, gbc);
+
+        gbc.gridy = 10;
+        gbc.gridx = 2;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "Model.Settings.Type.EXECUTION_CACHE_SIZE")
+                        + ":"), gbc);
+        gbc.gridx = 3;
+        executionCacheSize = new JSpinner();
+        executionCacheSize.setPreferredSize(new Dimension(minSpinnerWidth,
+                executionCacheSize.getPreferredSize().height));
+        executionCacheSize.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.EXECUTION_CACHE_SIZE.Description"));
+        settings.add(executionCacheSize, gbc);
+
+        gbc.gridy = 11;
+        gbc.gridx = 2;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "Model.Settings.Type.WATCH_INTERVAL")
+                        + ":"), gbc);
+        gbc.gridx = 3;
+        watchInterval = new JSpinner();
+        watchInterval.setPreferredSize(new Dimension(minSpinnerWidth,
+                watchInterval.getPreferredSize().height));
+        watchInterval.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.WATCH_INTERVAL.Description"));
+        settings.add(watchInterval, gbc);
+
+        gbc.gridy = 12;
+        gbc.gridx = 2;
+        settings.add(
+                new JLabel(I18N.getInstance().getString(
+                        "Model.Settings.Type.PARALLEL_COMPONENTS")
+                        + ":"), gbc);
+        gbc.gridx = 3;
+        parallelComponents = new JSpinner();
+        parallelComponents.setPreferredSize(new Dimension(minSpinnerWidth,
+                parallelComponents.getPreferredSize().height));
+        parallelComponents.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.PARALLEL_COMPONENTS.Description"));
+        settings.add(parallelComponents, gbc);
+
+        gbc.gridy = 13;
+        gbc.gridx = 2;
+        gbc.gridwidth = 2;
+        canvasRendering = new JCheckBox(I18N.getInstance().getString(
+                "Model.Settings.Type.CANVAS_RENDERING"));
+        canvasRendering.setToolTipText(I18N.getInstance().getString(
+                "Model.Settings.Type.CANVAS_RENDERING.Description"));
+        settings.add(canvasRendering, gbc);
+        gbc.gridwidth = 1;
+
         add(settings, BorderLayout.CENTER);
 
         pack();
@@ -532,9 +717,42 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
         case EXPORT_PARAMETERS_WITH_DEFAULT_VALUES:
             return this.defaultParamExport.isSelected();
 
+        case OPTIMIZE_GENERATED_PIPELINE:
+            return this.optimizePipeline.isSelected();
+
+        case INSERT_BUFFERS:
+            return this.insertBuffers.isSelected();
+
+        case BUFFER_CAPACITY:
+            return this.bufferCapacity.getValue();
+
         case MAXIMUM_UNDO_STEPS:
             return this.maxUndoSteps.getValue();
 
+        case MAXIMUM_OUTPUT_LINES:
+            return this.maxOutputLines.getValue();
+
+        case RUN_QUEUE_SIZE:
+            return this.runQueueSize.getValue();
+
+        case EXECUTION_CACHE_SIZE:
+            return this.executionCacheSize.getValue();
+
+        case WATCH_INTERVAL:
+            return this.watchInterval.getValue();
+
+        case IN_PROCESS_EXECUTION:
+            return this.inProcessExecution.isSelected();
+
+        case OSMOSIS_LIBRARY_PATH:
+            return this.osmosisLibraryPath.getValue();
+
+        case PARALLEL_COMPONENTS:
+            return this.parallelComponents.getValue();
+
+        case CANVAS_RENDERING:
+            return this.canvasRendering.isSelected();
+
         case PIPELINE_RASTER_SIZE:
             int y = this.rasterSize.getValue();
             return rasterSizeToModel(y);
@@ -600,10 +818,56 @@ public class SettingsDialog extends AbstractDialog implements ISettingsDialog {
             this.defaultParamExport.setSelected((Boolean) value);
             break;
 
+        case OPTIMIZE_GENERATED_PIPELINE:
+            this.optimizePipeline.setSelected((Boolean) value);
+            break;
+
+        case INSERT_BUFFERS:
+            this.insertBuffers.setSelected((Boolean) value);
+            this.bufferCapacity.setEnabled((Boolean) value);
+            break;
+
+        case BUFFER_CAPACITY:
+            this.bufferCapacity.setValue((Integer) value);
+            break;
+
         case MAXIMUM_UNDO_STEPS:
             this.maxUndoSteps.setValue((Integer) value);
             break;
 
+        case MAXIMUM_OUTPUT_LINES:
+            this.maxOutputLines.setValue((Integer) value);
+            break;
+
+        case RUN_QUEUE_SIZE:
+            this.runQueueSize.setValue((Integer) value);
+            break;
+
+        case EXECUTION_CACHE_SIZE:
+            this.executionCacheSize.setValue((Integer) value);
+            break;
+
+        case WATCH_INTERVAL:
+            this.watchInterval.setValue((Integer) value);
+            break;
+
+        case IN_PROCESS_EXECUTION:
+            this.inProcessExecution.setSelected((Boolean) value);
+            this.osmosisLibraryPath.setEnabled((Boolean) value);
+            break;
+
+        case OSMOSIS_LIBRARY_PATH:
+            this.osmosisLibraryPath.setValue((String) value);
+            break;
+
+        case PARALLEL_COMPONENTS:
+            this.parallelComponents.setValue((Integer) value);
+            break;
+
+        case CANVAS_RENDERING:
+            this.canvasRendering.setSelected((Boolean) value);
+            break;
+
         case PIPELINE_RASTER_SIZE:
             int rasterSize = rasterSizeFromModel((Integer) value);
             this.rasterSizeEnable.setSelected(rasterSize != 0);
@@ -47,8 +47,11 @@ import de.osmembrane.controller.ActionRegistry;
 import de.osmembrane.controller.actions.ArrangePipelineAction;
 import de.osmembrane.controller.actions.ChangePipelineSettingsAction;
 import de.osmembrane.controller.actions.ChangeSettingsAction;
+import de.osmembrane.controller.actions.DeduplicateReadersAction;
 import de.osmembrane.controller.actions.DeleteSelectionAction;
 import de.osmembrane.controller.actions.DuplicateFunctionAction;
+import de.osmembrane.controller.actions.ExecuteCachedPipelineAction;
+import de.osmembrane.controller.actions.ExecutePartitionedPipelineAction;
 import de.osmembrane.controller.actions.ExecutePipelineAction;
 import de.osmembrane.controller.actions.ExitAction;
 import de.osmembrane.controller.actions.ExportPipelineAction;
@@ -57,18 +60,25 @@ import de.osmembrane.controller.actions.ImportPipelineAction;
 import de.osmembrane.controller.actions.LoadPipelineAction;
 import de.osmembrane.controller.actions.NewPipelineAction;
 import de.osmembrane.controller.actions.PreviewPipelineAction;
+import de.osmembrane.controller.actions.QueuePipelineAction;
 import de.osmembrane.controller.actions.RedoAction;
 import de.osmembrane.controller.actions.ResetViewAction;
+import de.osmembrane.controller.actions.SampleRunPipelineAction;
 import de.osmembrane.controller.actions.SaveAsPipelineAction;
 import de.osmembrane.controller.actions.SavePipelineAction;
 import de.osmembrane.controller.actions.ShowAboutAction;
 import de.osmembrane.controller.actions.ShowHelpAction;
 import de.osmembrane.controller.actions.ShowQuickstartAction;
+import de.osmembrane.controller.actions.ShowRunHistoryAction;
+import de.osmembrane.controller.actions.ShowRunQueueAction;
 import de.osmembrane.controller.actions.UndoAction;
 import de.osmembrane.controller.actions.ViewAllAction;
+import de.osmembrane.controller.actions.WatchPipelineAction;
 import de.osmembrane.controller.actions.ZoomInAction;
 import de.osmembrane.controller.actions.ZoomOutAction;
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
 import de.osmembrane.model.pipeline.AbstractFunctionGroup;
 import de.osmembrane.model.settings.SettingType;
 import de.osmembrane.resources.Resource;
@@ -226,6 +236,8 @@ public class MainFrame extends AbstractFrame implements IMainFrame {
                 "View.Menu.Pipeline"));
         pipelineMenu.add(ActionRegistry.getInstance().get(
                 ArrangePipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                DeduplicateReadersAction.class));
         pipelineMenu.add(ActionRegistry.getInstance().get(
                 ChangePipelineSettingsAction.class));
         pipelineMenu.add(new JSeparator());
@@ -234,6 +246,20 @@ public class MainFrame extends AbstractFrame implements IMainFrame {
         pipelineMenu.add(new JSeparator());
         pipelineMenu.add(ActionRegistry.getInstance().get(
                 ExecutePipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                ExecutePartitionedPipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                ExecuteCachedPipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                SampleRunPipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                QueuePipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                WatchPipelineAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                ShowRunQueueAction.class));
+        pipelineMenu.add(ActionRegistry.getInstance().get(
+                ShowRunHistoryAction.class));
         pipelineMenu.add(ActionRegistry.getInstance().get(
                 PreviewPipelineAction.class));
         menuBar.add(pipelineMenu);
@@ -432,6 +458,16 @@ public class MainFrame extends AbstractFrame implements IMainFrame {
         return pipelineView.getSelected();
     }
 
+    @Override
+    public AbstractFunction getSelectedFunction() {
+        return pipelineView.getSelectedFunction();
+    }
+
+    @Override
+    public AbstractConnector[] getSelectedConnection() {
+        return pipelineView.getSelectedConnection();
+    }
+
     @Override
     public void setHint(String hint) {
         pipelineView.setHint(hint);
@@ -449,8 +485,8 @@ public class MainFrame extends AbstractFrame implements IMainFrame {
 
         Component target = findComponentAt(framePoint);
 
-        return (pipelineView.getLayeredPane().equals(target))
-                || (pipelineView.getLayeredPane().equals(target.getParent()));
+        return (pipelineView.getDisplay().equals(target))
+                || (pipelineView.getDisplay().equals(target.getParent()));
     }
 
     @Override
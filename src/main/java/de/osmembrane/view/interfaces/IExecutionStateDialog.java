@@ -12,9 +12,11 @@
 package de.osmembrane.view.interfaces;
 
 import java.awt.event.WindowListener;
+import java.util.List;
 
 import javax.swing.JDialog;
 
+import de.osmembrane.tools.ProcessSampler.Sample;
 import de.osmembrane.view.dialogs.ExecutionStateDialog;
 
 /**
@@ -40,6 +42,31 @@ public interface IExecutionStateDialog extends IView {
      */
     public void setProgress(int progress);
 
+    /**
+     * Sets the statistics of the running execution, like the processed
+     * entities and the remaining time.
+     * 
+     * @param statistics
+     *            human readable statistics
+     */
+    public void setStatistics(String statistics);
+
+    /**
+     * Adds a sample to the throughput chart.
+     * 
+     * @param throughput
+     *            processed entities per second
+     */
+    public void addThroughputSample(double throughput);
+
+    /**
+     * Adds a sample of the used resources of the osmosis processes.
+     * 
+     * @param sample
+     *            the sample
+     */
+    public void addResourceSample(Sample sample);
+
     /**
      * Adds a line to the output.
      * 
@@ -48,6 +75,14 @@ public interface IExecutionStateDialog extends IView {
      */
     public void addOutputLine(String outputLine);
 
+    /**
+     * Adds several lines to the output at once.
+     * 
+     * @param outputLines
+     *            lines which should be added
+     */
+    public void addOutputLines(List<String> outputLines);
+
     /**
      * Sets the caption of the close button to caption
      * 
@@ -13,6 +13,8 @@ package de.osmembrane.view.interfaces;
 
 import java.awt.Point;
 
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
 import de.osmembrane.view.frames.MainFrame;
 import de.osmembrane.view.frames.MainFrameGlassPane;
 
@@ -29,6 +31,18 @@ public interface IMainFrame extends IView {
      */
     public Object getSelected();
 
+    /**
+     * @return the model function of the selected function on the pipeline,
+     *         or null if no function is selected
+     */
+    public AbstractFunction getSelectedFunction();
+
+    /**
+     * @return the model source and destination connector of the selected
+     *         connection on the pipeline, or null if no connection is selected
+     */
+    public AbstractConnector[] getSelectedConnection();
+
     /**
      * Sets the explanation hint in the inspector panel to hint
      * 
@@ -51,6 +51,45 @@ public interface IPipelineSettingsDialog extends IView {
      */
     public int getDebug();
 
+    /**
+     * Sets the maximum heap of the osmosis JVM.
+     * 
+     * @param heap
+     *            heap in megabyte, 0 for the recommended one
+     */
+    public void setJavaHeap(int heap);
+
+    /**
+     * @return the maximum heap of the osmosis JVM, 0 for the recommended one
+     */
+    public int getJavaHeap();
+
+    /**
+     * Sets the garbage collector options of the osmosis JVM.
+     * 
+     * @param options
+     *            the options, empty for the recommended ones
+     */
+    public void setJavaOptions(String options);
+
+    /**
+     * @return the garbage collector options, empty for the recommended ones
+     */
+    public String getJavaOptions();
+
+    /**
+     * Sets the temporary directory of osmosis.
+     * 
+     * @param directory
+     *            the directory, empty for the recommended one
+     */
+    public void setTempDirectory(String directory);
+
+    /**
+     * @return the temporary directory, empty for the recommended one
+     */
+    public String getTempDirectory();
+
     /**
      * Sets a comment for the pipeline.
      * 
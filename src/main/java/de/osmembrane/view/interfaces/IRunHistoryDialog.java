@@ -0,0 +1,24 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.interfaces;
+
+import de.osmembrane.view.dialogs.RunHistoryDialog;
+
+/**
+ * Interface for {@link RunHistoryDialog}.
+ * 
+ * @author agent
+ * 
+ */
+public interface IRunHistoryDialog extends IView {
+
+}
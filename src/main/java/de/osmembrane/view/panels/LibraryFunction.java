@@ -69,6 +69,13 @@ public class LibraryFunction extends DisplayTemplatePanel {
             LibraryFunction.class
                     .getResource("/de/osmembrane/resources/images/function.png"));
 
+    /**
+     * The size of a function in object space
+     */
+    public static final Dimension FUNCTION_SIZE = new Dimension(
+            (int) (displayTemplate.getIconWidth() * Constants.DEFAULT_SIZE_FACTOR),
+            (int) (displayTemplate.getIconHeight() * Constants.DEFAULT_SIZE_FACTOR));
+
     /**
      * The referenced model {@link Function}
      */
@@ -126,9 +133,7 @@ public class LibraryFunction extends DisplayTemplatePanel {
          * it for *FUNCTION GROUPS ONLY* if you ever want images/function,
          * change this
          */
-        setPreferredSize(new Dimension(
-                (int) (displayTemplate.getIconWidth() * Constants.DEFAULT_SIZE_FACTOR),
-                (int) (displayTemplate.getIconHeight() * Constants.DEFAULT_SIZE_FACTOR)));
+        setPreferredSize(new Dimension(FUNCTION_SIZE));
 
         List<Image> prerender = DisplayTemplatePanel
                 .givePrerender(modelFunctionPrototype.getParent());
@@ -318,6 +323,26 @@ public class LibraryFunction extends DisplayTemplatePanel {
      */
     protected void printCenteredString(Graphics g, String str, double x,
             double y) {
+        printCenteredString(g, str, x, y, getWidth());
+    }
+
+    /**
+     * Prints a string centered and with line breaks at spaces fitting into a
+     * given width
+     * 
+     * @param g
+     *            Graphics to draw upon
+     * @param str
+     *            String to display centered with line breaks
+     * @param x
+     *            the base x coordinate for the first character of the string
+     * @param y
+     *            the base y coordinate for the last line of the string
+     * @param width
+     *            the width to fit the string into
+     */
+    protected static void printCenteredString(Graphics g, String str,
+            double x, double y, int width) {
 
         // find out how large this is gonna be
         FontMetrics fm = g.getFontMetrics();
@@ -332,7 +357,7 @@ public class LibraryFunction extends DisplayTemplatePanel {
             int thisWidth = fm.stringWidth(word + " ");
 
             // if this line is wider than possible, make a new line
-            if (fontWidth + thisWidth >= getWidth()) {
+            if (fontWidth + thisWidth >= width) {
 
                 // no word yet = sorry, but it can't fit
                 if (line.isEmpty()) {
@@ -357,7 +382,7 @@ public class LibraryFunction extends DisplayTemplatePanel {
         // print the lines
         for (int i = lines.size() - 1; i >= 0; i--) {
             line = lines.get((lines.size() - 1) - i);
-            g.drawString(line, (int) x + (getWidth() - fm.stringWidth(line))
+            g.drawString(line, (int) x + (width - fm.stringWidth(line))
                     / 2, (int) y - i * fontHeight);
         }
     }
@@ -0,0 +1,587 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.panels;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.ToolTipManager;
+
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.resources.Constants;
+import de.osmembrane.view.panels.PipelineScene.SceneConnector;
+import de.osmembrane.view.panels.PipelineScene.SceneFunction;
+import de.osmembrane.view.panels.PipelineScene.SceneLink;
+
+/**
+ * Draws the whole {@link PipelineScene} of a {@link PipelinePanel} on a single
+ * component, instead of one {@link PipelineFunction},
+ * {@link PipelineConnector} and {@link PipelineLink} per object. Only the
+ * objects inside the clip are painted, and small functions are painted
+ * without images and text. Zoomed out, the scene is kept in a buffer and only
+ * drawn again when it changed.
+ * 
+ * Mouse events are forwarded to the {@link PipelinePanel} the same way the
+ * single components do it.
+ * 
+ * @author agent
+ * 
+ */
+public class PipelineCanvas extends JComponent {
+
+    private static final long serialVersionUID = -1834120915287405710L;
+
+    /**
+     * Functions smaller than this width in window space are drawn as plain
+     * rectangles.
+     */
+    private static final int MIN_DETAIL_WIDTH = 24;
+
+    private static final BasicStroke BORDER_STROKE = new BasicStroke(2.0f);
+
+    /**
+     * The {@link PipelinePanel} this canvas is drawn on.
+     */
+    private PipelinePanel pipeline;
+
+    /**
+     * The object the current mouse press happened on (a
+     * {@link SceneFunction}, {@link SceneConnector}, {@link SceneLink} or
+     * null), so the release and drag events go to the same object.
+     */
+    private Object pressed;
+
+    /**
+     * The function currently under the cursor, to show its hint
+     */
+    private SceneFunction hovered;
+
+    /**
+     * The scene drawn when zoomed out, and the version of the scene, the
+     * function left out and the transformation it was drawn with.
+     */
+    private BufferedImage buffer;
+    private int bufferVersion;
+    private SceneFunction bufferExcluded;
+    private AffineTransform bufferTransform;
+
+    /**
+     * Creates a new {@link PipelineCanvas}.
+     * 
+     * @param pipeline
+     *            the {@link PipelinePanel} to draw and forward events to
+     */
+    public PipelineCanvas(final PipelinePanel pipeline) {
+        this.pipeline = pipeline;
+        this.setOpaque(false);
+        ToolTipManager.sharedInstance().registerComponent(this);
+
+        addMouseListener(new MouseListener() {
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (pressed instanceof SceneFunction) {
+                    if (pipeline.getActiveTool() != Tool.CONNECTION_TOOL) {
+                        forward(e);
+                    }
+                } else if (pressed instanceof SceneConnector) {
+                    if (pipeline.getActiveTool() != Tool.DEFAULT_MAGIC_TOOL) {
+                        forward(e);
+                    }
+                } else {
+                    forward(e);
+                }
+                pressed = null;
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                Point2D at = pipeline.windowToObj(e.getPoint());
+                PipelineScene scene = pipeline.getScene();
+
+                pressed = scene.getFunctionAt(at);
+                if (pressed == null) {
+                    pressed = scene.getConnectorAt(at);
+                }
+                if (pressed == null) {
+                    pressed = scene.getLinkAt(at,
+                            PipelineLink.LINE_SELECTION_WIDTH
+                                    / pipeline.getDisplayTransform()
+                                            .getScaleX());
+                }
+
+                Tool tool = pipeline.getActiveTool();
+                if (pressed instanceof SceneFunction) {
+                    switch (tool) {
+                    case DEFAULT_MAGIC_TOOL:
+                    case SELECTION_TOOL:
+                        pipeline.selected(pressed);
+                        pipeline.setDraggingFrom(SwingUtilities.convertPoint(
+                                PipelineCanvas.this, e.getPoint(), pipeline));
+                        break;
+                    case VIEW_TOOL:
+                        forward(e);
+                        break;
+                    case CONNECTION_TOOL:
+                        pipeline.connect(((SceneFunction) pressed)
+                                .getModelFunction());
+                        break;
+                    }
+                } else if (pressed instanceof SceneConnector) {
+                    if (tool == Tool.DEFAULT_MAGIC_TOOL) {
+                        pipeline.connect(((SceneConnector) pressed).getParent()
+                                .getModelFunction());
+                    } else {
+                        forward(e);
+                    }
+                } else if ((pressed instanceof SceneLink)
+                        && ((tool == Tool.DEFAULT_MAGIC_TOOL) || (tool == Tool.SELECTION_TOOL))) {
+                    pipeline.selected(pressed);
+                } else {
+                    forward(e);
+                }
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                hover(null);
+            }
+
+            @Override
+            public void mouseEntered(MouseEvent e) {
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+            }
+        });
+
+        addMouseMotionListener(new MouseMotionListener() {
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                hover(pipeline.getScene().getFunctionAt(
+                        pipeline.windowToObj(e.getPoint())));
+                forward(e);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                Tool tool = pipeline.getActiveTool();
+                if (pressed == null) {
+                    forward(e);
+                } else if (pressed instanceof SceneFunction) {
+                    if (tool != Tool.CONNECTION_TOOL) {
+                        forward(e);
+                    }
+                } else if (tool == Tool.VIEW_TOOL) {
+                    forward(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Forwards a mouse event to the {@link PipelinePanel}.
+     * 
+     * @param e
+     *            the event on this canvas
+     */
+    private void forward(MouseEvent e) {
+        pipeline.dispatchEvent(SwingUtilities.convertMouseEvent(this, e,
+                pipeline));
+    }
+
+    /**
+     * Shows the hint of the function under the cursor.
+     * 
+     * @param sf
+     *            the function under the cursor or null
+     */
+    private void hover(SceneFunction sf) {
+        if (sf == hovered) {
+            return;
+        }
+        hovered = sf;
+        if (sf == null) {
+            pipeline.setHint(InspectorPanel.VALID_EMPTY_HINT);
+        } else {
+            pipeline.setHint(sf.getModelFunction().getDescription());
+        }
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        SceneFunction sf = pipeline.getScene().getFunctionAt(
+                pipeline.windowToObj(event.getPoint()));
+        if (sf == null) {
+            return null;
+        }
+        return pipeline.getEstimateText(sf.getModelFunction());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        PipelineScene scene = pipeline.getScene();
+        AffineTransform toWindow = pipeline.getDisplayTransform();
+        Object selected = pipeline.getSelected();
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        Rectangle2D visible = toVisible(toWindow, clip);
+        if (visible == null) {
+            return;
+        }
+
+        if (isDetailed(toWindow)) {
+            paintScene(g2, toWindow, visible, selected, null);
+        } else {
+            /*
+             * zoomed out most of the scene is visible, so it is drawn once
+             * without the selection and the function being dragged, which
+             * are drawn on top
+             */
+            SceneFunction moving = scene.getMoving();
+            updateBuffer(scene, toWindow, moving);
+            g.drawImage(buffer, 0, 0, this);
+
+            if (moving != null) {
+                for (SceneLink sl : moving.getLinks()) {
+                    paintLink(g, toWindow, sl, sl == selected);
+                }
+                paintFunction(g2, toWindow, moving, moving == selected, null,
+                        null);
+            }
+            if ((selected instanceof SceneLink)
+                    && (((SceneLink) selected).getLine().intersects(visible))) {
+                paintLink(g, toWindow, (SceneLink) selected, true);
+            } else if ((selected instanceof SceneFunction)
+                    && (selected != moving)
+                    && ((SceneFunction) selected).getBounds().intersects(
+                            visible)) {
+                paintFunction(g2, toWindow, (SceneFunction) selected, true,
+                        null, null);
+            }
+        }
+
+        // the connection currently being created
+        AbstractFunction connectionStart = pipeline.getConnectionStart();
+        Point connectionTarget = pipeline.getConnectionTarget();
+        SceneFunction start = (connectionStart == null) ? null : scene
+                .getFunction(connectionStart);
+        if ((start != null) && (connectionTarget != null)) {
+            g.setColor(Constants.DEFAULT_FUNCTIONGROUP_COLOR);
+            Line2D line = new Line2D.Double(toWindow.transform(
+                    new Point2D.Double(start.getBounds().getCenterX(), start
+                            .getBounds().getCenterY()), null), SwingUtilities
+                    .convertPoint(pipeline, connectionTarget, this));
+            if (line.getP1().distance(line.getP2()) > 0.0) {
+                PipelineLink.paintArrow(g, line, getDrawWidth(toWindow),
+                        getArrowRadius(toWindow));
+            }
+        }
+    }
+
+    /**
+     * Repaints the region of a {@link SceneFunction} with its connectors and
+     * links, or of a {@link SceneLink}, e.g. when it is selected or dragged.
+     * 
+     * @param sceneObject
+     *            the object, nothing is done for null
+     */
+    public void repaintObject(Object sceneObject) {
+        Rectangle2D region = null;
+        if (sceneObject instanceof SceneFunction) {
+            SceneFunction sf = (SceneFunction) sceneObject;
+            region = new Rectangle2D.Double();
+            region.setRect(sf.getBounds());
+            for (SceneConnector sc : sf.getConnectors()) {
+                region.add(sc.getBounds());
+            }
+            for (SceneLink sl : sf.getLinks()) {
+                region.add(sl.getLine().getBounds2D());
+            }
+        } else if (sceneObject instanceof SceneLink) {
+            region = ((SceneLink) sceneObject).getLine().getBounds2D();
+        }
+        if (region == null) {
+            return;
+        }
+
+        AffineTransform toWindow = pipeline.getDisplayTransform();
+        Rectangle r = toWindow.createTransformedShape(region).getBounds();
+        int margin = getDrawWidth(toWindow) + (int) getArrowRadius(toWindow)
+                + 2;
+        r.grow(margin, margin);
+        repaint(r);
+    }
+
+    /**
+     * Drops the buffered drawing of the scene, e.g. when the state colors of
+     * the functions have changed.
+     */
+    public void discardBuffer() {
+        bufferTransform = null;
+    }
+
+    /**
+     * Draws the scene into the buffer, unless the buffer already shows it.
+     * 
+     * @param excluded
+     *            the function which is not drawn with its links, or null
+     */
+    private void updateBuffer(PipelineScene scene, AffineTransform toWindow,
+            SceneFunction excluded) {
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        if ((buffer != null) && (buffer.getWidth() == width)
+                && (buffer.getHeight() == height)
+                && (bufferVersion == scene.getVersion())
+                && (bufferExcluded == excluded)
+                && toWindow.equals(bufferTransform)) {
+            return;
+        }
+
+        if ((buffer == null) || (buffer.getWidth() != width)
+                || (buffer.getHeight() != height)) {
+            buffer = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Graphics2D g = buffer.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.setComposite(AlphaComposite.SrcOver);
+        paintScene(g, toWindow, toVisible(toWindow, new Rectangle(0, 0,
+                width, height)), null, excluded);
+        g.dispose();
+
+        bufferVersion = scene.getVersion();
+        bufferExcluded = excluded;
+        bufferTransform = toWindow;
+    }
+
+    /**
+     * Paints the links, connectors and functions inside the visible area.
+     * 
+     * @param selected
+     *            the selected object, drawn highlighted
+     * @param excluded
+     *            a function which is not drawn with its links, or null
+     */
+    private void paintScene(Graphics2D g, AffineTransform toWindow,
+            Rectangle2D visible, Object selected, SceneFunction excluded) {
+        PipelineScene scene = pipeline.getScene();
+
+        // links
+        for (SceneLink sl : scene.getLinks()) {
+            if (!sl.getLine().intersects(visible)
+                    || (sl.getLinkSource().getParent() == excluded)
+                    || (sl.getLinkDestination().getParent() == excluded)) {
+                continue;
+            }
+            paintLink(g, toWindow, sl, sl == selected);
+        }
+
+        boolean detailed = isDetailed(toWindow);
+        List<SceneFunction> functions = scene.getFunctions();
+
+        // connectors, below the functions
+        if (detailed) {
+            for (SceneFunction sf : functions) {
+                if (!sf.getBounds().intersects(visible) || (sf == excluded)) {
+                    continue;
+                }
+                for (SceneConnector sc : sf.getConnectors()) {
+                    Rectangle r = toWindow(toWindow, sc.getBounds());
+                    g.drawImage(getImage(sc.getModelConnector()), r.x, r.y,
+                            r.width, r.height, this);
+                }
+            }
+        }
+
+        // functions
+        Font nameFont = null;
+        Font taskFont = null;
+        if (detailed) {
+            int height = toWindow(toWindow, functions.isEmpty() ? null
+                    : functions.get(0).getBounds()).height;
+            nameFont = getFont().deriveFont(Font.BOLD);
+            nameFont = nameFont.deriveFont(nameFont.getSize() * height / 90.0f);
+            taskFont = nameFont.deriveFont(Font.PLAIN).deriveFont(
+                    (float) (int) (nameFont.getSize() * 0.9));
+        }
+        for (SceneFunction sf : functions) {
+            if (!sf.getBounds().intersects(visible) || (sf == excluded)) {
+                continue;
+            }
+            paintFunction(g, toWindow, sf, sf == selected, nameFont, taskFont);
+        }
+    }
+
+    /**
+     * Paints a link as an arrow.
+     */
+    private void paintLink(Graphics g, AffineTransform toWindow, SceneLink sl,
+            boolean isSelected) {
+        Color color = sl.getLinkSource().getModelConnector().getType()
+                .getColor();
+        g.setColor(isSelected ? PipelineLink.highlight(color) : color);
+        Line2D line = new Line2D.Double(toWindow.transform(sl.getLine()
+                .getP1(), null), toWindow.transform(sl.getLine().getP2(), null));
+        PipelineLink.paintArrow(g, line, getDrawWidth(toWindow),
+                getArrowRadius(toWindow));
+    }
+
+    /**
+     * Paints a function, with images and text if fonts are given, else as a
+     * plain rectangle.
+     */
+    private void paintFunction(Graphics2D g, AffineTransform toWindow,
+            SceneFunction sf, boolean isSelected, Font nameFont, Font taskFont) {
+        AbstractFunction af = sf.getModelFunction();
+        Rectangle r = toWindow(toWindow, sf.getBounds());
+
+        if (nameFont != null) {
+            List<Image> images = getImages(af);
+            g.drawImage(images.get(isSelected ? 1 : 0), r.x, r.y, r.width,
+                    r.height, this);
+
+            g.setColor(getForeground());
+            g.setFont(nameFont);
+            LibraryFunction.printCenteredString(g, af.getFriendlyName(), r.x,
+                    r.y + 0.8 * r.height, r.width);
+            g.setFont(taskFont);
+            LibraryFunction.printCenteredString(g, af.getActiveTask()
+                    .getName(), r.x, r.y + 0.33 * r.height, r.width);
+        } else {
+            g.setColor(af.getParent().getColor());
+            g.fillRect(r.x, r.y, r.width, r.height);
+        }
+
+        Color border = pipeline.getStateColor(af, isSelected);
+        if (border != null) {
+            g.setStroke(BORDER_STROKE);
+            g.setColor(border);
+            g.drawRect(r.x + 1, r.y + 1, r.width - 2, r.height - 2);
+        }
+    }
+
+    /**
+     * @return the part of the scene in object space inside a rectangle in
+     *         window space, with some space for connectors, or null
+     */
+    private static Rectangle2D toVisible(AffineTransform toWindow,
+            Rectangle window) {
+        Rectangle2D visible;
+        try {
+            visible = toWindow.createInverse().createTransformedShape(window)
+                    .getBounds2D();
+        } catch (NoninvertibleTransformException e) {
+            return null;
+        }
+        double margin = PipelineLink.CONNECTOR_WIDTH;
+        visible.setRect(visible.getX() - margin, visible.getY() - margin,
+                visible.getWidth() + 2.0 * margin, visible.getHeight() + 2.0
+                        * margin);
+        return visible;
+    }
+
+    /**
+     * @return whether functions are drawn with images and text
+     */
+    private static boolean isDetailed(AffineTransform toWindow) {
+        return (LibraryFunction.FUNCTION_SIZE.width * toWindow.getScaleX() >= MIN_DETAIL_WIDTH);
+    }
+
+    private static int getDrawWidth(AffineTransform toWindow) {
+        return (int) (PipelineLink.LINE_DRAWING_WIDTH
+                * Constants.DEFAULT_ZOOM_SIZE * toWindow.getScaleX());
+    }
+
+    private static double getArrowRadius(AffineTransform toWindow) {
+        return PipelineLink.CONNECTOR_WIDTH * Constants.DEFAULT_ZOOM_SIZE
+                / 2.0 * toWindow.getScaleX();
+    }
+
+    /**
+     * Transforms a rectangle from object space to window space, rounded like
+     * the locations and sizes of the single components.
+     */
+    private static Rectangle toWindow(AffineTransform toWindow,
+            Rectangle2D object) {
+        if (object == null) {
+            return new Rectangle();
+        }
+        Point2D topLeft = toWindow.transform(new Point2D.Double(object
+                .getX(), object.getY()), null);
+        Point2D size = toWindow.deltaTransform(new Point2D.Double(object
+                .getWidth(), object.getHeight()), null);
+        return new Rectangle((int) topLeft.getX(), (int) topLeft.getY(),
+                (int) size.getX(), (int) size.getY());
+    }
+
+    /**
+     * @return the normal and the highlighted image of a function, as used by
+     *         {@link LibraryFunction}
+     */
+    private static List<Image> getImages(AbstractFunction af) {
+        List<Image> prerender = DisplayTemplatePanel.givePrerender(af
+                .getParent());
+        if ((prerender == null) || (prerender.size() < 2)) {
+            Color color = af.getParent().getColor();
+            DisplayTemplatePanel.prerenderDisplay(af.getParent(),
+                    LibraryFunction.displayTemplate, color, af.getIcon());
+            DisplayTemplatePanel.prerenderDisplay(af.getParent(),
+                    LibraryFunction.displayTemplate, PipelineLink
+                            .highlight(color), af.getIcon());
+            prerender = DisplayTemplatePanel.givePrerender(af.getParent());
+        }
+        return prerender;
+    }
+
+    /**
+     * @return the image of a connector, as used by {@link PipelineConnector}
+     */
+    private static Image getImage(AbstractConnector ac) {
+        List<Image> prerender = DisplayTemplatePanel.givePrerender(ac
+                .getType());
+        if (prerender == null) {
+            return DisplayTemplatePanel.prerenderDisplay(ac.getType(),
+                    PipelineConnector.displayTemplate, ac.getType().getColor(),
+                    null);
+        }
+        return prerender.get(0);
+    }
+}
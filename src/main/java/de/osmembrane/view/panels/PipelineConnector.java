@@ -47,6 +47,13 @@ public class PipelineConnector extends DisplayTemplatePanel {
             PipelineConnector.class
                     .getResource("/de/osmembrane/resources/images/connector.png"));
 
+    /**
+     * The size of a connector in object space
+     */
+    public static final Dimension CONNECTOR_SIZE = new Dimension(
+            (int) (displayTemplate.getIconWidth() * Constants.DEFAULT_SIZE_FACTOR),
+            (int) (displayTemplate.getIconHeight() * Constants.DEFAULT_SIZE_FACTOR));
+
     /**
      * The model {@link Connector} associated with this connector
      */
@@ -120,9 +127,7 @@ public class PipelineConnector extends DisplayTemplatePanel {
             final PipelineFunction parentFunction,
             final PipelinePanel pipeline, boolean isOutpipes, int id, int amount) {
         this.modelConnector = modelConnector;
-        setPreferredSize(new Dimension(
-                (int) (displayTemplate.getIconWidth() * Constants.DEFAULT_SIZE_FACTOR),
-                (int) (displayTemplate.getIconHeight() * Constants.DEFAULT_SIZE_FACTOR)));
+        setPreferredSize(new Dimension(CONNECTOR_SIZE));
         this.pipeline = pipeline;
         this.parentFunction = parentFunction;
 
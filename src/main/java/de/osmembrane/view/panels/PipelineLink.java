@@ -202,20 +202,51 @@ public class PipelineLink extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         if (this.equals(pipeline.getSelected())) {
-            float[] colorRGB = color.getComponents(null);
-            Color highlightColor = new Color(
-                    Math.min(1.0f, colorRGB[0] + 0.25f), Math.min(1.0f,
-                            colorRGB[1] + 0.25f), Math.min(1.0f,
-                            colorRGB[2] + 0.25f));
-            g.setColor(highlightColor);
+            g.setColor(highlight(color));
         } else {
             g.setColor(color);
         }
 
-        Polygon p = new Polygon();
         int drawWidth = pipeline.objToWindowDelta(new Point2D.Double(0.0,
                 LINE_DRAWING_WIDTH * Constants.DEFAULT_ZOOM_SIZE)).y;
 
+        // some radius, some tip
+        double arrowRadius = pipeline.objToWindowDelta(
+                new Point2D.Double(CONNECTOR_WIDTH
+                        * Constants.DEFAULT_ZOOM_SIZE / 2.0, 0.0)).getX();
+
+        paintArrow(g, line, drawWidth, arrowRadius);
+    }
+
+    /**
+     * Returns the color a selected link is drawn in.
+     * 
+     * @param color
+     *            the color of the link
+     * @return the lighter highlight color
+     */
+    protected static Color highlight(Color color) {
+        float[] colorRGB = color.getComponents(null);
+        return new Color(Math.min(1.0f, colorRGB[0] + 0.25f), Math.min(1.0f,
+                colorRGB[1] + 0.25f), Math.min(1.0f, colorRGB[2] + 0.25f));
+    }
+
+    /**
+     * Paints a link as a line with an arrow head in the current color of g.
+     * 
+     * @param g
+     *            the {@link Graphics} to draw upon
+     * @param line
+     *            the line from the source to the destination in window space
+     * @param drawWidth
+     *            the width of the line in window space
+     * @param arrowRadius
+     *            the radius of the arrow head in window space
+     */
+    protected static void paintArrow(Graphics g, Line2D line, int drawWidth,
+            double arrowRadius) {
+        Polygon p = new Polygon();
+
         // use the dot product, Luke
         double deltaX = line.getX2() - line.getX1();
         double deltaY = line.getY2() - line.getY1();
@@ -246,11 +277,6 @@ public class PipelineLink extends JPanel {
 
         g.fillPolygon(p);
 
-        // some radius, some tip
-        double arrowRadius = pipeline.objToWindowDelta(
-                new Point2D.Double(CONNECTOR_WIDTH
-                        * Constants.DEFAULT_ZOOM_SIZE / 2.0, 0.0)).getX();
-
         Polygon arrowHead = new Polygon();
 
         // arrow goes like left -----> right
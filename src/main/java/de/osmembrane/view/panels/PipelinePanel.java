@@ -16,6 +16,8 @@ import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.GridLayout;
 import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.event.MouseEvent;
@@ -26,19 +28,26 @@ import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.Action;
 import javax.swing.BorderFactory;
+import javax.swing.JComponent;
 import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollBar;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
 import de.osmembrane.Application;
 import de.osmembrane.controller.ActionRegistry;
@@ -52,16 +61,22 @@ import de.osmembrane.controller.events.ContainingLocationEvent;
 import de.osmembrane.exceptions.ControlledException;
 import de.osmembrane.exceptions.ExceptionSeverity;
 import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.ResourceEstimate;
+import de.osmembrane.model.algorithms.ResourceEstimator;
 import de.osmembrane.model.pipeline.AbstractConnector;
 import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
 import de.osmembrane.model.pipeline.Connector;
 import de.osmembrane.model.pipeline.PipelineObserverObject;
 import de.osmembrane.model.pipeline.PipelineObserverObject.ChangeType;
 import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.model.settings.SettingsObserverObject;
 import de.osmembrane.tools.I18N;
 import de.osmembrane.view.ViewRegistry;
 import de.osmembrane.view.components.JSilentScrollBar;
 import de.osmembrane.view.interfaces.IZoomDevice;
+import de.osmembrane.view.panels.PipelineScene.SceneFunction;
+import de.osmembrane.view.panels.PipelineScene.SceneLink;
 
 /**
  * This is the pipeline view, i.e. the panel that shows the entire pipeline with
@@ -93,6 +108,11 @@ import de.osmembrane.view.interfaces.IZoomDevice;
  * the currentDisplay transformation and, when final, "pre-apply" it (multiply
  * from the left side) to the objectToWindow transformation.
  * 
+ * If {@link SettingType#CANVAS_RENDERING} is set, the pipeline is not drawn by
+ * one component per object, but by a single {@link PipelineCanvas} from a
+ * {@link PipelineScene}. The selected object is a {@link SceneFunction} or
+ * {@link SceneLink} then.
+ * 
  * @see "Spezifikation.pdf, chapter 2.1.5 (German)"
  * 
  * @see "your Math reference book, sections 'Linear Algebra', 'Matrices',
@@ -142,6 +162,18 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
     private static final Integer CONNECTOR_LAYER = new Integer(2);
     private static final Integer LINK_LAYER = new Integer(1);
 
+    /**
+     * Whether the pipeline is drawn on the canvas from the scene instead of
+     * the layeredPane
+     */
+    private boolean canvasRendering;
+
+    /**
+     * The scene and the canvas to draw it, if canvasRendering
+     */
+    private PipelineScene scene;
+    private PipelineCanvas canvas;
+
     /**
      * Saves the point (in object coordinates) when a drag and drop action
      * occurs *inside* the {@link PipelinePanel} (i.e. not from the
@@ -184,20 +216,50 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
 
     /**
      * The currently selected object (either a {@link PipelineFunction} or a
-     * {@link PipelineLink})
+     * {@link PipelineLink}, or a {@link SceneFunction} or a {@link SceneLink})
      */
     private Object selected;
 
     /**
      * The temporary saving slot for creating a two point {@link PipelineLink}.
      */
-    private PipelineFunction connectionStart;
+    private AbstractFunction connectionStart;
+
+    /**
+     * The current end of the connection preview (window space)
+     */
+    private Point connectionTarget;
 
     /**
      * The temporary link to show the creation of a new connection
      */
     private PipelinePreviewLink connectionPreview;
 
+    /**
+     * The estimates of the current resource estimation of the pipeline, used
+     * to mark the hot spots of the pipeline. NULL until the first estimation
+     * is finished.
+     */
+    private Map<AbstractFunction, ResourceEstimate> estimates;
+
+    /**
+     * Delay in ms after the last pipeline change before a new estimation is
+     * started, so a burst of changes is estimated only once
+     */
+    private static final int ESTIMATION_DELAY = 250;
+
+    /**
+     * Starts the estimation after the pipeline has been quiet for
+     * {@link #ESTIMATION_DELAY}
+     */
+    private Timer estimationTimer;
+
+    /**
+     * Counts the started estimations, only the result of the latest one is
+     * used
+     */
+    private int estimationGeneration;
+
     /**
      * Initializes a new {@link PipelinePanel}
      * 
@@ -255,10 +317,19 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
         this.layeredPane = new JLayeredPane();
         this.layeredPane.setVisible(true);
         this.layeredPane.setOpaque(true);
-        add(this.layeredPane);
 
         this.layeredPane.add(this.connectionPreview);
 
+        this.scene = new PipelineScene(LibraryFunction.FUNCTION_SIZE.width,
+                LibraryFunction.FUNCTION_SIZE.height,
+                PipelineConnector.CONNECTOR_SIZE.width,
+                PipelineConnector.CONNECTOR_SIZE.height);
+        this.canvas = new PipelineCanvas(this);
+
+        this.canvasRendering = (Boolean) ModelProxy.getInstance()
+                .getSettings().getValue(SettingType.CANVAS_RENDERING);
+        add(getDisplay());
+
         // register as observer
         ViewRegistry.getInstance().addObserver(this);
 
@@ -309,30 +380,34 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
                 switch (activeTool) {
                 case DEFAULT_MAGIC_TOOL:
                 case SELECTION_TOOL:
-                    if ((selected != null)
-                            && (selected instanceof PipelineFunction)
-                            && (draggingFrom != null)) {
-                        PipelineFunction pf = (PipelineFunction) selected;
+                    AbstractFunction dragged = getSelectedFunction();
+                    if ((dragged != null) && (draggingFrom != null)) {
+                        Point2D modelLocation = dragged.getCoordinate();
 
                         // getCoordinate - draggingFrom = offset to add
                         Point newWinPos = e.getPoint();
-                        Point2D objOffset = new Point2D.Double(pf
-                                .getModelLocation().getX()
-                                - draggingFrom.getX(), pf.getModelLocation()
+                        Point2D objOffset = new Point2D.Double(modelLocation
+                                .getX() - draggingFrom.getX(), modelLocation
                                 .getY() - draggingFrom.getY());
 
                         Point winOffset = objToWindowDelta(objOffset);
                         newWinPos.translate(winOffset.x, winOffset.y);
 
-                        newWinPos = findNextFreePoint(newWinPos, pf);
+                        newWinPos = findNextFreePoint(newWinPos, selected);
 
                         Point2D newObjPosition = windowToObj(newWinPos);
 
                         // require a minimum distance to drag & drop
-                        if (newObjPosition.distance(pf.getModelLocation()) < PipelineFunction.PIPELINE_FUNCTION_MIN_DRAG_DISTANCE) {
-                            pf.setLocation(objToWindow(pf.getModelLocation()));
-                            pf.arrangeConnectors();
-                            pf.arrangeLinks();
+                        if (newObjPosition.distance(modelLocation) < PipelineFunction.PIPELINE_FUNCTION_MIN_DRAG_DISTANCE) {
+                            if (selected instanceof PipelineFunction) {
+                                PipelineFunction pf = (PipelineFunction) selected;
+                                pf.setLocation(objToWindow(modelLocation));
+                                pf.arrangeConnectors();
+                                pf.arrangeLinks();
+                            } else {
+                                scene.relocate(dragged);
+                                canvas.repaint();
+                            }
                             // return, so we don't create an undo step
                             return;
                         }
@@ -341,7 +416,7 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
                         Action a = ActionRegistry.getInstance().get(
                                 MoveFunctionAction.class);
                         ContainingLocationEvent cle = new ContainingLocationEvent(
-                                this, pf.getModelFunction(), newObjPosition);
+                                this, dragged, newObjPosition);
                         a.actionPerformed(cle);
                     }
                 }
@@ -392,12 +467,18 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
             public void mouseMoved(MouseEvent e) {
                 // when the start of new connection is determined, rearrange it
                 if (connectionStart != null) {
-                    connectionPreview.setTarget(e.getPoint());
-                    connectionPreview.regenerateLine();
+                    connectionTarget = e.getPoint();
+                    if (canvasRendering) {
+                        canvas.repaint();
+                    } else {
+                        connectionPreview.setTarget(e.getPoint());
+                        connectionPreview.regenerateLine();
+                    }
                     repaint();
                 }
                 PipelinePanel.this.connectionPreview
-                        .setVisible(PipelinePanel.this.connectionStart != null);
+                        .setVisible(!canvasRendering
+                                && (PipelinePanel.this.connectionStart != null));
             }
 
             @Override
@@ -442,20 +523,29 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
                 switch (activeTool) {
                 case DEFAULT_MAGIC_TOOL:
                 case SELECTION_TOOL:
-                    if ((selected != null)
-                            && (selected instanceof PipelineFunction)
-                            && (draggingFrom != null)) {
-                        PipelineFunction pf = (PipelineFunction) selected;
+                    AbstractFunction dragged = getSelectedFunction();
+                    if ((dragged != null) && (draggingFrom != null)) {
+                        Point2D modelLocation = dragged.getCoordinate();
 
                         // getCoordinate - draggingFrom
-                        Point2D objOffset = new Point2D.Double(pf
-                                .getModelLocation().getX()
-                                - draggingFrom.getX(), pf.getModelLocation()
+                        Point2D objOffset = new Point2D.Double(modelLocation
+                                .getX() - draggingFrom.getX(), modelLocation
                                 .getY() - draggingFrom.getY());
                         Point winOffset = objToWindowDelta(objOffset);
 
                         // translate
                         e.translatePoint(winOffset.x, winOffset.y);
+
+                        if (selected instanceof SceneFunction) {
+                            // links are moved along by the scene
+                            canvas.repaintObject(selected);
+                            scene.relocate((SceneFunction) selected,
+                                    windowToObj(e.getPoint()));
+                            canvas.repaintObject(selected);
+                            return;
+                        }
+
+                        PipelineFunction pf = (PipelineFunction) selected;
                         pf.setLocation(e.getPoint());
 
                         pf.arrangeConnectors();
@@ -477,10 +567,84 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
             } /* mouseDragged */
         });
 
+        // the estimation reads the input files, so it is kept off the EDT
+        this.estimationTimer = new Timer(ESTIMATION_DELAY,
+                new ActionListener() {
+
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        startEstimation();
+                    }
+                });
+        this.estimationTimer.setRepeats(false);
+
         // necessary to initialize with correct model reflection
         update(null, new PipelineObserverObject(ChangeType.FULLCHANGE, null));
     }
 
+    /**
+     * Estimates the resources of the current pipeline in the background and
+     * shows the result when it is finished. Results of estimations that have
+     * been overtaken by a newer one are discarded.
+     */
+    private void startEstimation() {
+        final int generation = ++estimationGeneration;
+
+        /*
+         * the model may only be read on the EDT, so the background estimates
+         * a copy that is connected like the pipeline
+         */
+        AbstractPipeline pipeline = ModelProxy.getInstance().getPipeline();
+        final List<AbstractFunction> snapshot = Arrays.asList(pipeline
+                .getFunctions());
+        final List<AbstractFunction> copy = pipeline.copyFunctions();
+        final File workingDirectory = new File((String) ModelProxy
+                .getInstance().getSettings()
+                .getValue(SettingType.DEFAULT_WORKING_DIRECTORY));
+
+        new SwingWorker<ResourceEstimator, Void>() {
+
+            @Override
+            protected ResourceEstimator doInBackground() {
+                ResourceEstimator result = new ResourceEstimator(copy,
+                        workingDirectory);
+                result.run();
+                return result;
+            }
+
+            @Override
+            protected void done() {
+                if (generation != estimationGeneration) {
+                    return;
+                }
+                ResourceEstimator estimator;
+                try {
+                    estimator = get();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    Application.handleException(new ControlledException(
+                            PipelinePanel.this,
+                            ExceptionSeverity.UNEXPECTED_BEHAVIOR, e
+                                    .getCause()));
+                    return;
+                }
+
+                /* the hot spots are drawn in the cached scene of the canvas */
+                canvas.discardBuffer();
+
+                /* the copies are in the same order as the functions */
+                estimates = new HashMap<AbstractFunction, ResourceEstimate>();
+                for (int i = 0; i < snapshot.size(); i++) {
+                    estimates.put(snapshot.get(i), estimator.getEstimate(copy
+                            .get(i)));
+                }
+                arrange(false);
+                repaint();
+            }
+        }.execute();
+    }
+
     /**
      * Moves objectToWindow in a way, so that the left screen (window x = 0)
      * will result in the object coordinate to.
@@ -729,7 +893,7 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
 
     @Override
     public void showEntireView() {
-        if (functions.size() < 1) {
+        if (getFunctionCount() < 1) {
             Application.handleException(new ControlledException(this,
                     ExceptionSeverity.WARNING, I18N.getInstance().getString(
                             "View.Pipeline.NoFunctionsForEntireView")));
@@ -768,8 +932,21 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
      */
     @Override
     public void update(Observable o, Object arg) {
+        // switch the renderer
+        if ((arg instanceof SettingsObserverObject)
+                && (((SettingsObserverObject) arg).getChangedEntry() == SettingType.CANVAS_RENDERING)) {
+            setCanvasRendering((Boolean) ModelProxy.getInstance().getSettings()
+                    .getValue(SettingType.CANVAS_RENDERING));
+            return;
+        }
+
         // check for notice from the pipeline model
-        if (arg instanceof PipelineObserverObject) {
+        if ((arg instanceof PipelineObserverObject) && canvasRendering) {
+            updateScene((PipelineObserverObject) arg);
+
+            // the estimation depends on the whole pipeline
+            estimationTimer.restart();
+        } else if (arg instanceof PipelineObserverObject) {
             PipelineObserverObject poo = (PipelineObserverObject) arg;
 
             switch (poo.getType()) {
@@ -916,6 +1093,9 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
                 }
                 break;
             }
+
+            // the estimation depends on the whole pipeline
+            estimationTimer.restart();
         }
 
         arrange(true);
@@ -930,11 +1110,105 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
 
     }
 
+    /**
+     * Applies a change of the pipeline model to the scene.
+     * 
+     * @param poo
+     *            the change of the pipeline
+     */
+    private void updateScene(PipelineObserverObject poo) {
+        switch (poo.getType()) {
+        case ADD_FUNCTION:
+            // automatically select the newly added function
+            selected(scene.add(poo.getChangedFunction()));
+            break;
+
+        case CHANGE_FUNCTION:
+            scene.relocate(poo.getChangedFunction());
+            break;
+
+        case DELETE_FUNCTION:
+            SceneFunction sfDelete = scene.remove(poo.getChangedFunction());
+            if ((sfDelete != null) && sfDelete.equals(selected)) {
+                selected(null);
+            }
+            break;
+
+        case FULLCHANGE:
+            scene.rebuild(ModelProxy.getInstance().getPipeline().getFunctions());
+            selected(null);
+            break;
+
+        case ADD_CONNECTION:
+            scene.addLink(poo.getChangedConnectors()[0],
+                    poo.getChangedConnectors()[1]);
+            break;
+
+        case DELETE_CONNECTION:
+            scene.removeLink(poo.getChangedConnectors()[0],
+                    poo.getChangedConnectors()[1]);
+            break;
+        }
+
+        // the selected link may be gone with its connection or function
+        if ((selected instanceof SceneLink)
+                && !scene.getLinks().contains(selected)) {
+            selected(null);
+        }
+    }
+
+    /**
+     * Switches between drawing on the canvas and drawing with one component
+     * per object.
+     * 
+     * @param canvasRendering
+     *            true to draw on the canvas
+     */
+    private void setCanvasRendering(boolean canvasRendering) {
+        if (this.canvasRendering == canvasRendering) {
+            return;
+        }
+
+        abortConnect();
+        selected = null;
+        remove(getDisplay());
+        this.canvasRendering = canvasRendering;
+        add(getDisplay());
+
+        // only one of both holds the pipeline
+        functions.clear();
+        connectors.clear();
+        layeredPane.removeAll();
+        layeredPane.add(connectionPreview);
+        scene.rebuild(new AbstractFunction[0]);
+
+        update(null, new PipelineObserverObject(ChangeType.FULLCHANGE, null));
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * @return the count of functions shown
+     */
+    private int getFunctionCount() {
+        return canvasRendering ? scene.getFunctions().size() : functions
+                .size();
+    }
+
     /**
      * Calculates objTopLeft and objBottomRight.
      */
     private void calculateEdges() {
-        if (functions.size() > 0) {
+        if (canvasRendering) {
+            Rectangle2D bounds = scene.getBounds();
+            if (bounds != null) {
+                objTopLeft.setLocation(bounds.getMinX(), bounds.getMinY());
+                objBottomRight.setLocation(bounds.getMaxX(), bounds.getMaxY());
+            } else {
+                objTopLeft.setLocation(0, 0);
+                objBottomRight.setLocation(0, 0);
+            }
+        } else if (functions.size() > 0) {
             double left = Double.MAX_VALUE;
             double top = Double.MAX_VALUE;
             double right = Double.MIN_VALUE;
@@ -987,6 +1261,16 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
      *            infinite recursion
      */
     private void arrange(boolean updateScrolls) {
+        if (canvasRendering) {
+            // the scene is in object space, only the canvas has to follow
+            calculateEdges();
+            if (updateScrolls) {
+                updateScrollbars();
+            }
+            canvas.repaint();
+            return;
+        }
+
         for (PipelineFunction pf : functions) {
             arrange(pf);
         }
@@ -1017,17 +1301,89 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
         size = objToWindowDelta(size);
         pf.setSize(size.x, size.y);
 
-        if (pf.equals(selected)) {
-            pf.setBorder(BorderFactory.createLineBorder(Color.BLACK, 2));
-        } else if (!pf.getModelFunction().isComplete()) {
-            pf.setBorder(BorderFactory.createLineBorder(Color.RED, 2));
+        Color border = getStateColor(pf.getModelFunction(),
+                pf.equals(selected));
+        if (border != null) {
+            pf.setBorder(BorderFactory.createLineBorder(border, 2));
         } else {
             pf.setBorder(null);
         }
 
+        String estimateText = getEstimateText(pf.getModelFunction());
+        if (estimateText != null) {
+            pf.setToolTipText(estimateText);
+        }
+
         pf.arrangeConnectors();
     }
 
+    /**
+     * Returns the color of the border of a function, which shows its state.
+     * 
+     * @param function
+     *            the function
+     * @param isSelected
+     *            whether the function is selected
+     * @return the color, or null if the function has no border
+     */
+    protected Color getStateColor(AbstractFunction function, boolean isSelected) {
+        ResourceEstimate estimate = getEstimate(function);
+        if (isSelected) {
+            return Color.BLACK;
+        } else if (!function.isComplete()) {
+            return Color.RED;
+        } else if ((estimate != null) && estimate.isHotSpot()) {
+            return Color.ORANGE;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the tool tip text with the resource estimate of a function.
+     * 
+     * @param function
+     *            the function
+     * @return the text, or null if no estimate is available
+     */
+    protected String getEstimateText(AbstractFunction function) {
+        ResourceEstimate estimate = getEstimate(function);
+        if (estimate == null) {
+            return null;
+        }
+        return I18N.getInstance().getString(
+                "View.Pipeline.Estimate",
+                estimate.getRelativeTime(),
+                estimate.getHeap(),
+                estimate.getDisk(),
+                estimate.isInputKnown() ? "" : I18N.getInstance().getString(
+                        "View.Pipeline.EstimateUnknownInput"));
+    }
+
+    /**
+     * Returns the resource estimate of a {@link PipelineFunction}
+     * 
+     * @param pf
+     *            the {@link PipelineFunction} to get the estimate for
+     * @return the estimate, or null if no estimate is available
+     */
+    public ResourceEstimate getEstimate(PipelineFunction pf) {
+        return getEstimate(pf.getModelFunction());
+    }
+
+    /**
+     * Returns the resource estimate of a model function
+     * 
+     * @param function
+     *            the function to get the estimate for
+     * @return the estimate, or null if no estimate is available
+     */
+    public ResourceEstimate getEstimate(AbstractFunction function) {
+        if (estimates == null) {
+            return null;
+        }
+        return estimates.get(function);
+    }
+
     /**
      * Forwards hint display from {@link PipelineFunction}s and
      * {@link LibraryPanel} under the cursor to the {@link InspectorPanel}.
@@ -1064,20 +1420,55 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
 
     /**
      * @return the currently selected object ({@link PipelineFunction} or
-     *         {@link PipelineLink})
+     *         {@link PipelineLink}, {@link SceneFunction} or {@link SceneLink}
+     *         if drawn on the canvas)
      */
     public Object getSelected() {
         return selected;
     }
 
+    /**
+     * @return the model function of the selected function, or null if no
+     *         function is selected
+     */
+    public AbstractFunction getSelectedFunction() {
+        if (selected instanceof PipelineFunction) {
+            return ((PipelineFunction) selected).getModelFunction();
+        } else if (selected instanceof SceneFunction) {
+            return ((SceneFunction) selected).getModelFunction();
+        }
+        return null;
+    }
+
+    /**
+     * @return the model source and destination connector of the selected
+     *         link, or null if no link is selected
+     */
+    public AbstractConnector[] getSelectedConnection() {
+        if (selected instanceof PipelineLink) {
+            PipelineLink pl = (PipelineLink) selected;
+            return new AbstractConnector[] {
+                    pl.getLinkSource().getModelConnector(),
+                    pl.getLinkDestination().getModelConnector() };
+        } else if (selected instanceof SceneLink) {
+            SceneLink sl = (SceneLink) selected;
+            return new AbstractConnector[] {
+                    sl.getLinkSource().getModelConnector(),
+                    sl.getLinkDestination().getModelConnector() };
+        }
+        return null;
+    }
+
     /**
      * Called when a child object thinks it got selected. Only defined for
-     * {@link PipelineFunction} and {@link PipelineLink}.
+     * {@link PipelineFunction} and {@link PipelineLink}, or
+     * {@link SceneFunction} and {@link SceneLink} if drawn on the canvas.
      * 
      * @param childObject
      *            child function to be selected
      */
     public void selected(Object childObject) {
+        Object previous = selected;
         selected = childObject;
 
         if (selected != null) {
@@ -1088,9 +1479,14 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
                 PipelineFunction pf = (PipelineFunction) childObject;
                 functionInspector.inspect(pf.getModelFunction());
 
+            } else if (selected instanceof SceneFunction) {
+                // edit in inspector panel
+                SceneFunction sf = (SceneFunction) childObject;
+                functionInspector.inspect(sf.getModelFunction());
+
             } else if (selected instanceof PipelineLink) {
                 repaint();
-            } else {
+            } else if (!(selected instanceof SceneLink)) {
                 Application.handleException(new ControlledException(this,
                         ExceptionSeverity.UNEXPECTED_BEHAVIOR, I18N
                                 .getInstance().getString(
@@ -1099,10 +1495,18 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
             }
         } else {
             functionInspector.inspect(null);
-            repaint();
+            if (!canvasRendering) {
+                repaint();
+            }
         }
 
-        arrange(false);
+        if (canvasRendering) {
+            // only the previous and the new selection look different
+            canvas.repaintObject(previous);
+            canvas.repaintObject(selected);
+        } else {
+            arrange(false);
+        }
 
         // enable deleting & duplicating
         ActionRegistry.getInstance().get(DeleteSelectionAction.class)
@@ -1110,9 +1514,7 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
         ActionRegistry
                 .getInstance()
                 .get(DuplicateFunctionAction.class)
-                .setEnabled(
-                        (selected != null)
-                                && (selected instanceof PipelineFunction));
+                .setEnabled(getSelectedFunction() != null);
     }
 
     /**
@@ -1183,12 +1585,25 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
      */
     public void connect(PipelineFunction connectionPoint) {
         if (this.connectionStart == null) {
-            this.connectionStart = connectionPoint;
             this.connectionPreview.setSource(connectionPoint);
+        }
+        connect(connectionPoint.getModelFunction());
+    }
+
+    /**
+     * Adds the model function connectionPoint as an end point to the current
+     * connection, see {@link #connect(PipelineFunction)}.
+     * 
+     * @param connectionPoint
+     *            point in the connection
+     */
+    public void connect(AbstractFunction connectionPoint) {
+        if (this.connectionStart == null) {
+            this.connectionStart = connectionPoint;
+            this.connectionTarget = null;
         } else {
             ConnectingFunctionsEvent cfe = new ConnectingFunctionsEvent(this,
-                    connectionStart.getModelFunction(),
-                    connectionPoint.getModelFunction());
+                    connectionStart, connectionPoint);
             ActionRegistry.getInstance().get(AddConnectionAction.class)
                     .actionPerformed(cfe);
             this.connectionStart = null;
@@ -1201,6 +1616,24 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
     public void abortConnect() {
         this.connectionStart = null;
         this.connectionPreview.setVisible(false);
+        if (canvasRendering) {
+            canvas.repaint();
+        }
+    }
+
+    /**
+     * @return the function the current connection starts at, or null
+     */
+    protected AbstractFunction getConnectionStart() {
+        return connectionStart;
+    }
+
+    /**
+     * @return the current end of the connection preview (window space), or
+     *         null
+     */
+    protected Point getConnectionTarget() {
+        return connectionTarget;
     }
 
     /**
@@ -1210,6 +1643,30 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
         return layeredPane;
     }
 
+    /**
+     * @return the component the pipeline is drawn on, i.e. the canvas or the
+     *         layeredPane
+     */
+    public JComponent getDisplay() {
+        return canvasRendering ? canvas : layeredPane;
+    }
+
+    /**
+     * @return the scene drawn by the canvas
+     */
+    protected PipelineScene getScene() {
+        return scene;
+    }
+
+    /**
+     * @return the full transformation from object space to window space
+     */
+    protected AffineTransform getDisplayTransform() {
+        AffineTransform result = new AffineTransform(objectToWindow);
+        result.preConcatenate(currentDisplay);
+        return result;
+    }
+
     /**
      * Finds out whether you can safely place a function here without occluding
      * another one.
@@ -1217,12 +1674,13 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
      * @param newPoint
      *            {@link Point} where the new Function would be situated
      * @param ignore
-     *            Ignore this function. Useful if you're currently moving this
+     *            Ignore this function ({@link PipelineFunction} or
+     *            {@link SceneFunction}). Useful if you're currently moving this
      *            one. May be null.
      * @return true, if the new function would collide with an existing one,
      *         false otherwise.
      */
-    public boolean wouldCollide(Point newPoint, PipelineFunction ignore) {
+    public boolean wouldCollide(Point newPoint, Object ignore) {
 
         /*
          * number of pixels to subtract from the technically necessity to have
@@ -1230,6 +1688,29 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
          */
         int grace = 0;
 
+        if (canvasRendering) {
+            Point size = objToWindowDelta(new Point(
+                    LibraryFunction.FUNCTION_SIZE.width,
+                    LibraryFunction.FUNCTION_SIZE.height));
+
+            for (SceneFunction sf : scene.getFunctions()) {
+                if (sf.equals(ignore)) {
+                    continue;
+                }
+
+                Point location = objToWindow(sf.getModelFunction()
+                        .getCoordinate());
+                if ((newPoint.x >= location.x - size.x + grace)
+                        && (newPoint.y >= location.y - size.y + grace)
+                        && (newPoint.x <= location.x + size.x - grace)
+                        && (newPoint.y <= location.y + size.y - grace)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
         for (PipelineFunction pf : functions) {
             if (pf.equals(ignore)) {
                 continue;
@@ -1256,7 +1737,7 @@ public class PipelinePanel extends JPanel implements Observer, IZoomDevice {
      *            the function for which the place should be found. May be null
      * @return the nearest free point in the area of at
      */
-    public Point findNextFreePoint(Point at, PipelineFunction forFunc) {
+    public Point findNextFreePoint(Point at, Object forFunc) {
         Point result = new Point(at);
         double dist = 0.0;
 
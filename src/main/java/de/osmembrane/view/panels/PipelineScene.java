@@ -0,0 +1,558 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.panels;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+
+/**
+ * The scene drawn by the {@link PipelineCanvas}, a lightweight copy of the
+ * pipeline with the bounds of the functions, connectors and links in object
+ * space (see {@link PipelinePanel}). The scene is kept between the repaints
+ * and only changed when the pipeline changes, so neither painting nor
+ * hit-testing needs a Swing component per object.
+ * 
+ * The geometry is the same as the one of {@link PipelineFunction},
+ * {@link PipelineConnector} and {@link PipelineLink}.
+ * 
+ * @author agent
+ * 
+ */
+public class PipelineScene {
+
+    /**
+     * A function in the scene.
+     */
+    public static class SceneFunction {
+
+        private AbstractFunction modelFunction;
+        private Rectangle2D bounds = new Rectangle2D.Double();
+        private List<SceneConnector> connectors = new ArrayList<SceneConnector>();
+
+        private SceneFunction(AbstractFunction modelFunction) {
+            this.modelFunction = modelFunction;
+        }
+
+        /**
+         * @return the model function
+         */
+        public AbstractFunction getModelFunction() {
+            return modelFunction;
+        }
+
+        /**
+         * @return the bounds in object space
+         */
+        public Rectangle2D getBounds() {
+            return bounds;
+        }
+
+        /**
+         * @return the in-connectors followed by the out-connectors
+         */
+        public List<SceneConnector> getConnectors() {
+            return connectors;
+        }
+
+        /**
+         * @return all links to and from the connectors of this function
+         */
+        public List<SceneLink> getLinks() {
+            List<SceneLink> result = new ArrayList<SceneLink>();
+            for (SceneConnector sc : connectors) {
+                result.addAll(sc.inLinks);
+                result.addAll(sc.outLinks);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A connector of a function in the scene.
+     */
+    public static class SceneConnector {
+
+        private AbstractConnector modelConnector;
+        private SceneFunction parent;
+        private boolean outpipes;
+        private int id;
+        private int amount;
+        private Rectangle2D bounds = new Rectangle2D.Double();
+        private List<SceneLink> outLinks = new ArrayList<SceneLink>();
+        private List<SceneLink> inLinks = new ArrayList<SceneLink>();
+
+        private SceneConnector(AbstractConnector modelConnector,
+                SceneFunction parent, boolean outpipes, int id, int amount) {
+            this.modelConnector = modelConnector;
+            this.parent = parent;
+            this.outpipes = outpipes;
+            this.id = id;
+            this.amount = amount;
+        }
+
+        /**
+         * @return the model connector
+         */
+        public AbstractConnector getModelConnector() {
+            return modelConnector;
+        }
+
+        /**
+         * @return the function of this connector
+         */
+        public SceneFunction getParent() {
+            return parent;
+        }
+
+        /**
+         * @return whether this connector represents in pipes or out pipes
+         */
+        public boolean isOutpipes() {
+            return outpipes;
+        }
+
+        /**
+         * @return the bounds in object space
+         */
+        public Rectangle2D getBounds() {
+            return bounds;
+        }
+    }
+
+    /**
+     * A link between two connectors in the scene.
+     */
+    public static class SceneLink {
+
+        private SceneConnector linkSource;
+        private SceneConnector linkDestination;
+        private Line2D line = new Line2D.Double();
+
+        private SceneLink(SceneConnector linkSource,
+                SceneConnector linkDestination) {
+            this.linkSource = linkSource;
+            this.linkDestination = linkDestination;
+        }
+
+        /**
+         * @return the link source connector (i.e. an out connector)
+         */
+        public SceneConnector getLinkSource() {
+            return linkSource;
+        }
+
+        /**
+         * @return the link destination connector (i.e. an in connector)
+         */
+        public SceneConnector getLinkDestination() {
+            return linkDestination;
+        }
+
+        /**
+         * @return the line between the centers of the connectors in object
+         *         space
+         */
+        public Line2D getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * The size of a function and a connector in object space.
+     */
+    private double functionWidth;
+    private double functionHeight;
+    private double connectorWidth;
+    private double connectorHeight;
+
+    /**
+     * The functions in the order they are drawn, the last one is on top.
+     */
+    private List<SceneFunction> functions = new ArrayList<SceneFunction>();
+    private Map<AbstractFunction, SceneFunction> functionMap = new HashMap<AbstractFunction, SceneFunction>();
+    private Map<AbstractConnector, SceneConnector> connectorMap = new HashMap<AbstractConnector, SceneConnector>();
+    private List<SceneLink> links = new ArrayList<SceneLink>();
+
+    /**
+     * Counts the changes of the scene, so a drawing of it can be cached.
+     * Moving a function while it is dragged is not counted, see
+     * {@link #getMoving()}.
+     */
+    private int version;
+
+    /**
+     * The function last moved by {@link #relocate(SceneFunction, Point2D)}
+     * without a change of its model function, or null.
+     */
+    private SceneFunction moving;
+
+    /**
+     * Creates a new, empty scene.
+     * 
+     * @param functionWidth
+     *            width of a function in object space
+     * @param functionHeight
+     *            height of a function in object space
+     * @param connectorWidth
+     *            width of a connector in object space
+     * @param connectorHeight
+     *            height of a connector in object space
+     */
+    public PipelineScene(double functionWidth, double functionHeight,
+            double connectorWidth, double connectorHeight) {
+        this.functionWidth = functionWidth;
+        this.functionHeight = functionHeight;
+        this.connectorWidth = connectorWidth;
+        this.connectorHeight = connectorHeight;
+    }
+
+    /**
+     * Replaces the scene by the given functions and their connections.
+     * 
+     * @param modelFunctions
+     *            all functions of the pipeline
+     */
+    public void rebuild(AbstractFunction[] modelFunctions) {
+        functions.clear();
+        functionMap.clear();
+        connectorMap.clear();
+        links.clear();
+        moving = null;
+        version++;
+
+        for (AbstractFunction af : modelFunctions) {
+            add(af);
+        }
+
+        // start linking when all connectors are truly known
+        for (SceneFunction sf : functions) {
+            for (SceneConnector sc : sf.connectors) {
+                if (!sc.outpipes) {
+                    continue;
+                }
+                for (AbstractConnector ac : sc.modelConnector.getConnections()) {
+                    addLink(sc.modelConnector, ac);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a function without any links.
+     * 
+     * @param modelFunction
+     *            the function to add
+     * @return the added function
+     */
+    public SceneFunction add(AbstractFunction modelFunction) {
+        SceneFunction sf = new SceneFunction(modelFunction);
+        createConnectors(sf, modelFunction.getInConnectors(), false);
+        createConnectors(sf, modelFunction.getOutConnectors(), true);
+
+        functions.add(sf);
+        functionMap.put(modelFunction, sf);
+        for (SceneConnector sc : sf.connectors) {
+            connectorMap.put(sc.modelConnector, sc);
+        }
+
+        place(sf, modelFunction.getCoordinate());
+        version++;
+        return sf;
+    }
+
+    /**
+     * Removes a function and all of its links.
+     * 
+     * @param modelFunction
+     *            the function to remove
+     * @return the removed function or null if it was not in the scene
+     */
+    public SceneFunction remove(AbstractFunction modelFunction) {
+        SceneFunction sf = functionMap.remove(modelFunction);
+        if (sf == null) {
+            return null;
+        }
+
+        for (SceneConnector sc : sf.connectors) {
+            for (SceneLink sl : new ArrayList<SceneLink>(sc.inLinks)) {
+                removeLink(sl);
+            }
+            for (SceneLink sl : new ArrayList<SceneLink>(sc.outLinks)) {
+                removeLink(sl);
+            }
+            connectorMap.remove(sc.modelConnector);
+        }
+        functions.remove(sf);
+        if (moving == sf) {
+            moving = null;
+        }
+        version++;
+        return sf;
+    }
+
+    /**
+     * Adds a link between two model connectors.
+     * 
+     * @param from
+     *            the out connector
+     * @param to
+     *            the in connector
+     * @return the added link, or null if a connector is not in the scene
+     */
+    public SceneLink addLink(AbstractConnector from, AbstractConnector to) {
+        SceneConnector source = connectorMap.get(from);
+        SceneConnector destination = connectorMap.get(to);
+        if (source == null || destination == null) {
+            return null;
+        }
+
+        SceneLink sl = new SceneLink(source, destination);
+        source.outLinks.add(sl);
+        destination.inLinks.add(sl);
+        links.add(sl);
+        arrangeLink(sl);
+        version++;
+        return sl;
+    }
+
+    /**
+     * Removes the link between two model connectors.
+     * 
+     * @param from
+     *            the out connector
+     * @param to
+     *            the in connector
+     * @return the removed link, or null if none found
+     */
+    public SceneLink removeLink(AbstractConnector from, AbstractConnector to) {
+        SceneConnector source = connectorMap.get(from);
+        if (source == null) {
+            return null;
+        }
+        for (SceneLink sl : source.outLinks) {
+            if (sl.linkDestination.modelConnector == to) {
+                removeLink(sl);
+                return sl;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves a function to the location of its model function.
+     * 
+     * @param modelFunction
+     *            the function which has changed
+     */
+    public void relocate(AbstractFunction modelFunction) {
+        SceneFunction sf = functionMap.get(modelFunction);
+        if (sf != null) {
+            place(sf, modelFunction.getCoordinate());
+            if (moving == sf) {
+                moving = null;
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Moves a function, its connectors and links to a location while it is
+     * dragged. The model function is not changed, and the move is not
+     * counted as a change of the scene, the function is returned by
+     * {@link #getMoving()} instead.
+     * 
+     * @param sf
+     *            the function to move
+     * @param location
+     *            the new top left corner in object space
+     */
+    public void relocate(SceneFunction sf, Point2D location) {
+        place(sf, location);
+        moving = sf;
+    }
+
+    /**
+     * @return the number of changes of the scene, except the moves of
+     *         {@link #getMoving()}
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the function last moved by
+     *         {@link #relocate(SceneFunction, Point2D)} and not by its model
+     *         function since, or null
+     */
+    public SceneFunction getMoving() {
+        return moving;
+    }
+
+    /**
+     * Sets the bounds of a function, its connectors and links.
+     */
+    private void place(SceneFunction sf, Point2D location) {
+        sf.bounds.setRect(location.getX(), location.getY(), functionWidth,
+                functionHeight);
+
+        for (SceneConnector sc : sf.connectors) {
+            double x = location.getX() + (sc.outpipes ? functionWidth : 0.0)
+                    - connectorWidth / 2.0;
+            double startY = (functionHeight - sc.amount * connectorHeight) / 2.0;
+            double y = location.getY() + startY + sc.id * connectorHeight;
+            sc.bounds.setRect(x, y, connectorWidth, connectorHeight);
+        }
+
+        for (SceneConnector sc : sf.connectors) {
+            for (SceneLink sl : sc.outLinks) {
+                arrangeLink(sl);
+            }
+            for (SceneLink sl : sc.inLinks) {
+                arrangeLink(sl);
+            }
+        }
+    }
+
+    /**
+     * @return all functions, the last one is on top
+     */
+    public List<SceneFunction> getFunctions() {
+        return functions;
+    }
+
+    /**
+     * @return all links
+     */
+    public List<SceneLink> getLinks() {
+        return links;
+    }
+
+    /**
+     * @param modelFunction
+     *            a model function
+     * @return the function of the scene for it, or null
+     */
+    public SceneFunction getFunction(AbstractFunction modelFunction) {
+        return functionMap.get(modelFunction);
+    }
+
+    /**
+     * Returns the topmost function at a point.
+     * 
+     * @param at
+     *            the point in object space
+     * @return the function or null
+     */
+    public SceneFunction getFunctionAt(Point2D at) {
+        for (int i = functions.size() - 1; i >= 0; i--) {
+            if (functions.get(i).bounds.contains(at)) {
+                return functions.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the topmost connector at a point.
+     * 
+     * @param at
+     *            the point in object space
+     * @return the connector or null
+     */
+    public SceneConnector getConnectorAt(Point2D at) {
+        for (int i = functions.size() - 1; i >= 0; i--) {
+            SceneFunction sf = functions.get(i);
+            if (at.getX() < sf.bounds.getMinX() - connectorWidth
+                    || at.getX() > sf.bounds.getMaxX() + connectorWidth) {
+                continue;
+            }
+            for (SceneConnector sc : sf.connectors) {
+                if (sc.bounds.contains(at)) {
+                    return sc;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the topmost link near a point.
+     * 
+     * @param at
+     *            the point in object space
+     * @param distance
+     *            the maximum distance of the point to the link in object
+     *            space
+     * @return the link or null
+     */
+    public SceneLink getLinkAt(Point2D at, double distance) {
+        for (int i = links.size() - 1; i >= 0; i--) {
+            if (links.get(i).line.ptSegDist(at) <= distance) {
+                return links.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the bounds of all functions in object space, or null if the
+     *         scene is empty
+     */
+    public Rectangle2D getBounds() {
+        Rectangle2D result = null;
+        for (SceneFunction sf : functions) {
+            if (result == null) {
+                result = new Rectangle2D.Double();
+                result.setRect(sf.bounds);
+            } else {
+                result.add(sf.bounds);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the connectors of a function, their bounds are set by
+     * {@link #place(SceneFunction, Point2D)}.
+     */
+    private void createConnectors(SceneFunction sf,
+            AbstractConnector[] connectorList, boolean areOut) {
+        for (int i = 0; i < connectorList.length; i++) {
+            sf.connectors.add(new SceneConnector(connectorList[i], sf, areOut,
+                    i, connectorList.length));
+        }
+    }
+
+    /**
+     * Sets the line of a link to the centers of its connectors.
+     */
+    private void arrangeLink(SceneLink sl) {
+        sl.line.setLine(sl.linkSource.bounds.getCenterX(), sl.linkSource.bounds
+                .getCenterY(), sl.linkDestination.bounds.getCenterX(),
+                sl.linkDestination.bounds.getCenterY());
+    }
+
+    private void removeLink(SceneLink sl) {
+        sl.linkSource.outLinks.remove(sl);
+        sl.linkDestination.inLinks.remove(sl);
+        links.remove(sl);
+        version++;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.BufferInserter;
+import de.osmembrane.model.persistence.PipelinePersistenceObject;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.model.pipeline.PipelineSettings;
+
+/**
+ * Tests the {@link BufferInserter}.
+ * 
+ * @author agent
+ */
+public class BufferInserterTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * read -> tag-filter -> log-progress -> write gets one buffer between
+     * read and tag-filter, log-progress is too light to get its own thread.
+     */
+    @Test
+    public void testInsertBetweenHeavyTasks() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction log = create(pl, "log-progress");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.addConnectionTo(filter);
+        filter.addConnectionTo(log);
+        log.addConnectionTo(write);
+
+        BufferInserter inserter = new BufferInserter(
+                new PipelinePersistenceObject(Arrays.asList(pl.getFunctions()),
+                        new PipelineSettings()), 500);
+        List<AbstractFunction> functions = inserter.insert().getFunctions();
+
+        assertEquals("wrong count of buffers", 5, functions.size());
+        AbstractFunction buffer = successor(find(functions, "read-pbf"));
+        assertEquals("buffer", buffer.getActiveTask().getName());
+        assertEquals("500", buffer.getActiveTask().getParameters()[0]
+                .getValue());
+        assertEquals("tag-filter", successor(buffer).getActiveTask()
+                .getName());
+        assertEquals("log-progress", successor(find(functions, "tag-filter"))
+                .getActiveTask().getName());
+
+        /* the original pipeline must stay untouched */
+        assertSame(filter, successor(read));
+    }
+
+    private AbstractFunction create(AbstractPipeline pl, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pl.addFunction(function);
+        return function;
+    }
+
+    private AbstractFunction find(List<AbstractFunction> functions,
+            String taskName) {
+        for (AbstractFunction function : functions) {
+            if (function.getActiveTask().getName().equals(taskName)) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    private AbstractFunction successor(AbstractFunction function) {
+        return function.getOutConnectors()[0].getConnections()[0].getParent();
+    }
+}
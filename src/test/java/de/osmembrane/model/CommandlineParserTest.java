@@ -0,0 +1,119 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.parser.BashParser;
+import de.osmembrane.model.parser.CmdParser;
+import de.osmembrane.model.parser.ParseException;
+import de.osmembrane.model.parser.ParseException.ErrorType;
+import de.osmembrane.model.parser.ParserFactory;
+import de.osmembrane.model.pipeline.AbstractFunction;
+
+/**
+ * Tests the import of command lines.
+ * 
+ * @author agent
+ */
+public class CommandlineParserTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * Quotes, comments and line continuations of a bash script.
+     */
+    @Test
+    public void testBash() throws ParseException {
+        List<AbstractFunction> functions = ParserFactory
+                .getInstance()
+                .getParser(BashParser.class)
+                .parseString(
+                        "#!/bin/bash\n# --rx comment.osm\n"
+                                + "osmosis -v3 --rx file=\"my planet.osm\" \\\n"
+                                + "  --tf accept-ways highway=* \\\n"
+                                + "  --wx out#1.osm # comment\n")
+                .getFunctions();
+
+        assertEquals(3, functions.size());
+        assertEquals("my planet.osm", find(functions, "read-xml")
+                .getActiveTask().getParameters()[0].getValue());
+        assertEquals("out#1.osm", find(functions, "write-xml")
+                .getActiveTask().getParameters()[0].getValue());
+        assertEquals("write-xml", find(functions, "tag-filter")
+                .getOutConnectors()[0].getConnections()[0].getParent()
+                .getActiveTask().getName());
+    }
+
+    /**
+     * REM and :: comments of a cmd script.
+     */
+    @Test
+    public void testCmd() throws ParseException {
+        List<AbstractFunction> functions = ParserFactory
+                .getInstance()
+                .getParser(CmdParser.class)
+                .parseString(
+                        "REM --rx comment.osm\r\n:: --wx comment.osm\r\n"
+                                + "osmosis --rx 'in.osm' ^\r\n --wx out.osm\r\n")
+                .getFunctions();
+
+        assertEquals(2, functions.size());
+    }
+
+    /**
+     * Errors carry the position of the failing word.
+     */
+    @Test
+    public void testErrorPosition() {
+        try {
+            ParserFactory.getInstance().getParser(BashParser.class)
+                    .parseString("osmosis --rx in.osm \\\n  --wx foo=bar");
+            fail("unknown parameter not detected");
+        } catch (ParseException e) {
+            assertEquals(ErrorType.UNKNOWN_TASK_FORMAT, e.getType());
+            assertEquals(2, e.getLine());
+            assertEquals(8, e.getColumn());
+        }
+
+        try {
+            ParserFactory.getInstance().getParser(BashParser.class)
+                    .parseString("osmosis --rx \"in.osm");
+            fail("unterminated quote not detected");
+        } catch (ParseException e) {
+            assertEquals(ErrorType.UNTERMINATED_QUOTE, e.getType());
+            assertEquals(14, e.getColumn());
+        }
+    }
+
+    private AbstractFunction find(List<AbstractFunction> functions,
+            String taskName) {
+        for (AbstractFunction function : functions) {
+            if (function.getActiveTask().getName().equals(taskName)) {
+                return function;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.ExecutionCache;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Connection;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Partition;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Tests the {@link ExecutionCache}.
+ * 
+ * @author agent
+ */
+public class ExecutionCacheTest {
+
+    private File directory;
+    private File input;
+
+    private AbstractPipeline pl;
+    private AbstractFunction read;
+    private AbstractFunction sort;
+    private AbstractFunction first;
+    private AbstractFunction last;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * read -> sort -> tag-filter -> tag-filter -> write
+     */
+    @Before
+    public void setUp() throws IOException, ConnectorException {
+        directory = File.createTempFile("osmembrane-cache", "");
+        directory.delete();
+        directory.mkdirs();
+        input = new File(directory, "input.osm.pbf");
+        write(input, 100);
+
+        pl = new Pipeline(true, true);
+        read = create(pl, "read-pbf");
+        sort = create(pl, "sort");
+        first = create(pl, "tag-filter");
+        last = create(pl, "tag-filter");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.getActiveTask().getParameters()[0].setValue(input
+                .getAbsolutePath());
+        first.getActiveTask().getParameters()[0].setValue("accept-ways");
+        last.getActiveTask().getParameters()[0].setValue("reject-relations");
+        read.addConnectionTo(sort);
+        sort.addConnectionTo(first);
+        first.addConnectionTo(last);
+        last.addConnectionTo(write);
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    /**
+     * The point in front of the last filter and the point behind the sort are
+     * suggested.
+     */
+    @Test
+    public void testSuggest() {
+        ExecutionCache cache = createCache(1);
+        assertEquals(4, cache.getCandidates().size());
+
+        List<Connection> points = cache.suggestPoints();
+        assertEquals("wrong count of points", 2, points.size());
+        assertTrue(points.get(0).getFrom() == sort);
+        assertTrue(points.get(1).getFrom() == first);
+    }
+
+    /**
+     * The first execution writes both intermediates, changing the last filter
+     * reads the later one, changing the first filter the earlier one.
+     */
+    @Test
+    public void testHitAndMiss() throws IOException {
+        ExecutionCache cache = createCache(1);
+        List<Connection> points = cache.suggestPoints();
+
+        List<Partition> partitions = cache.plan(points);
+        assertEquals(0, cache.getHits().size());
+        assertEquals(2, cache.getMisses().size());
+        assertEquals(3, partitions.size());
+        execute(cache, partitions);
+        assertTrue(cache.isCached(points.get(0)));
+        assertTrue(cache.isCached(points.get(1)));
+
+        /* only the last filter and the writer remain */
+        last.getActiveTask().getParameters()[0].setValue("accept-nodes");
+        partitions = cache.plan(points);
+        assertEquals(1, cache.getHits().size());
+        assertEquals(0, cache.getMisses().size());
+        assertEquals(1, partitions.size());
+        assertEquals(3, partitions.get(0).getFunctions().size());
+        assertTrue(partitions.get(0).getDependencies().isEmpty());
+        cache.finish();
+
+        /* the sorted data is read, the first filter is written again */
+        String fingerprint = cache.getFingerprint(points.get(1));
+        first.getActiveTask().getParameters()[0].setValue("accept-nodes");
+        assertFalse(fingerprint.equals(cache.getFingerprint(points.get(1))));
+        partitions = cache.plan(points);
+        assertEquals(Arrays.asList(points.get(0)), cache.getHits());
+        assertEquals(Arrays.asList(points.get(1)), cache.getMisses());
+        assertEquals(2, partitions.size());
+        assertEquals(Arrays.asList(0), Arrays.asList(partitions.get(1)
+                .getDependencies().toArray()));
+        execute(cache, partitions);
+
+        /* a changed input file invalidates everything */
+        input.setLastModified(input.lastModified() - 60000);
+        assertFalse(cache.isCached(points.get(0)));
+        assertFalse(cache.isCached(points.get(1)));
+    }
+
+    /**
+     * The least recently used intermediate is removed first, failed
+     * partitions do not leave anything in the cache.
+     */
+    @Test
+    public void testEviction() throws IOException, InterruptedException {
+        ExecutionCache cache = createCache(1);
+        List<Connection> points = cache.suggestPoints();
+
+        List<Partition> partitions = cache.plan(points.subList(0, 1));
+        write(partitions.get(0).getWrittenLinks().get(0), 600 * 1024);
+        cache.commit(0);
+        cache.finish();
+        Thread.sleep(10);
+
+        partitions = cache.plan(points.subList(1, 2));
+        write(partitions.get(0).getWrittenLinks().get(0), 600 * 1024);
+        cache.commit(0);
+        cache.finish();
+
+        assertFalse(cache.isCached(points.get(0)));
+        assertTrue(cache.isCached(points.get(1)));
+
+        /* a failed execution */
+        first.getActiveTask().getParameters()[0].setValue("accept-nodes");
+        partitions = cache.plan(points.subList(1, 2));
+        File written = partitions.get(0).getWrittenLinks().get(0);
+        write(written, 10);
+        cache.finish();
+        assertFalse(written.exists());
+        assertFalse(cache.isCached(points.get(1)));
+    }
+
+    /**
+     * Simulates a successful execution of the partitions.
+     */
+    private void execute(ExecutionCache cache, List<Partition> partitions)
+            throws IOException {
+        for (int i = 0; i < partitions.size(); i++) {
+            for (File link : partitions.get(i).getWrittenLinks()) {
+                write(link, 10);
+            }
+            cache.commit(i);
+        }
+        cache.finish();
+    }
+
+    private ExecutionCache createCache(int maxSize) {
+        return new ExecutionCache(Arrays.asList(pl.getFunctions()), directory,
+                new File(directory, "cache"), maxSize);
+    }
+
+    private AbstractFunction create(AbstractPipeline pl, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pl.addFunction(function);
+        return function;
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void write(File file, int size) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(new byte[size]);
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.algorithms.ResourceEstimator;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.PipelineSettings;
+
+/**
+ * Tests the {@link JvmSizing}.
+ * 
+ * @author agent
+ */
+public class JvmSizingTest {
+
+    /**
+     * The heap has a lower bound, a margin and is limited by the free memory.
+     */
+    @Test
+    public void testRecommendHeap() {
+        assertEquals(256, JvmSizing.recommendHeap(0.0, -1));
+        /* 64 + 1.5 * 1000 rounded up to 64 */
+        assertEquals(1600, JvmSizing.recommendHeap(1000.0, -1));
+        assertEquals(832, JvmSizing.recommendHeap(1000.0, 1000.0));
+        assertEquals(256, JvmSizing.recommendHeap(1000.0, 100.0));
+
+        /* only a heap above the default of the JVM is passed */
+        assertEquals(1600, JvmSizing.recommendHeap(1000.0, -1, 1024.0));
+        assertEquals(0, JvmSizing.recommendHeap(1000.0, -1, 2048.0));
+        assertEquals(0, JvmSizing.recommendHeap(1000.0, 1000.0, 1024.0));
+        assertEquals(1600, JvmSizing.recommendHeap(1000.0, -1, -1));
+
+        assertEquals("-XX:+UseSerialGC", JvmSizing.recommendGc(512, 8));
+        assertEquals("-XX:+UseParallelGC -XX:ParallelGCThreads=4",
+                JvmSizing.recommendGc(4096, 8));
+    }
+
+    /**
+     * The settings of the pipeline override the recommendation, the options
+     * are appended to the environment.
+     */
+    @Test
+    public void testOverride() {
+        ResourceEstimator estimator = new ResourceEstimator(
+                new ArrayList<AbstractFunction>(), null);
+        estimator.run();
+
+        PipelineSettings settings = new PipelineSettings();
+        settings.setJavaHeap(3000);
+        settings.setJavaOptions("-XX:+UseG1GC");
+        settings.setTempDirectory("/scratch");
+        JvmSizing sizing = JvmSizing.recommend(estimator, settings, null);
+        assertEquals("-Xmx3000m -XX:+UseG1GC -Djava.io.tmpdir=/scratch",
+                sizing.getOptions());
+
+        /* nothing is written to disk, so the default directory is kept */
+        sizing = JvmSizing.recommend(estimator, new PipelineSettings(), null);
+        assertNull(sizing.getTempDirectory());
+
+        /* no task with a known heap, so the JVM keeps its default heap */
+        assertFalse(sizing.isHeapSet());
+        assertFalse(sizing.getOptions().contains("-Xmx"));
+        assertEquals(sizing.getGcOptions(), sizing.getOptions());
+
+        Map<String, String> environment = new HashMap<String, String>();
+        environment.put(JvmSizing.ENVIRONMENT_VARIABLE, "-Dfoo=bar");
+        new JvmSizing(512, "", null).apply(environment);
+        assertEquals("-Dfoo=bar -Xmx512m",
+                environment.get(JvmSizing.ENVIRONMENT_VARIABLE));
+    }
+
+    /**
+     * A collector chosen in the environment is kept, the JVM would not start
+     * with a second one.
+     */
+    @Test
+    public void testExistingCollector() {
+        JvmSizing sizing = new JvmSizing(512, "-XX:+UseSerialGC", null);
+
+        Map<String, String> environment = new HashMap<String, String>();
+        environment.put(JvmSizing.ENVIRONMENT_VARIABLE, "-XX:+UseG1GC");
+        sizing.apply(environment);
+        assertEquals("-XX:+UseG1GC -Xmx512m",
+                environment.get(JvmSizing.ENVIRONMENT_VARIABLE));
+
+        environment.put(JvmSizing.ENVIRONMENT_VARIABLE, "-Dfoo=bar");
+        sizing.apply(environment);
+        assertEquals("-Dfoo=bar -Xmx512m -XX:+UseSerialGC",
+                environment.get(JvmSizing.ENVIRONMENT_VARIABLE));
+    }
+
+    /**
+     * A temporary directory with whitespace cannot be passed to the launcher
+     * of osmosis and is not used.
+     */
+    @Test
+    public void testTempDirectoryWithSpaces() {
+        ResourceEstimator estimator = new ResourceEstimator(
+                new ArrayList<AbstractFunction>(), null);
+        estimator.run();
+
+        PipelineSettings settings = new PipelineSettings();
+        settings.setTempDirectory("/my scratch");
+        assertNull(JvmSizing.recommend(estimator, settings, null)
+                .getTempDirectory());
+
+        assertTrue(JvmSizing.isPassable("/scratch"));
+        assertFalse(JvmSizing.isPassable("/my scratch"));
+        assertFalse(JvmSizing.isPassable("C:\\Documents and Settings"));
+    }
+}
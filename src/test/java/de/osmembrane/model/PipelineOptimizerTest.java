@@ -0,0 +1,223 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.PipelineOptimizer;
+import de.osmembrane.model.persistence.PipelinePersistenceObject;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractParameter;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.model.pipeline.PipelineSettings;
+
+/**
+ * Tests the {@link PipelineOptimizer}.
+ * 
+ * @author agent
+ */
+public class PipelineOptimizerTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * read -> sort -> tag-filter -> write becomes read -> tag-filter -> sort
+     * -> write.
+     */
+    @Test
+    public void testPushDownThroughSort() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction sort = create(pl, "sort");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.addConnectionTo(sort);
+        sort.addConnectionTo(filter);
+        filter.addConnectionTo(write);
+
+        PipelineOptimizer optimizer = new PipelineOptimizer(
+                new PipelinePersistenceObject(Arrays.asList(pl.getFunctions()),
+                        new PipelineSettings()));
+        List<AbstractFunction> optimized = optimizer.optimize().getFunctions();
+
+        assertTrue("pipeline not optimized", optimizer.hasChanged());
+        assertEquals("wrong report", 1, optimizer.getReport().size());
+        assertEquals("tag-filter", successor(find(optimized, "read-pbf"))
+                .getActiveTask().getName());
+        assertEquals("sort", successor(find(optimized, "tag-filter"))
+                .getActiveTask().getName());
+        assertEquals("write-pbf", successor(find(optimized, "sort"))
+                .getActiveTask().getName());
+
+        /* the original pipeline must stay untouched */
+        assertSame(filter, successor(sort));
+    }
+
+    /**
+     * A bounding-box without completeWays must not be moved in front of a
+     * sort, two identical filters are fused.
+     */
+    @Test
+    public void testKeepOrderDependentAndFuse() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction sort = create(pl, "sort");
+        AbstractFunction box = create(pl, "bounding-box");
+        AbstractFunction filter = create(pl, "node-key");
+        AbstractFunction filter2 = create(pl, "node-key");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.addConnectionTo(sort);
+        sort.addConnectionTo(box);
+        box.addConnectionTo(filter);
+        filter.addConnectionTo(filter2);
+        filter2.addConnectionTo(write);
+
+        PipelineOptimizer optimizer = new PipelineOptimizer(
+                new PipelinePersistenceObject(Arrays.asList(pl.getFunctions()),
+                        new PipelineSettings()));
+        List<AbstractFunction> optimized = optimizer.optimize().getFunctions();
+
+        assertTrue("pipeline not optimized", optimizer.hasChanged());
+        assertEquals("duplicate filter not removed", 5, optimized.size());
+        assertEquals("bounding-box", successor(find(optimized, "sort"))
+                .getActiveTask().getName());
+        assertEquals("write-pbf", successor(find(optimized, "node-key"))
+                .getActiveTask().getName());
+        assertFalse(optimizer.getReport().isEmpty());
+    }
+
+    /**
+     * Two overlapping bounding-boxes are combined to their intersection, two
+     * disjoint ones are kept.
+     */
+    @Test
+    public void testFuseBoundingBoxes() throws ConnectorException {
+        PipelineOptimizer optimizer = optimizeBoxes(new double[] { 0, 10,
+                10, 0 }, new double[] { 5, 15, 15, 5 }, false);
+        List<AbstractFunction> optimized = optimizer.optimize().getFunctions();
+
+        assertTrue("overlapping boxes not fused", optimizer.hasChanged());
+        assertEquals(3, optimized.size());
+        AbstractFunction box = find(optimized, "bounding-box");
+        assertEquals(5.0, getDouble(box, "left"), 0.0);
+        assertEquals(10.0, getDouble(box, "right"), 0.0);
+        assertEquals(10.0, getDouble(box, "top"), 0.0);
+        assertEquals(5.0, getDouble(box, "bottom"), 0.0);
+
+        optimizer = optimizeBoxes(new double[] { 0, 10, 10, 0 },
+                new double[] { 20, 30, 30, 20 }, false);
+        optimized = optimizer.optimize().getFunctions();
+
+        assertFalse("disjoint boxes fused", optimizer.hasChanged());
+        assertEquals(4, optimized.size());
+    }
+
+    /**
+     * Bounding-boxes completing ways are not equal to their intersection and
+     * must be kept.
+     */
+    @Test
+    public void testKeepCompletingBoundingBoxes() throws ConnectorException {
+        PipelineOptimizer optimizer = optimizeBoxes(new double[] { 0, 10,
+                10, 0 }, new double[] { 5, 15, 15, 5 }, true);
+        List<AbstractFunction> optimized = optimizer.optimize().getFunctions();
+
+        assertFalse("completing boxes fused", optimizer.hasChanged());
+        assertEquals(4, optimized.size());
+    }
+
+    /**
+     * Creates an optimizer for read -> bounding-box -> bounding-box -> write
+     * with the boxes given as left, right, top and bottom.
+     */
+    private PipelineOptimizer optimizeBoxes(double[] first, double[] second,
+            boolean completeWays) throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction box = create(pl, "bounding-box");
+        AbstractFunction box2 = create(pl, "bounding-box");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.addConnectionTo(box);
+        box.addConnectionTo(box2);
+        box2.addConnectionTo(write);
+
+        setBox(box, first, completeWays);
+        setBox(box2, second, completeWays);
+
+        return new PipelineOptimizer(new PipelinePersistenceObject(Arrays
+                .asList(pl.getFunctions()), new PipelineSettings()));
+    }
+
+    private void setBox(AbstractFunction box, double[] bounds,
+            boolean completeWays) {
+        String[] names = { "left", "right", "top", "bottom" };
+        for (int i = 0; i < names.length; i++) {
+            getParameter(box, names[i]).setValue(String.valueOf(bounds[i]));
+        }
+        if (completeWays) {
+            getParameter(box, "completeWays").setValue("true");
+        }
+    }
+
+    private AbstractParameter getParameter(AbstractFunction function,
+            String name) {
+        for (AbstractParameter param : function.getActiveTask()
+                .getParameters()) {
+            if (param.getName().equals(name)) {
+                return param;
+            }
+        }
+        return null;
+    }
+
+    private double getDouble(AbstractFunction function, String name) {
+        return Double.parseDouble(getParameter(function, name).getValue());
+    }
+
+    private AbstractFunction create(AbstractPipeline pl, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pl.addFunction(function);
+        return function;
+    }
+
+    private AbstractFunction find(List<AbstractFunction> functions,
+            String taskName) {
+        for (AbstractFunction function : functions) {
+            if (function.getActiveTask().getName().equals(taskName)) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    private AbstractFunction successor(AbstractFunction function) {
+        return function.getOutConnectors()[0].getConnections()[0].getParent();
+    }
+}
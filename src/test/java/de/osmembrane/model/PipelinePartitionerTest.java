@@ -0,0 +1,153 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.PipelinePartitioner;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Connection;
+import de.osmembrane.model.algorithms.PipelinePartitioner.Partition;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Tests the {@link PipelinePartitioner}.
+ * 
+ * @author agent
+ */
+public class PipelinePartitionerTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * A reader feeding three filtered writers is split into one process per
+     * branch, the heaviest branch stays with the reader.
+     */
+    @Test
+    public void testSuggestAndPartition() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        for (int i = 0; i < 3; i++) {
+            AbstractFunction filter = create(pl, "tag-filter");
+            AbstractFunction write = create(pl, "write-pbf");
+            read.addConnectionTo(filter);
+            filter.addConnectionTo(write);
+        }
+
+        PipelinePartitioner partitioner = new PipelinePartitioner(
+                Arrays.asList(pl.getFunctions()));
+        List<Connection> cuts = partitioner.suggestCuts();
+        assertEquals("wrong count of cuts", 2, cuts.size());
+        assertTrue(partitioner.isValid(cuts));
+
+        List<Partition> partitions = partitioner.partition(cuts, new File(
+                "links"));
+        assertEquals("wrong count of partitions", 3, partitions.size());
+        assertEquals(2, partitioner.getLinks().size());
+
+        /* the reader and two link writers */
+        Partition first = partitions.get(0);
+        assertTrue(first.getDependencies().isEmpty());
+        assertEquals(1 + 2 + 2, first.getFunctions().size());
+        for (Partition partition : partitions.subList(1, 3)) {
+            assertEquals(Arrays.asList(0), Arrays.asList(partition
+                    .getDependencies().toArray()));
+            assertEquals("read-pbf", partition.getFunctions().get(2)
+                    .getActiveTask().getName());
+        }
+
+        /* the original pipeline must stay untouched */
+        assertEquals(7, pl.getFunctions().length);
+        assertEquals(3, read.getOutConnectors()[0].getConnections().length);
+    }
+
+    /**
+     * A cut inside a connected part does not split the pipeline.
+     */
+    @Test
+    public void testInvalidCut() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction merge = create(pl, "merge");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.addConnectionTo(filter);
+        read.addConnectionTo(merge);
+        filter.addConnectionTo(merge);
+        merge.addConnectionTo(write);
+
+        PipelinePartitioner partitioner = new PipelinePartitioner(
+                Arrays.asList(pl.getFunctions()));
+        List<Connection> candidates = partitioner.getCandidates();
+        assertEquals(4, candidates.size());
+        assertFalse(partitioner.isValid(candidates.subList(0, 1)));
+        assertTrue(partitioner.isValid(candidates.subList(0, 2)));
+    }
+
+    /**
+     * Two unrelated flows are split into two parts without any link.
+     */
+    @Test
+    public void testSplitComponents() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        for (int i = 0; i < 2; i++) {
+            AbstractFunction read = create(pl, "read-pbf");
+            AbstractFunction filter = create(pl, "tag-filter");
+            AbstractFunction write = create(pl, "write-pbf");
+            read.addConnectionTo(filter);
+            filter.addConnectionTo(write);
+        }
+        create(pl, "read-pbf").addConnectionTo(create(pl, "write-pbf"));
+
+        PipelinePartitioner partitioner = new PipelinePartitioner(
+                Arrays.asList(pl.getFunctions()));
+        List<Partition> components = partitioner.splitComponents();
+        assertEquals("wrong count of components", 3, components.size());
+        assertTrue(partitioner.getLinks().isEmpty());
+        int functions = 0;
+        for (Partition component : components) {
+            assertTrue(component.getDependencies().isEmpty());
+            assertTrue(component.getWrittenLinks().isEmpty());
+            functions += component.getFunctions().size();
+        }
+        assertEquals(8, functions);
+        assertEquals(3, components.get(0).getFunctions().size());
+        assertEquals(2, components.get(2).getFunctions().size());
+
+        /* the original pipeline is not changed */
+        assertEquals(8, pl.getFunctions().length);
+    }
+
+    private AbstractFunction create(AbstractPipeline pl, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pl.addFunction(function);
+        return function;
+    }
+}
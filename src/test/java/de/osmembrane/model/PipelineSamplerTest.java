@@ -0,0 +1,152 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.PipelineSampler;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Tests the {@link PipelineSampler}.
+ * 
+ * @author agent
+ */
+public class PipelineSamplerTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * read -> tag-filter -> write-pbf, write-apidb gets a bounding box behind
+     * the reader, the file writer is redirected and the database writer
+     * replaced.
+     */
+    @Test
+    public void testSample() throws ConnectorException {
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction write = create(pl, "write-pbf");
+        AbstractFunction database = create(pl, "write-apidb");
+        read.addConnectionTo(filter);
+        filter.addConnectionTo(write);
+        filter.addConnectionTo(database);
+        write.getActiveTask().getParameters()[0].setValue("/data/out.osm.pbf");
+
+        PipelineSampler sampler = new PipelineSampler(Arrays.asList(pl
+                .getFunctions()), null);
+        String area = PipelineSampler.getArea(49.0, 8.4);
+        assertEquals("48.99500;8.39500;49.00500;8.40500", area);
+
+        File scratch = new File("samples");
+        List<AbstractFunction> functions = sampler.sample(area, scratch);
+        assertEquals(5, functions.size());
+
+        AbstractFunction bbox = successor(find(functions, "read-pbf"));
+        assertEquals("bounding-box", bbox.getActiveTask().getName());
+        assertEquals(area, bbox.getActiveTask().getBBox());
+        assertEquals("tag-filter", successor(bbox).getActiveTask().getName());
+
+        assertEquals(new File(scratch, "out.osm.pbf").getAbsolutePath(), find(
+                functions, "write-pbf").getActiveTask().getParameters()[0]
+                .getValue());
+        assertNull(find(functions, "write-apidb"));
+        assertEquals(1, find(functions, "write-null").getInConnectors()[0]
+                .getConnections().length);
+
+        Map<String, File> outputs = sampler.getOutputs();
+        assertEquals(2, outputs.size());
+        assertEquals(new File(scratch, "out.osm.pbf"), outputs
+                .get("write-pbf /data/out.osm.pbf"));
+        assertNull(outputs.get("write-apidb"));
+
+        /* the original pipeline must stay untouched */
+        assertSame(filter, successor(read));
+        assertEquals("/data/out.osm.pbf", write.getActiveTask()
+                .getParameters()[0].getValue());
+    }
+
+    /**
+     * The area is taken from a bounding box of the pipeline, or from the
+     * bounds of the input file.
+     */
+    @Test
+    public void testSuggestArea() throws ConnectorException, IOException {
+        File input = File.createTempFile("osmembrane-sample", ".osm");
+        FileOutputStream stream = new FileOutputStream(input);
+        stream.write(("<?xml version='1.0' encoding='UTF-8'?>\n"
+                + "<osm version=\"0.6\" generator=\"test\">\n"
+                + "  <bounds minlon=\"8.0\" minlat=\"48.0\" "
+                + "maxlon=\"9.0\" maxlat=\"50.0\"/>\n").getBytes("UTF-8"));
+        stream.close();
+
+        AbstractPipeline pl = new Pipeline(true, true);
+        AbstractFunction read = create(pl, "read-xml");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.getActiveTask().getParameters()[0].setValue(input
+                .getAbsolutePath());
+        read.addConnectionTo(write);
+
+        PipelineSampler sampler = new PipelineSampler(Arrays.asList(pl
+                .getFunctions()), null);
+        assertEquals(PipelineSampler.getArea(49.0, 8.5), sampler.suggestArea());
+
+        AbstractFunction bbox = create(pl, "bounding-box");
+        bbox.getActiveTask().setBBox("10;20;12;22");
+        sampler = new PipelineSampler(Arrays.asList(pl.getFunctions()), null);
+        assertEquals(PipelineSampler.getArea(11.0, 21.0), sampler.suggestArea());
+
+        input.delete();
+    }
+
+    private AbstractFunction create(AbstractPipeline pl, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pl.addFunction(function);
+        return function;
+    }
+
+    private AbstractFunction find(List<AbstractFunction> functions,
+            String taskName) {
+        for (AbstractFunction function : functions) {
+            if (function.getActiveTask().getName().equals(taskName)) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    private AbstractFunction successor(AbstractFunction function) {
+        return function.getOutConnectors()[0].getConnections()[0].getParent();
+    }
+}
@@ -6,6 +6,8 @@ package de.osmembrane.model;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -14,6 +16,11 @@ import java.awt.geom.Point2D;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -23,8 +30,10 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import de.osmembrane.Application;
+import de.osmembrane.model.parser.ParserFactory;
 import de.osmembrane.model.persistence.FileException;
 import de.osmembrane.model.persistence.FileType;
+import de.osmembrane.model.persistence.PipelinePersistenceObject;
 import de.osmembrane.model.pipeline.AbstractConnector;
 import de.osmembrane.model.pipeline.AbstractFunction;
 import de.osmembrane.model.pipeline.AbstractFunctionGroup;
@@ -33,6 +42,7 @@ import de.osmembrane.model.pipeline.AbstractPipeline;
 import de.osmembrane.model.pipeline.ConnectorException;
 import de.osmembrane.model.pipeline.ConnectorType;
 import de.osmembrane.model.pipeline.CopyType;
+import de.osmembrane.model.pipeline.Pipeline;
 import de.osmembrane.resources.Constants;
 import de.osmembrane.tools.Tools;
 
@@ -669,6 +679,151 @@ public class PipelineTest {
         assertTrue(result.contains(af.getActiveTask().getName()));
     }
 
+    /**
+     * Test method for
+     * {@link de.osmembrane.model.pipeline.Pipeline#generateArguments(de.osmembrane.model.persistence.FileType)}
+     * .
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateArguments() throws ConnectorException {
+        AbstractFunction read = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("read-pbf");
+        AbstractFunction write = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("write-pbf");
+        read.getActiveTask().getParameters()[0].setValue("my planet.pbf");
+        pl.addFunction(read);
+        pl.addFunction(write);
+        read.addConnectionTo(write);
+
+        List<String> arguments = pl.generateArguments(FileType.EXECUTION_FILETYPE);
+
+        assertEquals("--read-pbf", arguments.get(0));
+        assertTrue("file name with spaces was split or quoted",
+                arguments.contains("file=my planet.pbf"));
+        assertEquals("inPipe.0=1", arguments.get(arguments.size() - 1));
+    }
+
+    /**
+     * The arguments of a tag-filter with a filter value containing spaces are
+     * the same words a shell reads from the generated script.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateArgumentsWithSpaces() throws ConnectorException {
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction write = create(pl, "write-pbf");
+        read.getActiveTask().getParameters()[0].setValue("my planet.pbf");
+        filter.getActiveTask().getParameters()[0]
+                .setValue("accept-ways highway=motorway,trunk");
+        read.addConnectionTo(filter);
+        filter.addConnectionTo(write);
+
+        List<String> arguments = pl
+                .generateArguments(FileType.EXECUTION_FILETYPE);
+        assertEquals(generateUncached(), arguments);
+        assertTrue(arguments.contains("accept-ways"));
+        assertTrue(arguments.contains("highway=motorway,trunk"));
+
+        /* the first word of the script is the osmosis binary */
+        List<String> words = tokenizeBash(pl.generate(FileType.BASH));
+        assertEquals(arguments, words.subList(1, words.size()));
+    }
+
+    /**
+     * Splits a generated bash script into the words the shell would pass to
+     * the command, comments and line continuations are dropped.
+     */
+    private List<String> tokenizeBash(String script) {
+        List<String> words = new ArrayList<String>();
+        StringBuilder word = null;
+        boolean quoted = false;
+        for (String line : script.split("\n")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.endsWith("\\")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            for (char c : (line + " ").toCharArray()) {
+                if (c == '"') {
+                    quoted = !quoted;
+                    if (word == null) {
+                        word = new StringBuilder();
+                    }
+                } else if (c == ' ' && !quoted) {
+                    if (word != null) {
+                        words.add(word.toString());
+                        word = null;
+                    }
+                } else {
+                    if (word == null) {
+                        word = new StringBuilder();
+                    }
+                    word.append(c);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Test method for the cached generation of
+     * {@link de.osmembrane.model.pipeline.Pipeline#generateArguments(FileType)}.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateCached() throws ConnectorException {
+        AbstractFunction read = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("read-pbf");
+        AbstractFunction write = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("write-pbf");
+        AbstractFunction write2 = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("write-xml");
+        pl.addFunction(read);
+        pl.addFunction(write);
+        pl.addFunction(write2);
+        read.addConnectionTo(write);
+
+        assertEquals(generateUncached(), pl
+                .generateArguments(FileType.EXECUTION_FILETYPE));
+
+        /* a changed parameter has to be generated again */
+        read.getActiveTask().getParameters()[0].setValue("changed.pbf");
+        List<String> arguments = pl
+                .generateArguments(FileType.EXECUTION_FILETYPE);
+        assertTrue("changed parameter not generated",
+                arguments.contains("file=changed.pbf"));
+        assertEquals(generateUncached(), arguments);
+
+        /* a new connection requires a tee and new pipes */
+        read.addConnectionTo(write2);
+        arguments = pl.generateArguments(FileType.EXECUTION_FILETYPE);
+        assertTrue("tee not generated", arguments.contains("--tee"));
+        assertEquals(generateUncached(), arguments);
+
+        pl.deleteFunction(write);
+        assertEquals(generateUncached(), pl
+                .generateArguments(FileType.EXECUTION_FILETYPE));
+    }
+
+    private List<String> generateUncached() {
+        return generateUncached(pl);
+    }
+
+    private List<String> generateUncached(AbstractPipeline pipeline) {
+        return ParserFactory
+                .getInstance()
+                .getParser(FileType.EXECUTION_FILETYPE.getParserClass())
+                .parsePipelineArguments(
+                        new PipelinePersistenceObject(Arrays.asList(pipeline
+                                .getFunctions()), pipeline.getSettings()));
+    }
+
     /**
      * Test method for {@link de.osmembrane.model.pipeline.Pipeline#isSaved()}.
      * 
@@ -688,4 +843,308 @@ public class PipelineTest {
 
     }
 
+    /**
+     * Test method for
+     * {@link de.osmembrane.model.pipeline.Pipeline#deduplicateReaders()}.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testDeduplicateReaders() throws ConnectorException {
+        AbstractFunction[] readers = new AbstractFunction[2];
+        AbstractFunction[] writers = new AbstractFunction[2];
+        for (int i = 0; i < 2; i++) {
+            readers[i] = ModelProxy.getInstance().getFunctions()
+                    .getMatchingFunctionForTaskName("read-pbf");
+            writers[i] = ModelProxy.getInstance().getFunctions()
+                    .getMatchingFunctionForTaskName("write-pbf");
+            pl.addFunction(readers[i]);
+            pl.addFunction(writers[i]);
+            readers[i].addConnectionTo(writers[i]);
+        }
+
+        assertEquals("duplicate readers not found", 1, pl
+                .findDuplicateReaders().getGroups().size());
+        assertEquals("pipeline changed by the preview", 4,
+                pl.getFunctions().length);
+
+        assertTrue("readers not deduplicated", pl.deduplicateReaders());
+        assertEquals(3, pl.getFunctions().length);
+        assertEquals("remaining reader does not feed both writers", 2,
+                readers[0].getOutConnectors()[0].getConnections().length);
+        assertTrue(pl.generate(FileType.BASH).contains("--tee"));
+
+        /* the whole deduplication is one undo step */
+        assertTrue(pl.undo());
+        assertEquals(4, pl.getFunctions().length);
+        assertFalse(pl.findDuplicateReaders().getGroups().isEmpty());
+    }
+
+    /**
+     * Branches are generated behind their common source, in the order of the
+     * connections, regardless of the order of the functions in the pipeline.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateOrderBranches() throws ConnectorException {
+        AbstractFunction writeXml = create(pl, "write-xml");
+        AbstractFunction second = create(pl, "tag-filter");
+        AbstractFunction writePbf = create(pl, "write-pbf");
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction first = create(pl, "tag-filter");
+        first.getActiveTask().getParameters()[0].setValue("accept-ways");
+        second.getActiveTask().getParameters()[0].setValue("reject-ways");
+        read.addConnectionTo(first);
+        read.addConnectionTo(second);
+        first.addConnectionTo(writePbf);
+        second.addConnectionTo(writeXml);
+
+        List<String> arguments = generateUncached();
+
+        assertEquals(Arrays.asList("--read-pbf", "--tee", "--tag-filter",
+                "--tag-filter", "--write-pbf", "--write-xml"),
+                getTasks(arguments));
+        assertTrue("branches swapped",
+                arguments.indexOf("accept-ways") < arguments
+                        .indexOf("reject-ways"));
+        assertDataFlowOrder(arguments);
+    }
+
+    /**
+     * A merge of two branches of the same source is generated behind both
+     * branches.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateOrderDiamond() throws ConnectorException {
+        AbstractFunction merge = create(pl, "merge");
+        AbstractFunction write = create(pl, "write-pbf");
+        AbstractFunction second = create(pl, "tag-filter");
+        AbstractFunction read = create(pl, "read-pbf");
+        AbstractFunction first = create(pl, "tag-filter");
+        read.addConnectionTo(first);
+        read.addConnectionTo(second);
+        first.addConnectionTo(merge);
+        second.addConnectionTo(merge);
+        merge.addConnectionTo(write);
+
+        List<String> arguments = generateUncached();
+
+        assertEquals(Arrays.asList("--read-pbf", "--tee", "--tag-filter",
+                "--tag-filter", "--merge", "--write-pbf"), getTasks(arguments));
+        assertDataFlowOrder(arguments);
+    }
+
+    /**
+     * Every fan-out gets its own tee directly behind the task, the consumers
+     * read from the outPipes of the tee in the order of the connections.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateOrderTees() throws ConnectorException {
+        AbstractFunction writeXml = create(pl, "write-xml");
+        AbstractFunction writePbf = create(pl, "write-pbf");
+        AbstractFunction discard = create(pl, "write-null");
+        AbstractFunction filter = create(pl, "tag-filter");
+        AbstractFunction read = create(pl, "read-pbf");
+        filter.getActiveTask().getParameters()[0].setValue("accept-ways");
+        read.addConnectionTo(filter);
+        read.addConnectionTo(discard);
+        filter.addConnectionTo(writePbf);
+        filter.addConnectionTo(writeXml);
+
+        assertEquals(Arrays.asList("--read-pbf", "outPipe.0=1", "--tee", "2",
+                "inPipe.0=1", "outPipe.0=2", "outPipe.1=3", "--tag-filter",
+                "accept-ways", "inPipe.0=2", "outPipe.0=4", "--tee", "2",
+                "inPipe.0=4", "outPipe.0=5", "outPipe.1=6", "--write-null",
+                "inPipe.0=3", "--write-pbf", "inPipe.0=5", "--write-xml",
+                "inPipe.0=6"), generateUncached());
+    }
+
+    /**
+     * The same pipeline always generates the same command line, also when it
+     * is built a second time.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateDeterministic() throws ConnectorException {
+        List<String> expected = null;
+        for (int run = 0; run < 3; run++) {
+            AbstractPipeline pipeline = new Pipeline(true, true);
+            AbstractFunction write = create(pipeline, "write-pbf");
+            AbstractFunction merge = create(pipeline, "merge");
+            AbstractFunction read = create(pipeline, "read-pbf");
+            AbstractFunction first = create(pipeline, "tag-filter");
+            AbstractFunction second = create(pipeline, "bounding-box");
+            AbstractFunction discard = create(pipeline, "write-null");
+            read.addConnectionTo(first);
+            read.addConnectionTo(second);
+            read.addConnectionTo(discard);
+            first.addConnectionTo(merge);
+            second.addConnectionTo(merge);
+            merge.addConnectionTo(write);
+
+            List<String> arguments = generateUncached(pipeline);
+            assertEquals(arguments, generateUncached(pipeline));
+            if (expected == null) {
+                expected = arguments;
+            } else {
+                assertEquals(expected, arguments);
+            }
+        }
+    }
+
+    /**
+     * A deep chain stored in reverse order is generated in the order of the
+     * data flow, every function exactly once.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testGenerateOrderDeep() throws ConnectorException {
+        List<String> arguments = generateUncached(reversedChain(8000));
+
+        List<String> tasks = getTasks(arguments);
+        assertEquals(8000, tasks.size());
+        assertEquals("--read-pbf", tasks.get(0));
+        for (int i = 1; i < 8000 - 1; i++) {
+            assertEquals("--tag-filter", tasks.get(i));
+        }
+        assertEquals("--write-pbf", tasks.get(8000 - 1));
+        assertDataFlowOrder(arguments);
+    }
+
+    /**
+     * Eight times the functions take about eight times as long instead of 64
+     * times like a quadratic ordering. Depends on the machine, so it is only
+     * run by hand.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    @Ignore
+    public void benchmarkGenerateOrder() throws ConnectorException {
+        AbstractPipeline small = reversedChain(1000);
+        AbstractPipeline large = reversedChain(8000);
+
+        /* warm up, then take the best of some runs against jitter */
+        generateUncached(small);
+        long smallTime = Long.MAX_VALUE;
+        long largeTime = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            generateUncached(small);
+            smallTime = Math.min(smallTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            generateUncached(large);
+            largeTime = Math.min(largeTime, System.nanoTime() - start);
+        }
+
+        assertTrue("generation does not scale linearly: " + smallTime
+                + " ns for 1000, " + largeTime + " ns for 8000 functions",
+                largeTime < 24 * smallTime);
+    }
+
+    /**
+     * Copies of a deep chain are connected like the originals, but neither
+     * to them nor to the pipeline.
+     * 
+     * @throws ConnectorException
+     */
+    @Test
+    public void testCopyFunctions() throws ConnectorException {
+        AbstractPipeline chain = reversedChain(8000);
+        AbstractFunction[] functions = chain.getFunctions();
+        functions[1].getActiveTask().getParameters()[0].setValue("accept-ways");
+
+        List<AbstractFunction> copies = chain.copyFunctions();
+        assertEquals(8000, copies.size());
+        assertEquals(8000, chain.getFunctions().length);
+        for (int i = 0; i < functions.length; i++) {
+            AbstractFunction copy = copies.get(i);
+            assertNotSame(functions[i], copy);
+            assertEquals(functions[i].getActiveTask().getName(), copy
+                    .getActiveTask().getName());
+        }
+        assertEquals("accept-ways", copies.get(1).getActiveTask()
+                .getParameters()[0].getValue());
+
+        /* the functions are stored from the writer back to the reader */
+        for (int i = 1; i < functions.length; i++) {
+            AbstractConnector[] connections = copies.get(i)
+                    .getOutConnectors()[0].getConnections();
+            assertEquals(1, connections.length);
+            assertSame(copies.get(i - 1), connections[0].getParent());
+        }
+        assertSame(copies.get(1), copies.get(0).getInConnectors()[0]
+                .getConnections()[0].getParent());
+    }
+
+    /**
+     * Builds read -> tag-filter -> ... -> write with the functions stored
+     * from the writer back to the reader.
+     */
+    private AbstractPipeline reversedChain(int size)
+            throws ConnectorException {
+        AbstractPipeline pipeline = new Pipeline(true, true);
+        AbstractFunction[] chain = new AbstractFunction[size];
+        chain[0] = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("read-pbf");
+        for (int i = 1; i < size - 1; i++) {
+            chain[i] = ModelProxy.getInstance().getFunctions()
+                    .getMatchingFunctionForTaskName("tag-filter");
+        }
+        chain[size - 1] = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName("write-pbf");
+
+        for (int i = size - 1; i >= 0; i--) {
+            pipeline.addFunction(chain[i]);
+        }
+        for (int i = 0; i < size - 1; i++) {
+            chain[i].addConnectionTo(chain[i + 1]);
+        }
+        return pipeline;
+    }
+
+    private AbstractFunction create(AbstractPipeline pipeline, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pipeline.addFunction(function);
+        return function;
+    }
+
+    /**
+     * Returns the task names of generated arguments.
+     */
+    private List<String> getTasks(List<String> arguments) {
+        List<String> tasks = new ArrayList<String>();
+        for (String argument : arguments) {
+            if (argument.startsWith("--")) {
+                tasks.add(argument);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Asserts that every inPipe reads a pipe which has been opened before.
+     */
+    private void assertDataFlowOrder(List<String> arguments) {
+        Set<String> opened = new HashSet<String>();
+        for (String argument : arguments) {
+            if (argument.startsWith("outPipe.")) {
+                opened.add(argument.substring(argument.indexOf('=') + 1));
+            } else if (argument.startsWith("inPipe.")) {
+                assertTrue("pipe read before it was opened: " + argument,
+                        opened.contains(argument.substring(argument
+                                .indexOf('=') + 1)));
+            }
+        }
+    }
+
 }
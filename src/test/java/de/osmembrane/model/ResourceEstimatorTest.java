@@ -0,0 +1,290 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.ResourceEstimate;
+import de.osmembrane.model.algorithms.ResourceEstimator;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.model.pipeline.TaskCostProfile;
+
+/**
+ * Tests the {@link ResourceEstimator} and the {@link TaskCostProfile}s read
+ * from the osmosis structure.
+ * 
+ * @author agent
+ */
+public class ResourceEstimatorTest {
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private static final double DELTA = 0.0001;
+
+    private File directory;
+
+    private AbstractPipeline pl;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("osmembrane-estimate", "");
+        directory.delete();
+        directory.mkdirs();
+
+        pl = new Pipeline(true, true);
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    /**
+     * The cost attributes of the osmosis structure are available as profile,
+     * missing attributes have their defaults.
+     */
+    @Test
+    public void testCostProfile() {
+        TaskCostProfile sort = profile("sort");
+        assertEquals(1.5, sort.getTime(), DELTA);
+        assertEquals(0.3, sort.getHeap(), DELTA);
+        assertEquals(3.0, sort.getDisk(), DELTA);
+        assertEquals(1.0, sort.getOutput(), DELTA);
+        assertFalse(sort.isScalingWithVertices());
+        assertTrue(sort.isHeapKnown());
+
+        TaskCostProfile read = profile("read-xml");
+        assertEquals(0.5, read.getTime(), DELTA);
+        assertEquals(0.0, read.getHeap(), DELTA);
+        assertEquals(0.0, read.getDisk(), DELTA);
+        assertEquals(0.1, read.getOutput(), DELTA);
+        assertFalse(read.isHeapKnown());
+
+        assertTrue(profile("bounding-polygon").isScalingWithVertices());
+    }
+
+    /**
+     * read (2 MB) -> tag-filter -> write, the input is taken from the file
+     * size and reduced by the output ratios of the tasks.
+     */
+    @Test
+    public void testFileSizeInput() throws IOException, ConnectorException {
+        write(new File(directory, "input.osm"), 2 * MEGABYTE);
+        AbstractFunction read = create("read-xml", "input.osm");
+        AbstractFunction filter = create("tag-filter", "accept-ways");
+        AbstractFunction write = create("write-null", null);
+        read.addConnectionTo(filter);
+        filter.addConnectionTo(write);
+
+        ResourceEstimator estimator = estimate();
+
+        ResourceEstimate readEstimate = estimator.getEstimate(read);
+        assertEquals(2.0, readEstimate.getInput(), DELTA);
+        assertEquals(1.0, readEstimate.getTime(), DELTA);
+        assertEquals(0.2, readEstimate.getOutput(), DELTA);
+        assertTrue(readEstimate.isInputKnown());
+
+        ResourceEstimate filterEstimate = estimator.getEstimate(filter);
+        assertEquals(0.2, filterEstimate.getInput(), DELTA);
+        assertEquals(0.04, filterEstimate.getTime(), DELTA);
+        assertEquals(0.1, filterEstimate.getOutput(), DELTA);
+        assertTrue(filterEstimate.isInputKnown());
+
+        assertEquals(0.1, estimator.getEstimate(write).getInput(), DELTA);
+
+        /* none of the tasks knows its heap */
+        assertFalse(estimator.isHeapKnown());
+
+        List<ResourceEstimate> estimates = estimator.getEstimates();
+        assertEquals(3, estimates.size());
+        assertTrue(estimates.get(0) == readEstimate);
+        assertTrue(estimates.get(1) == filterEstimate);
+    }
+
+    /**
+     * A compressed file counts with its uncompressed size.
+     */
+    @Test
+    public void testCompressedInput() throws IOException {
+        write(new File(directory, "input.osm.gz"), MEGABYTE);
+        AbstractFunction read = create("read-xml", "input.osm.gz");
+
+        assertEquals(8.0, estimate().getEstimate(read).getInput(), DELTA);
+    }
+
+    /**
+     * A missing input file is replaced by a fixed size and marks the whole
+     * data flow behind it as unknown.
+     */
+    @Test
+    public void testUnknownSource() throws ConnectorException {
+        AbstractFunction read = create("read-xml", "missing.osm");
+        AbstractFunction filter = create("tag-filter", "accept-ways");
+        read.addConnectionTo(filter);
+
+        ResourceEstimator estimator = estimate();
+
+        assertEquals(100.0, estimator.getEstimate(read).getInput(), DELTA);
+        assertFalse(estimator.getEstimate(read).isInputKnown());
+        assertEquals(10.0, estimator.getEstimate(filter).getInput(), DELTA);
+        assertFalse(estimator.getEstimate(filter).isInputKnown());
+        assertEquals(-1, estimator.getInputEntities());
+    }
+
+    /**
+     * Every additional consumer of an output stream adds the copying time.
+     */
+    @Test
+    public void testFanOut() throws IOException, ConnectorException {
+        write(new File(directory, "input.osm"), MEGABYTE);
+        AbstractFunction read = create("read-xml", "input.osm");
+        AbstractFunction first = create("write-null", null);
+        AbstractFunction second = create("write-null", null);
+        read.addConnectionTo(first);
+        read.addConnectionTo(second);
+
+        ResourceEstimator estimator = estimate();
+
+        /* 0.5 * 1.0 + 0.05 * 0.1 * (2 - 1) */
+        assertEquals(0.505, estimator.getEstimate(read).getTime(), DELTA);
+        assertEquals(0.1, estimator.getEstimate(first).getInput(), DELTA);
+        assertEquals(0.1, estimator.getEstimate(second).getInput(), DELTA);
+    }
+
+    /**
+     * The time of a polygon filter grows with the vertices of the polygon.
+     */
+    @Test
+    public void testVertexScaling() throws IOException, ConnectorException {
+        write(new File(directory, "input.osm"), 10 * MEGABYTE);
+        File polygon = new File(directory, "polygon.txt");
+        FileWriter writer = new FileWriter(polygon);
+        try {
+            writer.write("area\n1\n");
+            for (int i = 0; i < 500; i++) {
+                writer.write("   " + (i / 100.0) + "   " + (i / 50.0) + "\n");
+            }
+            writer.write("END\nEND\n");
+        } finally {
+            writer.close();
+        }
+
+        AbstractFunction read = create("read-xml", "input.osm");
+        AbstractFunction clip = create("bounding-polygon", "polygon.txt");
+        read.addConnectionTo(clip);
+
+        /* 0.5 * 1.0 * (1 + 500 / 1000) */
+        assertEquals(0.75, estimate().getEstimate(clip).getTime(), DELTA);
+    }
+
+    /**
+     * read -> sort -> write, the read dominates the time and the sort the
+     * heap and disk, so both are hot spots.
+     */
+    @Test
+    public void testHotSpots() throws IOException, ConnectorException {
+        write(new File(directory, "input.osm"), 10 * MEGABYTE);
+        AbstractFunction read = create("read-xml", "input.osm");
+        AbstractFunction sort = create("sort", null);
+        AbstractFunction write = create("write-null", null);
+        read.addConnectionTo(sort);
+        sort.addConnectionTo(write);
+
+        ResourceEstimator estimator = estimate();
+
+        /* read 5.0, sort 1.5, write 0.05 */
+        assertEquals(6.55, estimator.getTotalTime(), DELTA);
+        assertEquals(0.3, estimator.getTotalHeap(), DELTA);
+        assertTrue(estimator.isHeapKnown());
+        assertEquals(3.0, estimator.getTotalDisk(), DELTA);
+
+        double relative = 0.0;
+        for (ResourceEstimate estimate : estimator.getEstimates()) {
+            relative += estimate.getRelativeTime();
+        }
+        assertEquals(1.0, relative, DELTA);
+
+        /* the read is a hot spot by time, the sort by heap and disk */
+        List<ResourceEstimate> hotSpots = estimator.getHotSpots();
+        assertEquals(2, hotSpots.size());
+        assertTrue(hotSpots.get(0) == estimator.getEstimate(read));
+        assertTrue(hotSpots.get(1) == estimator.getEstimate(sort));
+        assertFalse(estimator.getEstimate(write).isHotSpot());
+    }
+
+    private ResourceEstimator estimate() {
+        ResourceEstimator estimator = new ResourceEstimator(
+                Arrays.asList(pl.getFunctions()), directory);
+        estimator.run();
+        return estimator;
+    }
+
+    private TaskCostProfile profile(String taskName) {
+        return ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName).getActiveTask()
+                .getCostProfile();
+    }
+
+    private AbstractFunction create(String taskName, String value) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        if (value != null) {
+            function.getActiveTask().getParameters()[0].setValue(value);
+        }
+        pl.addFunction(function);
+        return function;
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void write(File file, double size) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(new byte[(int) size]);
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.parser.ParseException;
+import de.osmembrane.model.persistence.FileType;
+
+/**
+ * Tests the {@link BatchConverter}.
+ * 
+ * @author agent
+ */
+public class BatchConverterTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    /**
+     * Converts a valid and a broken script, the broken one must not stop the
+     * other one.
+     */
+    @Test
+    public void testConvert() throws IOException {
+        File directory = File.createTempFile("osmembrane-batch", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+
+        write(new File(directory, "a.sh"),
+                "osmosis --rx in.osm \\\n --wx out.osm\n");
+        write(new File(directory, "b.sh"),
+                "osmosis --rx in.osm \\\n --wx foo=bar\n");
+
+        List<BatchConverter.Result> results = new BatchConverter(directory,
+                FileType.OSMEMBRANE, null, 2, false).convert();
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertTrue(results.get(0).getTarget().isFile());
+        assertFalse(results.get(1).isSuccessful());
+        assertEquals(2, ((ParseException) results.get(1).getException()
+                .getParentException()).getLine());
+
+        results.get(0).getTarget().delete();
+        new File(directory, "a.sh").delete();
+        new File(directory, "b.sh").delete();
+    }
+
+    private void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+
+/**
+ * Tests the {@link InProcessOsmosis} with a fake osmosis which is compiled
+ * into a jar.
+ * 
+ * @author agent
+ */
+public class InProcessOsmosisTest {
+
+    private static final String FAKE_OSMOSIS = "package org.openstreetmap.osmosis.core;\n"
+            + "public class Osmosis {\n"
+            + "    private static int count = 0;\n"
+            + "    public static void run(String[] args) {\n"
+            + "        count++;\n"
+            + "        java.util.logging.Logger.getLogger(\"org.openstreetmap.osmosis.core\")\n"
+            + "                .info(\"Processing Node 1, 10.0 objects/second, run \" + count);\n"
+            + "        if (args.length > 0 && args[0].equals(\"fail\")) {\n"
+            + "            throw new IllegalStateException(\"failed\");\n"
+            + "        }\n"
+            + "    }\n" + "}\n";
+
+    private static final String EXITING_OSMOSIS = "package org.openstreetmap.osmosis.core;\n"
+            + "public class Osmosis {\n"
+            + "    public static void main(String[] args) {\n"
+            + "        System.exit(0);\n"
+            + "    }\n" + "}\n";
+
+    private static File directory;
+    private static File library;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+
+        directory = File.createTempFile("osmembrane-inprocess", "");
+        directory.delete();
+        directory.mkdirs();
+        library = new File(directory, "lib");
+        library.mkdirs();
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return;
+        }
+        compile(compiler, FAKE_OSMOSIS, library);
+    }
+
+    /**
+     * Compiles an Osmosis class into the osmosis-core.jar of a directory.
+     */
+    private static void compile(JavaCompiler compiler, String code,
+            File library) throws IOException {
+        File sources = File.createTempFile("src", "", directory);
+        sources.delete();
+        sources.mkdirs();
+        File source = new File(sources, "Osmosis.java");
+        FileWriter writer = new FileWriter(source);
+        writer.write(code);
+        writer.close();
+        File classes = new File(sources, "classes");
+        classes.mkdirs();
+        assertEquals(0, compiler.run(null, null, null, "-d", classes
+                .getAbsolutePath(), source.getAbsolutePath()));
+
+        library.mkdirs();
+        String name = InProcessOsmosis.MAIN_CLASS.replace('.', '/') + ".class";
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(
+                new File(library, "osmosis-core.jar")));
+        jar.putNextEntry(new JarEntry(name));
+        InputStream in = new FileInputStream(new File(classes, name));
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            jar.write(buffer, 0, read);
+        }
+        in.close();
+        jar.closeEntry();
+        jar.close();
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() {
+        delete(directory);
+    }
+
+    /**
+     * The logging of osmosis is the output of the run, the class loader is
+     * kept between the runs.
+     */
+    @Test
+    public void testRun() throws Exception {
+        if (!isCompiled()) {
+            return;
+        }
+        InProcessOsmosis osmosis = InProcessOsmosis.getInstance(library);
+        int runs = osmosis.getRuns();
+
+        Process process = osmosis.start(Arrays.asList("--rx", "in.osm"));
+        String output = read(process);
+        assertEquals(0, process.waitFor());
+        assertTrue(output, output.contains("INFO: Processing Node 1"));
+        assertEquals(runs + 1, osmosis.getRuns());
+
+        assertSame(osmosis, InProcessOsmosis.getInstance(library));
+        process = osmosis.start(Arrays.asList("--rx", "in.osm"));
+        output = read(process);
+        assertEquals(0, process.waitFor());
+        assertTrue(output, output.contains("run " + (runs + 2)));
+        assertFalse(process.isAlive());
+    }
+
+    /**
+     * An exception of osmosis becomes the exit value, the JVM keeps running.
+     */
+    @Test
+    public void testExit() throws Exception {
+        if (!isCompiled()) {
+            return;
+        }
+        InProcessOsmosis osmosis = InProcessOsmosis.getInstance(library);
+
+        Process process = osmosis.start(Arrays.asList("fail"));
+        String output = read(process);
+        assertEquals(InProcessOsmosis.EXIT_FAILED, process.waitFor());
+        assertEquals(InProcessOsmosis.EXIT_FAILED, process.exitValue());
+        assertTrue(output, output.contains("IllegalStateException"));
+
+        /* still usable afterwards */
+        process = osmosis.start(Arrays.asList("--rx", "in.osm"));
+        read(process);
+        assertEquals(0, process.waitFor());
+    }
+
+    /**
+     * A directory without osmosis is rejected, another directory gets a new
+     * class loader.
+     */
+    @Test
+    public void testLibraryDirectory() throws Exception {
+        if (!isCompiled()) {
+            return;
+        }
+        File empty = new File(directory, "empty");
+        empty.mkdirs();
+        try {
+            InProcessOsmosis.getInstance(empty);
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(empty.getName()));
+        }
+
+        InProcessOsmosis osmosis = InProcessOsmosis.getInstance(library);
+        assertEquals(library.getAbsoluteFile(), osmosis.getLibraryDirectory());
+        assertTrue(osmosis.canRun(null));
+
+        File other = new File(directory, "other");
+        other.mkdirs();
+        copy(new File(library, "osmosis-core.jar"), new File(other,
+                "osmosis-core.jar"));
+        assertNotSame(osmosis, InProcessOsmosis.getInstance(other));
+        assertEquals(0, InProcessOsmosis.getInstance(other).getRuns());
+    }
+
+    /**
+     * An osmosis which only has a main, which would exit the JVM, is
+     * rejected, so the pipeline is executed in its own JVM.
+     */
+    @Test
+    public void testMainOnly() throws Exception {
+        if (!isCompiled()) {
+            return;
+        }
+        File exiting = new File(directory, "exiting");
+        compile(ToolProvider.getSystemJavaCompiler(), EXITING_OSMOSIS,
+                exiting);
+        try {
+            InProcessOsmosis.getInstance(exiting);
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains(exiting.getName()));
+        }
+
+        assertEquals(0, InProcessOsmosis.getInstance(library).start(
+                Arrays.asList("--rx", "in.osm")).waitFor());
+    }
+
+    /**
+     * @return false if there is no compiler for the fake osmosis
+     */
+    private static boolean isCompiled() {
+        return new File(library, "osmosis-core.jar").exists();
+    }
+
+    private static String read(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                process.getInputStream()));
+        StringBuilder output = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            output.append(line).append('\n');
+        }
+        return output.toString();
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        FileOutputStream out = new FileOutputStream(to);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        out.close();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
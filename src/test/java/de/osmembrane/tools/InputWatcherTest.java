@@ -0,0 +1,182 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Tests the {@link InputWatcher}, the time is passed explicitly to
+ * {@link InputWatcher#check(long)}.
+ * 
+ * @author agent
+ */
+public class InputWatcherTest {
+
+    private static final long QUIET = 1000;
+
+    private File input;
+
+    private List<List<File>> executions = new ArrayList<List<File>>();
+    private boolean running = false;
+
+    private InputWatcher watcher;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        input = File.createTempFile("osmembrane-watch", ".osm");
+        write("a", 1000000);
+
+        watcher = new InputWatcher(Arrays.asList(input),
+                new InputWatcher.Target() {
+
+                    @Override
+                    public boolean isRunning() {
+                        return running;
+                    }
+
+                    @Override
+                    public void execute(List<File> changed) {
+                        executions.add(changed);
+                    }
+
+                    @Override
+                    public void report(String message) {
+                    }
+                });
+        watcher.setQuietPeriod(QUIET);
+        watcher.reset(0);
+    }
+
+    @After
+    public void tearDown() {
+        input.delete();
+    }
+
+    @Test
+    public void testDebounce() throws IOException {
+        watcher.check(100);
+        assertEquals(0, executions.size());
+
+        /* a burst of changes is executed once it is quiet */
+        write("ab", 2000000);
+        watcher.check(200);
+        write("abc", 3000000);
+        watcher.check(700);
+        watcher.check(1500);
+        assertEquals(0, executions.size());
+        watcher.check(1700);
+        assertEquals(1, executions.size());
+        assertEquals(input.getAbsoluteFile(), executions.get(0).get(0));
+
+        /* nothing has changed since the execution */
+        watcher.check(5000);
+        assertEquals(1, executions.size());
+    }
+
+    @Test
+    public void testUnchanged() throws IOException {
+        /* changed and changed back before it was stable */
+        write("ab", 2000000);
+        watcher.check(100);
+        write("a", 1000000);
+        watcher.check(200);
+        watcher.check(5000);
+        assertEquals(0, executions.size());
+    }
+
+    @Test
+    public void testRunning() throws IOException {
+        running = true;
+        write("ab", 2000000);
+        watcher.check(100);
+        watcher.check(2000);
+        assertEquals(0, executions.size());
+
+        /* the change is kept until the execution has finished */
+        running = false;
+        watcher.check(3000);
+        assertEquals(1, executions.size());
+    }
+
+    @Test
+    public void testMinimumInterval() throws IOException {
+        watcher.setMinimumInterval(10000);
+        write("ab", 2000000);
+        watcher.check(100);
+        watcher.check(2000);
+        assertEquals(1, executions.size());
+
+        write("abc", 3000000);
+        watcher.check(3000);
+        watcher.check(5000);
+        assertEquals(1, executions.size());
+        watcher.check(12000);
+        assertEquals(2, executions.size());
+    }
+
+    /**
+     * Only the files of the readers are inputs, relative ones are resolved
+     * against the working directory.
+     */
+    @Test
+    public void testGetInputs() throws ConnectorException {
+        AbstractPipeline pipeline = new Pipeline(true, true);
+        AbstractFunction read = create(pipeline, "read-xml");
+        AbstractFunction write = create(pipeline, "write-xml");
+        read.getActiveTask().getParameters()[0].setValue(input.getName());
+        write.getActiveTask().getParameters()[0].setValue("out.osm");
+        read.addConnectionTo(write);
+
+        List<File> inputs = InputWatcher.getInputs(Arrays.asList(pipeline
+                .getFunctions()), input.getParentFile());
+        assertEquals(Arrays.asList(input), inputs);
+    }
+
+    private void write(String content, long modified) throws IOException {
+        FileWriter writer = new FileWriter(input);
+        writer.write(content);
+        writer.close();
+        input.setLastModified(modified);
+    }
+
+    private AbstractFunction create(AbstractPipeline pipeline, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pipeline.addFunction(function);
+        return function;
+    }
+}
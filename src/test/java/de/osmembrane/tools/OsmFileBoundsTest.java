@@ -0,0 +1,138 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link OsmFileBounds}.
+ * 
+ * @author agent
+ */
+public class OsmFileBoundsTest {
+
+    /**
+     * The bbox of a PBF header block, stored raw and compressed.
+     */
+    @Test
+    public void testPbf() throws IOException {
+        /* HeaderBBox: left, right, top, bottom in nanodegrees */
+        byte[] bbox = concat(varintField(1, zigzag(8400000000L)),
+                varintField(2, zigzag(8500000000L)),
+                varintField(3, zigzag(49100000000L)),
+                varintField(4, zigzag(-1000000000L)));
+        byte[] headerBlock = concat(bytesField(1, bbox),
+                bytesField(4, "OsmSchema-V0.6".getBytes("UTF-8")));
+
+        byte[] compressed = new byte[1024];
+        Deflater deflater = new Deflater();
+        deflater.setInput(headerBlock);
+        deflater.finish();
+        int length = deflater.deflate(compressed);
+        byte[] zlib = new byte[length];
+        System.arraycopy(compressed, 0, zlib, 0, length);
+
+        byte[][] blobs = {
+                bytesField(1, headerBlock),
+                concat(varintField(2, headerBlock.length),
+                        bytesField(3, zlib)) };
+        for (byte[] blob : blobs) {
+            File file = File.createTempFile("osmembrane-bounds", ".osm.pbf");
+            DataOutputStream stream = new DataOutputStream(
+                    new FileOutputStream(file));
+            byte[] blobHeader = concat(
+                    bytesField(1, "OSMHeader".getBytes("UTF-8")),
+                    varintField(3, blob.length));
+            stream.writeInt(blobHeader.length);
+            stream.write(blobHeader);
+            stream.write(blob);
+            stream.close();
+
+            double[] bounds = OsmFileBounds.read(file);
+            file.delete();
+            assertEquals(-1.0, bounds[0], 1e-9);
+            assertEquals(8.4, bounds[1], 1e-9);
+            assertEquals(49.1, bounds[2], 1e-9);
+            assertEquals(8.5, bounds[3], 1e-9);
+        }
+    }
+
+    /**
+     * The bound element of older XML files, and a file without bounds.
+     */
+    @Test
+    public void testXml() throws IOException {
+        File file = File.createTempFile("osmembrane-bounds", ".osm");
+        FileOutputStream stream = new FileOutputStream(file);
+        stream.write("<osm version=\"0.5\">\n<bound box=\"48.5,8.25,49,8.75\" origin=\"test\"/>\n"
+                .getBytes("UTF-8"));
+        stream.close();
+
+        double[] bounds = OsmFileBounds.read(file);
+        assertEquals(48.5, bounds[0], 1e-9);
+        assertEquals(8.25, bounds[1], 1e-9);
+        assertEquals(49.0, bounds[2], 1e-9);
+        assertEquals(8.75, bounds[3], 1e-9);
+
+        stream = new FileOutputStream(file);
+        stream.write("<osm version=\"0.6\">\n<node id=\"1\"/>\n"
+                .getBytes("UTF-8"));
+        stream.close();
+        assertNull(OsmFileBounds.read(file));
+        file.delete();
+    }
+
+    private long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private byte[] varintField(int field, long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, field << 3);
+        writeVarint(out, value);
+        return out.toByteArray();
+    }
+
+    private byte[] bytesField(int field, byte[] value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, (field << 3) | 2);
+        writeVarint(out, value.length);
+        out.write(value, 0, value.length);
+        return out.toByteArray();
+    }
+
+    private void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link OsmosisProgress}.
+ * 
+ * @author agent
+ */
+public class OsmosisProgressTest {
+
+    /**
+     * The entities are summed up from the rates, a new entity type starts a
+     * new stage.
+     */
+    @Test
+    public void testStages() {
+        OsmosisProgress progress = new OsmosisProgress(0);
+        progress.setExpectedEntities(10000);
+
+        assertFalse(progress.parse("INFO: Osmosis Version 0.40.1", 0));
+        assertTrue(progress.parse(
+                "INFO: Pipeline executing, waiting for completion.", 1000));
+        assertTrue(progress.parse(
+                "INFO: Processing Node 123, 1000.0 objects/second.", 6000));
+        assertTrue(progress.parse(
+                "INFO: Processing Node 4567, 500.0 objects/second.", 11000));
+        assertTrue(progress.parse(
+                "INFO: Processing Way 89, 100.0 objects/second.", 16000));
+
+        List<OsmosisProgress.Stage> stages = progress.getStages();
+        assertEquals(2, stages.size());
+        assertEquals("Node", stages.get(0).getName());
+        assertEquals(7500, stages.get(0).getEntities());
+        assertEquals(10000, stages.get(0).getElapsed());
+        assertEquals("Way", stages.get(1).getName());
+        assertEquals(500, stages.get(1).getEntities());
+
+        assertEquals(8000, progress.getProcessed());
+        assertEquals(80, progress.getProgress());
+        assertEquals(100.0, progress.getCurrentRate(16000), 0.001);
+        assertEquals(20000, progress.getRemainingTime(16000));
+
+        /* a silent logger has no current rate */
+        assertEquals(0.0, progress.getCurrentRate(60000), 0.001);
+
+        assertTrue(progress.parse("INFO: Pipeline complete.", 20000));
+        assertEquals(100, progress.getProgress());
+    }
+
+    /**
+     * Labeled loggers are counted separately.
+     */
+    @Test
+    public void testLabels() {
+        OsmosisProgress progress = new OsmosisProgress(0);
+        progress.parse("INFO: [in] Processing Node 1, 10.0 objects/second.",
+                1000);
+        progress.parse("INFO: [out] Processing Node 1, 5.0 objects/second.",
+                1000);
+
+        assertEquals(2, progress.getStages().size());
+        assertEquals("[out] Node", progress.getStages().get(1).getName());
+        assertEquals(10, progress.getProcessed());
+        assertEquals(-1, progress.getProgress());
+        assertEquals(15.0, progress.getCurrentRate(1000), 0.001);
+    }
+}
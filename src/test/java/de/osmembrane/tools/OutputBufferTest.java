@@ -0,0 +1,73 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link OutputBuffer} of the {@link PipelineExecutor}.
+ * 
+ * @author agent
+ */
+public class OutputBufferTest {
+
+    /**
+     * Lines are drained in the order they were added, draining empties the
+     * buffer.
+     */
+    @Test
+    public void testDrainOrder() {
+        OutputBuffer buffer = new OutputBuffer(5);
+        buffer.add("a");
+        buffer.add("b");
+        buffer.add("c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), buffer.drain());
+        assertTrue(buffer.drain().isEmpty());
+
+        buffer.add("d");
+        assertEquals(Arrays.asList("d"), buffer.drain());
+    }
+
+    /**
+     * A full buffer drops its oldest lines and reports their count once in
+     * front of the remaining lines.
+     */
+    @Test
+    public void testDropOldest() {
+        OutputBuffer buffer = new OutputBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(String.valueOf(i));
+        }
+
+        assertEquals(Arrays.asList(skipped(2), "3", "4", "5"), buffer.drain());
+
+        /* the count starts again after a drain */
+        for (int i = 6; i <= 9; i++) {
+            buffer.add(String.valueOf(i));
+        }
+        assertEquals(Arrays.asList(skipped(1), "7", "8", "9"), buffer.drain());
+
+        buffer.add("10");
+        assertEquals(Arrays.asList("10"), buffer.drain());
+    }
+
+    private String skipped(int count) {
+        return I18N.getInstance().getString(
+                "Tools.PipelineExecutor.SkippedLines", String.valueOf(count));
+    }
+}
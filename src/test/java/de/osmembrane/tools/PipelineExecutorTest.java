@@ -0,0 +1,175 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.view.interfaces.IExecutionStateDialog;
+
+/**
+ * Tests the sizing of independent processes of the {@link PipelineExecutor}
+ * with a fake osmosis which logs its JVM options.
+ * 
+ * @author agent
+ */
+public class PipelineExecutorTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private File directory;
+
+    private File osmosis;
+
+    private File log;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("osmembrane-executor", "");
+        directory.delete();
+        directory.mkdirs();
+
+        log = new File(directory, "log");
+        osmosis = new File(directory, "osmosis.sh");
+        FileWriter writer = new FileWriter(osmosis);
+        try {
+            writer.write("#!/bin/sh\necho \"start $1 $"
+                    + JvmSizing.ENVIRONMENT_VARIABLE + "\" >> \""
+                    + log.getPath() + "\"\nsleep 0.2\necho \"end $1\" >> \""
+                    + log.getPath() + "\"\nexit 0\n");
+        } finally {
+            writer.close();
+        }
+        osmosis.setExecutable(true);
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * The first process is always admitted, the following ones only while
+     * the heaps fit into the budget.
+     */
+    @Test
+    public void testHeapBudget() {
+        assertTrue(PipelineExecutor.fitsHeapBudget(4096, 0, 0.0, 1000.0));
+        assertTrue(PipelineExecutor.fitsHeapBudget(400, 1, 600.0, 1000.0));
+        assertFalse(PipelineExecutor.fitsHeapBudget(401, 1, 600.0, 1000.0));
+        assertTrue(PipelineExecutor.fitsHeapBudget(4096, 3, 4096.0, 0.0));
+    }
+
+    /**
+     * Every process gets its own heap, and two processes whose heaps do not
+     * fit into the budget together do not run at the same time.
+     */
+    @Test
+    public void testComponentSizing() throws Exception {
+        /* the fake osmosis is a shell script */
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        List<List<String>> invocations = new ArrayList<List<String>>();
+        List<Set<Integer>> dependencies = new ArrayList<Set<Integer>>();
+        for (int i = 0; i < 3; i++) {
+            invocations.add(Arrays.asList("c" + i));
+            dependencies.add(Collections.<Integer> emptySet());
+        }
+        List<JvmSizing> jvmSizings = Arrays.asList(new JvmSizing(512, "",
+                null), new JvmSizing(640, "", null), new JvmSizing(768, "",
+                null));
+
+        PipelineExecutor executor = new PipelineExecutor(osmosis.getPath(),
+                directory.getPath(), invocations, dependencies, createDialog());
+        executor.setIndependent(3);
+        executor.setJvmSizings(jvmSizings, 1000.0);
+        executor.start();
+        executor.join(TIMEOUT);
+        assertFalse(executor.isAlive());
+        assertEquals(0, executor.getExecutionState());
+
+        List<String> lines = read(log);
+        assertEquals(lines.toString(), 6, lines.size());
+        for (int i = 0; i < lines.size(); i += 2) {
+            /* each process ends before the next one starts */
+            String[] start = lines.get(i).split(" ");
+            assertEquals("start", start[0]);
+            assertEquals("end " + start[1], lines.get(i + 1));
+
+            int index = Integer.parseInt(start[1].substring(1));
+            assertEquals(jvmSizings.get(index).getOptions(), lines.get(i)
+                    .substring(start[0].length() + start[1].length() + 2));
+        }
+    }
+
+    /**
+     * @return a dialog which ignores everything
+     */
+    private IExecutionStateDialog createDialog() {
+        return (IExecutionStateDialog) Proxy.newProxyInstance(getClass()
+                .getClassLoader(),
+                new Class<?>[] { IExecutionStateDialog.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method,
+                            Object[] args) {
+                        return null;
+                    }
+                });
+    }
+
+    private List<String> read(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+
+/**
+ * Tests the {@link PipelineRunner}.
+ * 
+ * @author agent
+ */
+public class PipelineRunnerTest {
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+    }
+
+    /**
+     * Overrides are applied to the matching task only.
+     */
+    @Test
+    public void testOverride() throws IOException {
+        File script = write("pipeline", ".sh",
+                "osmosis --rx in.osm --rx other.osm --merge --wx out.osm\n");
+
+        PipelineRunner runner = new PipelineRunner(script, "osmosis", null);
+        runner.addOverride("rx#2.file=changed.osm");
+        runner.addOverride("write-xml.file=result.osm");
+        List<String> arguments = runner.prepare(new PrintStream(
+                new ByteArrayOutputStream()));
+
+        assertTrue(arguments.toString(), arguments.contains("in.osm")
+                || arguments.contains("file=in.osm"));
+        assertTrue(arguments.toString(), arguments.contains("changed.osm")
+                || arguments.contains("file=changed.osm"));
+        assertTrue(arguments.toString(), arguments.contains("result.osm")
+                || arguments.contains("file=result.osm"));
+
+        runner = new PipelineRunner(script, "osmosis", null);
+        runner.addOverride("rx.nonsense=1");
+        assertNull(runner.prepare(new PrintStream(new ByteArrayOutputStream())));
+
+        script.delete();
+    }
+
+    /**
+     * The exit code of osmosis is passed through.
+     */
+    @Test
+    public void testExitCode() throws IOException {
+        /* the fake osmosis is a shell script */
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+
+        File script = write("pipeline", ".sh",
+                "osmosis --rx in.osm --wx out.osm\n");
+        File osmosis = write("osmosis", ".sh", "#!/bin/sh\necho \"$@\"\nexit 7\n");
+        osmosis.setExecutable(true);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PipelineRunner runner = new PipelineRunner(script,
+                osmosis.getAbsolutePath(), null);
+        runner.setHistory(null);
+        assertEquals(7, runner.run(new PrintStream(output)));
+        assertTrue(output.toString().contains("in.osm"));
+
+        runner = new PipelineRunner(new File(script.getPath() + ".missing"),
+                osmosis.getAbsolutePath(), null);
+        assertEquals(PipelineRunner.EXIT_INVALID,
+                runner.run(new PrintStream(new ByteArrayOutputStream())));
+
+        script.delete();
+        osmosis.delete();
+    }
+
+    /**
+     * Every run is recorded, a successful run is compared with the previous
+     * one.
+     */
+    @Test
+    public void testHistory() throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        File script = write("pipeline", ".sh",
+                "osmosis --rx in.osm --wx out.osm\n");
+        File osmosis = write("osmosis", ".sh", "#!/bin/sh\n"
+                + "echo \"INFO: Processing Node 1, 10.0 objects/second.\"\n"
+                + "exit 0\n");
+        osmosis.setExecutable(true);
+        File file = File.createTempFile("osmembrane-history", ".log");
+        file.delete();
+        RunHistory history = new RunHistory(file);
+
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            PipelineRunner runner = new PipelineRunner(script,
+                    osmosis.getAbsolutePath(), null);
+            runner.setHistory(history);
+            runner.addOverride("write-xml.file=out" + i + ".osm");
+            assertEquals(0, runner.run(new PrintStream(output)));
+            assertEquals(i > 0, output.toString().contains(
+                    I18N.getInstance().getString(
+                            "Tools.RunHistory.PipelineChanged", 1, 1)));
+        }
+
+        List<RunRecord> records = history.load();
+        assertEquals(2, records.size());
+        assertEquals(script.getAbsolutePath(), records.get(0).getPipeline());
+        assertEquals(1, records.get(0).getStages().size());
+        assertTrue(records.get(1).getOutputs().keySet().iterator().next()
+                .endsWith("out1.osm"));
+
+        file.delete();
+        script.delete();
+        osmosis.delete();
+    }
+
+    private File write(String prefix, String suffix, String content)
+            throws IOException {
+        File file = File.createTempFile(prefix, suffix);
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+        return file;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ProcessSampler}.
+ * 
+ * @author agent
+ */
+public class ProcessSamplerTest {
+
+    /**
+     * A shell with a child process is sampled as one tree, the series is
+     * thinned out instead of growing.
+     */
+    @Test
+    public void testSample() throws IOException {
+        /* without /proc the sampler only returns nothing */
+        if (!ProcessSampler.isAvailable()) {
+            assertNull(new ProcessSampler(0).sample(0));
+            return;
+        }
+
+        Process process = new ProcessBuilder("sh", "-c", "sleep 10; true")
+                .start();
+        try {
+            ProcessSampler sampler = new ProcessSampler(0);
+            assertNull(sampler.sample(0));
+            sampler.addProcess(process);
+
+            ProcessSampler.Sample sample = null;
+            for (int i = 1; i <= 2000; i++) {
+                sample = sampler.sample(i * 1000);
+            }
+
+            assertNotNull(sample);
+            assertEquals(2000000, sample.getTime());
+            assertTrue(sample.getRss() > 0);
+            /* the shell and sleep */
+            assertEquals(2, sample.getThreads());
+            assertTrue(sampler.getSamples().size() < 720);
+            assertEquals(1000, sampler.getSamples().get(0).getTime());
+        } finally {
+            process.destroy();
+        }
+    }
+}
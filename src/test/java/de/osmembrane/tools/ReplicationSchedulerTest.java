@@ -0,0 +1,262 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.FileLock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+
+/**
+ * Tests the {@link ReplicationScheduler}, a local directory with state files
+ * replaces the replication server.
+ * 
+ * @author agent
+ */
+public class ReplicationSchedulerTest {
+
+    private static final long HOUR = 3600000;
+
+    private File directory;
+    private File server;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("osmembrane-replication", "");
+        directory.delete();
+        directory.mkdirs();
+        server = new File(directory, "server");
+        server.mkdirs();
+
+        write(new File(directory, ReplicationScheduler.STATE_FILE),
+                state(10, "2010-05-17T09\\:00\\:00Z"));
+        write(new File(directory, ReplicationScheduler.CONFIGURATION_FILE),
+                "# configuration\nbaseUrl=" + server.toURI() + "\n"
+                        + "maxInterval = 3600\n");
+        write(new File(server, ReplicationScheduler.STATE_FILE), state(16,
+                "2010-05-17T15\\:00\\:00Z"));
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    /**
+     * The lag is measured against the server, several intervals are read in
+     * one run.
+     */
+    @Test
+    public void testLag() {
+        assertEquals(6 * HOUR, ReplicationScheduler.getLag(directory, 0));
+        assertEquals(HOUR, ReplicationScheduler.getMaxInterval(directory));
+
+        assertEquals(1, ReplicationScheduler.getBatch(-1, HOUR));
+        assertEquals(1, ReplicationScheduler.getBatch(HOUR, HOUR));
+        assertEquals(2, ReplicationScheduler.getBatch(HOUR + 1, HOUR));
+        assertEquals(6, ReplicationScheduler.getBatch(6 * HOUR, HOUR));
+        assertEquals(ReplicationScheduler.MAX_BATCH, ReplicationScheduler
+                .getBatch(1000 * HOUR, HOUR));
+        assertEquals(1, ReplicationScheduler.getBatch(6 * HOUR, -1));
+
+        /* without a server the lag is measured against now */
+        new File(server, ReplicationScheduler.STATE_FILE).delete();
+        assertEquals(HOUR, ReplicationScheduler.getLag(directory,
+                1274086800000L + HOUR));
+    }
+
+    /**
+     * A server which does not answer must not block the scheduler, the lag
+     * is measured against now after the timeout.
+     */
+    @Test
+    public void testLagWithSilentServer() throws IOException {
+        ServerSocket silent = new ServerSocket(0, 1, InetAddress
+                .getByName("127.0.0.1"));
+        try {
+            write(new File(directory, ReplicationScheduler.CONFIGURATION_FILE),
+                    "baseUrl=http://127.0.0.1:" + silent.getLocalPort()
+                            + "/\n");
+
+            long start = System.currentTimeMillis();
+            assertEquals(HOUR, ReplicationScheduler.getLag(directory,
+                    1274086800000L + HOUR));
+            assertTrue("waited too long for the server", System
+                    .currentTimeMillis()
+                    - start < 3 * ReplicationScheduler.SERVER_TIMEOUT);
+        } finally {
+            silent.close();
+        }
+    }
+
+    /**
+     * A run reads all missing intervals at once, the configuration is
+     * restored afterwards.
+     */
+    @Test
+    public void testExecute() throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ReplicationScheduler scheduler = new ReplicationScheduler(
+                new PrintStream(output));
+        ReplicationScheduler.Job job = scheduler.add(createRunner(new File(
+                server, ReplicationScheduler.STATE_FILE)), 0);
+        assertNotNull(job);
+        assertEquals(directory.getAbsoluteFile(), job.getDirectory()
+                .getAbsoluteFile());
+        assertEquals(HOUR, job.getPeriod());
+
+        scheduler.execute(job, 1000);
+        assertEquals(0, job.getExitCode());
+        assertEquals(0, job.getLag());
+        assertEquals(1000 + HOUR, job.getNextRun());
+        assertTrue(output.toString(), output.toString().contains(
+                "maxInterval=21600"));
+        assertEquals(HOUR, ReplicationScheduler.getMaxInterval(directory));
+    }
+
+    /**
+     * A run which is still behind is repeated right away.
+     */
+    @Test
+    public void testCatchUp() throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        File next = new File(server, "next.txt");
+        write(next, state(12, "2010-05-17T11\\:00\\:00Z"));
+
+        ReplicationScheduler scheduler = new ReplicationScheduler(
+                new PrintStream(new ByteArrayOutputStream()));
+        ReplicationScheduler.Job job = scheduler.add(createRunner(next), 0);
+
+        scheduler.execute(job, 1000);
+        assertEquals(4 * HOUR, job.getLag());
+        assertEquals(1000, job.getNextRun());
+
+        /* no progress, so it waits for the next period */
+        scheduler.execute(job, 2000);
+        assertEquals(2000 + HOUR, job.getNextRun());
+    }
+
+    /**
+     * A locked replication directory is skipped.
+     */
+    @Test
+    public void testLocked() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ReplicationScheduler scheduler = new ReplicationScheduler(
+                new PrintStream(output));
+        ReplicationScheduler.Job job = scheduler.add(createRunner(new File(
+                server, ReplicationScheduler.STATE_FILE)), 60000);
+
+        RandomAccessFile file = new RandomAccessFile(new File(directory,
+                "osmembrane.lock"), "rw");
+        FileLock lock = file.getChannel().lock();
+        try {
+            scheduler.execute(job, 1000);
+        } finally {
+            lock.release();
+            file.close();
+        }
+        assertEquals(-1, job.getExitCode());
+        assertEquals(61000, job.getNextRun());
+        assertTrue(output.toString().contains(
+                I18N.getInstance().getString(
+                        "Tools.ReplicationScheduler.Locked", job.getName(),
+                        job.getDirectory())));
+    }
+
+    /**
+     * Pipelines without a replication task are not scheduled.
+     */
+    @Test
+    public void testNoReplication() throws IOException {
+        File script = File.createTempFile("pipeline", ".sh");
+        write(script, "osmosis --rx in.osm --wx out.osm\n");
+        ReplicationScheduler scheduler = new ReplicationScheduler(
+                new PrintStream(new ByteArrayOutputStream()));
+        assertNull(scheduler.add(new PipelineRunner(script, "osmosis", null),
+                0));
+        assertTrue(scheduler.getJobs().isEmpty());
+        script.delete();
+    }
+
+    /**
+     * Creates a runner with a fake osmosis which prints the configuration
+     * and replaces the state by the given one.
+     */
+    private PipelineRunner createRunner(File newState) throws IOException {
+        File script = new File(directory, "pipeline.sh");
+        write(script, "osmosis --rri workingDirectory="
+                + directory.getAbsolutePath() + " --wxc file=out.osc\n");
+        File osmosis = new File(directory, "osmosis.sh");
+        write(osmosis, "#!/bin/sh\n" + "cat '"
+                + new File(directory, ReplicationScheduler.CONFIGURATION_FILE)
+                        .getAbsolutePath() + "'\n" + "cp '"
+                + newState.getAbsolutePath() + "' '"
+                + new File(directory, ReplicationScheduler.STATE_FILE)
+                        .getAbsolutePath() + "'\n" + "exit 0\n");
+        osmosis.setExecutable(true);
+
+        PipelineRunner runner = new PipelineRunner(script, osmosis
+                .getAbsolutePath(), directory);
+        runner.setHistory(null);
+        return runner;
+    }
+
+    private static String state(int sequenceNumber, String timestamp) {
+        return "#Mon May 17 09:00:00 UTC 2010\nsequenceNumber="
+                + sequenceNumber + "\ntimestamp=" + timestamp + "\n";
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        writer.write(content);
+        writer.close();
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
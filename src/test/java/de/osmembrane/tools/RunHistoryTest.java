@@ -0,0 +1,184 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+
+/**
+ * Tests the {@link RunHistory} and the {@link RunRecord}.
+ * 
+ * @author agent
+ */
+public class RunHistoryTest {
+
+    private File file;
+
+    private File input;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("osmembrane-history", ".log");
+        file.delete();
+        input = File.createTempFile("osmembrane-history", ".osm");
+        FileWriter writer = new FileWriter(input);
+        writer.write("<osm/>\n");
+        writer.close();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        input.delete();
+    }
+
+    /**
+     * A record survives the history unchanged, also with separators in its
+     * values.
+     */
+    @Test
+    public void testAppendAndLoad() throws Exception {
+        RunRecord record = createRecord("tab\tin\\name", 16);
+        OsmosisProgress progress = new OsmosisProgress(0);
+        progress.parse("INFO: Processing Node 1, 1000.0 objects/second.", 2000);
+        progress.parse("INFO: [b] Processing Way 2, 500.0 objects/second.",
+                3000);
+        record.start(1000, Collections.singletonList(Arrays.asList("--rx",
+                "file=a\nb.osm")));
+        record.addRunFile(new File("runs/20110215-155441-123-1.run.properties"));
+        record.finish(5000, 0, Collections.singletonList(progress));
+
+        RunHistory history = new RunHistory(file);
+        history.append(record);
+        history.append(createRecord("other", 16));
+
+        /* an interrupted write is skipped */
+        FileWriter writer = new FileWriter(file, true);
+        writer.write("version=1\tpipeline=");
+        writer.close();
+
+        List<RunRecord> records = history.load();
+        assertEquals(2, records.size());
+        RunRecord loaded = records.get(0);
+        assertEquals("tab\tin\\name", loaded.getPipeline());
+        assertEquals(record.getFingerprint(), loaded.getFingerprint());
+        assertEquals(record.getFunctions(), loaded.getFunctions());
+        assertEquals("file=a\nb.osm", loaded.getArguments().get(0).get(1));
+        assertEquals(4000, loaded.getDuration());
+        assertEquals(0, loaded.getExitCode());
+        assertEquals(2, loaded.getStages().size());
+        assertEquals("[b] Way", loaded.getStages().get(1).getName());
+        assertEquals(2000, loaded.getEntities());
+        assertEquals(500.0, loaded.getThroughput(), 1e-9);
+        assertEquals(Long.valueOf(input.length()), loaded.getInputs().get(
+                input.getAbsolutePath()));
+        assertEquals(Arrays.asList(new File(
+                "runs/20110215-155441-123-1.run.properties").getAbsolutePath()),
+                loaded.getRunFiles());
+        assertTrue(records.get(1).getRunFiles().isEmpty());
+        assertEquals(Arrays.asList("other", "tab\tin\\name"), RunHistory
+                .getPipelines(records));
+    }
+
+    /**
+     * A slower run is a regression, changed parameters are reported as
+     * changed functions and failed runs are no baseline.
+     */
+    @Test
+    public void testCompare() throws Exception {
+        RunRecord first = createRecord("p", 16);
+        first.start(0, Collections.<List<String>> emptyList());
+        first.finish(10000, 0, Collections.<OsmosisProgress> emptyList());
+
+        RunRecord failed = createRecord("p", 16);
+        failed.start(20000, Collections.<List<String>> emptyList());
+        failed.finish(21000, 1, Collections.<OsmosisProgress> emptyList());
+
+        RunRecord second = createRecord("p", 32);
+        second.start(30000, Collections.<List<String>> emptyList());
+        second.finish(42000, 0, Collections.<OsmosisProgress> emptyList());
+
+        RunHistory history = new RunHistory(file);
+        assertNull(history.appendAndCompare(first));
+        history.append(failed);
+        RunHistory.Comparison comparison = history.appendAndCompare(second);
+
+        assertTrue(comparison.getBaseline().getStarted() == 0);
+        assertEquals(0.2, comparison.getDurationChange(), 1e-9);
+        assertTrue(Double.isNaN(comparison.getThroughputChange()));
+        assertTrue(comparison.isRegression());
+        assertTrue(comparison.isPipelineChanged());
+        assertEquals(1, comparison.getRemovedFunctions().size());
+        assertEquals(1, comparison.getAddedFunctions().size());
+        assertTrue(comparison.getAddedFunctions().get(0).startsWith(
+                "buffer "));
+
+        List<RunRecord> runs = RunHistory.getRuns(history.load(), "p");
+        assertEquals(3, runs.size());
+        comparison = RunHistory.compare(runs.get(0), runs.get(0));
+        assertFalse(comparison.isRegression());
+        assertFalse(comparison.isPipelineChanged());
+    }
+
+    /**
+     * read-xml -> buffer -> write-null with the given buffer capacity.
+     */
+    private RunRecord createRecord(String name, int capacity)
+            throws ConnectorException {
+        AbstractPipeline pipeline = new Pipeline(true, true);
+        AbstractFunction read = create(pipeline, "read-xml");
+        AbstractFunction buffer = create(pipeline, "buffer");
+        AbstractFunction write = create(pipeline, "write-null");
+        read.getActiveTask().getParameters()[0].setValue(input
+                .getAbsolutePath());
+        buffer.getActiveTask().getParameters()[0].setValue(String
+                .valueOf(capacity));
+        read.addConnectionTo(buffer);
+        buffer.addConnectionTo(write);
+        return RunRecord.create(name, Arrays.asList(pipeline.getFunctions()),
+                null);
+    }
+
+    private AbstractFunction create(AbstractPipeline pipeline, String taskName) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        pipeline.addFunction(function);
+        return function;
+    }
+}
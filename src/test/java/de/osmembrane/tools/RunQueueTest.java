@@ -0,0 +1,245 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.algorithms.JvmSizing;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.tools.RunQueue.Job;
+import de.osmembrane.tools.RunQueue.State;
+
+/**
+ * Tests the {@link RunQueue} with a fake osmosis which runs until the test
+ * releases it.
+ * 
+ * @author agent
+ */
+public class RunQueueTest {
+
+    private static final long TIMEOUT = 10000;
+
+    private File directory;
+
+    private File osmosis;
+
+    private File release;
+
+    private Object poolSize;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("osmembrane-queue", "");
+        directory.delete();
+        directory.mkdirs();
+
+        release = new File(directory, "release");
+        osmosis = new File(directory, "osmosis.sh");
+        FileWriter writer = new FileWriter(osmosis);
+        try {
+            writer.write("#!/bin/sh\nwhile [ ! -f \"" + release.getPath()
+                    + "\" ]; do sleep 0.05; done\nexit 0\n");
+        } finally {
+            writer.close();
+        }
+        osmosis.setExecutable(true);
+
+        poolSize = ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.RUN_QUEUE_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ModelProxy.getInstance().getSettings()
+                .setValue(SettingType.RUN_QUEUE_SIZE, poolSize);
+        release.createNewFile();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    /**
+     * Never more jobs than the pool size are running, a finished job makes
+     * room for the next one.
+     */
+    @Test
+    public void testPoolSize() throws Exception {
+        /* the fake osmosis is a shell script */
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        ModelProxy.getInstance().getSettings()
+                .setValue(SettingType.RUN_QUEUE_SIZE, 2);
+        RunQueue queue = createQueue(true);
+
+        List<Job> jobs = new ArrayList<Job>();
+        for (int i = 0; i < 3; i++) {
+            jobs.add(add(queue, "job" + i));
+        }
+
+        assertEquals(Arrays.asList(State.RUNNING, State.RUNNING, State.QUEUED),
+                getStates(jobs));
+
+        /* the queued job is started when the others have ended */
+        release.createNewFile();
+        waitFor(queue, State.FINISHED, 3);
+        queue.shutdown();
+    }
+
+    /**
+     * The first job is started even if the machine seems to be too small for
+     * it, the following jobs have to wait for it.
+     */
+    @Test
+    public void testFirstJobAdmitted() throws Exception {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        ModelProxy.getInstance().getSettings()
+                .setValue(SettingType.RUN_QUEUE_SIZE, 4);
+        RunQueue queue = createQueue(false);
+
+        Job first = add(queue, "first");
+        Job second = add(queue, "second");
+        assertEquals(State.RUNNING, first.getState());
+        assertEquals(State.QUEUED, second.getState());
+
+        release.createNewFile();
+        waitFor(queue, State.FINISHED, 2);
+        queue.shutdown();
+    }
+
+    /**
+     * Queued and running jobs are saved and restored by the next queue,
+     * completed jobs are not.
+     */
+    @Test
+    public void testSaveLoad() throws Exception {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            return;
+        }
+        File queueFile = new File(directory, "queue");
+        RunQueue queue = new RunQueue(queueFile) {
+            @Override
+            boolean hasFreeResources(Job job, int running,
+                    double reservedHeap) {
+                return false;
+            }
+        };
+        Job running = add(queue, "running");
+        Job queued = add(queue, "queued");
+        Job cancelled = add(queue, "cancelled");
+        queue.cancel(cancelled);
+        assertEquals(State.RUNNING, running.getState());
+        assertEquals(State.QUEUED, queued.getState());
+        assertTrue(queueFile.isFile());
+
+        queue.shutdown();
+        assertTrue("queue file removed by the shutdown", queueFile.isFile());
+
+        RunQueue restored = new RunQueue(queueFile) {
+            @Override
+            boolean hasFreeResources(Job job, int running,
+                    double reservedHeap) {
+                return false;
+            }
+        };
+        restored.load();
+
+        List<Job> jobs = restored.getJobs();
+        assertEquals(2, jobs.size());
+        assertEquals("running", jobs.get(0).getName());
+        assertEquals("queued", jobs.get(1).getName());
+        assertEquals(64.0, jobs.get(1).getHeap(), 0.0);
+        assertEquals(Arrays.asList(State.RUNNING, State.QUEUED),
+                getStates(jobs));
+
+        release.createNewFile();
+        waitFor(restored, State.FINISHED, 2);
+        assertFalse("queue file kept after all jobs ended", queueFile.isFile());
+        restored.shutdown();
+    }
+
+    /**
+     * Creates a queue which is not saved, with free or no free resources for
+     * jobs beyond the first one.
+     */
+    private RunQueue createQueue(final boolean freeResources) {
+        return new RunQueue(new File(directory, "queue")) {
+            @Override
+            boolean hasFreeResources(Job job, int running,
+                    double reservedHeap) {
+                return freeResources;
+            }
+        };
+    }
+
+    private Job add(RunQueue queue, String name) {
+        return queue.add(name, osmosis.getAbsolutePath(), directory.getPath(),
+                Arrays.asList("--read-xml", "in.osm"),
+                new JvmSizing(64, "", null), null);
+    }
+
+    private List<State> getStates(List<Job> jobs) {
+        List<State> states = new ArrayList<State>();
+        for (Job job : jobs) {
+            states.add(job.getState());
+        }
+        return states;
+    }
+
+    /**
+     * Waits until the given count of jobs of the queue have a state.
+     */
+    private void waitFor(RunQueue queue, State state, int count)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (System.currentTimeMillis() < end) {
+            int found = 0;
+            for (Job job : queue.getJobs()) {
+                if (job.getState() == state) {
+                    found++;
+                }
+            }
+            if (found == count) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("jobs not " + state + " in time");
+    }
+}
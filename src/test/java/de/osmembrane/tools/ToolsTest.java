@@ -0,0 +1,91 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link Tools}.
+ * 
+ * @author agent
+ */
+public class ToolsTest {
+
+    /**
+     * Lines are appended one per line, empty lines are skipped.
+     */
+    @Test
+    public void testAppendLines() throws BadLocationException {
+        Document document = new PlainDocument();
+
+        assertTrue(Tools.appendLines(document, Arrays.asList("a", "", "b"), 10));
+        assertTrue(Tools.appendLines(document, Arrays.asList("c"), 10));
+        assertFalse(Tools.appendLines(document,
+                Arrays.asList("", (String) null), 10));
+
+        assertEquals("a\nb\nc", text(document));
+    }
+
+    /**
+     * Beyond the maximum the oldest lines are removed from the head of the
+     * document, also when one batch is larger than the maximum.
+     */
+    @Test
+    public void testAppendLinesTrimsHead() throws BadLocationException {
+        Document document = new PlainDocument();
+
+        Tools.appendLines(document, Arrays.asList("1", "2", "3"), 3);
+        assertEquals("1\n2\n3", text(document));
+
+        Tools.appendLines(document, Arrays.asList("4"), 3);
+        assertEquals("2\n3\n4", text(document));
+
+        Tools.appendLines(document, Arrays.asList("5", "6", "7", "8"), 3);
+        assertEquals("6\n7\n8", text(document));
+        assertEquals(3, document.getDefaultRootElement().getElementCount());
+    }
+
+    /**
+     * Many small batches keep the document at the maximum.
+     */
+    @Test
+    public void testAppendLinesRingBuffer() throws BadLocationException {
+        Document document = new PlainDocument();
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            Tools.appendLines(document, Arrays.asList("line " + i), 100);
+            if (i >= 900) {
+                expected.add("line " + i);
+            }
+        }
+
+        assertEquals(100, document.getDefaultRootElement().getElementCount());
+        assertEquals(expected, Arrays.asList(text(document).split("\n")));
+    }
+
+    private String text(Document document) throws BadLocationException {
+        return document.getText(0, document.getLength());
+    }
+}
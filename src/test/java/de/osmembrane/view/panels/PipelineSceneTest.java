@@ -0,0 +1,385 @@
+/*
+ * This file is part of the OSMembrane project.
+ * More informations under www.osmembrane.de
+ * 
+ * The project is licensed under the GNU GENERAL PUBLIC LICENSE 3.0.
+ * for more details about the license see http://www.osmembrane.de/license/
+ * 
+ * Source: $HeadURL$ ($Revision$)
+ * Last changed: $Date$
+ */
+
+package de.osmembrane.view.panels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.JComponent;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.osmembrane.Application;
+import de.osmembrane.model.ModelProxy;
+import de.osmembrane.model.pipeline.AbstractConnector;
+import de.osmembrane.model.pipeline.AbstractFunction;
+import de.osmembrane.model.pipeline.AbstractPipeline;
+import de.osmembrane.model.pipeline.ConnectorException;
+import de.osmembrane.model.pipeline.Pipeline;
+import de.osmembrane.model.settings.SettingType;
+import de.osmembrane.model.settings.UnparsableFormatException;
+import de.osmembrane.view.ViewRegistry;
+import de.osmembrane.view.panels.PipelineScene.SceneConnector;
+import de.osmembrane.view.panels.PipelineScene.SceneFunction;
+import de.osmembrane.view.panels.PipelineScene.SceneLink;
+
+/**
+ * Tests the {@link PipelineScene} and the {@link PipelinePanel} drawing it on
+ * the {@link PipelineCanvas}, headless.
+ * 
+ * @author agent
+ */
+public class PipelineSceneTest {
+
+    private static final double DELTA = 0.0001;
+
+    private Object canvasRendering;
+
+    private AbstractPipeline pl;
+
+    private PipelinePanel panel;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Application a = new Application();
+        a.createModels();
+        a.initiate();
+    }
+
+    @Before
+    public void setUp() {
+        canvasRendering = ModelProxy.getInstance().getSettings()
+                .getValue(SettingType.CANVAS_RENDERING);
+        pl = ModelProxy.getInstance().getPipeline();
+        pl.clear();
+    }
+
+    @After
+    public void tearDown() throws UnparsableFormatException {
+        if (panel != null) {
+            ViewRegistry.getInstance().deleteObserver(panel);
+            panel = null;
+        }
+        ModelProxy.getInstance().getSettings()
+                .setValue(SettingType.CANVAS_RENDERING, canvasRendering);
+        pl.clear();
+    }
+
+    /**
+     * Functions, connectors and links are found at their location, the
+     * topmost function wins.
+     */
+    @Test
+    public void testHitTesting() throws ConnectorException {
+        AbstractPipeline silent = new Pipeline(true, true);
+        AbstractFunction read = create(silent, "read-xml", 0, 0);
+        AbstractFunction write = create(silent, "write-xml", 400, 0);
+        read.addConnectionTo(write);
+
+        PipelineScene scene = createScene();
+        scene.rebuild(silent.getFunctions());
+        SceneFunction sfRead = scene.getFunction(read);
+        SceneFunction sfWrite = scene.getFunction(write);
+        assertEquals(2, scene.getFunctions().size());
+        assertEquals(1, scene.getLinks().size());
+
+        Rectangle2D bounds = sfRead.getBounds();
+        assertEquals(0.0, bounds.getX(), DELTA);
+        assertEquals(LibraryFunction.FUNCTION_SIZE.width, bounds.getWidth(),
+                DELTA);
+        assertSame(sfRead, scene.getFunctionAt(center(bounds)));
+        assertSame(sfWrite, scene.getFunctionAt(center(sfWrite.getBounds())));
+        assertNull(scene.getFunctionAt(new Point2D.Double(-1000, -1000)));
+
+        /* the connectors stick out of the sides of the function */
+        SceneConnector out = getConnector(sfRead, true);
+        SceneConnector in = getConnector(sfWrite, false);
+        assertEquals(bounds.getMaxX(), out.getBounds().getCenterX(), DELTA);
+        assertSame(out, scene.getConnectorAt(center(out.getBounds())));
+        assertSame(in, scene.getConnectorAt(center(in.getBounds())));
+        assertNull(scene.getConnectorAt(center(bounds)));
+
+        /* the link runs between the centers of the connectors */
+        SceneLink link = scene.getLinks().get(0);
+        assertSame(out, link.getLinkSource());
+        assertSame(in, link.getLinkDestination());
+        Line2D line = link.getLine();
+        assertEquals(center(out.getBounds()), line.getP1());
+        assertEquals(center(in.getBounds()), line.getP2());
+        Point2D middle = new Point2D.Double(
+                (line.getX1() + line.getX2()) / 2.0,
+                (line.getY1() + line.getY2()) / 2.0 + 5.0);
+        assertNull(scene.getLinkAt(middle, 1.0));
+        assertSame(link, scene.getLinkAt(middle, 10.0));
+
+        /* a function added later is on top */
+        AbstractFunction top = create(silent, "write-xml", 10, 10);
+        SceneFunction sfTop = scene.add(top);
+        Point2D overlap = new Point2D.Double(20, 20);
+        assertSame(sfTop, scene.getFunctionAt(overlap));
+        assertSame(sfTop, scene.remove(top));
+        assertSame(sfRead, scene.getFunctionAt(overlap));
+    }
+
+    /**
+     * Every change of the scene is counted, except dragging a function.
+     */
+    @Test
+    public void testVersion() throws ConnectorException {
+        AbstractPipeline silent = new Pipeline(true, true);
+        AbstractFunction read = create(silent, "read-xml", 0, 0);
+        AbstractFunction write = create(silent, "write-xml", 400, 0);
+        read.addConnectionTo(write);
+
+        PipelineScene scene = createScene();
+        int version = scene.getVersion();
+        scene.rebuild(silent.getFunctions());
+        assertTrue(scene.getVersion() > version);
+        SceneFunction sfRead = scene.getFunction(read);
+        assertEquals(scene.getLinks(), sfRead.getLinks());
+
+        /* a drag is only remembered as the moving function */
+        version = scene.getVersion();
+        scene.relocate(sfRead, new Point2D.Double(0, 300));
+        assertEquals(version, scene.getVersion());
+        assertSame(sfRead, scene.getMoving());
+        assertEquals(300.0, scene.getLinks().get(0).getLine().getY1()
+                - sfRead.getBounds().getHeight() / 2.0, DELTA);
+
+        scene.relocate(read);
+        assertTrue(scene.getVersion() > version);
+        assertNull(scene.getMoving());
+
+        version = scene.getVersion();
+        scene.removeLink(read.getOutConnectors()[0], write.getInConnectors()[0]);
+        assertTrue(scene.getVersion() > version);
+        assertTrue(sfRead.getLinks().isEmpty());
+    }
+
+    /**
+     * Zoomed out, the canvas draws the same after selecting, dragging and
+     * moving a function as a canvas drawing the scene from scratch.
+     */
+    @Test
+    public void testBufferedCanvas() throws Exception {
+        panel = createPanel(true);
+        AbstractFunction read = create(pl, "read-xml", 0, 0);
+        AbstractFunction write = create(pl, "write-xml", 400, 0);
+        create(pl, "write-xml", 20000, 10000);
+        read.addConnectionTo(write);
+        panel.showEntireView();
+
+        PipelineCanvas canvas = (PipelineCanvas) panel.getDisplay();
+        PipelineScene scene = panel.getScene();
+        SceneFunction sfRead = scene.getFunction(read);
+        panel.selected(null);
+        int[] unselected = paint(canvas);
+
+        panel.selected(sfRead);
+        int[] selected = paint(canvas);
+        assertFalse(Arrays.equals(unselected, selected));
+        assertRepainted(canvas, selected);
+
+        scene.relocate(sfRead, new Point2D.Double(10000, 0));
+        int[] dragged = paint(canvas);
+        assertFalse(Arrays.equals(selected, dragged));
+        assertRepainted(canvas, dragged);
+
+        write.setCoordinate(new Point2D.Double(10000, 10000));
+        assertRepainted(canvas, paint(canvas));
+
+        panel.selected(scene.getLinks().get(0));
+        assertRepainted(canvas, paint(canvas));
+    }
+
+    /**
+     * Adding, moving and deleting functions in the pipeline changes the
+     * scene of the panel.
+     */
+    @Test
+    public void testSceneUpdates() throws Exception {
+        panel = createPanel(true);
+
+        AbstractFunction read = create(pl, "read-xml", 0, 0);
+        PipelineScene scene = panel.getScene();
+        assertEquals(1, scene.getFunctions().size());
+        assertSame(read, panel.getSelectedFunction());
+
+        AbstractFunction write = create(pl, "write-xml", 400, 0);
+        read.addConnectionTo(write);
+        assertEquals(2, scene.getFunctions().size());
+        assertEquals(1, scene.getLinks().size());
+
+        /* the link follows the moved function, snapped to the raster */
+        write.setCoordinate(new Point2D.Double(400, 200));
+        SceneFunction sfWrite = scene.getFunction(write);
+        assertEquals(write.getCoordinate(), new Point2D.Double(sfWrite
+                .getBounds().getX(), sfWrite.getBounds().getY()));
+        assertTrue(sfWrite.getBounds().getY() > 100.0);
+        assertEquals(center(getConnector(sfWrite, false).getBounds()), scene
+                .getLinks().get(0).getLine().getP2());
+        Point2D onWrite = center(sfWrite.getBounds());
+        assertSame(sfWrite, scene.getFunctionAt(onWrite));
+
+        /* the link is removed with the function */
+        panel.selected(scene.getLinks().get(0));
+        assertTrue(pl.deleteFunction(write));
+        assertNull(scene.getFunction(write));
+        assertEquals(1, scene.getFunctions().size());
+        assertTrue(scene.getLinks().isEmpty());
+        assertNull(panel.getSelected());
+        assertNull(scene.getFunctionAt(onWrite));
+    }
+
+    /**
+     * A click selects the same function and connection with both renderers.
+     */
+    @Test
+    public void testSelectionAcrossRenderers() throws Exception {
+        AbstractFunction read = create(pl, "read-xml", 0, 0);
+        AbstractFunction write = create(pl, "write-xml", 400, 0);
+        read.addConnectionTo(write);
+        AbstractConnector[] connection = new AbstractConnector[] {
+                read.getOutConnectors()[0], write.getInConnectors()[0] };
+
+        double width = LibraryFunction.FUNCTION_SIZE.width;
+        double height = LibraryFunction.FUNCTION_SIZE.height;
+        Point2D onRead = new Point2D.Double(width / 2.0, height / 4.0);
+        Point2D onLink = new Point2D.Double((width + 400.0) / 2.0,
+                height / 2.0);
+        Point2D empty = new Point2D.Double(width / 2.0, height * 3.0);
+
+        for (boolean canvas : new boolean[] { false, true }) {
+            panel = createPanel(canvas);
+            assertEquals(canvas, panel.getDisplay() instanceof PipelineCanvas);
+
+            press(onRead);
+            assertSame(read, panel.getSelectedFunction());
+            assertNull(panel.getSelectedConnection());
+
+            press(onLink);
+            assertNull(panel.getSelectedFunction());
+            assertArrayEquals(connection, panel.getSelectedConnection());
+
+            panel.selected(null);
+            press(empty);
+            assertNull(panel.getSelected());
+
+            ViewRegistry.getInstance().deleteObserver(panel);
+        }
+        panel = null;
+    }
+
+    private PipelineScene createScene() {
+        return new PipelineScene(LibraryFunction.FUNCTION_SIZE.width,
+                LibraryFunction.FUNCTION_SIZE.height,
+                PipelineConnector.CONNECTOR_SIZE.width,
+                PipelineConnector.CONNECTOR_SIZE.height);
+    }
+
+    private PipelinePanel createPanel(boolean canvas)
+            throws UnparsableFormatException {
+        ModelProxy.getInstance().getSettings()
+                .setValue(SettingType.CANVAS_RENDERING, canvas);
+        PipelinePanel result = new PipelinePanel(new InspectorPanel(),
+                new JPopupMenu());
+        result.setSize(800, 600);
+        result.doLayout();
+        result.resetView();
+        return result;
+    }
+
+    private AbstractFunction create(AbstractPipeline pipeline,
+            String taskName, double x, double y) {
+        AbstractFunction function = ModelProxy.getInstance().getFunctions()
+                .getMatchingFunctionForTaskName(taskName);
+        function.setCoordinate(new Point2D.Double(x, y));
+        pipeline.addFunction(function);
+        return function;
+    }
+
+    private SceneConnector getConnector(SceneFunction sf, boolean outpipes) {
+        for (SceneConnector sc : sf.getConnectors()) {
+            if (sc.isOutpipes() == outpipes) {
+                return sc;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the pixels of the canvas painted on an image
+     */
+    private int[] paint(PipelineCanvas canvas) {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        canvas.paint(g);
+        g.dispose();
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    /**
+     * Asserts that the canvas paints the same without its buffer.
+     */
+    private void assertRepainted(PipelineCanvas canvas, int[] expected) {
+        canvas.discardBuffer();
+        assertArrayEquals("stale buffer", expected, paint(canvas));
+    }
+
+    private Point2D center(Rectangle2D bounds) {
+        return new Point2D.Double(bounds.getCenterX(), bounds.getCenterY());
+    }
+
+    /**
+     * Presses the mouse on the component of the display at a location, like
+     * AWT would deliver the event.
+     * 
+     * @param object
+     *            the location in object space
+     */
+    private void press(Point2D object) {
+        JComponent display = panel.getDisplay();
+        Point at = SwingUtilities.convertPoint(panel, panel
+                .objToWindow(object), display);
+        Component target = SwingUtilities.getDeepestComponentAt(display,
+                at.x, at.y);
+        assertNotNull(target);
+        assertFalse(target == panel);
+        at = SwingUtilities.convertPoint(display, at, target);
+        target.dispatchEvent(new MouseEvent(target, MouseEvent.MOUSE_PRESSED,
+                System.currentTimeMillis(), 0, at.x, at.y, 1, false,
+                MouseEvent.BUTTON1));
+    }
+}